@@ -0,0 +1,27 @@
+package main.encryption.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmarks.jar giriş noktası: JMH'yi GC profiler (gc.alloc.rate, gc.alloc.rate.norm)
+ * açık olarak çalıştırır. JMH komut satırı seçenekleri aynen geçerlidir, örn.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar CipherBenchmark -p cipher=AES,MANUAL_AES -p size=65536
+ * java -jar benchmarks/target/benchmarks.jar CipherSetupBenchmark -rf json
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,60 @@
+package main.encryption.benchmark;
+
+import main.encryption.EncryptionAlgorithm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Her şifrenin 64 B, 1 KB, 64 KB ve 1 MB girdide şifreleme ve çözme hızı.
+ * Şifre nesnesi ve girdiler deneme başında bir kez hazırlanır; ölçüme yalnızca
+ * encrypt/decrypt çağrısı girer. RSA tek blokla sınırlı olduğundan RsaBenchmark'ta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherBenchmark {
+
+    @Param({"AES", "MANUAL_AES", "DES", "MANUAL_DES", "SEZAR", "VIGENERE", "SUBSTITUTION",
+            "AFFINE", "ROUTE", "COLUMNAR", "POLYBIUS", "HILL", "GCD"})
+    public CipherKind cipher;
+
+    @Param({"64", "1024", "65536", "1048576"})
+    public int size;
+
+    private EncryptionAlgorithm algorithm;
+    private String plainText;
+    private String cipherText;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        algorithm = cipher.create();
+        plainText = cipher.payload(size);
+        cipherText = algorithm.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return algorithm.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return algorithm.decrypt(cipherText);
+    }
+}
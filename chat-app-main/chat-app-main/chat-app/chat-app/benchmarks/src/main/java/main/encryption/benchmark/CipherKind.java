@@ -0,0 +1,128 @@
+package main.encryption.benchmark;
+
+import main.encryption.AESCipher;
+import main.encryption.AffineCipher;
+import main.encryption.ColumnarTranspositionCipher;
+import main.encryption.DESCipher;
+import main.encryption.EncryptionAlgorithm;
+import main.encryption.GCDCipher;
+import main.encryption.HillCipher;
+import main.encryption.ManualAES;
+import main.encryption.ManualDES;
+import main.encryption.PolybiusCipher;
+import main.encryption.RSACipher;
+import main.encryption.RouteCipher;
+import main.encryption.SezarSifreleme;
+import main.encryption.SubstitutionCipher;
+import main.encryption.VigenereCipher;
+
+import java.util.Base64;
+import java.util.SplittableRandom;
+
+/**
+ * Ölçülen şifreleme sınıfları; anahtarlar EncryptionTest'tekilerle aynıdır.
+ * Blok şifreler uygulamadaki gibi Base64 metin (dosya verisi) alır, klasik
+ * şifreler yalnızca harfleri işlediği için büyük harf metinle beslenir.
+ */
+public enum CipherKind {
+    AES(true) {
+        EncryptionAlgorithm create() {
+            return new AESCipher("TestKey123456789");
+        }
+    },
+    MANUAL_AES(true) {
+        EncryptionAlgorithm create() {
+            return new ManualAES("TestKey123456789");
+        }
+    },
+    DES(true) {
+        EncryptionAlgorithm create() {
+            return new DESCipher("TestKey8");
+        }
+    },
+    MANUAL_DES(true) {
+        EncryptionAlgorithm create() {
+            return new ManualDES("TestKey8");
+        }
+    },
+    RSA(true) {
+        EncryptionAlgorithm create() {
+            return new RSACipher();
+        }
+    },
+    SEZAR(false) {
+        EncryptionAlgorithm create() {
+            return new SezarSifreleme(3);
+        }
+    },
+    VIGENERE(false) {
+        EncryptionAlgorithm create() {
+            return new VigenereCipher("ANAHTAR");
+        }
+    },
+    SUBSTITUTION(false) {
+        EncryptionAlgorithm create() {
+            return new SubstitutionCipher("QWERTYUIOPASDFGHJKLZXCVBNM");
+        }
+    },
+    AFFINE(false) {
+        EncryptionAlgorithm create() {
+            return new AffineCipher(5, 8);
+        }
+    },
+    ROUTE(false) {
+        EncryptionAlgorithm create() {
+            return new RouteCipher(4);
+        }
+    },
+    COLUMNAR(false) {
+        EncryptionAlgorithm create() {
+            return new ColumnarTranspositionCipher("ANAHTAR");
+        }
+    },
+    POLYBIUS(false) {
+        EncryptionAlgorithm create() {
+            return new PolybiusCipher();
+        }
+    },
+    HILL(false) {
+        EncryptionAlgorithm create() {
+            try {
+                return new HillCipher("GYBNQKURP");
+            } catch (Exception e) {
+                throw new IllegalStateException("Hill anahtarı geçersiz", e);
+            }
+        }
+    },
+    GCD(false) {
+        EncryptionAlgorithm create() {
+            return new GCDCipher(48, 18);
+        }
+    };
+
+    private final boolean base64Input;
+
+    CipherKind(boolean base64Input) {
+        this.base64Input = base64Input;
+    }
+
+    /** Anahtar hazırlığı dahil yeni bir örnek */
+    abstract EncryptionAlgorithm create();
+
+    /**
+     * Şifreye uygun, tam olarak size karakterlik (ASCII, dolayısıyla size bayt) sabit girdi
+     */
+    String payload(int size) {
+        SplittableRandom random = new SplittableRandom(size);
+        if (base64Input) {
+            byte[] data = new byte[(size * 3 + 3) / 4];
+            random.nextBytes(data);
+            return Base64.getEncoder().encodeToString(data).substring(0, size);
+        }
+        char[] text = new char[size];
+        for (int i = 0; i < size; i++) {
+            text[i] = (char) ('A' + random.nextInt(26));
+        }
+        return new String(text);
+    }
+}
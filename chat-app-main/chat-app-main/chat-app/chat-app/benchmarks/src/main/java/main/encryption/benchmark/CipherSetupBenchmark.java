@@ -0,0 +1,38 @@
+package main.encryption.benchmark;
+
+import main.encryption.EncryptionAlgorithm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Şifre nesnesi oluşturma ve anahtar hazırlama maliyeti (ör. AES anahtar genişletme,
+ * S-Box üretimi, Hill ters matrisi, RSA anahtar çifti üretimi), encrypt/decrypt'ten ayrı ölçülür.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherSetupBenchmark {
+
+    @Param({"AES", "MANUAL_AES", "DES", "MANUAL_DES", "RSA", "SEZAR", "VIGENERE", "SUBSTITUTION",
+            "AFFINE", "ROUTE", "COLUMNAR", "POLYBIUS", "HILL", "GCD"})
+    public CipherKind cipher;
+
+    @Benchmark
+    public EncryptionAlgorithm create() {
+        return cipher.create();
+    }
+}
@@ -0,0 +1,55 @@
+package main.encryption.benchmark;
+
+import main.encryption.RSACipher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RSACipher tek bir RSA-2048/PKCS#1 bloğu şifreler (en fazla 245 bayt); bu yüzden
+ * 1 KB ve üstü girdiler ölçülemez. 64 B ve tek bloğa sığan en büyük girdi ölçülür.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RsaBenchmark {
+
+    @Param({"64", "245"})
+    public int size;
+
+    private RSACipher algorithm;
+    private String plainText;
+    private String cipherText;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        algorithm = (RSACipher) CipherKind.RSA.create();
+        plainText = CipherKind.RSA.payload(size);
+        cipherText = algorithm.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return algorithm.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return algorithm.decrypt(cipherText);
+    }
+}
@@ -0,0 +1,78 @@
+package main;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kabul (accept) anındaki bağlantı sınırları: toplam bağlantı ve IP başına bağlantı.
+ * Sınırı aşan bağlantı istemci nesnesi oluşturulmadan reddedilir. Kabul edilen her
+ * bağlantı kapandığında release() ile yerini geri vermelidir.
+ */
+public class AdmissionControl {
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final ConcurrentHashMap<String, Integer> perAddress = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int maxConnections = 0;
+    private volatile int maxPerAddress = 0;
+
+    /**
+     * @param maxConnections toplam bağlantı sınırı, 0 ise sınırsız
+     * @param maxPerAddress  aynı IP'den bağlantı sınırı, 0 ise sınırsız
+     */
+    public void configure(int maxConnections, int maxPerAddress) {
+        this.maxConnections = Math.max(0, maxConnections);
+        this.maxPerAddress = Math.max(0, maxPerAddress);
+    }
+
+    /**
+     * @return bağlantı kabul edildiyse true; false ise hiçbir yer ayrılmamıştır
+     */
+    public boolean tryAdmit(String address) {
+        int limit = maxConnections;
+        int current;
+        do {
+            current = total.get();
+            if (limit > 0 && current >= limit) {
+                rejected.increment();
+                return false;
+            }
+        } while (!total.compareAndSet(current, current + 1));
+
+        int perLimit = maxPerAddress;
+        boolean[] admitted = new boolean[1];
+        perAddress.compute(address, (key, count) -> {
+            int value = (count == null) ? 0 : count;
+            if (perLimit > 0 && value >= perLimit) {
+                return count;
+            }
+            admitted[0] = true;
+            return value + 1;
+        });
+        if (!admitted[0]) {
+            total.decrementAndGet();
+            rejected.increment();
+        }
+        return admitted[0];
+    }
+
+    public void release(String address) {
+        total.decrementAndGet();
+        perAddress.computeIfPresent(address, (key, count) -> count <= 1 ? null : count - 1);
+    }
+
+    public int getConnectionCount() {
+        return total.get();
+    }
+
+    public int getConnectionCount(String address) {
+        Integer count = perAddress.get(address);
+        return (count == null) ? 0 : count;
+    }
+
+    /** Sınır nedeniyle reddedilen bağlantı sayısı */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
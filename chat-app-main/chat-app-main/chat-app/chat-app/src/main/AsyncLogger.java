@@ -0,0 +1,159 @@
+package main;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sunucu logları için sınırlı, kilitsiz halka tampon ve tek tüketici.
+ * Üreticiler (bağlantı thread'leri, reactor'lar) yalnızca bir CAS ile yer ayırıp
+ * mesajı yazar; zaman damgası da o an yalnızca sayı olarak alınır. Tüketici thread
+ * biriken satırları gruplar halinde alır, biçimlendirir ve sink'lere verir.
+ * Tampon doluysa yeni satır atılır ve sayılır; log hiçbir zaman gönderim yolunu bekletmez.
+ */
+public class AsyncLogger {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+    // Tampon boşken tüketicinin tekrar bakma aralığı
+    private static final long IDLE_PARK_NANOS = 20_000_000L;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final int mask;
+    private final String[] messages;
+    private final long[] times;
+    // Her yuvanın sırası: yazılabilir (i), okunabilir (i + 1), tekrar yazılabilir (i + kapasite)
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0;
+    private final LongAdder dropped = new LongAdder();
+    private final List<LogSink> sinks = new CopyOnWriteArrayList<>();
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    // Yalnızca tüketici thread'i erişir
+    private final String[] batch = new String[BATCH_SIZE];
+    private long formattedSecond = -1;
+    private String formattedTime;
+
+    /**
+     * @param capacity tamponda bekleyebilecek en fazla satır (2'nin kuvvetine yuvarlanır)
+     */
+    public AsyncLogger(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.messages = new String[size];
+        this.times = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.consumer = Thread.ofPlatform().name("Log-Writer").daemon(true).start(this::drainLoop);
+    }
+
+    public void addSink(LogSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Satırı kuyruğa alır; tampon doluysa atar
+     *
+     * @return satır atıldıysa false
+     */
+    public boolean log(String message) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence < position) {
+                dropped.increment();
+                return false;
+            }
+            if (sequence == position && tail.compareAndSet(position, position + 1))
+                break;
+        }
+        messages[index] = message;
+        times[index] = System.currentTimeMillis();
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /** Tampon dolu olduğu için atılan satır sayısı */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drainBatch() == 0) {
+                for (LogSink sink : sinks) {
+                    sink.flush();
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        while (drainBatch() > 0) {
+            // Kapanırken kalan satırlar da yazılır
+        }
+        for (LogSink sink : sinks) {
+            sink.close();
+        }
+    }
+
+    private int drainBatch() {
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1)
+                break;
+            batch[count++] = "[" + timestamp(times[index]) + "] " + messages[index];
+            messages[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+        }
+        if (count > 0) {
+            for (LogSink sink : sinks) {
+                try {
+                    sink.write(batch, count);
+                } catch (RuntimeException e) {
+                    // Bozuk bir sink diğerlerini ve tüketiciyi durdurmamalı
+                    dropped.add(count);
+                }
+            }
+            Arrays.fill(batch, 0, count, null);
+        }
+        return count;
+    }
+
+    private String timestamp(long millis) {
+        long second = millis / 1000;
+        if (second != formattedSecond) {
+            formattedSecond = second;
+            formattedTime = TIME_FORMAT.format(Instant.ofEpochMilli(millis));
+        }
+        return formattedTime;
+    }
+
+    /**
+     * Bekleyen satırları yazar, sink'leri kapatır
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package main;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * İstemcinin asenkron gönderim kuyruğunu test eder
+ * - Çağıran beklemeden döner, çerçeveler sırayla ve toplu flush'larla yazılır
+ * - Çerçeve üreticisi yazıcı thread'de çalışır, hatası yalnızca kendi sonucunu etkiler
+ * - Bağlantı yokken veya koptuğunda bekleyen gönderimler false ile tamamlanır
+ * - Parçalı dosya aktarımı kuyruktan geçer, araya sohbet mesajı girebilir
+ * - Dolu kuyrukta kayıplı politika dosya parçalarını atmaz; alıcı bildirilen boyutu aşan dosyayı reddeder
+ */
+public class AsyncSendTest {
+
+    private static final int PORT = 5060;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Asenkron Gönderim Testi ===\n");
+        ChatServer server = new ChatServer(PORT, message -> { }, ServerMode.NIO, 1);
+        server.configureOutboundQueue(8192, OverflowPolicy.DISCONNECT);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        serverThread.start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+        try {
+            burstScenario();
+            supplierScenario();
+            fileScenario();
+        } finally {
+            server.stopServer();
+            serverThread.join(5000);
+        }
+        disconnectScenario();
+        transferGuardScenario();
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static void burstScenario() throws Exception {
+        System.out.println("--- Toplu gönderim ---");
+        ChatClient sender = new ChatClient();
+        sender.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient receiver = new ChatClient();
+        receiver.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+
+        int count = 2000;
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            results.add(sender.sendMessageAsync("mesaj-" + i));
+        }
+        long enqueueMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        check("Tüm gönderimler başarıyla tamamlandı", results.stream().allMatch(CompletableFuture::join));
+        check("Kuyruğa ekleme beklemedi (" + enqueueMicros + " µs)", enqueueMicros < 500_000);
+
+        boolean ordered = true;
+        for (int i = 0; i < count; i++) {
+            Frame frame = receiver.readFrame();
+            if (frame == null || !("mesaj-" + i).equals(frame.text())) {
+                ordered = false;
+                break;
+            }
+        }
+        check("Mesajlar sırayla ulaştı", ordered);
+        check("Art arda mesajlar tek flush'ta birleştirildi",
+                sender.getAverageFramesPerFlush() > 1.5);
+        check("Gecikme ölçüldü, kuyruk boşaldı", sender.getSendLatency().getCount() == count
+                && sender.getSendQueueDepth() == 0);
+        check("Senkron gönderim de kuyruktan geçti", sender.sendMessage("senkron")
+                && "senkron".equals(receiver.readFrame().text()));
+        sender.disconnect();
+        receiver.disconnect();
+    }
+
+    private static void supplierScenario() throws Exception {
+        System.out.println("--- Çerçeve üreticisi ---");
+        ChatClient client = new ChatClient();
+        client.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        String[] threadName = new String[1];
+        CompletableFuture<Boolean> first = client.sendAsync(() -> {
+            threadName[0] = Thread.currentThread().getName();
+            return Frame.ofLine("birinci");
+        });
+        CompletableFuture<Boolean> broken = client.sendAsync(() -> {
+            throw new IllegalStateException("şifreleme hatası");
+        });
+        CompletableFuture<Boolean> last = client.sendMessageAsync("üçüncü");
+        check("Üretici yazıcı thread'de çalıştı", first.get(5, TimeUnit.SECONDS)
+                && "Client-Writer".equals(threadName[0]));
+        boolean failedExceptionally;
+        try {
+            broken.join();
+            failedExceptionally = false;
+        } catch (CompletionException e) {
+            failedExceptionally = e.getCause() instanceof IllegalStateException;
+        }
+        check("Üretici hatası sonuca aktarıldı", failedExceptionally);
+        check("Sonraki gönderim etkilenmedi", last.get(5, TimeUnit.SECONDS));
+        check("Diğer çerçeveler sırayla ulaştı", "birinci".equals(client.readFrame().text())
+                && "üçüncü".equals(client.readFrame().text()));
+        client.disconnect();
+
+        ChatClient offline = new ChatClient();
+        check("Bağlı değilken hemen false", !offline.sendMessageAsync("x").getNow(true));
+    }
+
+    private static void fileScenario() throws Exception {
+        System.out.println("--- Parçalı dosya ---");
+        ChatClient sender = new ChatClient();
+        sender.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient receiver = new ChatClient();
+        receiver.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        Path file = Files.createTempFile("async-send", ".bin");
+        try {
+            byte[] data = new byte[FileTransfer.CHUNK_SIZE * 10 + 123];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) i;
+            }
+            Files.write(file, data);
+            CompletableFuture<Boolean> transfer = sender.sendFileStreamAsync(file, "application/octet-stream", null);
+            CompletableFuture<Boolean> chat = sender.sendMessageAsync("dosya sırasında");
+            check("Dosya ve mesaj gönderildi", transfer.get(10, TimeUnit.SECONDS) && chat.get(10, TimeUnit.SECONDS));
+
+            int chunks = 0;
+            boolean chatSeen = false;
+            Frame frame;
+            while ((frame = receiver.readFrame()) != null && frame.type() != FrameType.FILE_END) {
+                if (frame.type() == FrameType.FILE_CHUNK) {
+                    chunks++;
+                } else if ("dosya sırasında".equals(frame.text())) {
+                    chatSeen = true;
+                }
+            }
+            check("Tüm parçalar ulaştı", chunks == 11 && frame != null);
+            if (!chatSeen) {
+                chatSeen = "dosya sırasında".equals(receiver.readFrame().text());
+            }
+            check("Sohbet mesajı da ulaştı", chatSeen);
+        } finally {
+            Files.deleteIfExists(file);
+            sender.disconnect();
+            receiver.disconnect();
+        }
+    }
+
+    private static void disconnectScenario() throws Exception {
+        System.out.println("--- Kopan bağlantı ---");
+        // Hiç okumayan sunucu: soket tamponu dolunca yazıcı bloklanır
+        try (ServerSocket fake = new ServerSocket(0)) {
+            ChatClient client = new ChatClient();
+            client.connect("127.0.0.1", fake.getLocalPort());
+            try (Socket peer = fake.accept()) {
+                check("Sahte sunucu bağlantıyı kabul etti", peer.isConnected());
+                String payload = "x".repeat(16 * 1024);
+                List<CompletableFuture<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                    results.add(client.sendMessageAsync(payload));
+                }
+                Thread.sleep(300);
+                check("Yazıcı bloklanınca kuyruk doldu", client.getSendQueueDepth() > 0);
+                client.disconnect();
+                boolean settled;
+                try {
+                    CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+                    settled = true;
+                } catch (java.util.concurrent.TimeoutException e) {
+                    settled = false;
+                }
+                check("Bekleyen gönderimler tamamlandı", settled);
+                check("Yazılamayanlar false döndü", results.stream().anyMatch(result -> !result.join()));
+            }
+        }
+    }
+
+    private static void transferGuardScenario() throws Exception {
+        System.out.println("--- Aktarım koruması ---");
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.DROP_OLDEST);
+        queue.offer(FrameCodec.encode(FileTransfer.chunk("t", 0, "QUFB"), WireProtocol.TEXT));
+        queue.offer(FrameCodec.encode(Frame.ofLine("sohbet"), WireProtocol.TEXT));
+        queue.offer(FrameCodec.encode(FileTransfer.chunk("t", 1, "QUFB"), WireProtocol.TEXT));
+        boolean accepted = queue.offer(FrameCodec.encode(FileTransfer.chunk("t", 2, "QUFB"), WireProtocol.TEXT))
+                == OutboundQueue.Offer.ACCEPTED;
+        check("Yer açmak için sohbet mesajı atıldı, parçalar kaldı", accepted && queue.droppedCount() == 1
+                && queue.depth() == 3);
+        check("Parçalarla dolu kuyrukta bağlantı kesilir",
+                queue.offer(FrameCodec.encode(FileTransfer.chunk("t", 3, "QUFB"), WireProtocol.TEXT))
+                        == OutboundQueue.Offer.OVERFLOW);
+        queue.close();
+
+        IncomingTransfer transfer = new IncomingTransfer("t", "a.bin", "application/octet-stream", 4, null);
+        boolean rejected;
+        try {
+            transfer.append(0, "QUFB");
+            transfer.append(1, "QUFB");
+            rejected = false;
+        } catch (IOException e) {
+            rejected = true;
+        } finally {
+            transfer.abort();
+        }
+        check("Bildirilen boyutu aşan parça reddedildi", rejected);
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
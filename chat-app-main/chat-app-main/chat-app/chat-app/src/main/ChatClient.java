@@ -2,85 +2,1156 @@ package main;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
 
 public class ChatClient {
-    private Socket socket;
-    private BufferedOutputStream outputStream;
-    private volatile boolean connected = false;
+    // El sıkışma yanıtı için beklenecek süre; eski sunucular hiç yanıt vermez
+    private static final int HANDSHAKE_TIMEOUT_MS = 2000;
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    public static final long DEFAULT_HEARTBEAT_INTERVAL_MILLIS = 5000;
+    public static final long DEFAULT_HEARTBEAT_TIMEOUT_MILLIS = 15000;
+    private static final int SEND_QUEUE_CAPACITY = 4096;
+    // Tek flush'ta yazılacak en fazla çerçeve
+    private static final int MAX_SEND_BATCH = 64;
+    // Dosya aktarımında yazılmayı bekleyebilecek en fazla parça
+    private static final int FILE_WINDOW = 4;
+    public static final long DEFAULT_RECONNECT_INITIAL_MILLIS = 500;
+    public static final long DEFAULT_RECONNECT_MAX_MILLIS = 30_000;
+    // Tekrar ayıklaması için penceresi tutulan en fazla gönderen
+    private static final int MAX_TRACKED_SENDERS = 1024;
+
+    // Tüm istemcilerin PING'lerini ve yeniden bağlanma denemelerini zamanlayan ortak thread
+    private static final ScheduledExecutorService HEARTBEAT = Executors.newSingleThreadScheduledExecutor(
+            task -> Thread.ofPlatform().name("Client-Heartbeat").daemon(true).unstarted(task));
+
+    // Yeniden bağlanma thread'i yeniden atar; send() ve heartbeat kilitsiz okur
+    private volatile Socket socket;
+    private volatile BufferedOutputStream outputStream;
+    private final AtomicReference<ConnectionState> state = new AtomicReference<>(ConnectionState.DISCONNECTED);
+    private final List<ConnectionListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile WireProtocol protocol = WireProtocol.TEXT;
+    private volatile String clientId;
+    // Yazıcı thread, heartbeat ve doğrudan send() aynı akışa yazar
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Gönderim kuyruğu: çağıranlar yalnızca ekler, soketi tek yazıcı thread yazar
+    private static final class PendingSend {
+        final Supplier<Frame> frame;
+        final CompletableFuture<Boolean> result;
+        final long enqueuedNanos;
+        // Yalnızca yazıcı thread'i: ilk yazımda oluşturulan çerçeve; tekrar yazılırken aynı numarayla gider
+        Frame built;
+        long sequence = -1;
+
+        PendingSend(Supplier<Frame> frame, CompletableFuture<Boolean> result, long enqueuedNanos) {
+            this.frame = frame;
+            this.result = result;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    // Otomatik yeniden bağlanma açıksa kopukluk sırasında da korunur: çevrimdışı yazılanlar kaybolmaz
+    private volatile LinkedBlockingDeque<PendingSend> sendQueue;
+    private volatile Thread writer;
+    private final Histogram sendLatency = new Histogram();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    // Heartbeat: sunucudan bu süre boyunca hiç veri gelmezse bağlantı kopmuş sayılır
+    private long heartbeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_HEARTBEAT_INTERVAL_MILLIS);
+    private long heartbeatTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_HEARTBEAT_TIMEOUT_MILLIS);
+    private volatile ScheduledFuture<?> heartbeat;
+    private volatile long lastReceivedNanos;
+    private volatile long rttNanos = -1;
+    private volatile long smoothedRttNanos = -1;
+
+    // Otomatik yeniden bağlanma; ilk gecikme 0 ise kapalı
+    private long reconnectInitialNanos = 0;
+    private long reconnectMaxNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RECONNECT_MAX_MILLIS);
+    private volatile String host;
+    private volatile int port;
+    private volatile WireProtocol preferred = WireProtocol.TEXT;
+    // disconnect() ile kullanıcı kapattıysa yeniden bağlanılmaz
+    private volatile boolean closedByUser = true;
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
+    private volatile ScheduledFuture<?> reconnectTask;
+    // Oturum sürdürme: sunucunun verdiği belirteç ve günlükte alındığı bilinen son offset
+    private volatile String sessionToken;
+    private volatile long sessionOffset = -1;
+
+    // Sıralı teslim: broadcast mesajları gönderen kimliği ve sıra numarasıyla gider.
+    // Kimliği sunucu atar (SENDER_ID); öğrenilene kadar yer tutucu yazılır, sunucu değiştirir
+    private static final String UNASSIGNED_SENDER = "-";
+    private volatile boolean sequencedDelivery = false;
+    private volatile String senderId;
+    private final AtomicLong nextSequence = new AtomicLong();
+    // Yazılmış, sunucunun ACK'ini bekleyen gönderimler; bağlantı koparsa yeniden yazılır
+    private final ConcurrentSkipListMap<Long, PendingSend> unacknowledged = new ConcurrentSkipListMap<>();
+    private volatile long acknowledgedSequence = 0;
+    // Alıcıların birikimli onayları: alıcı kimliği → son numara
+    private final ConcurrentHashMap<String, Long> deliveryAcknowledgements = new ConcurrentHashMap<>();
+    // Gönderen başına alınan numaralar; alıcı ve heartbeat thread'i kendi kilidiyle kullanır
+    private final LinkedHashMap<String, SequenceWindow> windows = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SequenceWindow> eldest) {
+            return size() > MAX_TRACKED_SENDERS;
+        }
+    };
+    private final LongAdder duplicatesDropped = new LongAdder();
+
+    /**
+     * Tek bir bağlantının okuma tarafı: akış, çözücü, çözülmüş çerçeveler ve tampon.
+     * Her bağlantı için yenisi oluşturulur ve bağlantının numarasını taşır; eski
+     * bağlantıda readFrame()'de kalmış bir alıcı yeni bağlantının tamponlarına dokunmaz.
+     */
+    private static final class Inbound {
+        final long generation;
+        final InputStream stream;
+        final ArrayDeque<Frame> frames = new ArrayDeque<>();
+        final InboundDecoder decoder = new InboundDecoder(FrameCodec.HELLO_ACK, frames::add);
+        final byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+        Inbound(long generation, InputStream stream) {
+            this.generation = generation;
+            this.stream = stream;
+        }
+    }
+
+    // Her open() artırır; okuma tarafı el sıkışma bitince yayınlanır
+    private volatile long generation;
+    private volatile Inbound inbound;
 
     public Socket getSocket() {
         return socket;
     }
 
+    public WireProtocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Heartbeat aralığını ve zaman aşımını ayarlar; connect()'ten önce çağrılmalıdır.
+     * interval 0 ise heartbeat kapalıdır.
+     */
+    public void setHeartbeat(long interval, long timeout, TimeUnit unit) {
+        if (interval > 0 && timeout <= interval) {
+            throw new IllegalArgumentException("Zaman aşımı heartbeat aralığından uzun olmalı");
+        }
+        heartbeatIntervalNanos = unit.toNanos(interval);
+        heartbeatTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Bağlantı beklenmedik şekilde koparsa yeniden bağlanır. n. denemeden önce
+     * [0, min(maxDelay, initialDelay * 2^n)) aralığında rastgele beklenir: yeniden
+     * başlayan sunucuya binlerce istemci aynı anda yüklenmez. Kopukluk sırasında
+     * gönderilenler kuyrukta bekler ve bağlantı kurulunca yazılır; ikili protokolde
+     * oturum sürdürülür ve sunucu kaçırılan mesajları günlüğünden yeniden gönderir.
+     * initialDelay 0 ise kapalıdır (varsayılan).
+     */
+    public void setAutoReconnect(long initialDelay, long maxDelay, TimeUnit unit) {
+        if (initialDelay > 0 && maxDelay < initialDelay) {
+            throw new IllegalArgumentException("En uzun bekleme ilk beklemeden kısa olamaz");
+        }
+        reconnectInitialNanos = unit.toNanos(initialDelay);
+        reconnectMaxNanos = unit.toNanos(maxDelay);
+    }
+
+    /** Sunucunun verdiği oturum belirteci; oturum yoksa null */
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    /** Sunucu günlüğünde bu offset'ten önceki mesajların alındığı bilinir; bilinmiyorsa -1 */
+    public long getSessionOffset() {
+        return sessionOffset;
+    }
+
+    /** Son başarılı bağlantıdan beri yapılan yeniden bağlanma denemesi */
+    public int getReconnectAttempts() {
+        return reconnectAttempts.get();
+    }
+
+    /**
+     * Sohbet mesajları ve dosyalar numaralanarak gönderilir (yalnızca ikili protokolde).
+     * Sunucu mesajı gönderene geri yansıtmaz, yalnızca numarayı taşıyan bir ACK döner:
+     * gönderim sonucu bu ACK ile tamamlanır ve mesaj yerelde gösterilmelidir. Bağlantı
+     * koparsa onaylanmamış mesajlar aynı numarayla yeniden yazılır; alıcılar tekrarları
+     * gönderen başına kayan pencereyle ayıklar ve aldıklarını heartbeat aralığında onaylar.
+     */
+    public void setSequencedDelivery(boolean enabled) {
+        sequencedDelivery = enabled;
+    }
+
+    /**
+     * Sunucunun numaralı mesajlara atadığı gönderen kimliği; oturum sürdürülüyorsa
+     * yeniden bağlanınca aynı kalır. İlk numaralı gönderimden önce null olabilir.
+     */
+    public String getSenderId() {
+        return senderId;
+    }
+
+    /** Sunucunun aldığını onayladığı son sıra numarası */
+    public long getAcknowledgedSequence() {
+        return acknowledgedSequence;
+    }
+
+    /** Yazılmış ama sunucunun henüz onaylamadığı numaralı gönderim sayısı */
+    public int getUnacknowledgedCount() {
+        return unacknowledged.size();
+    }
+
+    /** Alıcı kimliği → o alıcının birikimli olarak aldığı son sıra numarası */
+    public Map<String, Long> getDeliveryAcknowledgements() {
+        return new HashMap<>(deliveryAcknowledgements);
+    }
+
+    /** Tekrar geldiği için uygulamaya iletilmeyen numaralı mesaj sayısı */
+    public long getDuplicatesDropped() {
+        return duplicatesDropped.sum();
+    }
+
     public void connect(String host, int port) throws IOException {
-        socket = new Socket();
-        socket.connect(new InetSocketAddress(host, port), 3000);
-        socket.setKeepAlive(true);
-        socket.setTcpNoDelay(true);
-        socket.setOOBInline(true); // OOB data inline olarak alınsın
-        outputStream = new BufferedOutputStream(socket.getOutputStream());
-        connected = true;
+        connect(host, port, WireProtocol.TEXT);
     }
 
-    public boolean isConnected() {
-        if (!connected)
-            return false;
-        if (socket == null || socket.isClosed() || !socket.isConnected()) {
-            connected = false;
+    /**
+     * Bağlanır ve istenirse ikili protokol için el sıkışır.
+     * Sunucu el sıkışmayı desteklemiyorsa metin protokolünde kalınır.
+     */
+    public void connect(String host, int port, WireProtocol preferred) throws IOException {
+        if (state.get() != ConnectionState.DISCONNECTED) {
+            disconnect();
+        }
+        cancelReconnect();
+        this.host = host;
+        this.port = port;
+        this.preferred = preferred;
+        closedByUser = false;
+        open();
+    }
+
+    private void open() throws IOException {
+        if (!transition(ConnectionState.DISCONNECTED, ConnectionState.CONNECTING)) {
+            throw new IOException("Bağlantı zaten kuruluyor");
+        }
+        // Önceki bağlantının okuma tarafı bu andan itibaren eskidir
+        long current = ++generation;
+        try {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), 3000);
+            socket.setKeepAlive(true);
+            socket.setTcpNoDelay(true);
+            outputStream = new BufferedOutputStream(socket.getOutputStream());
+            Inbound next = new Inbound(current, socket.getInputStream());
+            protocol = WireProtocol.TEXT;
+            clientId = null;
+            if (preferred == WireProtocol.BINARY) {
+                negotiateBinary(next);
+            }
+            inbound = next;
+            if (protocol == WireProtocol.BINARY && reconnectInitialNanos > 0) {
+                requestSession();
+            }
+        } catch (IOException e) {
+            markDisconnected();
+            throw e;
+        }
+        resendUnacknowledged();
+        startWriter();
+        startHeartbeat();
+        // Dinleyiciler alıcı thread'i ancak el sıkışma bittikten sonra başlatır
+        if (!transition(ConnectionState.CONNECTING, ConnectionState.CONNECTED)) {
+            // Bu sırada disconnect() çağrıldı
+            stopHeartbeat();
+            stopWriter(!closedByUser);
+            throw new IOException("Bağlantı kurulurken kapatıldı");
+        }
+        reconnectAttempts.set(0);
+    }
+
+    /**
+     * Kuyruktaki mesajlardan önce yazılır: sunucu kaçırılanları kuyruktakilerden önce gönderir
+     */
+    private void requestSession() throws IOException {
+        String token = sessionToken;
+        String payload = (token == null) ? "" : token + " " + sessionOffset;
+        FrameCodec.write(outputStream, Frame.ofText(FrameType.SESSION, payload), protocol);
+        outputStream.flush();
+    }
+
+    /**
+     * Sunucunun günlük konumu işareti: bu offset'ten önceki mesajlar alındı; onaylanır
+     */
+    private void onSession(String payload) {
+        int separator = payload.indexOf(' ');
+        if (separator <= 0)
+            return;
+        long offset;
+        try {
+            offset = Long.parseLong(payload.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        String token = payload.substring(0, separator);
+        sessionToken = token;
+        if (offset != sessionOffset) {
+            sessionOffset = offset;
+            sendAsync(Frame.ofText(FrameType.SESSION, token + " " + offset));
+        }
+    }
+
+    public ConnectionState getState() {
+        return state.get();
+    }
+
+    public void addConnectionListener(ConnectionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeConnectionListener(ConnectionListener listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean transition(ConnectionState from, ConnectionState to) {
+        if (!state.compareAndSet(from, to))
             return false;
+        fireStateChanged(from, to);
+        return true;
+    }
+
+    private void fireStateChanged(ConnectionState from, ConnectionState to) {
+        for (ConnectionListener listener : listeners) {
+            try {
+                listener.onStateChanged(from, to);
+            } catch (RuntimeException ignored) {
+                // Dinleyici hatası bağlantıyı ve diğer dinleyicileri etkilemez
+            }
         }
+    }
 
-        // Aktif bağlantı testi - sendUrgentData bağlantı kopmuşsa hemen exception
-        // fırlatır
+    /**
+     * Bağlantıyı kapatır ve DISCONNECTED olayını bir kez yayınlar. Hangi thread
+     * kopukluğu önce fark ederse (okuyucu, yazıcı, heartbeat veya disconnect()) o çağırır;
+     * soket kapatıldığı için readFrame()'de bekleyen thread de hemen uyanır.
+     */
+    private void markDisconnected() {
+        ConnectionState previous = state.getAndSet(ConnectionState.DISCONNECTED);
+        if (previous == ConnectionState.DISCONNECTED)
+            return;
+        // Kurulu bağlantı koptuysa veya bir yeniden bağlanma denemesi başarısızsa tekrar denenir
+        boolean retry = reconnectInitialNanos > 0 && !closedByUser
+                && (previous == ConnectionState.CONNECTED || reconnectAttempts.get() > 0);
+        stopHeartbeat();
+        stopWriter(retry);
+        Socket current = socket;
         try {
-            socket.sendUrgentData(0xFF);
-            return true;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException ignored) {
+        }
+        fireStateChanged(previous, ConnectionState.DISCONNECTED);
+        if (retry) {
+            scheduleReconnect();
+        } else {
+            failUnacknowledged();
+        }
+    }
+
+    private void scheduleReconnect() {
+        int attempt = reconnectAttempts.getAndIncrement();
+        long ceiling = reconnectInitialNanos << Math.min(attempt, 30);
+        if (ceiling <= 0 || ceiling > reconnectMaxNanos) {
+            ceiling = reconnectMaxNanos;
+        }
+        // Tam jitter: denemeler tüm aralığa yayılır
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        // Bağlanma birkaç saniye sürebilir; ortak zamanlayıcı yerine sanal thread'de yapılır
+        reconnectTask = HEARTBEAT.schedule(
+                () -> Thread.ofVirtual().name("Client-Reconnect").start(this::reconnect),
+                delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void reconnect() {
+        if (closedByUser || state.get() != ConnectionState.DISCONNECTED)
+            return;
+        try {
+            open();
+        } catch (IOException e) {
+            // markDisconnected() sonraki denemeyi zamanladı
+        }
+    }
+
+    private void cancelReconnect() {
+        ScheduledFuture<?> task = reconnectTask;
+        if (task != null) {
+            task.cancel(false);
+            reconnectTask = null;
+        }
+        reconnectAttempts.set(0);
+    }
+
+    /**
+     * PING yalnızca ikili protokolde gönderilir: el sıkışma sunucunun PING'i tanıdığını
+     * gösterir, eski bir sunucu ise PING satırını sohbet mesajı olarak yayınlardı.
+     * PONG'lar readFrame() içinde işlendiği için bağlantıyı okuyan bir thread olmalıdır.
+     */
+    private void startHeartbeat() {
+        rttNanos = -1;
+        smoothedRttNanos = -1;
+        lastReceivedNanos = System.nanoTime();
+        stopHeartbeat();
+        if (protocol != WireProtocol.BINARY || heartbeatIntervalNanos <= 0)
+            return;
+        heartbeat = HEARTBEAT.scheduleAtFixedRate(this::heartbeatTick, heartbeatIntervalNanos,
+                heartbeatIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void heartbeatTick() {
+        if (!isConnected())
+            return;
+        long now = System.nanoTime();
+        if (now - lastReceivedNanos >= heartbeatTimeoutNanos) {
+            markDisconnected();
+            return;
+        }
+        // Ortak zamanlayıcı bekletilmez: yazma sürüyorsa bu tur PING atlanır
+        if (!writeLock.tryLock())
+            return;
+        try {
+            if (outputStream == null)
+                return;
+            FrameCodec.write(outputStream, Frame.ofText(FrameType.PING, Long.toString(now)), protocol);
+            for (Frame acknowledgement : takeAcknowledgements()) {
+                FrameCodec.write(outputStream, acknowledgement, protocol);
+            }
+            outputStream.flush();
         } catch (IOException e) {
-            connected = false;
+            markDisconnected();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void stopHeartbeat() {
+        ScheduledFuture<?> task = heartbeat;
+        if (task != null) {
+            task.cancel(false);
+            heartbeat = null;
+        }
+    }
+
+    /**
+     * Kendi gönderdiğimiz PING'in yanıtı: yükteki gönderim zamanından RTT hesaplanır
+     */
+    private void onPong(String payload) {
+        long sent;
+        try {
+            sent = Long.parseLong(payload);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        long rtt = System.nanoTime() - sent;
+        rttNanos = rtt;
+        long smoothed = smoothedRttNanos;
+        // TCP'deki gibi 1/8 ağırlıklı hareketli ortalama
+        smoothedRttNanos = (smoothed < 0) ? rtt : smoothed + (rtt - smoothed) / 8;
+    }
+
+    /**
+     * Son PING'in gidiş-dönüş süresi (mikrosaniye); henüz ölçülmediyse -1
+     */
+    public long getRttMicros() {
+        long rtt = rttNanos;
+        return (rtt < 0) ? -1 : TimeUnit.NANOSECONDS.toMicros(rtt);
+    }
+
+    /**
+     * Gidiş-dönüş süresinin hareketli ortalaması (mikrosaniye); henüz ölçülmediyse -1
+     */
+    public long getSmoothedRttMicros() {
+        long rtt = smoothedRttNanos;
+        return (rtt < 0) ? -1 : TimeUnit.NANOSECONDS.toMicros(rtt);
+    }
+
+    private void negotiateBinary(Inbound next) throws IOException {
+        outputStream.write((FrameCodec.HELLO_REQUEST + "\n").getBytes("UTF-8"));
+        outputStream.flush();
+
+        int previousTimeout = socket.getSoTimeout();
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+        try {
+            // Yanıt gelene kadar okunan diğer çerçeveler kuyrukta kalır, readFrame() onları döndürür
+            while (next.decoder.getProtocol() != WireProtocol.BINARY) {
+                if (!fill(next)) {
+                    throw new EOFException("Sunucu el sıkışma sırasında bağlantıyı kapattı");
+                }
+            }
+            next.frames.removeIf(frame -> FrameCodec.HELLO_ACK.equals(frame.line()));
+            protocol = WireProtocol.BINARY;
+        } catch (SocketTimeoutException e) {
+            // Eski sunucu: metin protokolüyle devam
+        } finally {
+            socket.setSoTimeout(previousTimeout);
+        }
+    }
+
+    /**
+     * Sıradaki çerçeveyi döndürür, gerekirse soketten okur. Bağlantı kapanınca
+     * veya okuma hatasında DISCONNECTED olayı yayınlanır.
+     *
+     * Çağrıldığı andaki bağlantıyı okur: bu sırada yeniden bağlanılırsa null döner,
+     * yeni bağlantı için readFrame() yeniden çağrılmalıdır. Eski bağlantının hatası
+     * yeni bağlantıyı kapatmaz.
+     *
+     * @return bağlantı kapandıysa (veya hiç kurulmadıysa) null
+     */
+    public Frame readFrame() throws IOException {
+        Inbound current = inbound;
+        if (current == null)
+            return null;
+        while (true) {
+            while (current.frames.isEmpty()) {
+                boolean filled;
+                try {
+                    filled = fill(current);
+                } catch (IOException e) {
+                    if (current.generation != generation)
+                        return null;
+                    markDisconnected();
+                    throw e;
+                }
+                if (!filled) {
+                    if (current.generation == generation) {
+                        markDisconnected();
+                    }
+                    return null;
+                }
+            }
+            if (current.generation != generation)
+                return null;
+            Frame frame = current.frames.poll();
+            // Kontrol çerçeveleri uygulamaya iletilmez
+            if (frame.type() == FrameType.CLIENT_ID) {
+                clientId = frame.text();
+                continue;
+            }
+            if (frame.type() == FrameType.PONG) {
+                onPong(frame.text());
+                continue;
+            }
+            if (frame.type() == FrameType.SESSION) {
+                onSession(frame.text());
+                continue;
+            }
+            if (frame.type() == FrameType.ACK) {
+                onAcknowledgement(frame.text());
+                continue;
+            }
+            if (frame.type() == FrameType.SENDER_ID) {
+                senderId = frame.text();
+                continue;
+            }
+            if (frame.type() == FrameType.NACK) {
+                onRejection(frame.text());
+                continue;
+            }
+            if (frame.type() == FrameType.SEQ) {
+                frame = acceptSequenced(frame);
+                if (frame == null)
+                    continue;
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * Sunucunun bu bağlantıya verdiği kimlik; ikili protokolde ilk okumadan sonra bilinir, yoksa null
+     */
+    public String getClientId() {
+        return clientId;
+    }
+
+    private boolean fill(Inbound in) throws IOException {
+        int read = in.stream.read(in.buffer);
+        if (read < 0) {
             return false;
         }
+        lastReceivedNanos = System.nanoTime();
+        in.decoder.feed(ByteBuffer.wrap(in.buffer, 0, read));
+        return true;
+    }
+
+    /**
+     * Ağa dokunmaz: durum yazma/okuma hatasında veya heartbeat zaman aşımında değişir
+     */
+    public boolean isConnected() {
+        return state.get() == ConnectionState.CONNECTED;
+    }
+
+    /**
+     * Bağlantı koptu ve yeniden bağlanılacak; bu sırada gönderilenler kuyrukta bekler
+     */
+    public boolean isReconnecting() {
+        return state.get() != ConnectionState.CONNECTED && sendQueue != null && !closedByUser;
     }
 
     public void setDisconnected() {
-        connected = false;
+        markDisconnected();
     }
 
+    /**
+     * Bağlantıyı kapatır; yeniden bağlanılmaz ve kuyrukta bekleyen gönderimler false ile tamamlanır
+     */
     public void disconnect() {
-        connected = false;
+        closedByUser = true;
+        cancelReconnect();
+        markDisconnected();
+        LinkedBlockingDeque<PendingSend> queue = sendQueue;
+        sendQueue = null;
+        if (queue != null) {
+            failAll(queue);
+        }
+        failUnacknowledged();
+    }
+
+    /**
+     * Yazıcı thread her bağlantı için yeniden başlatılır. Kuyruk, yeniden bağlanılacaksa
+     * önceki bağlantıdan devralınır; aksi halde kopan bağlantının bekleyen gönderimleri
+     * false ile tamamlanır.
+     */
+    private void startWriter() {
+        LinkedBlockingDeque<PendingSend> queue = sendQueue;
+        if (queue == null) {
+            queue = new LinkedBlockingDeque<>(SEND_QUEUE_CAPACITY);
+            sendQueue = queue;
+        }
+        LinkedBlockingDeque<PendingSend> owned = queue;
+        OutputStream out = outputStream;
+        // Sanal thread: yük testindeki binlerce istemci için platform thread'i açılmaz
+        writer = Thread.ofVirtual().name("Client-Writer").start(() -> writeLoop(owned, out));
+    }
+
+    /**
+     * @param keepQueue yeniden bağlanılacaksa kuyruk korunur
+     */
+    private void stopWriter(boolean keepQueue) {
+        if (!keepQueue) {
+            sendQueue = null;
+        }
+        Thread current = writer;
+        if (current != null) {
+            current.interrupt();
+            writer = null;
+        }
+    }
+
+    private static void failAll(LinkedBlockingDeque<PendingSend> queue) {
+        PendingSend pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.complete(false);
+        }
+    }
+
+    /**
+     * Kuyruktaki ilk gönderimi bekler, o arada biriken diğerlerini de alır ve hepsini
+     * tek bir flush ile yazar: art arda gönderilen küçük mesajlar tek pakette gider
+     */
+    private void writeLoop(LinkedBlockingDeque<PendingSend> queue, OutputStream out) {
+        List<PendingSend> batch = new ArrayList<>(MAX_SEND_BATCH);
         try {
-            if (outputStream != null) {
-                outputStream.close();
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_SEND_BATCH - 1);
+                boolean ok = writeBatch(batch, queue, out);
+                batch.clear();
+                if (!ok)
+                    break;
+            }
+        } catch (InterruptedException e) {
+            // Bağlantı kapandı
+        } finally {
+            if (sendQueue != queue) {
+                for (PendingSend pending : batch) {
+                    pending.result.complete(false);
+                }
+                failAll(queue);
             }
-        } catch (IOException ignored) {
         }
+    }
+
+    /**
+     * @param out bu yazıcının bağlantısının akışı; yeniden bağlanıldıysa eski akışa yazılmaz
+     * @return yazma başarısızsa false (bağlantı kapatıldı)
+     */
+    private boolean writeBatch(List<PendingSend> batch, LinkedBlockingDeque<PendingSend> queue, OutputStream out) {
+        boolean ok = true;
+        boolean stale = false;
+        int written = 0;
+        writeLock.lock();
         try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
+            if (out != outputStream) {
+                // Bu yazıcının bağlantısı kapandı ve yenisi kuruldu; yeni bağlantı bozulmasın
+                stale = true;
+                throw new IOException("Bağlantı kapalı");
             }
-        } catch (IOException ignored) {
+            for (PendingSend pending : batch) {
+                Frame frame = pending.built;
+                if (frame == null) {
+                    try {
+                        frame = build(pending);
+                    } catch (RuntimeException e) {
+                        // Çerçeve oluşturulamadı (ör. şifreleme hatası); diğerleri etkilenmez
+                        pending.result.completeExceptionally(e);
+                        continue;
+                    }
+                }
+                if (pending.sequence >= 0) {
+                    // ACK yazma bitmeden gelebilir; önce kaydedilir
+                    unacknowledged.put(pending.sequence, pending);
+                }
+                FrameCodec.write(out, frame, protocol);
+                written++;
+            }
+            out.flush();
+        } catch (IOException e) {
+            ok = false;
+        } finally {
+            writeLock.unlock();
+        }
+        if (!ok) {
+            if (!stale) {
+                markDisconnected();
+            }
+            if (sendQueue == queue) {
+                // Yeniden bağlanılacak: yazılıp yazılmadığı bilinmeyen grup sıranın başına döner
+                requeue(batch, queue);
+                return false;
+            }
+        }
+        long now = System.nanoTime();
+        for (PendingSend pending : batch) {
+            if (pending.sequence >= 0) {
+                // Numaralı gönderim sunucunun ACK'i ile tamamlanır
+                if (ok) {
+                    sendLatency.record(now - pending.enqueuedNanos);
+                } else {
+                    unacknowledged.remove(pending.sequence, pending);
+                    pending.result.complete(false);
+                }
+            } else if (pending.result.complete(ok) && ok) {
+                sendLatency.record(now - pending.enqueuedNanos);
+            }
+        }
+        if (ok) {
+            framesSent.add(written);
+            flushes.increment();
+        }
+        return ok;
+    }
+
+    private void requeue(List<PendingSend> batch, LinkedBlockingDeque<PendingSend> queue) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            PendingSend pending = batch.get(i);
+            if (pending.sequence >= 0) {
+                // Kuyruktan yeniden yazılacak; onay bekleyenlere ikinci kez eklenmesin
+                unacknowledged.remove(pending.sequence, pending);
+            }
+            if (!pending.result.isDone() && !queue.offerFirst(pending)) {
+                pending.result.complete(false);
+            }
+        }
+    }
+
+    /**
+     * Gönderimin çerçevesini oluşturur; sıralı teslim açıksa broadcast türleri numaralanır
+     */
+    private Frame build(PendingSend pending) {
+        Frame frame = pending.frame.get();
+        if (sequencedDelivery && protocol == WireProtocol.BINARY && isSequenced(frame.type())) {
+            long sequence = nextSequence.incrementAndGet();
+            String sender = senderId;
+            frame = Frame.ofSequenced(sender != null ? sender : UNASSIGNED_SENDER, sequence, frame);
+            pending.sequence = sequence;
+        }
+        pending.built = frame;
+        return frame;
+    }
+
+    private static boolean isSequenced(FrameType type) {
+        switch (type) {
+            case TEXT:
+            case RSA_PUBKEY:
+            case FILE:
+            case FILE_START:
+            case FILE_CHUNK:
+            case FILE_END:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Önceki bağlantıda yazılıp onaylanmamış gönderimler kuyruktakilerden önce, aynı
+     * numarayla yeniden yazılır; sunucuya ulaşmış olanları alıcılar ayıklar
+     */
+    private void resendUnacknowledged() {
+        LinkedBlockingDeque<PendingSend> queue = sendQueue;
+        if (queue == null || unacknowledged.isEmpty())
+            return;
+        for (PendingSend pending : unacknowledged.descendingMap().values()) {
+            if (!pending.result.isDone() && !queue.offerFirst(pending)) {
+                pending.result.complete(false);
+            }
+        }
+        unacknowledged.clear();
+    }
+
+    private void failUnacknowledged() {
+        for (PendingSend pending : unacknowledged.values()) {
+            pending.result.complete(false);
+        }
+        unacknowledged.clear();
+    }
+
+    /**
+     * Sunucudan "sıra": o numaraya kadar gönderilenler alındı ve dağıtıldı;
+     * "sıra alıcıKimliği": alıcının birikimli onayı
+     */
+    private void onAcknowledgement(String payload) {
+        int separator = payload.indexOf(' ');
+        long sequence;
+        try {
+            sequence = Long.parseLong(separator < 0 ? payload : payload.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (separator > 0) {
+            deliveryAcknowledgements.merge(payload.substring(separator + 1), sequence, Math::max);
+            return;
+        }
+        if (sequence > acknowledgedSequence) {
+            acknowledgedSequence = sequence;
+        }
+        Map<Long, PendingSend> acknowledged = unacknowledged.headMap(sequence, true);
+        List<PendingSend> completed = new ArrayList<>(acknowledged.values());
+        acknowledged.clear();
+        for (PendingSend pending : completed) {
+            pending.result.complete(true);
+        }
+    }
+
+    /**
+     * Sunucu numaralı mesajı hız sınırı nedeniyle dağıtmadı: gönderim false ile tamamlanır.
+     * Sunucu çerçeveleri sırayla işlediği için NACK, bu numarayı kapsayan ACK'ten önce gelir.
+     */
+    private void onRejection(String payload) {
+        long sequence;
+        try {
+            sequence = Long.parseLong(payload.trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        PendingSend pending = unacknowledged.remove(sequence);
+        if (pending != null) {
+            pending.result.complete(false);
+        }
+    }
+
+    /**
+     * @return numaralı mesajın iç çerçevesi; tekrar, kendi mesajımız veya hatalıysa null
+     */
+    private Frame acceptSequenced(Frame frame) {
+        String sender = frame.sequencedSender();
+        long sequence = frame.sequencedNumber();
+        // Kendi mesajımız (ör. geçmişten) zaten yerelde gösterildi
+        if (sender == null || sequence < 0 || sender.equals(senderId))
+            return null;
+        boolean fresh;
+        synchronized (windows) {
+            fresh = windows.computeIfAbsent(sender, key -> new SequenceWindow()).accept(sequence);
+        }
+        if (!fresh) {
+            duplicatesDropped.increment();
+            return null;
         }
-        outputStream = null;
-        socket = null;
+        return frame.sequencedInner();
+    }
+
+    /**
+     * Son onaydan beri ilerleyen her gönderen için "gönderenKimliği sıra" onayı
+     */
+    private List<Frame> takeAcknowledgements() {
+        List<Frame> acknowledgements = new ArrayList<>();
+        synchronized (windows) {
+            for (Map.Entry<String, SequenceWindow> entry : windows.entrySet()) {
+                long sequence = entry.getValue().takeAcknowledgement();
+                if (sequence >= 0) {
+                    acknowledgements.add(Frame.ofText(FrameType.ACK, entry.getKey() + " " + sequence));
+                }
+            }
+        }
+        return acknowledgements;
+    }
+
+    /**
+     * Çerçeveyi gönderim kuyruğuna ekler ve beklemeden döner. Çerçeve yazıcı thread'de,
+     * yazılmadan hemen önce oluşturulur: şifreleme gibi pahalı işler çağıran thread'i
+     * (ör. Swing EDT) bekletmez ve gönderim sırası korunur.
+     *
+     * @return çerçeve sokete yazılınca (numaralı mesajda sunucu onaylayınca) true; bağlı değilse
+     *         (yeniden bağlanma beklenmiyorsa), kuyruk doluysa veya yazma başarısızsa false.
+     *         Çerçeve oluşturulurken atılan hata sonuca aktarılır.
+     */
+    public CompletableFuture<Boolean> sendAsync(Supplier<Frame> frame) {
+        return enqueue(frame, false);
+    }
+
+    public CompletableFuture<Boolean> sendAsync(Frame frame) {
+        return enqueue(() -> frame, false);
+    }
+
+    /**
+     * @param wait kuyruk doluysa yer açılana kadar bekle (dosya aktarımı gibi üreticiler için);
+     *             false ise hemen false ile tamamlanır
+     */
+    private CompletableFuture<Boolean> enqueue(Supplier<Frame> frame, boolean wait) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        LinkedBlockingDeque<PendingSend> queue = sendQueue;
+        if (queue == null) {
+            result.complete(false);
+            return result;
+        }
+        PendingSend pending = new PendingSend(frame, result, System.nanoTime());
+        try {
+            if (wait) {
+                queue.put(pending);
+            } else if (!queue.offer(pending)) {
+                result.complete(false);
+                return result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.complete(false);
+            return result;
+        }
+        // Yazıcı bu arada durduysa kuyrukta kalan gönderim sahipsiz kalmasın
+        if (sendQueue != queue && queue.remove(pending)) {
+            result.complete(false);
+        }
+        return result;
+    }
+
+    /** Gönderim kuyruğunda bekleyen çerçeve sayısı */
+    public int getSendQueueDepth() {
+        LinkedBlockingDeque<PendingSend> queue = sendQueue;
+        return (queue == null) ? 0 : queue.size();
+    }
+
+    /** Kuyruğa eklenmesinden sokete yazılmasına kadar geçen süre (mikrosaniye) */
+    public HistogramSnapshot getSendLatency() {
+        return sendLatency.snapshot(1000);
+    }
+
+    /** Yazıcı thread'in flush başına yazdığı ortalama çerçeve sayısı */
+    public double getAverageFramesPerFlush() {
+        long count = flushes.sum();
+        return (count == 0) ? 0 : framesSent.sum() / (double) count;
+    }
+
+    public CompletableFuture<Boolean> sendMessageAsync(String message) {
+        return sendAsync(Frame.ofLine(message));
     }
 
     public boolean sendMessage(String message) {
-        // Önce bağlantıyı aktif olarak test et
-        if (!isConnected()) {
-            return false;
+        return sendMessageAsync(message).join();
+    }
+
+    /**
+     * Satırı yalnızca verilen kimlikteki istemciye gönderir (özel mesaj veya RSA anahtarı)
+     */
+    public CompletableFuture<Boolean> sendDirectAsync(String targetId, String line) {
+        return sendAsync(Frame.ofDirect(targetId, line));
+    }
+
+    public boolean sendDirect(String targetId, String line) {
+        return sendDirectAsync(targetId, line).join();
+    }
+
+    public CompletableFuture<Boolean> joinRoomAsync(String room) {
+        return sendAsync(Frame.ofText(FrameType.ROOM_JOIN, room));
+    }
+
+    public boolean joinRoom(String room) {
+        return joinRoomAsync(room).join();
+    }
+
+    public CompletableFuture<Boolean> leaveRoomAsync(String room) {
+        return sendAsync(Frame.ofText(FrameType.ROOM_LEAVE, room));
+    }
+
+    public boolean leaveRoom(String room) {
+        return leaveRoomAsync(room).join();
+    }
+
+    /**
+     * Mesajı yalnızca odanın üyelerine gönderir (önce joinRoom ile katılmak gerekir)
+     */
+    public CompletableFuture<Boolean> sendToRoomAsync(String room, String message) {
+        return sendAsync(Frame.ofText(FrameType.ROOM_MSG, room + ":" + message));
+    }
+
+    public boolean sendToRoom(String room, String message) {
+        return sendToRoomAsync(room, message).join();
+    }
+
+    /**
+     * Sunucu günlüğündeki mesajları fromOffset'ten itibaren ister; mesajlar normal
+     * çerçeveler olarak gelir, sonunda "END sonrakiOffset adet" yüklü bir REPLAY çerçevesi gelir
+     */
+    public boolean requestReplay(long fromOffset) {
+        return sendAsync(Frame.ofText(FrameType.REPLAY, "offset=" + fromOffset)).join();
+    }
+
+    /**
+     * Sunucu günlüğündeki fromMillis zamanından sonraki mesajları ister
+     */
+    public CompletableFuture<Boolean> requestReplaySinceAsync(long fromMillis) {
+        return sendAsync(Frame.ofText(FrameType.REPLAY, "time=" + fromMillis));
+    }
+
+    public boolean requestReplaySince(long fromMillis) {
+        return requestReplaySinceAsync(fromMillis).join();
+    }
+
+    /**
+     * Dosyayı tek çerçeveyle gönderir. Yük yazıcı thread'de hazırlanır; okuma ve
+     * şifreleme çağıranı bekletmez.
+     *
+     * @param base64Data dosyanın (şifrelenmiş) Base64 metnini üretir
+     */
+    public CompletableFuture<Boolean> sendFileAsync(String fileName, String mimeType, Supplier<String> base64Data) {
+        return sendAsync(() -> protocol == WireProtocol.BINARY
+                ? Frame.ofFile(fileName, mimeType, base64Data.get())
+                : Frame.ofLine("FILE:" + fileName + ":" + mimeType + ":" + base64Data.get()));
+    }
+
+    public boolean sendFile(String fileName, String mimeType, String base64Data) {
+        return sendFileAsync(fileName, mimeType, () -> base64Data).join();
+    }
+
+    /**
+     * sendFileStream'i bir sanal thread'de çalıştırır
+     */
+    public CompletableFuture<Boolean> sendFileStreamAsync(Path file, String mimeType, UnaryOperator<String> encryptor) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("Client-File").start(() -> {
+            try {
+                result.complete(sendFileStream(file, mimeType, encryptor));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Dosyayı parça parça okuyup FILE_START / FILE_CHUNK / FILE_END çerçeveleriyle gönderir.
+     * Parçalar gönderim kuyruğundan geçer, araya diğer sohbet mesajları girebilir.
+     * Bellekte en fazla FILE_WINDOW parça tutulur: daha fazlası yazılmayı bekler.
+     * Bu pencere yalnızca yerel soketi izler, alıcıya kadar uçtan uca akış kontrolü
+     * yoktur. Sunucu aktarım çerçevelerini kayıplı taşma politikalarında bile atmaz
+     * (bkz. OutboundQueue); yetişemeyen alıcının bağlantısı kesilir, aktarım onda yarıda kalır.
+     *
+     * @param encryptor her parçanın Base64 metnine uygulanır, şifresiz için null
+     */
+    public boolean sendFileStream(Path file, String mimeType, UnaryOperator<String> encryptor) throws IOException {
+        String transferId = FileTransfer.newTransferId();
+        Frame start = FileTransfer.start(transferId, Files.size(file), mimeType, file.getFileName().toString());
+        ArrayDeque<CompletableFuture<Boolean>> window = new ArrayDeque<>();
+        window.add(enqueue(() -> start, true));
+
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[FileTransfer.CHUNK_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            long sequence = 0;
+            int length;
+            while ((length = in.readNBytes(chunk, 0, chunk.length)) > 0) {
+                crc.update(chunk, 0, length);
+                String data = Base64.getEncoder().encodeToString(length == chunk.length
+                        ? chunk
+                        : Arrays.copyOf(chunk, length));
+                if (encryptor != null) {
+                    data = encryptor.apply(data);
+                }
+                while (window.size() >= FILE_WINDOW) {
+                    if (!window.poll().join())
+                        return false;
+                }
+                Frame frame = FileTransfer.chunk(transferId, sequence++, data);
+                window.add(enqueue(() -> frame, true));
+            }
+        }
+        Frame end = FileTransfer.end(transferId, crc.getValue());
+        window.add(enqueue(() -> end, true));
+        // Çerçeveler sırayla yazıldığı için sonuncusu hepsinin sonucunu belirler
+        for (CompletableFuture<Boolean> pending : window) {
+            if (!pending.join())
+                return false;
         }
+        return true;
+    }
 
+    /**
+     * Çerçeveyi gönderim kuyruğunu atlayarak doğrudan yazar; yük testi gibi art arda
+     * gönderimlerde kullanılır. Bağlı değilse veya yazma hatasında false döner.
+     */
+    public boolean send(Frame frame) {
+        if (!isConnected())
+            return false;
+        writeLock.lock();
         try {
-            byte[] data = (message + "\n").getBytes("UTF-8");
-            outputStream.write(data);
-            outputStream.flush();
+            BufferedOutputStream out = outputStream;
+            if (out == null)
+                return false;
+            FrameCodec.write(out, frame, protocol);
+            out.flush();
             return true;
         } catch (IOException e) {
-            connected = false;
+            markDisconnected();
             return false;
+        } finally {
+            writeLock.unlock();
         }
     }
-
-    public boolean sendFile(String fileName, String mimeType, String base64Data) {
-        return sendMessage("FILE:" + fileName + ":" + mimeType + ":" + base64Data);
-    }
 }
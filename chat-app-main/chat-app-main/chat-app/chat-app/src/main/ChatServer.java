@@ -1,60 +1,596 @@
 package main;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.ArrayList;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
 
 public class ChatServer {
 
+    // Aynı anda gelen çok sayıda bağlantı isteği reddedilmesin diye
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final long ACCEPT_RETRY_DELAY_MS = 100;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    // İstemci başına giden kuyrukta bellekte bekleyebilecek en fazla bayt
+    public static final long DEFAULT_QUEUE_BYTES = 8L * 1024 * 1024;
+    // Yoğun anlarda mesajların birleştirilmesi için yazıcının en fazla bekleyeceği süre
+    public static final long DEFAULT_FLUSH_LINGER_MICROS = 100;
+
     private final int port;
-    private final ServerGUI gui;
-    private ServerSocket serverSocket;
+    private final ServerListener listener;
+    private final ServerMode mode;
+    private final int reactorThreads;
+    private ServerSocketChannel serverChannel;
+    private NioReactor[] reactors;
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private long queueMaxBytes = DEFAULT_QUEUE_BYTES;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DISCONNECT;
+    private long spoolQuota = FileSpool.DEFAULT_QUOTA;
+    private long flushLingerNanos = TimeUnit.MICROSECONDS.toNanos(DEFAULT_FLUSH_LINGER_MICROS);
+    // Loglarda mesaj içeriğinin en fazla kaç karakteri gösterilir ve kaç mesajdan biri loglanır
+    public static final int DEFAULT_PAYLOAD_LOG_CHARS = 64;
+    private int payloadLogChars = DEFAULT_PAYLOAD_LOG_CHARS;
+    private int payloadLogSampling = 1;
+    // Yazma birleştirme istatistiği: yazılan mesaj ve yapılan write çağrısı sayısı
+    private final LongAdder messagesWritten = new LongAdder();
+    private final LongAdder writeCalls = new LongAdder();
+    private volatile FileSpool spool;
+    // Okuma yolu hız sınırları; 0 sınırsız demektir
+    private long messagesPerSecond = 0;
+    private long messageBurst = 0;
+    private long bytesPerSecond = 0;
+    private long byteBurst = 0;
+    private RateLimitPolicy rateLimitPolicy = RateLimitPolicy.DELAY;
+    private final LongAdder rejectedMessages = new LongAdder();
+    private final LongAdder delayedReads = new LongAdder();
+    private final AdmissionControl admission = new AdmissionControl();
+    // NIO bağlantılarında geciktirilen okumayı sonradan yeniden açmak için
+    private volatile ScheduledExecutorService throttleTimer;
+
+    private final ClientRegistry clients = new ClientRegistry();
+    private final ServerMetrics metrics = new ServerMetrics(this);
+    // Kapalıysa histogramlar ve süre ölçümü atlanır, JMX kaydı yapılmaz
+    private boolean metricsEnabled = true;
+    private final RoomRegistry rooms = new RoomRegistry();
+    // Küme ayarlanmadıysa null; broadcast ve oda mesajları eşlere aktarılır
+    private ClusterRelay cluster;
+    // Günlük ayarlanmadıysa null; broadcast mesajları yeniden oynatılmak üzere saklanır
+    private MessageJournal journal;
+    // Geçmiş halkası ayarlanmadıysa null; yeni bağlanan istemciye son mesajlar gönderilir
+    private HistoryRing history;
+    // Geçmiş aktarımı süren bağlantılar; her bağlantı için aynı anda tek aktarım
+    private final Set<ClientConnection> replaying = ConcurrentHashMap.newKeySet();
+    // Yeniden bağlanan istemcinin kaçırdıklarını günlükten göndermek için (günlük gerekir)
+    public static final int MAX_SESSIONS = 100_000;
+    private final SessionRegistry sessions = new SessionRegistry(MAX_SESSIONS);
+    // Sunucunun atadığı gönderen kimliği ↔ şu anki bağlantı; alıcı onayları buraya iletilir
+    private final ConcurrentHashMap<String, ClientConnection> senders = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ClientConnection, String> senderIds = new ConcurrentHashMap<>();
 
-    private final List<ClientHandler> clients = new ArrayList<>();
+    // Bir istemcinin aynı anda bulunabileceği en fazla oda
+    public static final int MAX_ROOMS_PER_CLIENT = 1024;
+    private static final int MAX_ROOM_NAME_LENGTH = 64;
+
+    public ChatServer(int port, ServerListener listener) {
+        this(port, listener, ServerMode.THREAD, Runtime.getRuntime().availableProcessors());
+    }
 
-    public ChatServer(int port, ServerGUI gui) {
+    /**
+     * @param mode           bağlantı modeli (THREAD, VIRTUAL veya NIO)
+     * @param reactorThreads NIO modunda kullanılacak reactor thread sayısı
+     */
+    public ChatServer(int port, ServerListener listener, ServerMode mode, int reactorThreads) {
         this.port = port;
-        this.gui = gui;
+        this.listener = listener;
+        this.mode = mode;
+        this.reactorThreads = Math.max(1, reactorThreads);
     }
 
-    public ServerGUI getGui() {
-        return gui;
+    public ServerListener getListener() {
+        return listener;
     }
 
-    public void startServer() throws IOException {
-        if (isRunning.get()) {
-            gui.logMessage("Hata: Sunucu zaten çalışıyor.");
+    public int getPort() {
+        return port;
+    }
+
+    public ServerMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Her istemcinin giden kuyruğunun boyutunu ve taşma politikasını ayarlar.
+     * Sunucu başlatılmadan önce çağrılmalıdır.
+     */
+    public void configureOutboundQueue(int capacity, OverflowPolicy policy) {
+        configureOutboundQueue(capacity, DEFAULT_QUEUE_BYTES, policy);
+    }
+
+    /**
+     * @param maxBytes kuyrukta bellekte bekleyebilecek en fazla bayt; aşılınca da taşma politikası uygulanır
+     */
+    public void configureOutboundQueue(int capacity, long maxBytes, OverflowPolicy policy) {
+        this.queueCapacity = capacity;
+        this.queueMaxBytes = maxBytes;
+        this.overflowPolicy = policy;
+    }
+
+    OutboundQueue newOutboundQueue() {
+        return new OutboundQueue(queueCapacity, queueMaxBytes, overflowPolicy);
+    }
+
+    /**
+     * Yazıcı thread'in mesajları birleştirmek için bekleyebileceği en uzun süre.
+     * 0 verilirse hiç beklenmez, yalnızca zaten birikmiş mesajlar birlikte yazılır.
+     */
+    public void configureWriteCoalescing(long lingerMicros) {
+        this.flushLingerNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, lingerMicros));
+    }
+
+    long getFlushLingerNanos() {
+        return flushLingerNanos;
+    }
+
+    void recordWrite(int messages, long bytes) {
+        writeCalls.increment();
+        messagesWritten.add(messages);
+        metrics.recordBytesOut(bytes);
+    }
+
+    void recordRead(int bytes) {
+        metrics.recordBytesIn(bytes);
+    }
+
+    /**
+     * Ölçümleri (histogramlar ve JMX MBean) açar veya kapatır. Sunucu başlatılmadan önce çağrılmalıdır.
+     */
+    public void configureMetrics(boolean enabled) {
+        this.metricsEnabled = enabled;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    ClientConnection[] clientSnapshot() {
+        return clients.snapshot();
+    }
+
+    /**
+     * Sunucu açıldığından beri write çağrısı başına düşen ortalama mesaj sayısı
+     */
+    public double getAverageMessagesPerWrite() {
+        long calls = writeCalls.sum();
+        return (calls == 0) ? 0 : (double) messagesWritten.sum() / calls;
+    }
+
+    public long getMessagesWritten() {
+        return messagesWritten.sum();
+    }
+
+    public long getWriteCalls() {
+        return writeCalls.sum();
+    }
+
+    /**
+     * Mesaj içeriklerinin loglanmasını sınırlar
+     *
+     * @param maxChars    içeriğin gösterilecek en fazla karakteri, 0 ise yalnızca uzunluk
+     * @param sampleEvery her N mesajdan yaklaşık biri loglanır (1 ise hepsi)
+     */
+    public void configurePayloadLogging(int maxChars, int sampleEvery) {
+        this.payloadLogChars = Math.max(0, maxChars);
+        this.payloadLogSampling = Math.max(1, sampleEvery);
+    }
+
+    /**
+     * Mesaj içeriği logu: örneklenir ve kısaltılır, böylece yoğun trafikte log
+     * yolu ne belleği ne de ekranı şişirir
+     */
+    private void logPayload(String header, String payload) {
+        if (payloadLogSampling > 1 && ThreadLocalRandom.current().nextInt(payloadLogSampling) != 0)
             return;
+        if (payload.length() <= payloadLogChars) {
+            listener.onLog(header + payload);
+        } else {
+            listener.onLog(header + payload.substring(0, payloadLogChars) + "… (" + payload.length() + " karakter)");
         }
+    }
 
-        try {
-            serverSocket = new ServerSocket(port);
-            isRunning.set(true);
-            gui.logMessage("Sunucu baslatildi, port: " + port);
+    /**
+     * Kabul anındaki bağlantı sınırlarını ayarlar; 0 sınırsız demektir
+     *
+     * @param maxConnections toplam bağlantı sınırı
+     * @param maxPerAddress  aynı IP adresinden en fazla bağlantı
+     */
+    public void configureAdmission(int maxConnections, int maxPerAddress) {
+        admission.configure(maxConnections, maxPerAddress);
+    }
+
+    /**
+     * Her istemcinin okuma yolundaki hız sınırlarını ayarlar; 0 sınırsız demektir.
+     * Burst, boşta kalmış bir istemcinin art arda harcayabileceği miktardır
+     * (bir saniyelik kota). Sunucu başlatılmadan önce çağrılmalıdır.
+     */
+    public void configureRateLimits(long messagesPerSecond, long bytesPerSecond, RateLimitPolicy policy) {
+        configureRateLimits(messagesPerSecond, messagesPerSecond, bytesPerSecond, bytesPerSecond, policy);
+    }
+
+    public void configureRateLimits(long messagesPerSecond, long messageBurst, long bytesPerSecond, long byteBurst,
+            RateLimitPolicy policy) {
+        this.messagesPerSecond = Math.max(0, messagesPerSecond);
+        this.messageBurst = Math.max(1, messageBurst);
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.byteBurst = Math.max(1, byteBurst);
+        this.rateLimitPolicy = policy;
+    }
+
+    RateLimiter newRateLimiter(ClientConnection connection) {
+        return new RateLimiter(this, connection,
+                messagesPerSecond > 0 ? new TokenBucket(messagesPerSecond, messageBurst) : null,
+                bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, byteBurst) : null,
+                rateLimitPolicy);
+    }
+
+    void recordRejectedMessage() {
+        rejectedMessages.increment();
+    }
+
+    void recordDelayedRead() {
+        delayedReads.increment();
+    }
+
+    /** Mesaj hız sınırı nedeniyle atılan mesaj sayısı */
+    public long getRejectedMessages() {
+        return rejectedMessages.sum();
+    }
+
+    /** Hız sınırı nedeniyle okumanın geciktirildiği sayı */
+    public long getDelayedReads() {
+        return delayedReads.sum();
+    }
+
+    /** Bağlantı sınırları nedeniyle reddedilen bağlantı sayısı */
+    public long getRejectedConnections() {
+        return admission.getRejectedCount();
+    }
+
+    /**
+     * Görevi verilen süre sonra zamanlayıcı thread'inde çalıştırır (NIO okuma gecikmesi için)
+     */
+    void schedule(Runnable task, long delayNanos) {
+        ScheduledExecutorService timer = throttleTimer;
+        if (timer != null) {
+            timer.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Bu sunucuyu bir kümenin düğümü yapar. Sunucu başlatılmadan önce çağrılmalıdır.
+     *
+     * @param nodeId   kümede benzersiz düğüm kimliği
+     * @param peerPort eş düğümlerin bağlanacağı port (0 ise küme kapalı)
+     * @param peers    diğer düğümlerin eş adresleri
+     */
+    public void configureCluster(String nodeId, int peerPort, List<InetSocketAddress> peers) {
+        this.cluster = (peerPort > 0) ? new ClusterRelay(this, nodeId, peerPort, peers) : null;
+    }
+
+    /** Küme ayarlanmadıysa null */
+    public ClusterRelay getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Broadcast mesajlarını diskteki günlüğe yazar; istemciler REPLAY ile geçmişi isteyebilir.
+     * Sunucu başlatılmadan önce çağrılmalıdır.
+     *
+     * @param directory segment dosyalarının dizini (null ise günlük kapalı)
+     */
+    public void configureJournal(Path directory, long segmentBytes, long segmentAgeMillis, long retentionBytes,
+            long retentionMillis) {
+        this.journal = (directory != null)
+                ? new MessageJournal(directory, segmentBytes, segmentAgeMillis, retentionBytes, retentionMillis, listener)
+                : null;
+    }
+
+    /**
+     * Son mesajları bellekte (heap dışında) tutar ve yeni bağlanan her istemciye
+     * bağlanır bağlanmaz gönderir. Sunucu başlatılmadan önce çağrılmalıdır.
+     *
+     * @param maxMessages tutulacak en fazla mesaj (0 ise kapalı)
+     * @param maxBytes    tutulacak en fazla bayt
+     */
+    public void configureHistory(int maxMessages, long maxBytes) {
+        this.history = (maxMessages > 0 && maxBytes > 0) ? new HistoryRing(maxMessages, maxBytes) : null;
+    }
+
+    /** Geçmiş halkası ayarlanmadıysa null */
+    HistoryRing getHistory() {
+        return history;
+    }
+
+    /** Günlük ayarlanmadıysa null */
+    public MessageJournal getJournal() {
+        return journal;
+    }
 
-            while (isRunning.get()) {
-                gui.logMessage("Yeni baglanti bekleniyor...");
-                Socket clientSocket = serverSocket.accept();
+    /**
+     * Büyük dosyaların aktarılırken diskte kaplayabileceği toplam alan.
+     * Sunucu başlatılmadan önce çağrılmalıdır.
+     */
+    public void configureSpool(long quotaBytes) {
+        this.spoolQuota = quotaBytes;
+    }
 
-                ClientHandler newClient = new ClientHandler(clientSocket, this);
-                clients.add(newClient);
-                newClient.start();
+    /**
+     * Bağlantının gelen baytlarını çözen, büyük dosyaları diske alan decoder
+     */
+    InboundDecoder newInboundDecoder(ClientConnection connection, RateLimiter limiter) {
+        return new InboundDecoder(FrameCodec.HELLO_REQUEST, new InboundDecoder.FrameHandler() {
+            @Override
+            public void onFrame(Frame frame) {
+                if (metricsEnabled) {
+                    metrics.recordMessageIn(frame.size());
+                }
+                if (frame.type() == FrameType.HELLO || limiter.admitMessage()) {
+                    handleFrame(frame, connection);
+                } else if (frame.type() == FrameType.SEQ && frame.sequencedNumber() >= 0) {
+                    // Gönderen sonraki ACK ile bu mesajı da onaylanmış saymasın
+                    connection.send(Frame.ofText(FrameType.NACK, Long.toString(frame.sequencedNumber())));
+                }
+            }
 
-                gui.logMessage("Yeni istemci baglandi: " + clientSocket.getInetAddress().getHostAddress()
-                        + ". Toplam istemci: " + clients.size());
+            @Override
+            public void onDiscarded(FrameType type, long length) {
+                listener.onLog("Dosya reddedildi, spool kotası dolu [" + connection.getClientId() + "]: "
+                        + length + " bayt");
+            }
+        }, spool);
+    }
+
+    /**
+     * Kuyruğu dolan ve DISCONNECT politikası uygulanan istemciyi düşürür
+     */
+    void disconnectSlowConsumer(ClientConnection client) {
+        listener.onLog("Yavaş istemci bağlantısı kesildi (kuyruk dolu): " + client.getClientId());
+        client.close();
+    }
+
+    public void startServer() throws IOException {
+        if (isRunning.get()) {
+            listener.onLog("Hata: Sunucu zaten çalışıyor.");
+            return;
+        }
+
+        try {
+            spool = new FileSpool("chat-spool-" + port, spoolQuota);
+            if (mode == ServerMode.NIO) {
+                throttleTimer = Executors.newSingleThreadScheduledExecutor(
+                        task -> Thread.ofPlatform().name("Throttle-Timer").daemon(true).unstarted(task));
+                acceptNio();
+            } else {
+                acceptThreads();
             }
         } catch (IOException e) {
             if (isRunning.get()) {
-                gui.logMessage("Sunucu dinleme hatası: " + e.getMessage());
+                listener.onLog("Sunucu dinleme hatası: " + e.getMessage());
             }
         } finally {
             isRunning.set(false);
             closeServer();
+            listener.onServerStopped();
+        }
+    }
+
+    private void acceptThreads() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        // Port dinlenmeye başladıktan sonra: JMX'in ilk açılışı bağlantıları geciktirmesin
+        if (metricsEnabled) {
+            metrics.register();
+        }
+        if (cluster != null) {
+            cluster.start();
+        }
+        if (journal != null) {
+            journal.open();
+        }
+        Thread.Builder threadBuilder = (mode == ServerMode.VIRTUAL)
+                ? Thread.ofVirtual().name("Client-", 0)
+                : Thread.ofPlatform().name("Client-", 0);
+        isRunning.set(true);
+        listener.onLog("Sunucu baslatildi (" + mode + "), port: " + port);
+        listener.onServerStarted(port, mode);
+
+        while (isRunning.get()) {
+            listener.onLog("Yeni baglanti bekleniyor...");
+            // Kanal bloklayıcı modda kalır; okuyucu ve yazıcı thread'ler doğrudan kanalı kullanır
+            SocketChannel channel = acceptChannel();
+            if (channel == null)
+                continue;
+            String address = admit(channel);
+            if (address == null)
+                continue;
+
+            ClientHandler newClient;
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                newClient = new ClientHandler(channel, this);
+            } catch (IOException e) {
+                admission.release(address);
+                channel.close();
+                continue;
+            }
+            register(newClient);
+            metrics.recordAccept();
+            threadBuilder.start(newClient);
+
+            listener.onLog("Yeni istemci baglandi: " + newClient.getClientId()
+                    + ". Toplam istemci: " + clients.size());
+            listener.onClientConnected(newClient.getClientId(), clients.size());
+        }
+    }
+
+    private void acceptNio() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        // Port dinlenmeye başladıktan sonra: JMX'in ilk açılışı bağlantıları geciktirmesin
+        if (metricsEnabled) {
+            metrics.register();
+        }
+        if (cluster != null) {
+            cluster.start();
+        }
+        if (journal != null) {
+            journal.open();
+        }
+
+        // stopServer() alanı null'lar; kabul döngüsü kendi kopyasını kullanır
+        NioReactor[] pool = new NioReactor[reactorThreads];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new NioReactor(i, this);
+            pool[i].start();
+        }
+        reactors = pool;
+        isRunning.set(true);
+        listener.onLog("Sunucu baslatildi (NIO, " + pool.length + " reactor), port: " + port);
+        listener.onServerStarted(port, mode);
+
+        while (isRunning.get()) {
+            // Kabul işlemi bloklayıcı, okuma/yazma reactor'larda non-blocking
+            SocketChannel channel = acceptChannel();
+            if (channel == null)
+                continue;
+            String address = admit(channel);
+            if (address == null)
+                continue;
+
+            NioReactor reactor;
+            try {
+                reactor = leastLoadedReactor(pool);
+            } catch (IOException e) {
+                admission.release(address);
+                channel.close();
+                throw e;
+            }
+            NioConnection newClient;
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                newClient = new NioConnection(channel, reactor, this);
+            } catch (IOException e) {
+                admission.release(address);
+                channel.close();
+                continue;
+            }
+            register(newClient);
+            metrics.recordAccept();
+            reactor.register(newClient);
+
+            listener.onLog("Yeni istemci baglandi: " + newClient.getClientId()
+                    + ". Toplam istemci: " + clients.size());
+            listener.onClientConnected(newClient.getClientId(), clients.size());
+        }
+    }
+
+    /**
+     * Bağlantıyı broadcast'lere görünür yapar. Geçmiş halkası varsa son mesajlar,
+     * bu arada gelen canlı mesajlarla çakışmadan önce kuyruğa alınır; kuyruğun en
+     * fazla yarısı kadar mesaj gönderilir ki taşma politikası tetiklenmesin.
+     */
+    private void register(ClientConnection client) {
+        if (history == null) {
+            clients.add(client);
+            return;
+        }
+        client.preloadHistory(() -> clients.add(client), history, Math.max(1, queueCapacity / 2));
+    }
+
+    /**
+     * Yeni bağlantıyı kabul sınırlarına göre denetler. Reddedilen bağlantıya
+     * (henüz el sıkışma yapmadığı için metin protokolünde) tek satırlık bir hata
+     * yazılmaya çalışılır ve bağlantı kapatılır.
+     *
+     * @return kabul edildiyse istemcinin IP adresi, reddedildiyse null
+     */
+    /**
+     * Sıradaki bağlantıyı kabul eder. Dinleme soketi kapandıysa hata yukarı iletilir;
+     * diğer hatalar (ör. açık dosya sınırı dolduğunda EMFILE) geçici sayılır: loglanır,
+     * bağlantıların kapanmasına fırsat vermek için kısa süre beklenir ve null döner.
+     */
+    private SocketChannel acceptChannel() throws IOException {
+        try {
+            return serverChannel.accept();
+        } catch (IOException e) {
+            if (e instanceof ClosedChannelException || !isRunning.get())
+                throw e;
+            listener.onLog("Bağlantı kabul edilemedi: " + e.getMessage() + ", yeniden denenecek");
+            try {
+                Thread.sleep(ACCEPT_RETRY_DELAY_MS);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Kabul döngüsü kesildi");
+            }
+            return null;
+        }
+    }
+
+    private String admit(SocketChannel channel) throws IOException {
+        String address;
+        try {
+            address = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+        } catch (IOException e) {
+            channel.close();
+            return null;
+        }
+        if (admission.tryAdmit(address))
+            return address;
+
+        listener.onLog("Bağlantı reddedildi (bağlantı sınırı): " + address);
+        try {
+            channel.configureBlocking(false);
+            channel.write(ByteBuffer.wrap((FrameType.SERVER_ERROR.prefix() + "Sunucu bağlantı sınırına ulaştı\n")
+                    .getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException ignored) {
+        } finally {
+            channel.close();
+        }
+        return null;
+    }
+
+    /**
+     * Event loop'u çalışan reactor'lardan en az bağlantısı olanı seçer.
+     * Hiçbiri çalışmıyorsa bağlantılar işlenemez; sunucu durdurulur.
+     */
+    private static NioReactor leastLoadedReactor(NioReactor[] pool) throws IOException {
+        NioReactor best = null;
+        for (NioReactor reactor : pool) {
+            if (reactor.isAlive() && (best == null || reactor.getConnectionCount() < best.getConnectionCount())) {
+                best = reactor;
+            }
         }
+        if (best == null)
+            throw new IOException("Çalışan reactor kalmadı");
+        return best;
     }
 
     public void stopServer() {
@@ -62,13 +598,21 @@ public class ChatServer {
             return;
 
         isRunning.set(false);
-        gui.logMessage("Sunucu kapatılıyor...");
+        listener.onLog("Sunucu kapatılıyor...");
+        listener.onLog(String.format("Yazma istatistiği: %d mesaj, %d write çağrısı, çağrı başına %.2f mesaj",
+                messagesWritten.sum(), writeCalls.sum(), getAverageMessagesPerWrite()));
+        listener.onLog(String.format("Sınır istatistiği: %d bağlantı reddedildi, %d mesaj atıldı, %d okuma geciktirildi",
+                getRejectedConnections(), getRejectedMessages(), getDelayedReads()));
+        if (history != null) {
+            listener.onLog(String.format("Geçmiş halkası: %d mesaj eklendi, %d büyük mesaj atlandı, %d KB direct bellek",
+                    history.getAppended(), history.getSkipped(), history.getAllocatedBytes() / 1024));
+        }
 
         // Önce tüm client bağlantılarını kapat
-        for (ClientHandler client : clients) {
+        for (ClientConnection client : clients.clear()) {
             client.close();
         }
-        clients.clear();
+        rooms.clear();
 
         closeServer();
     }
@@ -77,31 +621,543 @@ public class ChatServer {
         return isRunning.get();
     }
 
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public ClientConnection getClient(String clientId) {
+        return clients.get(clientId);
+    }
+
     private void closeServer() {
         try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
             }
         } catch (IOException e) {
-            gui.logMessage("Sunucu kapatılırken hata: " + e.getMessage());
+            listener.onLog("Sunucu kapatılırken hata: " + e.getMessage());
+        }
+        if (reactors != null) {
+            for (NioReactor reactor : reactors) {
+                reactor.shutdown();
+            }
+            reactors = null;
+        }
+        if (throttleTimer != null) {
+            throttleTimer.shutdownNow();
+            throttleTimer = null;
+        }
+        if (cluster != null) {
+            cluster.stop();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        metrics.unregister();
+        if (spool != null) {
+            // Kuyruklarda kalan dosyalar kapanınca zaten silinir; bu yalnızca artıkları temizler
+            spool.deleteLeftovers();
+        }
+        listener.onLog("Sunucu başarıyla kapatıldı.");
+    }
+
+    public RoomRegistry getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Bağlantı kapandığında her bağlantı için bir kez çağrılır
+     */
+    public void removeClient(ClientConnection client) {
+        rooms.leaveAll(client);
+        sessions.detach(client);
+        String senderId = senderIds.remove(client);
+        if (senderId != null) {
+            senders.remove(senderId, client);
+        }
+        admission.release(client.getRemoteAddress());
+        if (clients.remove(client)) {
+            listener.onLog("İstemci ayrıldı. Kalan istemci: " + clients.size());
+            listener.onClientDisconnected(client.getClientId(), clients.size());
+        }
+    }
+
+    /**
+     * İstemciden gelen tek bir çerçeveyi işler (her iki bağlantı modeli ve protokol için ortak)
+     */
+    public void handleFrame(Frame frame, ClientConnection sender) {
+        switch (frame.type()) {
+            case HELLO:
+                if (FrameCodec.HELLO_REQUEST.equals(frame.line())) {
+                    sender.switchToBinary();
+                    // Yeni istemci DIRECT mesajlarında kullanılacak kendi kimliğini öğrenir
+                    sender.send(Frame.ofText(FrameType.CLIENT_ID, sender.getClientId()));
+                    listener.onLog("İstemci ikili protokole geçti: " + sender.getClientId());
+                }
+                break;
+            case FILE:
+                listener.onLog("[Dosya geldi: " + frame.fileName() + ", tip: " + frame.mimeType()
+                        + ", şifreli boyut: " + frame.fileDataLength() + "]");
+                broadcast(frame);
+                break;
+            case FILE_START: {
+                String[] fields = FileTransfer.fields(frame, 4);
+                if (fields != null) {
+                    listener.onLog("[Dosya aktarımı başladı: " + fields[3] + ", tip: " + fields[2]
+                            + ", boyut: " + fields[1] + " bayt]");
+                }
+                broadcast(frame);
+                break;
+            }
+            case FILE_CHUNK:
+                // Parçalar loglanmaz, yalnızca aktarılır
+                broadcast(frame);
+                break;
+            case FILE_END:
+                listener.onLog("[Dosya aktarımı bitti: " + frame.text() + "]");
+                broadcast(frame);
+                break;
+            case ROOM_JOIN:
+                joinRoom(frame.text(), sender);
+                break;
+            case ROOM_LEAVE:
+                if (!rooms.leave(frame.text(), sender)) {
+                    sendError(sender, "Bu odada değilsiniz: " + frame.text());
+                }
+                break;
+            case ROOM_MSG:
+                sendToRoom(frame, sender);
+                break;
+            case DIRECT:
+                sendDirect(frame, sender);
+                break;
+            case REPLAY:
+                replay(frame.text(), sender);
+                break;
+            case PING:
+                sender.send(Frame.ofText(FrameType.PONG, frame.text()));
+                announcePosition(sender);
+                break;
+            case SESSION:
+                handleSession(frame.text(), sender);
+                break;
+            case SEQ:
+                publishSequenced(frame, sender);
+                break;
+            case ACK:
+                forwardAcknowledgement(frame.text(), sender);
+                break;
+            case PONG:
+            case SERVER_ERROR:
+            case CLIENT_ID:
+            case SENDER_ID:
+            case NACK:
+                // İstemciler sunucu adına bildirim gönderemez
+                break;
+            default:
+                handleIncomingMessage(frame, sender);
+                break;
+        }
+    }
+
+    private void joinRoom(String room, ClientConnection sender) {
+        if (room.isEmpty() || room.length() > MAX_ROOM_NAME_LENGTH || room.indexOf(':') >= 0) {
+            sendError(sender, "Geçersiz oda adı: " + room);
+            return;
+        }
+        if (rooms.roomsOf(sender).size() >= MAX_ROOMS_PER_CLIENT) {
+            sendError(sender, "En fazla " + MAX_ROOMS_PER_CLIENT + " odaya katılabilirsiniz");
+            return;
+        }
+        if (rooms.join(room, sender) && clients.get(sender.getClientId()) != sender) {
+            // Bağlantı bu sırada kapandıysa üyeliği geri al
+            rooms.leaveAll(sender);
+        }
+    }
+
+    /**
+     * "oda:mesaj" yüklü çerçeveyi yalnızca odanın üyelerine iletir
+     */
+    private void sendToRoom(Frame frame, ClientConnection sender) {
+        String content = frame.text();
+        int separator = content.indexOf(':');
+        if (separator <= 0) {
+            sendError(sender, "Geçersiz oda mesajı");
+            return;
+        }
+        String room = content.substring(0, separator);
+        if (!rooms.isMember(room, sender)) {
+            sendError(sender, "Bu odada değilsiniz: " + room);
+            return;
+        }
+        logPayload("Gelen Şifreli Mesaj [" + sender.getClientId() + " → #" + room + "]: ",
+                content.substring(separator + 1));
+        deliver(frame, rooms.members(room), HistoryRing.NONE, null);
+        if (cluster != null) {
+            cluster.publish(frame);
+        }
+    }
+
+    /**
+     * DIRECT çerçevesini id → bağlantı haritasından bulunan tek alıcıya iletir.
+     * Alıcı, kime yanıt vereceğini bilsin diye hedef kimliği gönderenin kimliğiyle değiştirilir.
+     */
+    private void sendDirect(Frame frame, ClientConnection sender) {
+        String targetId = frame.directPeer();
+        if (targetId == null) {
+            sendError(sender, "Geçersiz özel mesaj");
+            return;
+        }
+        ClientConnection target = clients.get(targetId);
+        if (target == null) {
+            sendError(sender, "Alıcı bulunamadı: " + targetId);
+            return;
+        }
+        Frame inner = frame.directInner();
+        if (inner.type() == FrameType.RSA_PUBKEY) {
+            listener.onLog("RSA anahtarı iletildi [" + sender.getClientId() + " → " + targetId + "]");
+        } else {
+            logPayload("Özel Şifreli Mesaj [" + sender.getClientId() + " → " + targetId + "]: ", inner.line());
+        }
+        target.send(Frame.ofDirect(sender.getClientId(), inner.line()));
+    }
+
+    /**
+     * Günlükteki mesajları yalnızca isteyen istemciye gönderir. İstek "offset=N[-M]"
+     * veya "time=ms[-ms]" biçimindedir (aralığın sonu hariç). Aktarım ayrı bir sanal
+     * thread'de yapılır ve istemcinin kuyruğu yarıya kadar doluysa beklenir; böylece
+     * uzun bir geçmiş taşma politikasını tetiklemez. Sonunda "END sonrakiOffset adet" gider.
+     */
+    private void replay(String request, ClientConnection sender) {
+        if (journal == null) {
+            sendError(sender, "Mesaj geçmişi bu sunucuda kapalı");
+            return;
+        }
+        long[] range = parseReplayRange(request);
+        if (range == null) {
+            sendError(sender, "Geçersiz geçmiş isteği: " + request);
+            return;
+        }
+        if (!startReplay(sender, range, request.startsWith("time="), null)) {
+            sendError(sender, "Geçmiş aktarımı zaten sürüyor");
+        }
+    }
+
+    /**
+     * @param onEnd aktarım bitince ve bağlantı hâlâ açıksa sonraki offset ile çağrılır; null olabilir
+     * @return bu bağlantı için başka bir aktarım sürüyorsa false
+     */
+    private boolean startReplay(ClientConnection sender, long[] range, boolean byTime, LongConsumer onEnd) {
+        if (!replaying.add(sender))
+            return false;
+        Thread.ofVirtual().name("Replay-" + sender.getClientId()).start(() -> {
+            long[] count = new long[1];
+            try {
+                MessageJournal.RecordHandler handler = (offset, timestamp, frame) -> {
+                    if (!awaitQueueRoom(sender))
+                        return false;
+                    sender.send(frame);
+                    count[0]++;
+                    return true;
+                };
+                long next = byTime
+                        ? journal.replayTime(range[0], range[1], handler)
+                        : journal.replay(range[0], range[1], handler);
+                if (isConnected(sender)) {
+                    sender.send(Frame.ofText(FrameType.REPLAY, "END " + next + " " + count[0]));
+                    if (onEnd != null) {
+                        onEnd.accept(next);
+                    }
+                }
+                listener.onLog("Geçmiş gönderildi [" + sender.getClientId() + "]: " + count[0] + " mesaj");
+            } catch (RuntimeException e) {
+                listener.onLog("Geçmiş gönderme hatası [" + sender.getClientId() + "]: " + e.getMessage());
+            } finally {
+                replaying.remove(sender);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * "belirteç offset" yüklü SESSION çerçevesi. Oturumu olmayan bağlantı için oturum açma
+     * veya sürdürme isteğidir: onaylanan ve istemcinin bildirdiği offset'lerin ilerideki
+     * olanından (bilinmeyen belirteçte istemcinin bildirdiğinden) itibaren günlük yeniden
+     * gönderilir. Oturumu olan bağlantı için aldığı son işaretin birikimli onayıdır. Günlük kapalıysa sürdürülecek bir şey yoktur, yanıt verilmez.
+     */
+    private void handleSession(String payload, ClientConnection sender) {
+        if (journal == null)
+            return;
+        int separator = payload.indexOf(' ');
+        String token = (separator < 0) ? payload : payload.substring(0, separator);
+        long offset = -1;
+        if (separator >= 0) {
+            try {
+                offset = Long.parseLong(payload.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                offset = -1;
+            }
+        }
+        SessionRegistry.Session current = sessions.get(sender);
+        if (current != null) {
+            if (offset >= 0 && offset <= journal.getNextOffset()) {
+                sessions.acknowledge(current.getToken(), offset);
+            }
+            return;
         }
-        gui.logMessage("Sunucu başarıyla kapatıldı.");
+        if (!SessionRegistry.isValidToken(token)) {
+            token = SessionRegistry.newToken();
+            offset = -1;
+        }
+        long from = sessions.attach(sender, token, offset);
+        SessionRegistry.Session session = sessions.get(sender);
+        // Günlükten gelen kendi mesajlarını tanıyabilmesi için aktarımdan önce bildirilir
+        assignSenderId(sender);
+        long end = journal.getNextOffset();
+        if (from < 0 || from >= end) {
+            announcePosition(sender, session, end);
+            return;
+        }
+        listener.onLog("Oturum sürdürülüyor [" + sender.getClientId() + "]: offset " + from + " sonrası gönderiliyor");
+        // Bağlantı zaten kayıtlı: bundan sonra gelen mesajlar canlı akıştan ulaşır, günlükten
+        // yalnızca şu anki sona kadar gönderilir (aksi halde aktarım sırasındakiler iki kez gelir)
+        startReplay(sender, new long[] { from, end }, false,
+                next -> announcePosition(sender, session, next));
     }
 
-    public void removeClient(ClientHandler client) {
-        clients.remove(client);
-        gui.logMessage("İstemci ayrıldı. Kalan istemci: " + clients.size());
+    /**
+     * Heartbeat sırasında oturumlu bağlantıya günlük konumunu bildirir. Broadcast
+     * mesajı günlüğe dağıtıldıktan sonra eklendiği için bu offset'ten önceki mesajlar
+     * işaretten önce bağlantının kuyruğundadır.
+     */
+    private void announcePosition(ClientConnection client) {
+        if (journal == null || replaying.contains(client))
+            return;
+        SessionRegistry.Session session = sessions.get(client);
+        if (session != null) {
+            announcePosition(client, session, journal.getNextOffset());
+        }
     }
 
-    public void handleIncomingMessage(String encryptedMessage, ClientHandler sender) {
-        gui.logMessage("Gelen Şifreli Mesaj [" + sender.getClientId() + "]: " + encryptedMessage);
+    private void announcePosition(ClientConnection client, SessionRegistry.Session session, long offset) {
+        if (session.announce(offset)) {
+            client.send(Frame.ofText(FrameType.SESSION, session.getToken() + " " + offset));
+        }
+    }
 
-        broadcast(encryptedMessage);
+    /**
+     * "offset=N[-M]" veya "time=ms[-ms]" → {başlangıç, bitiş}; geçersizse null
+     */
+    static long[] parseReplayRange(String request) {
+        int separator = request.indexOf('=');
+        if (separator < 0)
+            return null;
+        String key = request.substring(0, separator);
+        if (!key.equals("offset") && !key.equals("time"))
+            return null;
+        String value = request.substring(separator + 1);
+        int dash = value.indexOf('-');
+        try {
+            long from = Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+            long to = (dash < 0) ? Long.MAX_VALUE : Long.parseLong(value.substring(dash + 1));
+            return (from >= 0 && to >= from) ? new long[] { from, to } : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private boolean isConnected(ClientConnection client) {
+        return isRunning.get() && clients.get(client.getClientId()) == client;
+    }
+
+    /**
+     * Bağlantının giden kuyruğu yarıya inene kadar bekler
+     *
+     * @return bağlantı bu sırada kapandıysa false
+     */
+    private boolean awaitQueueRoom(ClientConnection client) {
+        while (client.getQueueDepth() > queueCapacity / 2) {
+            if (!isConnected(client))
+                return false;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return isConnected(client);
+    }
+
+    void sendError(ClientConnection client, String message) {
+        client.send(Frame.ofText(FrameType.SERVER_ERROR, message));
+    }
+
+    /**
+     * Bağlantının numaralı mesajlarındaki gönderen kimliğini ilk kullanımda atar ve
+     * istemciye bildirir. Oturumlu bağlantıda oturum belirtecinden türetilir (yeniden
+     * bağlanınca aynı kalır), değilse bağlantıya özel rastgele bir kimliktir. İstemci
+     * kimliği kendisi seçemediği için başkasının onaylarını alamaz, mesajlarını engelleyemez.
+     */
+    private String assignSenderId(ClientConnection client) {
+        String assigned = senderIds.get(client);
+        if (assigned != null)
+            return assigned;
+        SessionRegistry.Session session = sessions.get(client);
+        assigned = (session != null) ? SessionRegistry.senderIdFor(session.getToken()) : SessionRegistry.newToken();
+        senderIds.put(client, assigned);
+        // Yeniden bağlanan gönderen: onaylar yeni bağlantıya iletilir
+        senders.put(assigned, client);
+        client.send(Frame.ofText(FrameType.SENDER_ID, assigned));
+        return assigned;
+    }
+
+    /**
+     * Gönderenin numaraladığı mesaj: gönderen dışındaki herkese, gönderen kimliği
+     * bağlantıya atanan kimlikle değiştirilerek dağıtılır. Gönderene tüm yük yerine
+     * yalnızca numarayı taşıyan ACK gider (yerel yankı). Numaralar bağlantı başına
+     * sırayla işlendiği için ACK birikimlidir. Tekrarları alıcılar ayıklar.
+     */
+    private void publishSequenced(Frame frame, ClientConnection sender) {
+        String claimed = frame.sequencedSender();
+        long sequence = frame.sequencedNumber();
+        if (claimed == null || sequence < 0) {
+            sendError(sender, "Geçersiz sıralı mesaj");
+            return;
+        }
+        Frame inner = frame.sequencedInner();
+        switch (inner.type()) {
+            case TEXT:
+            case RSA_PUBKEY:
+                logPayload("Gelen Şifreli Mesaj [" + sender.getClientId() + " #" + sequence + "]: ", inner.line());
+                break;
+            case FILE:
+            case FILE_START:
+            case FILE_CHUNK:
+            case FILE_END:
+                break;
+            default:
+                sendError(sender, "Bu mesaj türü sıralı gönderilemez: " + inner.type());
+                return;
+        }
+        String senderId = assignSenderId(sender);
+        // Kimliğini öğrenmiş istemcinin çerçevesi olduğu gibi dağıtılır
+        broadcast(claimed.equals(senderId) ? frame : frame.withSequencedSender(senderId), sender);
+        sender.send(Frame.ofText(FrameType.ACK, Long.toString(sequence)));
+    }
+
+    /**
+     * Alıcının "gönderenKimliği sıra" birikimli onayını, gönderen bu sunucuya bağlıysa
+     * "sıra alıcıKimliği" olarak iletir. Onaylar alıcı tarafında heartbeat aralığında
+     * toplandığı için her mesaj için ayrı çerçeve gitmez.
+     */
+    private void forwardAcknowledgement(String payload, ClientConnection receiver) {
+        int separator = payload.indexOf(' ');
+        if (separator <= 0)
+            return;
+        ClientConnection target = senders.get(payload.substring(0, separator));
+        if (target == null || target == receiver)
+            return;
+        long sequence;
+        try {
+            sequence = Long.parseLong(payload.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        target.send(Frame.ofText(FrameType.ACK, sequence + " " + receiver.getClientId()));
+    }
+
+    public void handleIncomingMessage(Frame frame, ClientConnection sender) {
+        logPayload("Gelen Şifreli Mesaj [" + sender.getClientId() + "]: ", frame.line());
+
+        broadcast(frame);
     }
 
     public void broadcast(String message) {
-        for (ClientHandler client : clients) {
-            client.sendMessage(message);
+        broadcast(Frame.ofLine(message));
+    }
+
+    public void broadcast(Frame frame) {
+        broadcast(frame, null);
+    }
+
+    /**
+     * @param exclude mesajı almayacak bağlantı (gönderen), yoksa null
+     */
+    private void broadcast(Frame frame, ClientConnection exclude) {
+        // Halkaya istemci listesi alınmadan önce eklenir: sonradan kaydolan istemci mesajı
+        // ya geçmişte ya canlı alır (bkz. OutboundQueue.preload)
+        long historySequence = (history != null) ? history.append(frame) : HistoryRing.NONE;
+        deliver(frame, clients.snapshot(), historySequence, exclude);
+        if (cluster != null) {
+            cluster.publish(frame);
+        }
+        if (journal != null) {
+            journal.append(frame);
+        }
+    }
+
+    /**
+     * Bir küme eşinden gelen mesajı yalnızca bu düğümün istemcilerine dağıtır;
+     * yeniden aktarılmaz (döngü önleme). Oda mesajları odanın yerel üyelerine gider.
+     */
+    void deliverFromPeer(Frame frame) {
+        if (frame.type() == FrameType.ROOM_MSG) {
+            String content = frame.text();
+            int separator = content.indexOf(':');
+            if (separator > 0) {
+                deliver(frame, rooms.members(content.substring(0, separator)), HistoryRing.NONE, null);
+            }
+            return;
+        }
+        long historySequence = (history != null) ? history.append(frame) : HistoryRing.NONE;
+        deliver(frame, clients.snapshot(), historySequence, null);
+        if (journal != null) {
+            journal.append(frame);
+        }
+    }
+
+    /**
+     * Çerçeveyi her protokol için en fazla bir kez kodlar ve aynı tamponu
+     * o protokoldeki tüm hedeflerin kuyruğuna paylaştırır
+     *
+     * @param exclude hedeflerden atlanacak bağlantı, yoksa null
+     */
+    private void deliver(Frame frame, ClientConnection[] targets, long historySequence, ClientConnection exclude) {
+        long start = metricsEnabled ? System.nanoTime() : 0;
+        SharedBuffer text = null;
+        SharedBuffer binary = null;
+        boolean textEncoded = false;
+        try {
+            for (ClientConnection client : targets) {
+                if (client == exclude)
+                    continue;
+                // El sıkışma protokol okunduktan sonra tamamlandıysa send false döner;
+                // bağlantının yeni protokolündeki kodlamayla tekrar denenir
+                boolean sent;
+                do {
+                    if (client.getProtocol() == WireProtocol.BINARY) {
+                        if (binary == null) {
+                            binary = FrameCodec.encode(frame, WireProtocol.BINARY);
+                        }
+                        sent = client.send(binary, historySequence);
+                    } else {
+                        if (!textEncoded) {
+                            textEncoded = true;
+                            text = FrameCodec.encode(frame, WireProtocol.TEXT);
+                            if (text == null) {
+                                listener.onLog("Dosya eski protokoldeki istemcilere iletilemedi (spool kotası dolu)");
+                            }
+                        }
+                        sent = (text == null) || client.send(text, historySequence);
+                    }
+                } while (!sent);
+            }
+        } finally {
+            if (text != null) {
+                text.release();
+            }
+            if (binary != null) {
+                binary.release();
+            }
+            if (metricsEnabled) {
+                metrics.recordFanout(System.nanoTime() - start);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,33 @@
 package main;
 
 public class ChatServerApp {
-    public static void main(String[] args) {
+    // Eski sıralı argümanların karşılık geldiği ayar anahtarları
+    private static final String[] POSITIONAL_KEYS = {"mode", "reactors", "queue.capacity", "queue.overflow",
+            "spool.quota.mb", "flush.linger.micros", "max.connections", "max.connections.per.ip", "rate.messages",
+            "rate.bytes", "rate.policy", "log.file"};
+
+    // Kullanım: ChatServerApp [--config dosya] [anahtar=değer ...]
+    // veya eski biçim: ChatServerApp [THREAD|VIRTUAL|NIO] [reactorSayisi] [kuyrukBoyutu] [DROP_OLDEST|DROP_NEWEST|DISCONNECT] [spoolKotasiMB] [flushGecikmesiMikrosaniye] [maksBaglanti] [ipBasinaBaglanti] [mesaj/sn] [bayt/sn] [DELAY|REJECT] [logDosyasi]
+    // Ekransız sunucular için HeadlessServerApp kullanılır.
+    public static void main(String[] args) throws Exception {
+        ServerConfig config;
+        if (args.length > 0 && (args[0].startsWith("--") || args[0].contains("="))) {
+            config = ServerConfig.fromArgs(args);
+        } else {
+            config = new ServerConfig();
+            for (int i = 0; i < args.length && i < POSITIONAL_KEYS.length; i++) {
+                config.set(POSITIONAL_KEYS[i], args[i]);
+            }
+        }
         javax.swing.SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-                new ServerGUI(5000).setVisible(true); 
+                try {
+                    ServerGUI gui = new ServerGUI(config);
+                    gui.setVisible(true);
+                } catch (java.io.IOException e) {
+                    System.err.println("Log dosyası açılamadı: " + e.getMessage());
+                }
             }
         });
     }
-}
\ No newline at end of file
+}
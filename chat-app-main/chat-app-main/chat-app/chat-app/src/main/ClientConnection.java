@@ -0,0 +1,76 @@
+package main;
+
+/**
+ * Sunucu tarafındaki tek bir istemci bağlantısı.
+ * Hem thread-per-client (ClientHandler) hem de NIO (NioConnection) modeli
+ * bu arayüzü uygular; ChatServer yalnızca bu arayüz üzerinden konuşur.
+ */
+public interface ClientConnection {
+
+    String getClientId();
+
+    /** İstemcinin IP adresi (bağlantı sınırları bu adrese göre tutulur) */
+    String getRemoteAddress();
+
+    /** Bağlantının şu an konuştuğu protokol; gönderilecek tamponun kodlaması buna göre seçilir */
+    WireProtocol getProtocol();
+
+    /**
+     * El sıkışma yanıtını kuyruğa alır ve bağlantıyı ikili protokole geçirir
+     */
+    void switchToBinary();
+
+    /**
+     * Önceden kodlanmış tamponu gönderir; gerekiyorsa kendi referansını alır (retain)
+     *
+     * @return tampon, bağlantının bu arada geçtiği protokolde kodlanmadığı için
+     *         alınmadıysa false; çağıran getProtocol() ile yeniden kodlayıp tekrar göndermeli
+     */
+    default boolean send(SharedBuffer frame) {
+        return send(frame, HistoryRing.NONE);
+    }
+
+    /**
+     * @param historySequence mesajın geçmiş halkasındaki sıra numarası; bağlantıya geçmişle
+     *                        birlikte zaten gönderildiyse tekrar gönderilmez
+     * @return send(SharedBuffer) ile aynı
+     */
+    boolean send(SharedBuffer frame, long historySequence);
+
+    /**
+     * register'ı (bağlantının kaydı) giden kuyruğun kilidi altında çalıştırır ve son
+     * mesajları canlı mesajlardan önce kuyruğa alır. Yazıcı henüz başlamadan çağrılır.
+     *
+     * @return kuyruğa alınan geçmiş mesaj sayısı
+     */
+    int preloadHistory(Runnable register, HistoryRing history, int maxMessages);
+
+    default void send(Frame frame) {
+        boolean sent;
+        do {
+            SharedBuffer encoded = FrameCodec.encode(frame, getProtocol());
+            if (encoded == null)
+                return;
+            sent = send(encoded);
+            encoded.release();
+        } while (!sent);
+    }
+
+    default void sendMessage(String message) {
+        send(Frame.ofLine(message));
+    }
+
+    /** Giden kuyrukta bekleyen mesaj sayısı */
+    int getQueueDepth();
+
+    /** Kuyruk dolduğu için atılan mesaj sayısı */
+    long getDroppedCount();
+
+    /**
+     * Bu bağlantıdan okumayı verilen süre kadar geciktirir (hız sınırı aşıldığında).
+     * Yalnızca bağlantının okuyucusu tarafından çağrılır.
+     */
+    void throttle(long nanos);
+
+    void close();
+}
@@ -7,6 +7,10 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.RoundRectangle2D;
 import java.security.PublicKey;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class ClientGUI extends JFrame {
     private final ChatClient client;
@@ -58,8 +62,21 @@ public class ClientGUI extends JFrame {
     private RSACipher rsaForEncrypt; // Şifreleme için (karşı tarafın public key'i ile)
     private RSACipher rsaForDecrypt; // Çözme için (kendi private key'im ile)
 
+    // Kendi RSA anahtarımızı DIRECT ile gönderdiğimiz istemciler
+    private final java.util.Set<String> keySentTo = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+    // Alınmakta olan parçalı dosyalar (yalnızca alıcı thread erişir)
+    private final java.util.Map<String, IncomingTransfer> incomingTransfers = new java.util.HashMap<>();
+    // Bağlantı başına tek alıcı thread; yenisi öncekinin bitmesini bekler
+    private volatile Thread receiver;
+
     public ClientGUI() {
         this.client = new ChatClient();
+        // Sunucu yeniden başlarsa bağlantı kendiliğinden kurulur, çevrimdışı yazılanlar sonra gönderilir
+        client.setAutoReconnect(ChatClient.DEFAULT_RECONNECT_INITIAL_MILLIS, ChatClient.DEFAULT_RECONNECT_MAX_MILLIS,
+                java.util.concurrent.TimeUnit.MILLISECONDS);
+        // Sunucu kendi mesajlarımızı geri yollamaz, yalnızca ACK döner; "Ben:" satırı ACK ile yazılır
+        client.setSequencedDelivery(true);
 
         // RSA key pair'i başlangıçta oluştur
         this.myRSA = new RSACipher();
@@ -256,7 +273,7 @@ public class ClientGUI extends JFrame {
         input.addActionListener(e -> sendMessage());
         fileButton.addActionListener(e -> sendFile());
 
-        new Thread(this::receiveMessages, "Client-Receive-Thread").start();
+        client.addConnectionListener(this::onConnectionStateChanged);
 
         // Center window
         setLocationRelativeTo(null);
@@ -265,35 +282,147 @@ public class ClientGUI extends JFrame {
     private void sendMessage() {
         String msg = input.getText().trim();
         if (!msg.isEmpty()) {
-            try {
-                updateAlgorithm();
-
-                if (!client.isConnected()) {
-                    appendMessage("⚠️ Hata: Sunucuya bağlı değil!", ACCENT);
-                    connectButton.setEnabled(true);
-                    return;
-                }
+            updateAlgorithm();
 
-                String toSend = (selectedAlgorithm != null) ? selectedAlgorithm.encrypt(msg) : msg;
-                boolean sent = client.sendMessage(toSend);
+            if (!client.isConnected() && !client.isReconnecting()) {
+                appendMessage("⚠️ Hata: Sunucuya bağlı değil!", ACCENT);
+                connectButton.setEnabled(true);
+                return;
+            }
 
-                if (!sent) {
-                    appendMessage("🔌 Sunucu bağlantısı kesildi! Mesaj gönderilemedi.", ACCENT);
-                    connectButton.setEnabled(true);
-                    return;
-                }
+            if (msg.startsWith("/")) {
+                handleCommand(msg);
+                input.setText("");
+                return;
+            }
 
-                if (selectedAlgorithm != null) {
-                    appendMessage("📤 Ben: " + msg + "\n   🔐 Şifreli: " + toSend, SUCCESS);
+            // Şifreleme ve yazma gönderim thread'inde yapılır; EDT yalnızca kuyruğa ekler
+            EncryptionAlgorithm algorithm = selectedAlgorithm;
+            AtomicReference<String> encrypted = new AtomicReference<>();
+            CompletableFuture<Boolean> result = client.sendAsync(encryptedFrame(line -> {
+                encrypted.set(line);
+                return Frame.ofLine(line);
+            }, msg));
+            whenSent(result, "Mesaj gönderilemedi.", () -> {
+                if (algorithm != null) {
+                    appendMessage("📤 Ben: " + msg + "\n   🔐 Şifreli: " + encrypted.get(), SUCCESS);
                 } else {
                     appendMessage("📤 Ben: " + msg + " (Şifresiz)", TEXT_SECONDARY);
                 }
+            });
+            input.setText("");
+        }
+    }
 
-                input.setText("");
-            } catch (Exception ex) {
-                appendMessage("❌ Mesaj gönderme hatası: " + ex.getMessage(), ACCENT);
+    /**
+     * Gönderim sonucunu EDT'de bildirir; EDT hiçbir zaman yazmanın bitmesini beklemez
+     *
+     * @param failure bağlantı koptuysa gösterilecek açıklama
+     * @param onSent  çerçeve sokete yazıldığında (numaralı mesajda sunucu onayladığında) EDT'de çalışır
+     */
+    private void whenSent(CompletableFuture<Boolean> result, String failure, Runnable onSent) {
+        result.whenComplete((sent, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                Throwable cause = (error.getCause() != null) ? error.getCause() : error;
+                appendMessage("❌ Gönderme hatası: " + cause.getMessage(), ACCENT);
+            } else if (!sent) {
+                appendMessage("🔌 Sunucu bağlantısı kesildi! " + failure, ACCENT);
+                connectButton.setEnabled(true);
+            } else {
+                onSent.run();
             }
+        }));
+    }
+
+    /**
+     * Oda komutları: /katil oda, /ayril oda, /oda oda mesaj
+     * Özel mesaj: /ozel kimlik mesaj, /anahtar kimlik (RSA anahtarını yalnızca ona gönder), /kimlik
+     * Geçmiş: /gecmis [dakika] (son dakikalardaki mesajları sunucu günlüğünden ister, varsayılan 10)
+     */
+    private void handleCommand(String command) {
+        String[] parts = command.split("\\s+", 3);
+        CompletableFuture<Boolean> result;
+        Runnable onSent;
+        switch (parts[0]) {
+            case "/katil":
+                if (parts.length < 2) {
+                    appendMessage("Kullanım: /katil <oda>", ACCENT);
+                    return;
+                }
+                result = client.joinRoomAsync(parts[1]);
+                onSent = () -> appendMessage("🚪 #" + parts[1] + " odasına katıldınız", SUCCESS);
+                break;
+            case "/ayril":
+                if (parts.length < 2) {
+                    appendMessage("Kullanım: /ayril <oda>", ACCENT);
+                    return;
+                }
+                result = client.leaveRoomAsync(parts[1]);
+                onSent = () -> appendMessage("🚪 #" + parts[1] + " odasından ayrıldınız", TEXT_SECONDARY);
+                break;
+            case "/ozel":
+                if (parts.length < 3) {
+                    appendMessage("Kullanım: /ozel <kimlik> <mesaj>", ACCENT);
+                    return;
+                }
+                result = client.sendAsync(encryptedFrame(line -> Frame.ofDirect(parts[1], line), parts[2]));
+                onSent = () -> appendMessage("📤 Ben → " + parts[1] + ": " + parts[2], SUCCESS);
+                break;
+            case "/anahtar":
+                if (parts.length < 2) {
+                    appendMessage("Kullanım: /anahtar <kimlik>", ACCENT);
+                    return;
+                }
+                keySentTo.add(parts[1]);
+                result = client.sendDirectAsync(parts[1], FrameType.RSA_PUBKEY.prefix() + myRSA.getPublicKeyBase64());
+                onSent = () -> appendMessage("🔑 RSA anahtarı yalnızca " + parts[1] + " istemcisine gönderildi",
+                        SUCCESS);
+                break;
+            case "/kimlik":
+                appendMessage("🪪 Kimliğiniz: " + (client.getClientId() != null ? client.getClientId() : "bilinmiyor"),
+                        TEXT_SECONDARY);
+                return;
+            case "/ping":
+                long rtt = client.getSmoothedRttMicros();
+                appendMessage((rtt < 0) ? "📶 Gecikme henüz ölçülmedi"
+                        : String.format("📶 Sunucu gecikmesi: %.1f ms (son: %.1f ms)", rtt / 1000.0,
+                                client.getRttMicros() / 1000.0), TEXT_SECONDARY);
+                return;
+            case "/gecmis":
+                long minutes;
+                try {
+                    minutes = (parts.length < 2) ? 10 : Long.parseLong(parts[1]);
+                } catch (NumberFormatException e) {
+                    appendMessage("Kullanım: /gecmis [dakika]", ACCENT);
+                    return;
+                }
+                result = client.requestReplaySinceAsync(System.currentTimeMillis() - minutes * 60_000);
+                onSent = () -> appendMessage("🕘 Son " + minutes + " dakikanın mesajları isteniyor...",
+                        TEXT_SECONDARY);
+                break;
+            case "/oda":
+                if (parts.length < 3) {
+                    appendMessage("Kullanım: /oda <oda> <mesaj>", ACCENT);
+                    return;
+                }
+                result = client.sendAsync(encryptedFrame(
+                        line -> Frame.ofText(FrameType.ROOM_MSG, parts[1] + ":" + line), parts[2]));
+                onSent = () -> appendMessage("📤 Ben → #" + parts[1] + ": " + parts[2], SUCCESS);
+                break;
+            default:
+                appendMessage("Bilinmeyen komut: " + parts[0]
+                        + " (/katil, /ayril, /oda, /ozel, /anahtar, /kimlik, /gecmis, /ping)", ACCENT);
+                return;
         }
+        whenSent(result, "Komut gönderilemedi.", onSent);
+    }
+
+    /**
+     * Metni seçili algoritmayla gönderim thread'inde şifreleyip çerçeveye koyan üretici
+     */
+    private Supplier<Frame> encryptedFrame(Function<String, Frame> frame, String text) {
+        EncryptionAlgorithm algorithm = selectedAlgorithm;
+        return () -> frame.apply((algorithm != null) ? algorithm.encrypt(text) : text);
     }
 
     private void appendMessage(String message, Color color) {
@@ -303,7 +432,7 @@ public class ClientGUI extends JFrame {
     }
 
     private void sendFile() {
-        if (!client.isConnected()) {
+        if (!client.isConnected() && !client.isReconnecting()) {
             appendMessage("⚠️ Hata: Sunucuya bağlı değil! Dosya gönderilemez.", ACCENT);
             connectButton.setEnabled(true);
             return;
@@ -313,34 +442,56 @@ public class ClientGUI extends JFrame {
         int result = chooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             java.io.File file = chooser.getSelectedFile();
-            try {
-                String fileName = file.getName();
-                String mimeType = guessMimeType(fileName);
-                byte[] fileBytes = java.nio.file.Files.readAllBytes(file.toPath());
-
-                updateAlgorithm();
-                String fileText = java.util.Base64.getEncoder().encodeToString(fileBytes);
-                String toSend = (selectedAlgorithm != null) ? selectedAlgorithm.encrypt(fileText) : fileText;
-
-                boolean sent = client.sendFile(fileName, mimeType, toSend);
-
-                if (!sent) {
-                    appendMessage("🔌 Sunucu bağlantısı kesildi! Dosya gönderilemedi.", ACCENT);
-                    connectButton.setEnabled(true);
-                    return;
+            if (client.getProtocol() == WireProtocol.BINARY) {
+                sendFileChunked(file);
+                return;
+            }
+            updateAlgorithm();
+            EncryptionAlgorithm algorithm = selectedAlgorithm;
+            String fileName = file.getName();
+            String mimeType = guessMimeType(fileName);
+            // Dosya okuma, Base64 ve şifreleme gönderim thread'inde yapılır
+            CompletableFuture<Boolean> sent = client.sendFileAsync(fileName, mimeType, () -> {
+                byte[] fileBytes;
+                try {
+                    fileBytes = java.nio.file.Files.readAllBytes(file.toPath());
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
                 }
-
-                if (selectedAlgorithm != null) {
+                String fileText = java.util.Base64.getEncoder().encodeToString(fileBytes);
+                return (algorithm != null) ? algorithm.encrypt(fileText) : fileText;
+            });
+            whenSent(sent, "Dosya gönderilemedi.", () -> {
+                if (algorithm != null) {
                     appendMessage("📁 Şifreli dosya gönderildi: " + fileName, SUCCESS);
                 } else {
                     appendMessage("📁 Dosya gönderildi: " + fileName, TEXT_SECONDARY);
                 }
-            } catch (Exception ex) {
-                appendMessage("❌ Dosya gönderme hatası: " + ex.getMessage(), ACCENT);
-            }
+            });
         }
     }
 
+    /**
+     * Dosyayı arka planda parça parça gönderir; bu sırada sohbet devam edebilir
+     */
+    private void sendFileChunked(java.io.File file) {
+        updateAlgorithm();
+        EncryptionAlgorithm algorithm = selectedAlgorithm;
+        String fileName = file.getName();
+        String mimeType = guessMimeType(fileName);
+        appendMessage("📤 Dosya gönderiliyor: " + fileName, TEXT_SECONDARY);
+
+        CompletableFuture<Boolean> sent = client.sendFileStreamAsync(file.toPath(), mimeType,
+                (algorithm != null) ? algorithm::encrypt : null);
+        whenSent(sent, "Dosya gönderilemedi.", () -> {
+            if (algorithm != null) {
+                appendMessage("📁 Şifreli dosya gönderildi: " + fileName, SUCCESS);
+            } else {
+                appendMessage("📁 Dosya gönderildi: " + fileName, TEXT_SECONDARY);
+            }
+        });
+    }
+
     private void connectToServer() {
         String portStr = portField.getText().trim();
         int port;
@@ -354,15 +505,11 @@ public class ClientGUI extends JFrame {
         appendMessage("🔄 Sunucuya bağlanılıyor: localhost:" + port, TEXT_SECONDARY);
         new Thread(() -> {
             try {
-                client.connect("127.0.0.1", port);
-
-                // Bağlantı kurulduğunda RSA public key'i gönder
-                String myPublicKeyBase64 = myRSA.getPublicKeyBase64();
-                client.sendMessage("RSA_PUBKEY:" + myPublicKeyBase64);
+                // RSA public key'i bağlantı dinleyicisi gönderir
+                client.connect("127.0.0.1", port, WireProtocol.BINARY);
 
                 SwingUtilities.invokeLater(() -> {
                     appendMessage("✅ Sunucuya bağlandı: localhost:" + port, SUCCESS);
-                    System.out.println("[LOG] RSA public key gönderildi.");
                     connectButton.setEnabled(false);
                 });
             } catch (Exception ex) {
@@ -374,96 +521,186 @@ public class ClientGUI extends JFrame {
         }, "Client-Connect-Thread").start();
     }
 
+    /**
+     * Bağlantı kurulunca alıcı thread başlatılır; bağlantı yokken bekleyen thread yoktur.
+     * Yeni bağlantı kurulmaya başlarken önceki alıcının bitmesi beklenir: eski soket
+     * kapalı olduğundan hemen çıkar ve yarım kalan aktarımları temizler, böylece
+     * incomingTransfers'a aynı anda tek thread erişir.
+     * Her bağlantıda (yeniden bağlanmada da) RSA public key yeniden duyurulur.
+     */
+    private void onConnectionStateChanged(ConnectionState previous, ConnectionState current) {
+        if (current == ConnectionState.CONNECTING) {
+            awaitReceiver();
+        } else if (current == ConnectionState.CONNECTED) {
+            keySentTo.clear();
+            client.sendMessageAsync("RSA_PUBKEY:" + myRSA.getPublicKeyBase64())
+                    .thenAccept(sent -> System.out.println("[LOG] RSA public key gönderildi: " + sent));
+            receiver = new Thread(this::receiveMessages, "Client-Receive-Thread");
+            receiver.start();
+            if (client.getReconnectAttempts() > 0) {
+                SwingUtilities.invokeLater(() -> {
+                    appendMessage("✅ Sunucuya yeniden bağlandı", SUCCESS);
+                    connectButton.setEnabled(false);
+                });
+            }
+        } else if (current == ConnectionState.DISCONNECTED && previous == ConnectionState.CONNECTED) {
+            handleDisconnection();
+        }
+    }
+
+    private void awaitReceiver() {
+        Thread previous = receiver;
+        if (previous == null || previous == Thread.currentThread())
+            return;
+        try {
+            previous.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tek bir bağlantının çerçevelerini okur; bağlantı kapanınca (veya yerine yenisi
+     * kurulunca readFrame() null döndüğünde) thread biter
+     */
     private void receiveMessages() {
-        while (true) {
-            try {
-                // İlk bağlantı kurulana kadar bekle
-                while (!client.isConnected()) {
-                    Thread.sleep(500);
-                }
+        try {
+            while (true) {
+                try {
+                    Frame frame = client.readFrame();
+                    if (frame == null) {
+                        // Sunucu bağlantıyı kapattı, DISCONNECTED olayı yayınlandı
+                        return;
+                    }
 
-                java.io.BufferedReader in = new java.io.BufferedReader(
-                        new java.io.InputStreamReader(client.getSocket().getInputStream()));
-
-                while (client.isConnected()) {
-                    try {
-                        String line = in.readLine();
-                        if (line == null) {
-                            // Sunucu bağlantıyı kapattı
-                            handleDisconnection();
-                            break;
-                        }
-
-                        if (line.startsWith("RSA_PUBKEY:")) {
-                            // Karşı tarafın public key'ini al
-                            String peerKeyBase64 = line.substring("RSA_PUBKEY:".length());
-                            try {
-                                peerPublicKey = RSACipher.decodePublicKey(peerKeyBase64);
-                                rsaForEncrypt = new RSACipher(peerPublicKey);
-                                System.out.println("[LOG] Karşı tarafın RSA public key'i alındı. RSA şifreleme hazır!");
-                            } catch (Exception e) {
-                                SwingUtilities.invokeLater(() -> {
-                                    appendMessage("❌ RSA public key decode hatası: " + e.getMessage(), ACCENT);
-                                });
-                            }
-                        } else if (line.startsWith("FILE:")) {
-                            String[] parts = line.split(":", 4);
-                            if (parts.length == 4) {
-                                handleIncomingFile(parts[1], parts[2], parts[3]);
-                            }
-                        } else {
-                            final String msg = line;
-                            // RSA şifreli mesaj mı kontrol et ve çöz
-                            String decryptedMsg = msg;
-                            String prefix = "";
-                            if (rsaForDecrypt != null && msg.length() > 100) {
-                                // RSA şifreli mesaj olabilir - çözmeyi dene
-                                try {
-                                    decryptedMsg = rsaForDecrypt.decrypt(msg);
-                                    prefix = "🔓 [RSA Çözüldü] ";
-                                } catch (Exception e) {
-                                    // RSA ile çözülemedi - normal mesaj olarak göster
-                                    prefix = "";
-                                    decryptedMsg = msg;
-                                }
-                            }
-                            final String displayMsg = prefix + decryptedMsg;
-                            SwingUtilities.invokeLater(() -> {
-                                appendMessage("📩 [Gelen] " + displayMsg, TEXT_PRIMARY);
-                            });
-                        }
-                    } catch (java.net.SocketTimeoutException ste) {
-                        // Timeout normal - bağlantı hala açık olabilir, devam et
+                    if (frame.type() == FrameType.HELLO) {
+                        // El sıkışma çerçevesi, gösterilecek bir şey yok
                         continue;
+                    } else if (frame.type() == FrameType.RSA_PUBKEY) {
+                        // Karşı tarafın public key'ini al
+                        acceptPeerKey(frame.text());
+                    } else if (frame.type() == FrameType.DIRECT) {
+                        handleDirectFrame(frame);
+                    } else if (frame.type() == FrameType.FILE) {
+                        handleIncomingFile(frame.fileName(), frame.mimeType(), frame.fileData());
+                    } else if (frame.type() == FrameType.ROOM_MSG) {
+                        String content = frame.text();
+                        int separator = content.indexOf(':');
+                        appendMessage("📩 [#" + content.substring(0, Math.max(separator, 0)) + "] "
+                                + content.substring(separator + 1), TEXT_PRIMARY);
+                    } else if (frame.type() == FrameType.SERVER_ERROR) {
+                        appendMessage("⚠️ Sunucu: " + frame.text(), ACCENT);
+                    } else if (frame.type() == FrameType.REPLAY) {
+                        // "END sonrakiOffset adet"
+                        String[] fields = frame.text().split(" ");
+                        appendMessage("🕘 Geçmiş bitti: " + (fields.length > 2 ? fields[2] : "?") + " mesaj",
+                                TEXT_SECONDARY);
+                    } else if (frame.type() == FrameType.FILE_START
+                            || frame.type() == FrameType.FILE_CHUNK
+                            || frame.type() == FrameType.FILE_END) {
+                        handleFileTransferFrame(frame);
+                    } else {
+                        final String displayMsg = decryptForDisplay(frame.text());
+                        SwingUtilities.invokeLater(() -> {
+                            appendMessage("📩 [Gelen] " + displayMsg, TEXT_PRIMARY);
+                        });
                     }
+                } catch (java.net.SocketTimeoutException ste) {
+                    // Timeout normal - bağlantı hala açık olabilir, devam et
+                    continue;
                 }
+            }
 
-            } catch (java.io.IOException ioe) {
-                // I/O hatası - bağlantı kesildi
-                handleDisconnection();
-            } catch (Exception ex) {
-                if (client.isConnected()) {
-                    handleDisconnection();
+        } catch (java.io.IOException ioe) {
+            // I/O hatası - bağlantı kesildi, DISCONNECTED olayı yayınlandı
+            return;
+        } catch (Exception ex) {
+            client.disconnect();
+            return;
+        } finally {
+            abortIncomingTransfers();
+        }
+    }
+
+    /**
+     * Bağlantı koptuğunda yarım kalan aktarımların geçici dosyaları silinir; kalan
+     * parçalar yeni bağlantıda gelmeyeceği için aktarımlar yeniden başlatılmalıdır.
+     * Yalnızca alıcı thread çağırır (incomingTransfers'a yalnızca o erişir).
+     */
+    private void abortIncomingTransfers() {
+        if (incomingTransfers.isEmpty())
+            return;
+        for (IncomingTransfer transfer : incomingTransfers.values()) {
+            transfer.abort();
+        }
+        int count = incomingTransfers.size();
+        incomingTransfers.clear();
+        appendMessage("❌ Bağlantı koptuğu için " + count + " dosya aktarımı yarıda kaldı", ACCENT);
+    }
+
+    /**
+     * RSA şifreli olabilecek gelen mesajı çözmeyi dener; çözülemezse olduğu gibi döner
+     */
+    private String decryptForDisplay(String msg) {
+        if (rsaForDecrypt != null && msg.length() > 100) {
+            // RSA şifreli mesaj olabilir - çözmeyi dene
+            try {
+                return "🔓 [RSA Çözüldü] " + rsaForDecrypt.decrypt(msg);
+            } catch (Exception e) {
+                // RSA ile çözülemedi - normal mesaj olarak göster
+            }
+        }
+        return msg;
+    }
+
+    private boolean acceptPeerKey(String peerKeyBase64) {
+        try {
+            peerPublicKey = RSACipher.decodePublicKey(peerKeyBase64);
+            rsaForEncrypt = new RSACipher(peerPublicKey);
+            System.out.println("[LOG] Karşı tarafın RSA public key'i alındı. RSA şifreleme hazır!");
+            return true;
+        } catch (Exception e) {
+            SwingUtilities.invokeLater(() -> {
+                appendMessage("❌ RSA public key decode hatası: " + e.getMessage(), ACCENT);
+            });
+            return false;
+        }
+    }
+
+    /**
+     * Yalnızca bu istemciye gönderilmiş mesaj veya anahtar
+     */
+    private void handleDirectFrame(Frame frame) {
+        String peer = frame.directPeer();
+        if (peer == null)
+            return;
+        Frame inner = frame.directInner();
+        if (inner.type() == FrameType.RSA_PUBKEY) {
+            if (acceptPeerKey(inner.text())) {
+                appendMessage("🔑 " + peer + " RSA anahtarını gönderdi", SUCCESS);
+                // Anahtar değişimi karşılıklı: henüz göndermediysek kendi anahtarımızı yalnızca ona yolla
+                if (keySentTo.add(peer)) {
+                    client.sendDirectAsync(peer, FrameType.RSA_PUBKEY.prefix() + myRSA.getPublicKeyBase64());
                 }
             }
+            return;
         }
+        appendMessage("📩 [Özel: " + peer + "] " + decryptForDisplay(inner.line()), TEXT_PRIMARY);
     }
 
     private void handleDisconnection() {
-        client.disconnect();
         SwingUtilities.invokeLater(() -> {
-            appendMessage("🔌 Sunucu bağlantısı kesildi!", ACCENT);
+            appendMessage("🔌 Sunucu bağlantısı kesildi! Yeniden bağlanılıyor, yazdıklarınız sonra gönderilecek.",
+                    ACCENT);
             connectButton.setEnabled(true);
         });
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException ignored) {
-        }
     }
 
-    private void handleIncomingFile(String fileName, String mimeType, String encryptedBase64) {
+    /**
+     * Gelen dosyayı çözmek için kullanılacak algoritma
+     */
+    private EncryptionAlgorithm fileDecryptAlgorithm() {
         updateAlgorithm();
-        String base64 = encryptedBase64;
 
         // RSA seçili ise rsaForDecrypt kullan, diğerleri için selectedAlgorithm
         EncryptionAlgorithm decryptAlgo = selectedAlgorithm;
@@ -471,6 +708,65 @@ public class ClientGUI extends JFrame {
         if ("RSA".equals(selected) && rsaForDecrypt != null) {
             decryptAlgo = rsaForDecrypt;
         }
+        return decryptAlgo;
+    }
+
+    private void handleFileTransferFrame(Frame frame) {
+        switch (frame.type()) {
+            case FILE_START: {
+                String[] fields = FileTransfer.fields(frame, 4);
+                if (fields == null)
+                    return;
+                try {
+                    IncomingTransfer transfer = new IncomingTransfer(fields[0], fields[3], fields[2],
+                            Long.parseLong(fields[1]), fileDecryptAlgorithm());
+                    incomingTransfers.put(fields[0], transfer);
+                    appendMessage("📥 Dosya alınıyor: " + fields[3], TEXT_SECONDARY);
+                } catch (Exception e) {
+                    appendMessage("❌ Dosya alınamadı: " + e.getMessage(), ACCENT);
+                }
+                break;
+            }
+            case FILE_CHUNK: {
+                String[] fields = FileTransfer.fields(frame, 3);
+                IncomingTransfer transfer = (fields != null) ? incomingTransfers.get(fields[0]) : null;
+                if (transfer == null)
+                    return;
+                try {
+                    transfer.append(Long.parseLong(fields[1]), fields[2]);
+                } catch (Exception e) {
+                    incomingTransfers.remove(fields[0]).abort();
+                    appendMessage("❌ Dosya alınamadı: " + e.getMessage(), ACCENT);
+                }
+                break;
+            }
+            case FILE_END: {
+                String[] fields = FileTransfer.fields(frame, 2);
+                IncomingTransfer transfer = (fields != null) ? incomingTransfers.remove(fields[0]) : null;
+                if (transfer == null)
+                    return;
+                try {
+                    java.nio.file.Path outPath = transfer.complete(Long.parseLong(fields[1], 16),
+                            java.nio.file.Paths.get("gelen_" + transfer.getFileName()));
+                    if (transfer.getMimeType().startsWith("image/")) {
+                        appendMessage("📷 Fotoğraf geldi: " + transfer.getFileName(), SUCCESS);
+                        showIncomingImage(new javax.swing.ImageIcon(outPath.toString()), transfer.getFileName());
+                    } else {
+                        appendMessage("📥 Dosya kaydedildi: " + outPath.toString(), SUCCESS);
+                    }
+                } catch (Exception e) {
+                    appendMessage("❌ Dosya kaydetme hatası: " + e.getMessage(), ACCENT);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void handleIncomingFile(String fileName, String mimeType, String encryptedBase64) {
+        String base64 = encryptedBase64;
+        EncryptionAlgorithm decryptAlgo = fileDecryptAlgorithm();
 
         if (decryptAlgo != null) {
             try {
@@ -484,11 +780,8 @@ public class ClientGUI extends JFrame {
         try {
             byte[] fileBytes = java.util.Base64.getDecoder().decode(base64);
             if (mimeType.startsWith("image/")) {
-                javax.swing.ImageIcon icon = new javax.swing.ImageIcon(fileBytes);
-                javax.swing.JLabel imgLabel = new javax.swing.JLabel(icon);
-                javax.swing.JOptionPane.showMessageDialog(this, imgLabel, "📷 Gelen Fotoğraf: " + fileName,
-                        javax.swing.JOptionPane.PLAIN_MESSAGE);
                 appendMessage("📷 Fotoğraf geldi: " + fileName, SUCCESS);
+                showIncomingImage(new javax.swing.ImageIcon(fileBytes), fileName);
             } else {
                 java.nio.file.Path outPath = java.nio.file.Paths.get("gelen_" + fileName);
                 java.nio.file.Files.write(outPath, fileBytes);
@@ -499,6 +792,15 @@ public class ClientGUI extends JFrame {
         }
     }
 
+    /**
+     * Modal pencere EDT'de açılır; alıcı thread beklemez, PONG'lar okunmaya devam eder
+     */
+    private void showIncomingImage(javax.swing.ImageIcon icon, String fileName) {
+        SwingUtilities.invokeLater(() -> javax.swing.JOptionPane.showMessageDialog(this,
+                new javax.swing.JLabel(icon), "📷 Gelen Fotoğraf: " + fileName,
+                javax.swing.JOptionPane.PLAIN_MESSAGE));
+    }
+
     private void updateAlgorithm() {
         String selected = (String) encryptionSelect.getSelectedItem();
         String key = keyField.getText().trim();
@@ -1,77 +1,156 @@
 package main;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.LockSupport;
 
-public class ClientHandler extends Thread {
-    private final Socket socket;
+/**
+ * Bloklayıcı soket kanalı üzerinde tek bir istemciyi işleyen görev.
+ * Thread alt sınıfı değildir; ChatServer bunu platform veya sanal thread
+ * üzerinde çalıştırır. Okuma ve yazma yollarında synchronized kullanılmaz,
+ * böylece sanal thread'ler carrier thread'e sabitlenmez (pinning).
+ * Giden mesajlar sınırlı bir kuyruğa alınır ve okuyucu ile aynı türden
+ * ayrı bir yazıcı thread tarafından paylaşılan tamponlardan doğrudan kanala yazılır;
+ * kuyrukta biriken mesajlar tek bir gathering write ile gönderilir.
+ */
+public class ClientHandler implements Runnable, ClientConnection {
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final SocketChannel channel;
     private final ChatServer server;
-    private PrintWriter writer;
+    private final OutboundQueue outbound;
+    private final InboundDecoder decoder;
+    private final RateLimiter limiter;
+    private final String remoteAddress;
     private String clientId;
 
-    public ClientHandler(Socket socket, ChatServer server) {
-        this.socket = socket;
+    public ClientHandler(SocketChannel channel, ChatServer server) throws IOException {
+        this.channel = channel;
         this.server = server;
-        this.clientId = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+        this.outbound = server.newOutboundQueue();
+        this.limiter = server.newRateLimiter(this);
+        this.decoder = server.newInboundDecoder(this, limiter);
+        InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+        this.remoteAddress = remote.getAddress().getHostAddress();
+        this.clientId = remoteAddress + ":" + remote.getPort();
     }
 
     @Override
     public void run() {
         try {
-            writer = new PrintWriter(socket.getOutputStream(), true);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-
-            String clientMessage;
-            while ((clientMessage = reader.readLine()) != null) {
-                if (clientMessage.startsWith("FILE:")) {
-                    try {
-                        String[] parts = clientMessage.split(":", 4);
-                        if (parts.length == 4) {
-                            String fileName = parts[1];
-                            String mimeType = parts[2];
-                            int size = parts[3].length();
-                            server.getGui().logMessage("[Dosya geldi: " + fileName + ", tip: " + mimeType
-                                    + ", şifreli boyut: " + size + "]");
-                        }
-                    } catch (Exception ex) {
-                        server.getGui().logMessage("[Dosya log hatası: " + ex.getMessage() + "]");
-                    }
-                    server.broadcast(clientMessage);
-                } else {
-                    server.handleIncomingMessage(clientMessage, this);
-                }
+            Thread.Builder writerBuilder = Thread.currentThread().isVirtual()
+                    ? Thread.ofVirtual()
+                    : Thread.ofPlatform().daemon(true);
+            writerBuilder.name("Writer-" + clientId).start(this::writeLoop);
+
+            ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            int read;
+            while ((read = channel.read(readBuffer)) >= 0) {
+                server.recordRead(read);
+                limiter.admitBytes(read);
+                readBuffer.flip();
+                decoder.feed(readBuffer);
+                readBuffer.clear();
             }
 
         } catch (IOException e) {
-            server.getGui().logMessage("İstemci bağlantısı kesildi veya hata oluştu: " + e.getMessage());
+            server.getListener().onLog("İstemci bağlantısı kesildi veya hata oluştu: " + e.getMessage());
         } finally {
+            decoder.close();
             server.removeClient(this);
-            try {
-                socket.close();
-            } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void writeLoop() {
+        WriteBatch batch = new WriteBatch(server);
+        boolean busy = false;
+        try {
+            // Boştayken mesaj beklemeden yazılır; mesajlar art arda geliyorsa
+            // birlikte yazılabilmeleri için en fazla flush gecikmesi kadar beklenir
+            while (outbound.awaitBatch(busy ? server.getFlushLingerNanos() : 0, WriteBatch.MAX_MESSAGES)) {
+                busy = batch.fill(outbound) > 1 || !outbound.isEmpty();
+                while (!batch.writeTo(channel)) {
+                    // Bloklayıcı kanal: grup tamamen yazılana kadar devam
+                }
             }
+        } catch (IOException | InterruptedException e) {
+            // Okuma tarafı bağlantının koptuğunu görüp istemciyi kaldıracak
+            close();
+        } finally {
+            batch.release();
         }
     }
 
-    public void sendMessage(String message) {
-        if (writer != null) {
-            writer.println(message);
+    @Override
+    public WireProtocol getProtocol() {
+        return outbound.protocol();
+    }
+
+    @Override
+    public void switchToBinary() {
+        SharedBuffer ack = SharedBuffer.encodeSwitchLine(FrameCodec.HELLO_ACK, WireProtocol.BINARY);
+        outbound.switchProtocol(ack);
+        ack.release();
+    }
+
+    @Override
+    public boolean send(SharedBuffer frame, long historySequence) {
+        OutboundQueue.Offer result = outbound.offer(frame, historySequence);
+        if (result == OutboundQueue.Offer.OVERFLOW) {
+            server.disconnectSlowConsumer(this);
         }
+        return result != OutboundQueue.Offer.WRONG_PROTOCOL;
+    }
+
+    @Override
+    public int preloadHistory(Runnable register, HistoryRing history, int maxMessages) {
+        return outbound.preload(register, history, maxMessages);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return outbound.depth();
     }
 
+    @Override
+    public long getDroppedCount() {
+        return outbound.droppedCount();
+    }
+
+    @Override
     public String getClientId() {
         return clientId;
     }
 
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Okuyucu thread bekler; bu sürede soket okunmadığı için TCP istemciyi yavaşlatır
+     */
+    @Override
+    public void throttle(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0 && channel.isOpen()) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    @Override
     public void close() {
+        outbound.close();
         try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
+            if (channel.isOpen()) {
+                channel.close();
             }
         } catch (IOException ignored) {
         }
     }
-}
\ No newline at end of file
+}
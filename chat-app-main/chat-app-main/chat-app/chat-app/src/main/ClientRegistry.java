@@ -0,0 +1,98 @@
+package main;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bağlı istemcilerin eşzamanlı kaydı.
+ * - getClientId() ile O(1) arama için ConcurrentHashMap
+ * - Broadcast için copy-on-write dizi: okuyucular kilitsiz, sabit bir anlık görüntü üzerinde gezer
+ * - Ekleme/çıkarma CAS döngüsü ile yapılır, global kilit yoktur
+ */
+public class ClientRegistry {
+
+    private static final ClientConnection[] EMPTY = new ClientConnection[0];
+
+    private final ConcurrentHashMap<String, ClientConnection> byId = new ConcurrentHashMap<>();
+    private final AtomicReference<ClientConnection[]> snapshot = new AtomicReference<>(EMPTY);
+
+    /**
+     * @return aynı id ile kayıtlı başka bir istemci varsa false
+     */
+    public boolean add(ClientConnection client) {
+        String id = client.getClientId();
+        if (byId.putIfAbsent(id, client) != null)
+            return false;
+
+        ClientConnection[] current;
+        ClientConnection[] next;
+        do {
+            current = snapshot.get();
+            next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = client;
+        } while (!snapshot.compareAndSet(current, next));
+
+        // Bu arada remove() çalıştıysa diziye geç eklenmiş olabiliriz, geri al
+        if (byId.get(id) != client) {
+            removeFromSnapshot(client);
+        }
+        return true;
+    }
+
+    /**
+     * @return istemci kayıtlıydı ve çıkarıldıysa true
+     */
+    public boolean remove(ClientConnection client) {
+        if (!byId.remove(client.getClientId(), client))
+            return false;
+        removeFromSnapshot(client);
+        return true;
+    }
+
+    private void removeFromSnapshot(ClientConnection client) {
+        ClientConnection[] current;
+        ClientConnection[] next;
+        do {
+            current = snapshot.get();
+            int index = indexOf(current, client);
+            if (index < 0)
+                return;
+            next = new ClientConnection[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    private static int indexOf(ClientConnection[] clients, ClientConnection client) {
+        for (int i = 0; i < clients.length; i++) {
+            if (clients[i] == client)
+                return i;
+        }
+        return -1;
+    }
+
+    public ClientConnection get(String clientId) {
+        return byId.get(clientId);
+    }
+
+    /**
+     * Broadcast için anlık görüntü. Dönen dizi değiştirilmemelidir.
+     */
+    public ClientConnection[] snapshot() {
+        return snapshot.get();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Tüm kayıtları siler ve silinmeden önceki anlık görüntüyü döndürür
+     */
+    public ClientConnection[] clear() {
+        ClientConnection[] previous = snapshot.getAndSet(EMPTY);
+        byId.clear();
+        return previous;
+    }
+}
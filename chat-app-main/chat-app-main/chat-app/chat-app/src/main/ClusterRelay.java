@@ -0,0 +1,349 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Birden çok ChatServer sürecini bir küme olarak birbirine bağlar.
+ * Bir düğümün yerel istemcilerine yaptığı her broadcast ve oda mesajı, diğer
+ * her düğüme bir kez aktarılır; alan düğüm mesajı yalnızca kendi
+ * yerel istemcilerine dağıtır.
+ *
+ * - Bağlantılar: her düğüm, her eşine gönderim için bir bağlantı açar (PeerLink)
+ *   ve eşlerinin bağlantılarını cluster portunda kabul eder (yalnızca okuma)
+ * - Döngü önleme: eşten gelen mesaj asla yeniden aktarılmaz (tam örgü, tek sıçrama);
+ *   düğümün kendine bağlanması kimlik karşılaştırmasıyla reddedilir
+ * - Sıralama: mesajlar tek bir "Cluster-Relay" thread'inde sıra numarası alır ve
+ *   her eşe aynı TCP bağlantısından sırayla gider; alıcı her kaynak için son sıra
+ *   numarasını tutar, tekrarları atar, atlanan numaraları kayıp olarak sayar
+ * - Toplu gönderim: kuyruktaki mesajlar tek bir eş çerçevesinde birleştirilir
+ *
+ * Eş bağlantısı kimlik doğrulaması yapmaz; cluster portu yalnızca güvenilen ağa
+ * (ör. loopback) açılmalıdır.
+ *
+ * Eş protokolü:
+ * <pre>
+ * el sıkışma: [MAGIC:4][düğümKimliği:UTF][epoch:8]
+ * çerçeve   : [ilkSıra:8][adet:4] ve adet kez [tip:1][uzunluk:4][yük]
+ * </pre>
+ */
+public class ClusterRelay {
+
+    static final int MAGIC = 0x434C5531; // "CLU1"
+    private static final int MAX_BATCH_FRAMES = 256;
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+    private static final int OUTBOUND_CAPACITY = 16 * 1024;
+
+    private final ChatServer server;
+    private final String nodeId;
+    // Süreç her başladığında değişir; yeniden başlayan eşin sıra numaraları sıfırdan başlayabilir
+    private final long epoch = System.currentTimeMillis();
+    private final int peerPort;
+    private final List<PeerLink> links = new ArrayList<>();
+    private final ArrayBlockingQueue<Frame> outbound = new ArrayBlockingQueue<>(OUTBOUND_CAPACITY);
+    private final ConcurrentHashMap<String, OriginState> origins = new ConcurrentHashMap<>();
+    private final Set<Socket> inboundSockets = ConcurrentHashMap.newKeySet();
+    // Tek builder: her eş okuma thread'i sıradaki numarayı alır (Cluster-In-0, -1, ...).
+    // Builder thread-safe değildir; yalnızca Cluster-Accept thread'i kullanır.
+    private final Thread.Builder inboundThreads = Thread.ofPlatform().name("Cluster-In-", 0).daemon(true);
+
+    private final LongAdder relayedOut = new LongAdder();
+    private final LongAdder droppedOut = new LongAdder();
+    private final LongAdder relayedIn = new LongAdder();
+    private final LongAdder missedIn = new LongAdder();
+    private final LongAdder duplicateIn = new LongAdder();
+
+    private volatile boolean running = false;
+    private ServerSocket acceptor;
+    private Thread sender;
+    // Yalnızca Cluster-Relay thread'i kullanır
+    private long nextSequence = 1;
+
+    /** Bir kaynak düğümden gelen son mesajın sıra numarası */
+    private static final class OriginState {
+        long epoch;
+        long lastSequence;
+    }
+
+    /**
+     * @param nodeId   kümedeki benzersiz düğüm kimliği
+     * @param peerPort eş bağlantılarının kabul edileceği port
+     * @param peers    diğer düğümlerin cluster adresleri
+     */
+    public ClusterRelay(ChatServer server, String nodeId, int peerPort, List<InetSocketAddress> peers) {
+        this.server = server;
+        this.nodeId = nodeId;
+        this.peerPort = peerPort;
+        for (InetSocketAddress peer : peers) {
+            links.add(new PeerLink(this, peer));
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    void log(String message) {
+        server.getListener().onLog(message);
+    }
+
+    /**
+     * Cluster portunu dinlemeye başlar, eş bağlantılarını ve aktarım thread'ini başlatır
+     */
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+        acceptor = new ServerSocket();
+        acceptor.setReuseAddress(true);
+        acceptor.bind(new InetSocketAddress(peerPort));
+        running = true;
+        Thread.ofPlatform().name("Cluster-Accept").daemon(true).start(this::acceptPeers);
+        sender = Thread.ofPlatform().name("Cluster-Relay").daemon(true).start(this::relayLoop);
+        for (PeerLink link : links) {
+            link.start();
+        }
+        log("Küme düğümü " + nodeId + " başlatıldı, eş portu: " + peerPort + ", eş sayısı: " + links.size());
+    }
+
+    public synchronized void stop() {
+        if (!running)
+            return;
+        running = false;
+        try {
+            acceptor.close();
+        } catch (IOException ignored) {
+        }
+        for (Socket socket : inboundSockets) {
+            closeQuietly(socket);
+        }
+        for (PeerLink link : links) {
+            link.close();
+        }
+        sender.interrupt();
+        Frame frame;
+        while ((frame = outbound.poll()) != null) {
+            releaseSpool(frame);
+        }
+        log(String.format("Küme istatistiği: %d mesaj gönderildi, %d atıldı; %d mesaj alındı, %d kayıp, %d tekrar",
+                relayedOut.sum(), droppedOut.sum(), relayedIn.sum(), missedIn.sum(), duplicateIn.sum()));
+    }
+
+    /**
+     * Yerel istemcilerden gelen mesajı eşlere aktarılmak üzere kuyruğa koyar; bloklamaz.
+     * Kuyruk doluysa mesaj yalnızca bu düğümde kalır ve atılan olarak sayılır.
+     */
+    public void publish(Frame frame) {
+        if (!running || links.isEmpty())
+            return;
+        SpoolFile spool = frame.spool();
+        if (spool != null) {
+            // Çerçeve aktarım thread'inde okunana kadar spool dosyası silinmesin
+            spool.retain();
+        }
+        if (!outbound.offer(frame)) {
+            droppedOut.add(links.size());
+            releaseSpool(frame);
+        }
+    }
+
+    private static void releaseSpool(Frame frame) {
+        if (frame.spool() != null) {
+            frame.spool().release();
+        }
+    }
+
+    /**
+     * Kuyruktaki mesajları toplar, sıra numarası verip bir kez kodlar ve aynı çerçeveyi her eşe gönderir.
+     * Diske alınmış dosyalar kodlanırken okunmaz; her eş onları spool dosyasından yazar.
+     */
+    private void relayLoop() {
+        List<Frame> batch = new ArrayList<>(MAX_BATCH_FRAMES);
+        while (running) {
+            try {
+                Frame first = outbound.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long bytes = first.size();
+                Frame next;
+                while (batch.size() < MAX_BATCH_FRAMES && bytes < MAX_BATCH_BYTES
+                        && (next = outbound.poll()) != null) {
+                    batch.add(next);
+                    bytes += next.size();
+                }
+                RelayBatch encoded = RelayBatch.encode(nextSequence, batch);
+                nextSequence += batch.size();
+                for (PeerLink link : links) {
+                    if (!link.offer(encoded)) {
+                        droppedOut.add(batch.size());
+                    }
+                }
+                relayedOut.add(batch.size());
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                log("Küme aktarım hatası: " + e.getMessage());
+            } finally {
+                for (Frame frame : batch) {
+                    releaseSpool(frame);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void acceptPeers() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = acceptor.accept();
+            } catch (IOException e) {
+                if (running) {
+                    log("Küme kabul hatası: " + e.getMessage());
+                }
+                return;
+            }
+            inboundThreads.start(() -> readPeer(socket));
+        }
+    }
+
+    /**
+     * Bir eşin gönderim bağlantısını okur; gelen mesajları yalnızca yerel istemcilere dağıtır
+     */
+    private void readPeer(Socket socket) {
+        inboundSockets.add(socket);
+        String origin = null;
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            if (in.readInt() != MAGIC)
+                throw new ProtocolException("Küme el sıkışması geçersiz");
+            origin = in.readUTF();
+            long originEpoch = in.readLong();
+            if (origin.equals(nodeId)) {
+                log("Küme: düğüm kendine bağlanmaya çalıştı, bağlantı reddedildi (" + socket.getRemoteSocketAddress() + ")");
+                return;
+            }
+            log("Küme eşi bağlandı: " + origin + " (" + socket.getRemoteSocketAddress() + ")");
+            OriginState state = origins.computeIfAbsent(origin, key -> new OriginState());
+            while (running) {
+                long firstSequence = in.readLong();
+                int count = in.readInt();
+                if (count <= 0 || count > MAX_BATCH_FRAMES)
+                    throw new ProtocolException("Geçersiz küme çerçevesi: " + count + " mesaj");
+                Frame[] frames = new Frame[count];
+                for (int i = 0; i < count; i++) {
+                    frames[i] = readFrame(in);
+                }
+                deliver(state, originEpoch, firstSequence, frames);
+            }
+        } catch (EOFException e) {
+            if (running && origin != null) {
+                log("Küme eşi ayrıldı: " + origin);
+            }
+        } catch (IOException e) {
+            if (running && origin != null) {
+                log("Küme eşi ayrıldı: " + origin + " (" + e.getMessage() + ")");
+            }
+        } finally {
+            inboundSockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static Frame readFrame(DataInputStream in) throws IOException {
+        FrameType type = FrameType.fromCode(in.readUnsignedByte());
+        int length = in.readInt();
+        if (type == null || length < 0 || length > FrameCodec.MAX_FRAME_LENGTH)
+            throw new ProtocolException("Geçersiz küme mesajı: tip=" + type + ", uzunluk=" + length);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return Frame.ofPayload(type, payload);
+    }
+
+    /**
+     * Aynı kaynaktan (örn. yeniden bağlanma sırasında) iki bağlantı olsa bile
+     * mesajlar sıra numarası sırasıyla ve en fazla bir kez dağıtılır
+     */
+    private void deliver(OriginState state, long originEpoch, long firstSequence, Frame[] frames) {
+        synchronized (state) {
+            if (state.epoch != originEpoch) {
+                state.epoch = originEpoch;
+                state.lastSequence = 0;
+            }
+            if (firstSequence > state.lastSequence + 1) {
+                missedIn.add(firstSequence - state.lastSequence - 1);
+            }
+            long sequence = firstSequence;
+            for (Frame frame : frames) {
+                if (sequence <= state.lastSequence) {
+                    duplicateIn.increment();
+                } else {
+                    server.deliverFromPeer(frame);
+                    state.lastSequence = sequence;
+                    relayedIn.increment();
+                }
+                sequence++;
+            }
+        }
+    }
+
+    static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Eşlere aktarılan mesaj sayısı */
+    public long getRelayedOut() {
+        return relayedOut.sum();
+    }
+
+    /** Kuyruk dolduğu için bir eşe gönderilemeyen mesaj sayısı (eş başına sayılır) */
+    public long getDroppedOut() {
+        return droppedOut.sum();
+    }
+
+    /** Eşlerden alınıp yerel istemcilere dağıtılan mesaj sayısı */
+    public long getRelayedIn() {
+        return relayedIn.sum();
+    }
+
+    /** Sıra numarası atlandığı için kaybolduğu anlaşılan mesaj sayısı */
+    public long getMissedIn() {
+        return missedIn.sum();
+    }
+
+    /** Bağlı eş (gönderim bağlantısı açık) sayısı */
+    public int getConnectedPeers() {
+        int count = 0;
+        for (PeerLink link : links) {
+            if (link.isConnected()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,247 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Üç ayrı JVM sürecinde çalışan HeadlessServerApp düğümünden oluşan kümeyi
+ * loopback üzerinden test eder
+ * - Her düğüme bağlı istemcinin broadcast'i diğer düğümlerdeki istemcilere
+ *   tam bir kez ve gönderim sırasıyla ulaşır
+ * - Oda mesajı diğer düğümlerdeki oda üyelerine gider, üye olmayana gitmez
+ * - Diske alınan büyük dosya eşlere spool dosyasından aktarılır ve bozulmadan ulaşır
+ * - Kapatılıp yeniden başlatılan düğüm kümeye yeniden katılır
+ */
+public class ClusterTest {
+
+    private static final int NODES = 3;
+    private static final int CLIENT_PORT = 5061;
+    private static final int PEER_PORT = 5071;
+    private static final int MESSAGES = 300;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Küme Testi (" + NODES + " süreç) ===\n");
+        Node[] nodes = new Node[NODES];
+        ChatClient[] clients = new ChatClient[NODES];
+        try {
+            for (int i = 0; i < NODES; i++) {
+                nodes[i] = Node.start(i);
+            }
+            for (Node node : nodes) {
+                check("Düğüm " + node.index + " tüm eşlerine bağlandı", node.awaitPeers(NODES - 1, 15_000));
+            }
+            for (int i = 0; i < NODES; i++) {
+                clients[i] = new ChatClient();
+                clients[i].connect("127.0.0.1", CLIENT_PORT + i, WireProtocol.BINARY);
+            }
+
+            broadcastScenario(clients);
+            roomScenario(clients);
+            fileScenario(clients);
+
+            System.out.println("--- Düğüm yeniden başlatma ---");
+            clients[2].disconnect();
+            nodes[2].stop();
+            nodes[2] = Node.start(2);
+            check("Yeniden başlayan düğüm eşlerine bağlandı", nodes[2].awaitPeers(NODES - 1, 15_000));
+            // Diğer düğümlerin gönderim bağlantıları geri çekilme süresi sonunda yeniden kurulur
+            check("Eşler yeniden başlayan düğüme bağlandı",
+                    nodes[0].awaitPeers(NODES, 15_000) && nodes[1].awaitPeers(NODES, 15_000));
+            clients[2] = new ChatClient();
+            clients[2].connect("127.0.0.1", CLIENT_PORT + 2, WireProtocol.BINARY);
+            clients[0].send(Frame.ofText(FrameType.TEXT, "yeniden-katilim"));
+            check("Yeniden başlayan düğümdeki istemci mesajı aldı",
+                    "yeniden-katilim".equals(nextText(clients[2])));
+        } finally {
+            for (ChatClient client : clients) {
+                if (client != null) {
+                    client.disconnect();
+                }
+            }
+            for (Node node : nodes) {
+                if (node != null) {
+                    node.stop();
+                }
+            }
+        }
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Her istemci aynı anda MESSAGES mesaj gönderir; her istemci her kaynaktan
+     * tüm mesajları sırayla ve bir kez almalıdır
+     */
+    private static void broadcastScenario(ChatClient[] clients) throws Exception {
+        System.out.println("--- Broadcast aktarımı ---");
+        int expected = MESSAGES * clients.length;
+        int[][] nextSequence = new int[clients.length][clients.length];
+        boolean[] ordered = new boolean[clients.length];
+        AtomicInteger[] received = new AtomicInteger[clients.length];
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < clients.length; i++) {
+            int reader = i;
+            ordered[i] = true;
+            received[i] = new AtomicInteger();
+            readers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (received[reader].get() < expected) {
+                        Frame frame = clients[reader].readFrame();
+                        if (frame == null)
+                            return;
+                        String[] parts = frame.text().split("-");
+                        int origin = Integer.parseInt(parts[0].substring(1));
+                        int sequence = Integer.parseInt(parts[1]);
+                        if (sequence != nextSequence[reader][origin]) {
+                            ordered[reader] = false;
+                        }
+                        nextSequence[reader][origin] = sequence + 1;
+                        received[reader].incrementAndGet();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    ordered[reader] = false;
+                }
+            }));
+        }
+        for (int i = 0; i < clients.length; i++) {
+            int sender = i;
+            Thread.ofPlatform().start(() -> {
+                for (int m = 0; m < MESSAGES; m++) {
+                    clients[sender].send(Frame.ofText(FrameType.TEXT, "n" + sender + "-" + m));
+                }
+            });
+        }
+        for (Thread reader : readers) {
+            reader.join(15_000);
+        }
+        for (int i = 0; i < clients.length; i++) {
+            System.out.println("  istemci " + i + ": " + received[i].get() + "/" + expected);
+            check("Düğüm " + i + " istemcisi tüm mesajları aldı", received[i].get() == expected);
+            check("Düğüm " + i + " istemcisinde her kaynağın sırası korundu", ordered[i]);
+        }
+    }
+
+    private static void roomScenario(ChatClient[] clients) throws Exception {
+        System.out.println("--- Oda aktarımı ---");
+        clients[1].joinRoom("oda");
+        clients[2].joinRoom("oda");
+        Thread.sleep(200);
+        clients[1].send(Frame.ofText(FrameType.ROOM_MSG, "oda:merhaba"));
+        check("Diğer düğümdeki oda üyesi mesajı aldı", "oda:merhaba".equals(nextText(clients[2])));
+        check("Gönderen (aynı düğüm) mesajı aldı", "oda:merhaba".equals(nextText(clients[1])));
+        clients[2].send(Frame.ofText(FrameType.TEXT, "herkese"));
+        check("Oda üyesi olmayan yalnızca broadcast'i aldı", "herkese".equals(nextText(clients[0])));
+        nextText(clients[1]);
+        nextText(clients[2]);
+    }
+
+    private static void fileScenario(ChatClient[] clients) throws Exception {
+        System.out.println("--- Büyük dosya aktarımı ---");
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; data.length() < 4 * InboundDecoder.SPOOL_THRESHOLD; i++) {
+            data.append((char) ('A' + i % 26));
+        }
+        clients[0].send(Frame.ofFile("küme.bin", "application/octet-stream", data.toString()));
+        for (int i = 0; i < clients.length; i++) {
+            Frame frame = clients[i].readFrame();
+            check("Düğüm " + i + " istemcisi dosyayı aldı", frame != null && frame.type() == FrameType.FILE
+                    && "küme.bin".equals(frame.fileName()) && data.toString().equals(frame.fileData()));
+        }
+    }
+
+    private static String nextText(ChatClient client) throws IOException {
+        Frame frame = client.readFrame();
+        return (frame == null) ? null : frame.text();
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+
+    /**
+     * Ayrı JVM'de çalışan bir küme düğümü; log satırlarından bağlı eş sayısı izlenir
+     */
+    private static final class Node {
+        final int index;
+        final Process process;
+        final AtomicInteger peersConnected = new AtomicInteger();
+
+        private Node(int index, Process process) {
+            this.index = index;
+            this.process = process;
+        }
+
+        static Node start(int index) throws IOException {
+            StringBuilder peers = new StringBuilder();
+            for (int i = 0; i < NODES; i++) {
+                if (i != index) {
+                    peers.append(peers.length() == 0 ? "" : ",").append("127.0.0.1:").append(PEER_PORT + i);
+                }
+            }
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    "main.HeadlessServerApp", "port=" + (CLIENT_PORT + index), "mode=NIO", "reactors=1",
+                    "metrics.enabled=false", "cluster.node=n" + index, "cluster.port=" + (PEER_PORT + index),
+                    "cluster.peers=" + peers)
+                    .redirectErrorStream(true)
+                    .start();
+            Node node = new Node(index, process);
+            Thread.ofPlatform().daemon(true).start(node::readLog);
+            return node;
+        }
+
+        private void readLog() {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (Boolean.getBoolean("cluster.verbose")) {
+                        System.out.println("    [n" + index + "] " + line);
+                    }
+                    if (line.contains("Küme eşine bağlanıldı")) {
+                        peersConnected.incrementAndGet();
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        /**
+         * Düğümün gönderim bağlantılarından en az count tanesinin kurulmasını bekler
+         * (yeniden bağlanmalar da sayılır)
+         */
+        boolean awaitPeers(int count, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (peersConnected.get() < count) {
+                if (System.currentTimeMillis() > deadline)
+                    return false;
+                Thread.sleep(20);
+            }
+            return true;
+        }
+
+        void stop() throws InterruptedException {
+            process.destroy();
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package main;
+
+/**
+ * ChatClient'ın bağlantı durumu değişikliklerini bildirdiği arayüz.
+ * Metot durumu değiştiren thread'den (connect() çağıran, okuyucu, yazıcı veya
+ * heartbeat) çağrılır ve beklememelidir; arayüz işleri EDT'ye aktarılmalıdır.
+ */
+public interface ConnectionListener {
+
+    void onStateChanged(ConnectionState previous, ConnectionState current);
+}
@@ -0,0 +1,109 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * VIRTUAL modunu loopback üzerinden çok sayıda bağlantı ile test eder
+ * - 10.000 istemci bağlantısı açılır
+ * - Platform (carrier) thread sayısının bağlantı sayısıyla büyümediği doğrulanır
+ * - Bir broadcast mesajının istemcilere ulaştığı kontrol edilir
+ *
+ * Not: İstemci ve sunucu aynı süreçte çalıştığı için her bağlantı iki dosya tanımlayıcısı
+ * kullanır; JDK'nın açtığı jar, selector ve JMX tanımlayıcıları da aynı sınırdan düşer.
+ * Açık dosya limiti (ulimit -n) 2 x bağlantı sayısı + DESCRIPTOR_HEADROOM'dan küçükse
+ * bağlantı sayısı sınıra göre azaltılır ve uyarı yazılır.
+ */
+public class ConnectionScaleTest {
+
+    private static final int PORT = 5055;
+    private static final int CONNECTIONS = 10_000;
+    private static final int DESCRIPTOR_HEADROOM = 256;
+
+    public static void main(String[] args) throws Exception {
+        int connections = fitDescriptorLimit(args.length > 0 ? Integer.parseInt(args[0]) : CONNECTIONS);
+        System.out.println("=== VIRTUAL Mod Bağlantı Testi (" + connections + " istemci) ===\n");
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ChatServer server = new ChatServer(PORT, message -> { }, ServerMode.VIRTUAL, 1);
+        new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread").start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+
+        int baseline = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        List<Socket> sockets = new ArrayList<>(connections);
+        boolean passed = true;
+        try {
+            for (int i = 0; i < connections; i++) {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT), 5000);
+                sockets.add(socket);
+            }
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (server.getClientCount() < connections && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            System.out.println("Sunucudaki istemci sayısı: " + server.getClientCount());
+            passed &= check("Tüm bağlantılar kabul edildi", server.getClientCount() == connections);
+
+            int peak = threads.getPeakThreadCount();
+            int limit = baseline + Runtime.getRuntime().availableProcessors() + 16;
+            System.out.println("Platform thread: başlangıç=" + baseline + ", tepe=" + peak + ", sınır=" + limit);
+            passed &= check("Carrier thread sayısı sınırlı", peak <= limit);
+
+            OutputStream out = sockets.get(0).getOutputStream();
+            out.write("olcek-testi\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            boolean delivered = true;
+            for (int i = 0; i < connections; i += Math.max(1, connections / 10)) {
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(sockets.get(i).getInputStream(), StandardCharsets.UTF_8));
+                delivered &= "olcek-testi".equals(in.readLine());
+            }
+            passed &= check("Broadcast örnek istemcilere ulaştı", delivered);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            server.stopServer();
+        }
+
+        System.out.println(passed ? "\n✓ TEST BAŞARILI" : "\n✗ TEST BAŞARISIZ");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static int fitDescriptorLimit(int connections) {
+        if (!(ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.UnixOperatingSystemMXBean os))
+            return connections;
+        long available = os.getMaxFileDescriptorCount() - os.getOpenFileDescriptorCount() - DESCRIPTOR_HEADROOM;
+        if (2L * connections <= available)
+            return connections;
+        int fitted = (int) Math.max(1, available / 2);
+        System.out.println("Uyarı: açık dosya limiti (ulimit -n " + os.getMaxFileDescriptorCount()
+                + ") yetersiz, bağlantı sayısı " + fitted + " ile sınırlandı\n");
+        return fitted;
+    }
+
+    private static boolean check(String name, boolean ok) {
+        System.out.println((ok ? "  ✓ " : "  ✗ ") + name);
+        return ok;
+    }
+}
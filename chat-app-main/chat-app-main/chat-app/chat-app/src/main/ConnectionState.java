@@ -0,0 +1,13 @@
+package main;
+
+/**
+ * ChatClient bağlantısının yaşam döngüsü
+ */
+public enum ConnectionState {
+    /** Soket açılıyor veya el sıkışma sürüyor */
+    CONNECTING,
+    /** Gönderim ve okuma yapılabilir */
+    CONNECTED,
+    /** Bağlantı yok: hiç kurulmadı, kapatıldı veya koptu */
+    DISCONNECTED
+}
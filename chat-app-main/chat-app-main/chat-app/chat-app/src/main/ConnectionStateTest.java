@@ -0,0 +1,210 @@
+package main;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * İstemcinin bağlantı durumu olaylarını test eder
+ * - CONNECTING, CONNECTED, DISCONNECTED sırası; dinleyici CONNECTED'da hemen gönderebilir
+ * - Sunucu kapanınca, heartbeat zaman aşımında ve disconnect()'te tek DISCONNECTED olayı
+ * - Başarısız bağlantının CONNECTING'den DISCONNECTED'a dönmesi
+ */
+public class ConnectionStateTest {
+
+    private static final int PORT = 5064;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Bağlantı Durumu Testi ===\n");
+        lifecycleScenario();
+        serverCloseScenario();
+        heartbeatScenario();
+        failedConnectScenario();
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static void lifecycleScenario() throws Exception {
+        System.out.println("--- Yaşam döngüsü ---");
+        ChatServer server = new ChatServer(PORT, message -> { }, ServerMode.NIO, 1);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        serverThread.start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+        try {
+            ChatClient client = new ChatClient();
+            List<String> events = new CopyOnWriteArrayList<>();
+            AtomicReference<CompletableFuture<Boolean>> sentOnConnect = new AtomicReference<>();
+            client.addConnectionListener((previous, current) -> {
+                events.add(previous + ">" + current);
+                if (current == ConnectionState.CONNECTED && sentOnConnect.get() == null) {
+                    // Dinleyici bağlantı kurulur kurulmaz gönderebilmeli
+                    sentOnConnect.set(client.sendMessageAsync("ilk"));
+                }
+            });
+            check("Başlangıçta bağlı değil", client.getState() == ConnectionState.DISCONNECTED);
+            check("Bağlanmadan doğrudan gönderim false", !client.send(Frame.ofLine("erken")));
+            client.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            check("Sıra: CONNECTING, CONNECTED", events.equals(List.of(
+                    "DISCONNECTED>CONNECTING", "CONNECTING>CONNECTED")) && client.isConnected());
+            check("Dinleyici CONNECTED'da gönderdi", sentOnConnect.get().get(2, TimeUnit.SECONDS)
+                    && "ilk".equals(client.readFrame().text()));
+
+            client.disconnect();
+            client.disconnect();
+            check("disconnect() tek DISCONNECTED yayınladı", events.size() == 3
+                    && "CONNECTED>DISCONNECTED".equals(events.get(2)));
+            check("Kopuktan sonra doğrudan gönderim false", !client.send(Frame.ofLine("geç")));
+
+            // Aynı nesneyle yeniden bağlanma
+            client.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            check("Yeniden bağlanınca olaylar tekrarlandı", events.size() == 5
+                    && client.getState() == ConnectionState.CONNECTED && client.sendMessage("tekrar"));
+            client.disconnect();
+        } finally {
+            server.stopServer();
+            serverThread.join(5000);
+        }
+    }
+
+    private static void serverCloseScenario() throws Exception {
+        System.out.println("--- Sunucu kapanışı ---");
+        try (ServerSocket fake = new ServerSocket(0)) {
+            ChatClient client = new ChatClient();
+            List<ConnectionState> events = new CopyOnWriteArrayList<>();
+            CountDownLatch down = new CountDownLatch(1);
+            client.addConnectionListener((previous, current) -> {
+                events.add(current);
+                if (current == ConnectionState.DISCONNECTED) {
+                    down.countDown();
+                }
+            });
+            client.connect("127.0.0.1", fake.getLocalPort());
+            Thread reader = startReader(client);
+            fake.accept().close();
+            check("Sunucu kapanınca DISCONNECTED yayınlandı", down.await(2, TimeUnit.SECONDS));
+            reader.join(2000);
+            check("Okuyucu sona erdi", !reader.isAlive());
+            client.disconnect();
+            check("Olay bir kez yayınlandı", events.equals(List.of(
+                    ConnectionState.CONNECTING, ConnectionState.CONNECTED, ConnectionState.DISCONNECTED)));
+            check("Kopuk bağlantıda gönderim false", !client.sendMessageAsync("x").getNow(true));
+        }
+    }
+
+    private static void heartbeatScenario() throws Exception {
+        System.out.println("--- Heartbeat zaman aşımı ---");
+        try (ServerSocket fake = new ServerSocket(0)) {
+            // El sıkışmayı kabul edip sonra susan sunucu
+            Thread peerThread = new Thread(() -> {
+                try (Socket peer = fake.accept()) {
+                    java.io.InputStream in = peer.getInputStream();
+                    int b;
+                    while ((b = in.read()) >= 0 && b != '\n') {
+                        // HELLO isteğini oku
+                    }
+                    peer.getOutputStream().write((FrameCodec.HELLO_ACK + "\n").getBytes("UTF-8"));
+                    peer.getOutputStream().flush();
+                    while (in.read() >= 0) {
+                        // PING'leri yut, yanıt verme
+                    }
+                } catch (IOException ignored) {
+                }
+            }, "Silent-Server");
+            peerThread.start();
+
+            ChatClient client = new ChatClient();
+            client.setHeartbeat(50, 300, TimeUnit.MILLISECONDS);
+            List<ConnectionState> events = new CopyOnWriteArrayList<>();
+            CountDownLatch down = new CountDownLatch(1);
+            client.addConnectionListener((previous, current) -> {
+                events.add(current);
+                if (current == ConnectionState.DISCONNECTED) {
+                    down.countDown();
+                }
+            });
+            client.connect("127.0.0.1", fake.getLocalPort(), WireProtocol.BINARY);
+            Thread reader = startReader(client);
+            check("Zaman aşımında DISCONNECTED yayınlandı", down.await(3, TimeUnit.SECONDS));
+            reader.join(2000);
+            check("Bekleyen okuma uyandı, olay bir kez yayınlandı", !reader.isAlive()
+                    && events.size() == 3 && events.get(2) == ConnectionState.DISCONNECTED);
+            peerThread.join(2000);
+        }
+    }
+
+    private static void failedConnectScenario() throws Exception {
+        System.out.println("--- Başarısız bağlantı ---");
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        ChatClient client = new ChatClient();
+        List<String> events = new CopyOnWriteArrayList<>();
+        client.addConnectionListener((previous, current) -> events.add(previous + ">" + current));
+        boolean threw;
+        try {
+            client.connect("127.0.0.1", port);
+            threw = false;
+        } catch (IOException e) {
+            threw = true;
+        }
+        check("Bağlantı hatası fırlatıldı", threw);
+        check("CONNECTING'den DISCONNECTED'a dönüldü", events.equals(List.of(
+                "DISCONNECTED>CONNECTING", "CONNECTING>DISCONNECTED"))
+                && client.getState() == ConnectionState.DISCONNECTED);
+
+        client.addConnectionListener((previous, current) -> {
+            throw new IllegalStateException("dinleyici hatası");
+        });
+        try (ServerSocket fake = new ServerSocket(0)) {
+            client.connect("127.0.0.1", fake.getLocalPort());
+            check("Hatalı dinleyici bağlantıyı etkilemedi", client.isConnected());
+            client.disconnect();
+        }
+    }
+
+    /**
+     * Bağlantı kapanana kadar çerçeveleri okuyan thread
+     */
+    private static Thread startReader(ChatClient client) {
+        Thread reader = new Thread(() -> {
+            try {
+                while (client.readFrame() != null) {
+                    // Çerçeveler bu testte önemsiz
+                }
+            } catch (IOException ignored) {
+                // Soket heartbeat veya disconnect() ile kapatıldı
+            }
+        }, "State-Reader");
+        reader.start();
+        return reader;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sunucudan geçen büyük dosyaların diskte bekletildiği dizin.
+ * Her dosya çerçevesi tek bir SpoolFile'a yazılır ve alıcılara oradan
+ * FileChannel.transferTo ile (sendfile) gönderilir; dosya heap'e hiç alınmaz.
+ * Toplam boyut kota ile sınırlıdır. Dosyalar son referans bırakıldığında
+ * silinir; önceki çalışmadan kalan dosyalar açılışta temizlenir.
+ */
+public final class FileSpool {
+
+    public static final long DEFAULT_QUOTA = 512L * 1024 * 1024;
+
+    private final Path directory;
+    private final long quota;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * @param name  geçici dizin altında bu sunucuya ait alt dizin adı
+     * @param quota aynı anda diskte tutulabilecek en fazla bayt
+     */
+    public FileSpool(String name, long quota) throws IOException {
+        this.directory = Paths.get(System.getProperty("java.io.tmpdir"), name);
+        this.quota = quota;
+        Files.createDirectories(directory);
+        deleteLeftovers();
+    }
+
+    /**
+     * Verilen boyut için yer ayırıp yeni bir dosya açar.
+     * Kota doluysa null döner; dönen dosyanın referans sayısı 1'dir.
+     */
+    public SpoolFile create(long size) throws IOException {
+        long used;
+        do {
+            used = usedBytes.get();
+            if (used + size > quota)
+                return null;
+        } while (!usedBytes.compareAndSet(used, used + size));
+
+        try {
+            return new SpoolFile(this, directory.resolve("spool-" + nextId.incrementAndGet() + ".tmp"), size);
+        } catch (IOException e) {
+            usedBytes.addAndGet(-size);
+            throw e;
+        }
+    }
+
+    void released(long reserved) {
+        usedBytes.addAndGet(-reserved);
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getQuota() {
+        return quota;
+    }
+
+    /**
+     * Dizinde kalan dosyaları siler (sunucu kapanırken ve açılışta)
+     */
+    public void deleteLeftovers() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "spool-*.tmp")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ignored) {
+            // Hâlâ açık olan dosyalar kapandıklarında zaten silinir
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package main;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parçalı dosya aktarımı çerçeveleri.
+ * Bir aktarım üç tür çerçeveden oluşur ve her biri tek başına küçük kalır:
+ * - FILE_START:id:boyut:mime:ad  (ad en sonda, ':' içerebilir)
+ * - FILE_CHUNK:id:sıra:veri      (veri: parçanın Base64'ü, seçili algoritma ile şifreli)
+ * - FILE_END:id:crc32            (şifresiz dosya baytlarının CRC32'si, onaltılık)
+ * Parçalar arasına normal sohbet mesajları girebilir; hem gönderen, sunucu hem
+ * de alıcı aynı anda en fazla bir parça kadar veri tutar.
+ */
+public final class FileTransfer {
+
+    /** Ham parça boyutu; Base64 sonrası tam 64 KB eder */
+    public static final int CHUNK_SIZE = 48 * 1024;
+
+    private FileTransfer() {
+    }
+
+    public static String newTransferId() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    public static Frame start(String transferId, long size, String mimeType, String fileName) {
+        return Frame.ofText(FrameType.FILE_START, transferId + ":" + size + ":" + mimeType + ":" + fileName);
+    }
+
+    public static Frame chunk(String transferId, long sequence, String data) {
+        return Frame.ofText(FrameType.FILE_CHUNK, transferId + ":" + sequence + ":" + data);
+    }
+
+    public static Frame end(String transferId, long crc32) {
+        return Frame.ofText(FrameType.FILE_END, transferId + ":" + Long.toHexString(crc32));
+    }
+
+    /**
+     * Çerçeve içeriğini en fazla count alana böler; son alan kalan her şeyi içerir
+     *
+     * @return alan sayısı eksikse null
+     */
+    public static String[] fields(Frame frame, int count) {
+        String[] fields = frame.text().split(":", count);
+        return fields.length == count ? fields : null;
+    }
+}
@@ -0,0 +1,353 @@
+package main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protokolden bağımsız tek bir mesaj.
+ * Metin protokolünden gelen çerçeve satırı, ikili protokolden gelen çerçeve ise
+ * ham yükü tutar; diğer gösterim yalnızca gerçekten gerektiğinde (ör. eski bir
+ * istemciye iletilirken) bir kez üretilir. Böylece aynı protokoldeki istemciler
+ * arasında aktarımda satır bölme veya yeniden kodlama yapılmaz.
+ *
+ * FILE yükünün ikili düzeni: [adUzunluğu:2][ad][mimeUzunluğu:2][mime][veri]
+ *
+ * Sunucuda büyük FILE çerçeveleri bellekte değil, ikili kodlanmış halleriyle
+ * (başlık dahil) bir SpoolFile'da tutulur. Bu çerçevelerde ad ve MIME alanları
+ * dosyadan okunur; veri yalnızca açıkça istenirse belleğe alınır.
+ */
+public final class Frame {
+
+    private final FrameType type;
+    private volatile String line;
+    private volatile byte[] payload;
+    private final SpoolFile spool;
+
+    private Frame(FrameType type, String line, byte[] payload) {
+        this.type = type;
+        this.line = line;
+        this.payload = payload;
+        this.spool = null;
+    }
+
+    private Frame(FrameType type, SpoolFile spool) {
+        this.type = type;
+        this.spool = spool;
+    }
+
+    /**
+     * Diske alınmış ikili çerçeveyi sarar; spool dosyasının sahipliği çağırandadır
+     */
+    public static Frame ofSpool(FrameType type, SpoolFile spool) {
+        return new Frame(type, spool);
+    }
+
+    /**
+     * Metin protokolünden okunan satırı sarar
+     */
+    public static Frame ofLine(String line) {
+        return new Frame(FrameType.forLine(line), line, null);
+    }
+
+    /**
+     * İkili protokolden okunan ham yükü sarar
+     */
+    public static Frame ofPayload(FrameType type, byte[] payload) {
+        return new Frame(type, null, payload);
+    }
+
+    public static Frame ofText(FrameType type, String content) {
+        return new Frame(type, type.prefix() + content, null);
+    }
+
+    /**
+     * Tek bir istemciye gidecek DIRECT çerçevesi. İstemciden sunucuya giderken peer
+     * hedefin, sunucudan alıcıya giderken gönderenin kimliğidir.
+     *
+     * @param innerLine taşınan mesajın metin protokolündeki hali (ör. "RSA_PUBKEY:...")
+     */
+    public static Frame ofDirect(String peer, String innerLine) {
+        return ofText(FrameType.DIRECT, peer + " " + innerLine);
+    }
+
+    /**
+     * Gönderenin numaraladığı broadcast mesajı
+     *
+     * @param sender istemcinin bağlantıdan bağımsız, kalıcı kimliği
+     */
+    public static Frame ofSequenced(String sender, long sequence, Frame inner) {
+        return ofText(FrameType.SEQ, sender + " " + sequence + " " + inner.line());
+    }
+
+    public static Frame ofFile(String fileName, String mimeType, String data) {
+        byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        byte[] mime = mimeType.getBytes(StandardCharsets.UTF_8);
+        byte[] body = data.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + name.length + mime.length + body.length);
+        buffer.putShort((short) name.length).put(name);
+        buffer.putShort((short) mime.length).put(mime);
+        buffer.put(body);
+        return new Frame(FrameType.FILE, null, buffer.array());
+    }
+
+    public FrameType type() {
+        return type;
+    }
+
+    /**
+     * Çerçeve diske alınmışsa spool dosyası, değilse null
+     */
+    public SpoolFile spool() {
+        return spool;
+    }
+
+    /**
+     * Metin protokolündeki hali (önek dahil, '\n' hariç)
+     */
+    public String line() {
+        String result = line;
+        if (result == null) {
+            if (type == FrameType.FILE) {
+                result = FrameType.FILE.prefix() + fileName() + ":" + mimeType() + ":" + fileData();
+            } else {
+                result = type.prefix() + new String(payload, StandardCharsets.UTF_8);
+            }
+            line = result;
+        }
+        return result;
+    }
+
+    /**
+     * İkili protokoldeki yük
+     */
+    public byte[] payload() {
+        byte[] result = payload;
+        if (result == null) {
+            if (spool != null) {
+                result = readSpool(FrameCodec.HEADER_LENGTH, (int) spool.length() - FrameCodec.HEADER_LENGTH);
+            } else if (type == FrameType.FILE) {
+                result = ofFile(fileName(), mimeType(), fileData()).payload;
+            } else {
+                result = text().getBytes(StandardCharsets.UTF_8);
+            }
+            payload = result;
+        }
+        return result;
+    }
+
+    /**
+     * Önek olmadan mesaj içeriği (TEXT, RSA_PUBKEY ve HELLO için)
+     */
+    public String text() {
+        String source = line;
+        if (source != null)
+            return source.substring(type.prefix().length());
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * DIRECT çerçevesindeki karşı tarafın kimliği; biçim hatalıysa null
+     */
+    public String directPeer() {
+        String content = text();
+        int separator = content.indexOf(' ');
+        return (separator > 0) ? content.substring(0, separator) : null;
+    }
+
+    /**
+     * SEQ çerçevesindeki gönderenin kimliği; biçim hatalıysa null
+     */
+    public String sequencedSender() {
+        String content = text();
+        int separator = content.indexOf(' ');
+        return (separator > 0) ? content.substring(0, separator) : null;
+    }
+
+    /**
+     * SEQ çerçevesindeki sıra numarası; biçim hatalıysa -1
+     */
+    public long sequencedNumber() {
+        String content = text();
+        int start = content.indexOf(' ') + 1;
+        int end = content.indexOf(' ', start);
+        if (start <= 0 || end < 0)
+            return -1;
+        try {
+            return Long.parseLong(content, start, end, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Aynı numara ve iç mesajla, gönderen kimliği değiştirilmiş SEQ çerçevesi
+     */
+    public Frame withSequencedSender(String sender) {
+        String content = text();
+        return ofText(FrameType.SEQ, sender + content.substring(content.indexOf(' ')));
+    }
+
+    /**
+     * SEQ çerçevesinin taşıdığı iç mesaj
+     */
+    public Frame sequencedInner() {
+        String content = text();
+        return ofLine(content.substring(content.indexOf(' ', content.indexOf(' ') + 1) + 1));
+    }
+
+    /**
+     * Metin protokolündeki istemciye gidecek satır: eski istemciler sıra numarasını
+     * tanımadığı için SEQ çerçevesinde yalnızca iç mesaj, diğerlerinde line()
+     */
+    public String textLine() {
+        return (type == FrameType.SEQ) ? sequencedInner().line() : line();
+    }
+
+    /**
+     * DIRECT çerçevesinin taşıdığı iç mesaj
+     */
+    public Frame directInner() {
+        String content = text();
+        return ofLine(content.substring(content.indexOf(' ') + 1));
+    }
+
+    public String fileName() {
+        String source = line;
+        if (source != null) {
+            return source.substring(FrameType.FILE.prefix().length(), source.indexOf(':', 5));
+        }
+        if (payload == null && spool != null) {
+            return new String(readSpool(FrameCodec.HEADER_LENGTH + 2, nameLength()), StandardCharsets.UTF_8);
+        }
+        return new String(payload, 2, nameLength(), StandardCharsets.UTF_8);
+    }
+
+    public String mimeType() {
+        String source = line;
+        if (source != null) {
+            int nameEnd = source.indexOf(':', 5);
+            return source.substring(nameEnd + 1, source.indexOf(':', nameEnd + 1));
+        }
+        if (payload == null && spool != null) {
+            return new String(readSpool(FrameCodec.HEADER_LENGTH + 4 + nameLength(), mimeLength()),
+                    StandardCharsets.UTF_8);
+        }
+        return new String(payload, 4 + nameLength(), mimeLength(), StandardCharsets.UTF_8);
+    }
+
+    public String fileData() {
+        String source = line;
+        if (source != null) {
+            return source.substring(fileDataStart(source));
+        }
+        byte[] bytes = payload();
+        int offset = 4 + nameLength() + mimeLength();
+        return new String(bytes, offset, bytes.length - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Dosya verisinin uzunluğu; veriyi kopyalamadan loglamak için
+     */
+    public int fileDataLength() {
+        String source = line;
+        if (source != null) {
+            return source.length() - fileDataStart(source);
+        }
+        return payloadLength() - 4 - nameLength() - mimeLength();
+    }
+
+    /**
+     * Yükün bayt cinsinden boyutu; yalnızca satırı olan çerçevelerde satırın karakter sayısı (yaklaşık)
+     */
+    public long size() {
+        if (spool != null)
+            return spool.length() - FrameCodec.HEADER_LENGTH;
+        byte[] bytes = payload;
+        return (bytes != null) ? bytes.length : line.length();
+    }
+
+    /**
+     * İkili FILE yükünde verinin başladığı konum (yük başına göre)
+     */
+    public int fileDataOffset() {
+        return 4 + nameLength() + mimeLength();
+    }
+
+    private int payloadLength() {
+        byte[] bytes = payload;
+        if (bytes == null && spool != null)
+            return (int) spool.length() - FrameCodec.HEADER_LENGTH;
+        return payload().length;
+    }
+
+    private byte[] readSpool(long position, int count) {
+        try {
+            return spool.read(position, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int fileDataStart(String source) {
+        int nameEnd = source.indexOf(':', 5);
+        return source.indexOf(':', nameEnd + 1) + 1;
+    }
+
+    private int nameLength() {
+        return unsignedShort(0);
+    }
+
+    private int mimeLength() {
+        return unsignedShort(2 + nameLength());
+    }
+
+    private int unsignedShort(int offset) {
+        byte[] bytes = payload;
+        if (bytes == null && spool != null) {
+            bytes = readSpool(FrameCodec.HEADER_LENGTH + offset, 2);
+            offset = 0;
+        } else if (bytes == null) {
+            bytes = payload();
+        }
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    /**
+     * İkili FILE yükündeki uzunluk alanları yük sınırları içinde mi
+     */
+    static boolean isValidFilePayload(byte[] payload) {
+        if (payload.length < 4)
+            return false;
+        int nameLength = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+        if (2 + nameLength + 2 > payload.length)
+            return false;
+        int mimeLength = ((payload[2 + nameLength] & 0xFF) << 8) | (payload[3 + nameLength] & 0xFF);
+        return 4 + nameLength + mimeLength <= payload.length;
+    }
+
+    /**
+     * Diske alınmış FILE çerçevesi için isValidFilePayload karşılığı
+     */
+    static boolean isValidFileSpool(SpoolFile spool) throws IOException {
+        long length = spool.length() - FrameCodec.HEADER_LENGTH;
+        if (length < 4)
+            return false;
+        byte[] name = spool.read(FrameCodec.HEADER_LENGTH, 2);
+        int nameLength = ((name[0] & 0xFF) << 8) | (name[1] & 0xFF);
+        if (2 + nameLength + 2 > length)
+            return false;
+        byte[] mime = spool.read(FrameCodec.HEADER_LENGTH + 2 + nameLength, 2);
+        int mimeLength = ((mime[0] & 0xFF) << 8) | (mime[1] & 0xFF);
+        return 4 + nameLength + mimeLength <= length;
+    }
+
+    /**
+     * "FILE:ad:mime:veri" biçiminde dört parça var mı
+     */
+    static boolean isValidFileLine(String line) {
+        int nameEnd = line.indexOf(':', 5);
+        return nameEnd >= 0 && line.indexOf(':', nameEnd + 1) >= 0;
+    }
+}
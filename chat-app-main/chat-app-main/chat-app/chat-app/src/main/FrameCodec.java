@@ -0,0 +1,108 @@
+package main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Çerçevelerin iki protokoldeki kodlaması ve el sıkışma sabitleri.
+ *
+ * El sıkışma: istemci bağlantıdan hemen sonra HELLO_REQUEST satırını gönderir.
+ * Sunucu ikili protokolü destekliyorsa HELLO_ACK satırıyla yanıt verir ve o andan
+ * itibaren iki yön de ikili çerçeve konuşur. Yanıt gelmezse istemci metin
+ * protokolünde kalır; el sıkışma yapmayan eski istemciler hiç etkilenmez.
+ */
+public final class FrameCodec {
+
+    public static final String HELLO_REQUEST = "HELLO:BIN1";
+    public static final String HELLO_ACK = "HELLO:BIN1:OK";
+
+    /** [tip:1][uzunluk:4] */
+    public static final int HEADER_LENGTH = 5;
+    public static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Çerçeveyi verilen protokolde paylaşılabilir tampona kodlar.
+     * Diske alınmış çerçeve için dosya tabanlı tampon döner; metin kodlaması
+     * için spool kotası yetmezse veya disk hatası olursa null döner.
+     */
+    public static SharedBuffer encode(Frame frame, WireProtocol protocol) {
+        if (frame.spool() != null) {
+            return encodeSpooled(frame, protocol);
+        }
+        SharedBuffer buffer = (protocol == WireProtocol.BINARY)
+                ? SharedBuffer.encodeFrame(frame.type().code(), frame.payload())
+                : SharedBuffer.encodeLine(frame.textLine());
+        return isTransfer(frame) ? buffer.markTransfer() : buffer;
+    }
+
+    /**
+     * Parçalı dosya aktarımının (numaralı olsa da) bir çerçevesi mi
+     */
+    static boolean isTransfer(Frame frame) {
+        switch (frame.type()) {
+            case FILE_START:
+            case FILE_CHUNK:
+            case FILE_END:
+                return true;
+            case SEQ: {
+                // İç satır (parçanın tamamı) kopyalanmadan yalnızca öneki kontrol edilir
+                String content = frame.text();
+                int inner = content.indexOf(' ', content.indexOf(' ') + 1) + 1;
+                return inner > 0 && (content.startsWith(FrameType.FILE_START.prefix(), inner)
+                        || content.startsWith(FrameType.FILE_CHUNK.prefix(), inner)
+                        || content.startsWith(FrameType.FILE_END.prefix(), inner));
+            }
+            default:
+                return false;
+        }
+    }
+
+    private static SharedBuffer encodeSpooled(Frame frame, WireProtocol protocol) {
+        SpoolFile source = frame.spool();
+        if (protocol == WireProtocol.BINARY) {
+            // Spool dosyası zaten ikili çerçevenin kendisi
+            return SharedBuffer.ofSpool(source.retain(), WireProtocol.BINARY);
+        }
+
+        // "FILE:ad:mime:" + veri + "\n"; veri dosyadan dosyaya kernel içinde kopyalanır
+        byte[] prefix = (FrameType.FILE.prefix() + frame.fileName() + ":" + frame.mimeType() + ":")
+                .getBytes(StandardCharsets.UTF_8);
+        long dataStart = HEADER_LENGTH + frame.fileDataOffset();
+        long dataLength = source.length() - dataStart;
+        SpoolFile line = null;
+        try {
+            line = source.owner().create(prefix.length + dataLength + 1);
+            if (line == null)
+                return null;
+            line.write(ByteBuffer.wrap(prefix));
+            line.append(source, dataStart, dataLength);
+            line.write(ByteBuffer.wrap(new byte[] { '\n' }));
+            return SharedBuffer.ofSpool(line, WireProtocol.TEXT);
+        } catch (IOException e) {
+            if (line != null) {
+                line.release();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Çerçeveyi akışa yazar (istemci tarafı); flush çağırana aittir
+     */
+    public static void write(OutputStream out, Frame frame, WireProtocol protocol) throws IOException {
+        if (protocol == WireProtocol.BINARY) {
+            byte[] payload = frame.payload();
+            int length = payload.length;
+            out.write(new byte[] { frame.type().code(), (byte) (length >>> 24), (byte) (length >>> 16),
+                    (byte) (length >>> 8), (byte) length });
+            out.write(payload);
+        } else {
+            out.write((frame.line() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
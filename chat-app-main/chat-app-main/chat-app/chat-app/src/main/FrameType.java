@@ -0,0 +1,138 @@
+package main;
+
+/**
+ * Çerçeve türleri. Her tür ikili protokolde tek bir bayt koduna,
+ * metin protokolünde ise bir satır önekine karşılık gelir.
+ */
+public enum FrameType {
+    HELLO(0, "HELLO:"),
+    TEXT(1, ""),
+    RSA_PUBKEY(2, "RSA_PUBKEY:"),
+    FILE(3, "FILE:"),
+    FILE_START(4, "FILE_START:"),
+    FILE_CHUNK(5, "FILE_CHUNK:"),
+    FILE_END(6, "FILE_END:"),
+    ROOM_JOIN(7, "ROOM_JOIN:"),
+    ROOM_LEAVE(8, "ROOM_LEAVE:"),
+    ROOM_MSG(9, "ROOM_MSG:"),
+    /** Yalnızca sunucudan, isteği yapan istemciye gönderilen hata bildirimi */
+    SERVER_ERROR(10, "SERVER_ERROR:"),
+    /** Tek bir istemciye yönlendirilen satır: "kimlik içSatır" */
+    DIRECT(11, "DIRECT:"),
+    /** El sıkışmadan sonra sunucunun istemciye bildirdiği kendi kimliği */
+    CLIENT_ID(12, "CLIENT_ID:"),
+    /**
+     * İstemciden: "offset=N[-M]" veya "time=ms[-ms]" geçmiş isteği;
+     * sunucudan: geçmiş aktarımının sonu, "END sonrakiOffset adet"
+     */
+    REPLAY(13, "REPLAY:"),
+    /** İstemcinin canlılık yoklaması; sunucu yükü aynen PONG ile geri gönderir */
+    PING(14, "PING:"),
+    PONG(15, "PONG:"),
+    /**
+     * Oturum sürdürme, yük "belirteç offset". İstemciden: oturum açma/sürdürme isteği
+     * (yeni oturum için boş), sonra alınan işaretlerin onayı; sunucudan: günlükte bu
+     * offset'ten önceki mesajların bu bağlantıya gönderildiği işareti
+     */
+    SESSION(16, "SESSION:"),
+    /**
+     * Gönderen tarafından numaralanmış broadcast: "gönderenKimliği sıra içSatır".
+     * Gönderen kimliğini sunucu atar ve dağıtmadan önce yazar; istemcinin yazdığı
+     * kimlik dikkate alınmaz. Metin protokolündeki istemcilere yalnızca iç satır iletilir.
+     */
+    SEQ(17, "SEQ:"),
+    /**
+     * Sunucudan gönderene: "sıra" (o numaraya kadar mesajlar alındı ve dağıtıldı) veya
+     * "sıra alıcıKimliği" (alıcının birikimli onayı); alıcıdan sunucuya: "gönderenKimliği sıra"
+     */
+    ACK(18, "ACK:"),
+    /** Sunucudan gönderene: numaralı mesajlarına sunucunun atadığı gönderen kimliği */
+    SENDER_ID(19, "SENDER_ID:"),
+    /**
+     * Sunucudan gönderene: "sıra" numaralı mesaj hız sınırı nedeniyle reddedildi ve
+     * dağıtılmadı; sonraki ACK bu numarayı kapsasa da mesaj onaylanmış sayılmaz
+     */
+    NACK(20, "NACK:");
+
+    private static final FrameType[] BY_CODE = new FrameType[256];
+
+    static {
+        for (FrameType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+    private final String prefix;
+
+    FrameType(int code, String prefix) {
+        this.code = (byte) code;
+        this.prefix = prefix;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    /**
+     * @return bilinmeyen kod için null
+     */
+    public static FrameType fromCode(int code) {
+        return BY_CODE[code & 0xFF];
+    }
+
+    /**
+     * Metin protokolündeki bir satırın türünü önekinden belirler
+     */
+    public static FrameType forLine(String line) {
+        if (line.startsWith(RSA_PUBKEY.prefix))
+            return RSA_PUBKEY;
+        if (line.startsWith("FILE")) {
+            if (line.startsWith(FILE_CHUNK.prefix))
+                return FILE_CHUNK;
+            if (line.startsWith(FILE.prefix) && Frame.isValidFileLine(line))
+                return FILE;
+            if (line.startsWith(FILE_START.prefix))
+                return FILE_START;
+            if (line.startsWith(FILE_END.prefix))
+                return FILE_END;
+        }
+        if (line.startsWith("ROOM_")) {
+            if (line.startsWith(ROOM_MSG.prefix))
+                return ROOM_MSG;
+            if (line.startsWith(ROOM_JOIN.prefix))
+                return ROOM_JOIN;
+            if (line.startsWith(ROOM_LEAVE.prefix))
+                return ROOM_LEAVE;
+        }
+        if (line.startsWith(DIRECT.prefix))
+            return DIRECT;
+        if (line.startsWith(SERVER_ERROR.prefix))
+            return SERVER_ERROR;
+        if (line.startsWith(CLIENT_ID.prefix))
+            return CLIENT_ID;
+        if (line.startsWith(REPLAY.prefix))
+            return REPLAY;
+        if (line.startsWith(PING.prefix))
+            return PING;
+        if (line.startsWith(PONG.prefix))
+            return PONG;
+        if (line.startsWith(SESSION.prefix))
+            return SESSION;
+        if (line.startsWith(SEQ.prefix))
+            return SEQ;
+        if (line.startsWith(ACK.prefix))
+            return ACK;
+        if (line.startsWith(NACK.prefix))
+            return NACK;
+        if (line.startsWith(SENDER_ID.prefix))
+            return SENDER_ID;
+        if (line.equals(FrameCodec.HELLO_REQUEST) || line.equals(FrameCodec.HELLO_ACK))
+            return HELLO;
+        return TEXT;
+    }
+}
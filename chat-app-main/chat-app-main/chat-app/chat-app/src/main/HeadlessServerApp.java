@@ -0,0 +1,74 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ekransız sunucular için giriş noktası; Swing/AWT sınıfı yüklemez.
+ * Loglar standart çıktıya (ve ayarlandıysa döndürülen dosyaya) yazılır,
+ * sunucu SIGTERM/Ctrl+C ile düzgün kapatılır.
+ *
+ * Kullanım: HeadlessServerApp [--config sunucu.properties] [anahtar=değer ...]
+ * Örnek: HeadlessServerApp port=5000 mode=NIO reactors=4 queue.capacity=4096
+ */
+public class HeadlessServerApp {
+
+    public static void main(String[] args) throws Exception {
+        ServerConfig config;
+        try {
+            config = ServerConfig.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Kullanım: HeadlessServerApp [--config dosya] [anahtar=değer ...]");
+            System.exit(2);
+            return;
+        }
+
+        AsyncLogger logger = new AsyncLogger(AsyncLogger.DEFAULT_CAPACITY);
+        logger.addSink(new ConsoleLogSink());
+        if (config.getLogFile() != null) {
+            logger.addSink(new RollingFileLogSink(config.getLogFile()));
+        }
+
+        ChatServer server = config.createServer(logger::log);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stopServer();
+            logger.close();
+        }, "Server-Shutdown"));
+        server.startServer();
+    }
+
+    /**
+     * Satırları tamponlayarak standart çıktıya yazar; her satırda flush yapılmaz
+     */
+    private static final class ConsoleLogSink implements LogSink {
+        private final BufferedWriter out = new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+
+        @Override
+        public void write(String[] lines, int count) {
+            try {
+                for (int i = 0; i < count; i++) {
+                    out.write(lines[i]);
+                    out.newLine();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public void flush() {
+            try {
+                out.flush();
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * İstemci heartbeat'ini test eder
+ * - PING/PONG ile RTT ölçümü; PONG uygulamaya, PING diğer istemcilere ulaşmaz
+ * - Metin protokolünde (eski sunucu olabilir) PING gönderilmemesi
+ * - Sessizleşen sunucunun zaman aşımıyla fark edilmesi ve bekleyen okumanın uyanması
+ */
+public class HeartbeatTest {
+
+    private static final int PORT = 5059;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Heartbeat Testi ===\n");
+        for (ServerMode mode : new ServerMode[] { ServerMode.THREAD, ServerMode.NIO }) {
+            pingScenario(mode);
+        }
+        textScenario();
+        silentServerScenario();
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static void pingScenario(ServerMode mode) throws Exception {
+        System.out.println("--- PING/PONG (" + mode + ") ---");
+        ChatServer server = new ChatServer(PORT, message -> { }, mode, 1);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        serverThread.start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+        try (Socket legacy = new Socket("127.0.0.1", PORT)) {
+            ChatClient client = new ChatClient();
+            client.setHeartbeat(50, 1000, TimeUnit.MILLISECONDS);
+            client.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            List<Frame> received = new CopyOnWriteArrayList<>();
+            Thread reader = startReader(client, received);
+
+            Thread.sleep(500);
+            check("RTT ölçüldü", client.getRttMicros() > 0 && client.getSmoothedRttMicros() > 0);
+            check("PONG uygulamaya iletilmedi", received.isEmpty());
+            legacy.setSoTimeout(200);
+            boolean silent;
+            try {
+                silent = legacy.getInputStream().read() < 0;
+            } catch (SocketTimeoutException e) {
+                silent = true;
+            }
+            check("PING diğer istemcilere yayınlanmadı", silent);
+
+            client.sendMessage("merhaba");
+            Thread.sleep(200);
+            check("Sohbet mesajları etkilenmedi", received.size() == 1 && "merhaba".equals(received.get(0).text()));
+            check("Bağlantı canlı", client.isConnected());
+
+            client.disconnect();
+            reader.join(2000);
+        } finally {
+            server.stopServer();
+            serverThread.join(5000);
+        }
+    }
+
+    private static void textScenario() throws Exception {
+        System.out.println("--- Metin protokolü ---");
+        try (ServerSocket fake = new ServerSocket(0)) {
+            ChatClient client = new ChatClient();
+            client.setHeartbeat(50, 1000, TimeUnit.MILLISECONDS);
+            client.connect("127.0.0.1", fake.getLocalPort());
+            try (Socket peer = fake.accept()) {
+                peer.setSoTimeout(400);
+                boolean silent;
+                try {
+                    silent = peer.getInputStream().read() < 0;
+                } catch (SocketTimeoutException e) {
+                    silent = true;
+                }
+                check("Metin protokolünde PING gönderilmedi", silent && client.isConnected());
+            }
+            client.disconnect();
+        }
+    }
+
+    private static void silentServerScenario() throws Exception {
+        System.out.println("--- Sessiz sunucu ---");
+        try (ServerSocket fake = new ServerSocket(0)) {
+            AtomicLong pingBytes = new AtomicLong();
+            AtomicBoolean stop = new AtomicBoolean();
+            Thread peerThread = new Thread(() -> {
+                try (Socket peer = fake.accept()) {
+                    InputStream in = peer.getInputStream();
+                    OutputStream out = peer.getOutputStream();
+                    // El sıkışmayı yanıtla, sonra hiçbir şey gönderme
+                    StringBuilder hello = new StringBuilder();
+                    int b;
+                    while ((b = in.read()) >= 0 && b != '\n') {
+                        hello.append((char) b);
+                    }
+                    if (FrameCodec.HELLO_REQUEST.equals(hello.toString())) {
+                        out.write((FrameCodec.HELLO_ACK + "\n").getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                    }
+                    byte[] buffer = new byte[1024];
+                    int read;
+                    while (!stop.get() && (read = in.read(buffer)) > 0) {
+                        pingBytes.addAndGet(read);
+                    }
+                } catch (IOException ignored) {
+                }
+            }, "Silent-Server");
+            peerThread.start();
+
+            ChatClient client = new ChatClient();
+            client.setHeartbeat(50, 300, TimeUnit.MILLISECONDS);
+            client.connect("127.0.0.1", fake.getLocalPort(), WireProtocol.BINARY);
+            check("El sıkışma yapıldı", client.getProtocol() == WireProtocol.BINARY);
+            List<Frame> received = new CopyOnWriteArrayList<>();
+            long start = System.nanoTime();
+            Thread reader = startReader(client, received);
+            reader.join(3000);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            check("Kopukluk zaman aşımında fark edildi (" + elapsedMillis + " ms)",
+                    !reader.isAlive() && !client.isConnected() && elapsedMillis >= 250 && elapsedMillis < 1500);
+            check("Sunucuya PING gönderildi", pingBytes.get() > 0);
+            stop.set(true);
+            client.disconnect();
+            peerThread.join(2000);
+        }
+    }
+
+    /**
+     * Bağlantı kapanana kadar çerçeveleri okuyan thread
+     */
+    private static Thread startReader(ChatClient client, List<Frame> received) {
+        Thread reader = new Thread(() -> {
+            try {
+                Frame frame;
+                while ((frame = client.readFrame()) != null) {
+                    received.add(frame);
+                }
+            } catch (IOException ignored) {
+                // Soket heartbeat veya disconnect() ile kapatıldı
+            }
+        }, "Heartbeat-Reader");
+        reader.start();
+        return reader;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HDR histogram tarzında, sabit bellekli ve kilitsiz değer dağılımı.
+ * 0-63 arası değerler tam olarak, daha büyükleri her ikinin kuvveti aralığı
+ * 32 eşit parçaya bölünerek (yaklaşık %3 hassasiyetle) sayılır; böylece
+ * nanosaniyeden dakikalara kadar her değer 1920 sayaçtan birine düşer.
+ * record() yalnızca bir dizi elemanını artırır, nesne oluşturmaz.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKETS = 64;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKET_COUNT = (63 - 5) * HALF + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Negatif değerler 0 sayılır
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - 5;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /** Sayacın kapsadığı en büyük değer */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int shift = index / HALF - 1;
+        long mantissa = index % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Anlık özet; sayaçlar okunurken kayıt devam edebilir, sonuç yaklaşık tutarlıdır
+     *
+     * @param scale değerlerin bölüneceği sayı (ör. nanosaniyeyi mikrosaniyeye çevirmek için 1000)
+     */
+    public HistogramSnapshot snapshot(double scale) {
+        long total = 0;
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        long n = count.sum();
+        long highest = max.get();
+        double mean = (n == 0) ? 0 : sum.sum() / (double) n / scale;
+        return new HistogramSnapshot(total, mean,
+                valueAt(copy, total, highest, 0.50) / scale,
+                valueAt(copy, total, highest, 0.90) / scale,
+                valueAt(copy, total, highest, 0.99) / scale,
+                valueAt(copy, total, highest, 0.999) / scale,
+                highest / scale);
+    }
+
+    /**
+     * Kantilin düştüğü sayacın üst sınırı; görülen en büyük değeri aşmaz
+     */
+    private static long valueAt(long[] copy, long total, long highest, double quantile) {
+        if (total == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(total * quantile));
+        long seen = 0;
+        for (int i = 0; i < copy.length; i++) {
+            seen += copy[i];
+            if (seen >= target)
+                return Math.min(highestValueAt(i), highest);
+        }
+        return highest;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
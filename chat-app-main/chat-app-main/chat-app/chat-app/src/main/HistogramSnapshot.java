@@ -0,0 +1,61 @@
+package main;
+
+/**
+ * Bir Histogram'ın anlık özeti. JMX'te CompositeData olarak görünür
+ * (count, mean, p50, p90, p99, p999, max).
+ */
+public final class HistogramSnapshot {
+
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    public HistogramSnapshot(long count, double mean, double p50, double p90, double p99, double p999,
+            double max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d ort=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f maks=%.1f",
+                count, mean, p50, p90, p99, p999, max);
+    }
+}
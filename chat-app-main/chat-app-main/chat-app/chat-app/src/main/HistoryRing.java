@@ -0,0 +1,259 @@
+package main;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Son broadcast mesajlarının off-heap halka tamponu; yeni bağlanan istemciye
+ * bağlanır bağlanmaz gönderilir.
+ *
+ * - Bellek: mesajlar kodlanmış halleriyle 64 KB'lık direct bellek parçalarına (chunk)
+ *   art arda yazılır. Parçalar havuzdan alınır ve havuza döner; kayıtların yerleri
+ *   ilkel dizilerde tutulur. Mesaj verisi Java heap'inde durmaz, GC yükü oluşturmaz.
+ * - Yazma: broadcast yapan thread'ler kısa bir kilitle sıra numarası alıp baytları kopyalar
+ * - Okuma: okuyucu kilit almaz. Kaydın yuvası bir seqlock damgasıyla doğrulanır,
+ *   parçası retain() edilir ve parçanın o arada yeniden kullanılmadığı nesil
+ *   numarasından kontrol edilir. Gönderilen tampon parçanın bir dilimidir (kopya yok);
+ *   dilim yazılana kadar parça havuza dönmez. Yazıcı okuyucuları hiç beklemez:
+ *   okuyucunun tuttuğu parça yerine yenisini alır.
+ * - Sınır: en fazla maxMessages kayıt ve maxBytes bayt; eskiler düşer
+ *
+ * Kayıtlar metin protokolünde kodlanır: geçmiş, istemci el sıkışmadan önce
+ * gönderilir ve ikili protokole geçen istemci de el sıkışma yanıtından önce gelen
+ * satırları okur. Parçalı dosya aktarımı ve parçadan büyük mesajlar halkaya alınmaz.
+ */
+final class HistoryRing {
+
+    /** Halkada olmayan mesajın sıra numarası */
+    static final long NONE = Long.MAX_VALUE;
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Direct bellek parçası. Halka, içinde geçerli kayıt kaldıkça bir referans tutar;
+     * okuyucunun her dilimi de bir referanstır. Sayaç sıfıra inince parça havuza döner.
+     */
+    private final class Chunk implements SharedBuffer.Owner {
+        final ByteBuffer memory = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        // Yazıcının konum/sınır ayarlayarak kullandığı görünüm
+        final ByteBuffer writer = memory.duplicate();
+        final AtomicInteger refCount = new AtomicInteger();
+        // Havuza her dönüşte artar; eski kayıtlara ait dilimlerin alınmasını önler
+        volatile int generation;
+        // Yalnızca yazma kilidiyle
+        int position;
+        int liveEntries;
+
+        boolean tryRetain() {
+            int count;
+            do {
+                count = refCount.get();
+                if (count <= 0)
+                    return false;
+            } while (!refCount.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        @Override
+        public void release() {
+            if (refCount.decrementAndGet() == 0) {
+                recycle(this);
+            }
+        }
+    }
+
+    private final int maxMessages;
+    private final long maxBytes;
+    private final int maxPooledChunks;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ConcurrentLinkedQueue<Chunk> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    // Sıra numarası s olan kayıt s % maxMessages yuvasındadır; damga yazılırken -1 olur
+    private final AtomicLongArray stamps;
+    private final Chunk[] entryChunks;
+    private final int[] entryGenerations;
+    private final int[] entryOffsets;
+    private final int[] entryLengths;
+    private volatile long head = 0;
+    private volatile long tail = 0;
+    // Yalnızca yazma kilidiyle
+    private Chunk current;
+    private long bytes;
+
+    /**
+     * @param maxMessages tutulacak en fazla mesaj
+     * @param maxBytes    tutulacak en fazla kodlanmış bayt
+     */
+    HistoryRing(int maxMessages, long maxBytes) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.maxPooledChunks = (int) Math.min(Integer.MAX_VALUE, maxBytes / CHUNK_SIZE + 2);
+        this.stamps = new AtomicLongArray(maxMessages);
+        this.entryChunks = new Chunk[maxMessages];
+        this.entryGenerations = new int[maxMessages];
+        this.entryOffsets = new int[maxMessages];
+        this.entryLengths = new int[maxMessages];
+        for (int i = 0; i < maxMessages; i++) {
+            stamps.set(i, -1);
+        }
+    }
+
+    /**
+     * Mesajı halkaya ekler
+     *
+     * @return mesajın sıra numarası; halkaya alınmadıysa NONE
+     */
+    long append(Frame frame) {
+        if (frame.spool() != null)
+            return NONE;
+        // Geçmiş gösterim içindir; sıra numarası gerekmez
+        Frame shown = (frame.type() == FrameType.SEQ) ? frame.sequencedInner() : frame;
+        if (shown.type() == FrameType.FILE_START || shown.type() == FrameType.FILE_CHUNK
+                || shown.type() == FrameType.FILE_END)
+            return NONE;
+        String line = shown.line();
+        int length = SharedBuffer.utf8Length(line) + 1;
+        if (length > CHUNK_SIZE || length > maxBytes) {
+            skipped.increment();
+            return NONE;
+        }
+        writeLock.lock();
+        try {
+            if (current == null || CHUNK_SIZE - current.position < length) {
+                Chunk previous = current;
+                current = takeChunk();
+                if (previous != null && previous.liveEntries == 0) {
+                    previous.release();
+                }
+            }
+            while (tail - head >= maxMessages || (bytes + length > maxBytes && head < tail)) {
+                evictOldest();
+            }
+
+            int offset = current.position;
+            ByteBuffer target = current.writer;
+            target.limit(offset + length).position(offset);
+            encoder.reset();
+            encoder.encode(CharBuffer.wrap(line), target, true);
+            encoder.flush(target);
+            target.put((byte) '\n');
+            current.position += length;
+            current.liveEntries++;
+            bytes += length;
+
+            long sequence = tail;
+            int slot = (int) (sequence % maxMessages);
+            stamps.set(slot, -1);
+            VarHandle.storeStoreFence();
+            entryChunks[slot] = current;
+            entryGenerations[slot] = current.generation;
+            entryOffsets[slot] = offset;
+            entryLengths[slot] = length;
+            stamps.set(slot, sequence);
+            tail = sequence + 1;
+            appended.increment();
+            return sequence;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void evictOldest() {
+        int slot = (int) (head % maxMessages);
+        Chunk chunk = entryChunks[slot];
+        bytes -= entryLengths[slot];
+        head = head + 1;
+        if (--chunk.liveEntries == 0 && chunk != current) {
+            chunk.release();
+        }
+    }
+
+    private Chunk takeChunk() {
+        Chunk chunk = pool.poll();
+        if (chunk != null) {
+            pooled.decrementAndGet();
+        } else {
+            chunk = new Chunk();
+            allocated.incrementAndGet();
+        }
+        chunk.position = 0;
+        chunk.liveEntries = 0;
+        chunk.refCount.set(1);
+        return chunk;
+    }
+
+    private void recycle(Chunk chunk) {
+        chunk.generation++;
+        if (pooled.incrementAndGet() > maxPooledChunks) {
+            // Okuyucular çok sayıda parçayı uzun süre tuttuysa fazlası GC'ye bırakılır
+            pooled.decrementAndGet();
+            allocated.decrementAndGet();
+            return;
+        }
+        pool.offer(chunk);
+    }
+
+    /**
+     * Son en fazla max kaydı sırayla, halkanın belleğini paylaşan tamponlar olarak verir.
+     * Her tamponun referansı alıcıya geçer. Okuma sırasında halkadan düşen kayıtlar atlanır.
+     *
+     * @return verilen kayıtlardan sonraki sıra numarası (bundan küçükler geçmişe dahil)
+     */
+    long readRecent(int max, Consumer<SharedBuffer> sink) {
+        long end = tail;
+        long start = Math.max(head, end - max);
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int) (sequence % maxMessages);
+            if (stamps.get(slot) != sequence)
+                continue;
+            Chunk chunk = entryChunks[slot];
+            int generation = entryGenerations[slot];
+            int offset = entryOffsets[slot];
+            int length = entryLengths[slot];
+            VarHandle.loadLoadFence();
+            if (stamps.get(slot) != sequence || !chunk.tryRetain())
+                continue;
+            if (chunk.generation != generation) {
+                chunk.release();
+                continue;
+            }
+            sink.accept(SharedBuffer.ofSlice(chunk.memory.slice(offset, length), WireProtocol.TEXT, chunk));
+        }
+        return end;
+    }
+
+    /** Halkadaki mesaj sayısı */
+    int size() {
+        return (int) (tail - head);
+    }
+
+    long getAppended() {
+        return appended.sum();
+    }
+
+    /** Parçadan büyük olduğu için halkaya alınmayan mesajlar */
+    long getSkipped() {
+        return skipped.sum();
+    }
+
+    /** Ayrılmış (halkada, okuyucularda veya havuzda) direct bellek */
+    long getAllocatedBytes() {
+        return (long) allocated.get() * CHUNK_SIZE;
+    }
+}
@@ -0,0 +1,260 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Geçmiş halkasını (HistoryRing) test eder
+ * - Sıra, mesaj ve bayt sınırları
+ * - Parçaların havuza dönmesi ve direct belleğin sınırlı kalması
+ * - Yavaş okuyucunun tuttuğu dilimlerin halka dönerken bozulmaması
+ * - Sunucuya geç bağlanan metin ve ikili istemcinin son mesajları alması
+ * - Eşzamanlı broadcast sırasında bağlanan istemcilerde kayıp veya tekrar olmaması
+ */
+public class HistoryTest {
+
+    private static final int PORT = 5058;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Geçmiş Halkası Testi ===\n");
+        ringScenario();
+        recycleScenario();
+        for (ServerMode mode : new ServerMode[] { ServerMode.THREAD, ServerMode.NIO }) {
+            lateJoinScenario(mode);
+            concurrentJoinScenario(mode);
+        }
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static void ringScenario() {
+        System.out.println("--- Sıra ve sınırlar ---");
+        HistoryRing ring = new HistoryRing(10, 1024 * 1024);
+        for (int i = 0; i < 25; i++) {
+            ring.append(Frame.ofLine("mesaj-" + i));
+        }
+        List<String> recent = drain(ring, 100);
+        check("Son 10 mesaj sırayla verildi", recent.size() == 10 && "mesaj-15".equals(recent.get(0))
+                && "mesaj-24".equals(recent.get(9)));
+        check("İstenen adet kadar verildi", drain(ring, 3).equals(List.of("mesaj-22", "mesaj-23", "mesaj-24")));
+
+        ring.append(Frame.ofText(FrameType.ROOM_MSG, "oda:şifreli"));
+        List<String> last = drain(ring, 1);
+        check("Çerçeve metin protokolünde kodlandı", last.size() == 1 && last.get(0).startsWith("ROOM_MSG:")
+                && last.get(0).endsWith("oda:şifreli"));
+
+        // Eşsiz vekil '?' olarak kodlanır; kayıt sonunda artık bayt kalmamalı
+        ring.append(Frame.ofLine("a\uD800b\uDC00c"));
+        ring.append(Frame.ofLine("son"));
+        check("Eşsiz vekil kaydı taşırmadı", drain(ring, 2).equals(List.of("a?b?c", "son")));
+
+        HistoryRing small = new HistoryRing(1000, 1000);
+        String payload = "x".repeat(99);
+        for (int i = 0; i < 50; i++) {
+            small.append(Frame.ofLine(payload));
+        }
+        check("Bayt sınırı uygulandı", small.size() == 10);
+        check("Sınırdan büyük mesaj atlandı",
+                small.append(Frame.ofLine("y".repeat(2000))) == HistoryRing.NONE && small.getSkipped() == 1);
+        check("Dosya parçaları halkaya alınmadı",
+                small.append(FileTransfer.chunk("t", 0, "AAAA")) == HistoryRing.NONE);
+    }
+
+    private static void recycleScenario() {
+        System.out.println("--- Parça havuzu ---");
+        HistoryRing ring = new HistoryRing(100_000, 256 * 1024);
+        String payload = "p".repeat(1000);
+        ring.append(Frame.ofLine("tutulan"));
+        // Yavaş okuyucu: ilk kaydın dilimi yazılmadan bekliyor
+        List<SharedBuffer> held = new ArrayList<>();
+        ring.readRecent(1, held::add);
+        for (int i = 0; i < 20_000; i++) {
+            ring.append(Frame.ofLine(payload + i));
+        }
+        check("Halka birçok kez döndü, bellek sınırlı kaldı",
+                ring.getAllocatedBytes() <= 256 * 1024 + 3L * HistoryRing.CHUNK_SIZE);
+        check("Tutulan dilim bozulmadı", held.size() == 1 && "tutulan\n".equals(decode(held.get(0))));
+        held.get(0).release();
+
+        List<SharedBuffer> buffers = new ArrayList<>();
+        ring.readRecent(Integer.MAX_VALUE, buffers::add);
+        for (int i = 0; i < 20_000; i++) {
+            ring.append(Frame.ofLine(payload + i));
+        }
+        boolean intact = true;
+        for (SharedBuffer buffer : buffers) {
+            if (!decode(buffer).startsWith(payload)) {
+                intact = false;
+            }
+            buffer.release();
+        }
+        check("Tüm halkayı tutan okuyucu yazıcıyı durdurmadı", intact && ring.getAppended() == 40_001);
+        // Okuyucunun bıraktığı parçalar havuzda; yeni yazımlar yeni bellek ayırmamalı
+        long before = ring.getAllocatedBytes();
+        for (int i = 0; i < 20_000; i++) {
+            ring.append(Frame.ofLine(payload + i));
+        }
+        check("Bırakılan parçalar yeniden kullanıldı", ring.getAllocatedBytes() <= before);
+    }
+
+    // Senaryolar aynı portu kullanır; önceki sunucunun accept thread'i bitmeden port bırakılmaz
+    private static Thread serverThread;
+
+    private static ChatServer startServer(ServerMode mode, int historyMessages) throws InterruptedException {
+        ChatServer server = new ChatServer(PORT, message -> { }, mode, 1);
+        server.configureOutboundQueue(8192, OverflowPolicy.DISCONNECT);
+        server.configureHistory(historyMessages, 1024 * 1024);
+        serverThread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        serverThread.start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+        return server;
+    }
+
+    private static void stopServer(ChatServer server) throws InterruptedException {
+        server.stopServer();
+        serverThread.join(5000);
+    }
+
+    private static void lateJoinScenario(ServerMode mode) throws Exception {
+        System.out.println("--- Geç katılan istemci (" + mode + ") ---");
+        ChatServer server = startServer(mode, 50);
+        try {
+            ChatClient early = new ChatClient();
+            early.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            for (int i = 0; i < 80; i++) {
+                early.sendMessage("şifreli-" + i);
+            }
+            for (int i = 0; i < 80; i++) {
+                early.readFrame();
+            }
+
+            ChatClient text = new ChatClient();
+            text.connect("127.0.0.1", PORT);
+            ChatClient binary = new ChatClient();
+            binary.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            early.sendMessage("canlı");
+            check("Metin istemcisi son 50 mesajı ve canlıyı aldı", receivedInOrder(text, 30, 80));
+            check("İkili istemci son 50 mesajı ve canlıyı aldı", receivedInOrder(binary, 30, 80)
+                    && binary.getProtocol() == WireProtocol.BINARY);
+
+            early.disconnect();
+            text.disconnect();
+            binary.disconnect();
+        } finally {
+            stopServer(server);
+        }
+    }
+
+    private static boolean receivedInOrder(ChatClient client, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            Frame frame = client.readFrame();
+            if (frame == null || !("şifreli-" + i).equals(frame.text()))
+                return false;
+        }
+        Frame live = client.readFrame();
+        return live != null && "canlı".equals(live.text());
+    }
+
+    private static void concurrentJoinScenario(ServerMode mode) throws Exception {
+        System.out.println("--- Eşzamanlı katılım (" + mode + ") ---");
+        final int total = 3000;
+        final int joiners = 8;
+        ChatServer server = startServer(mode, 200);
+        try {
+            ChatClient sender = new ChatClient();
+            sender.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            AtomicBoolean ok = new AtomicBoolean(true);
+            List<Thread> readers = new ArrayList<>();
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < total; i++) {
+                    sender.send(Frame.ofLine("n-" + i));
+                }
+            }, "History-Sender");
+            writer.start();
+            for (int j = 0; j < joiners; j++) {
+                Thread.sleep(5);
+                ChatClient joiner = new ChatClient();
+                joiner.connect("127.0.0.1", PORT, j % 2 == 0 ? WireProtocol.TEXT : WireProtocol.BINARY);
+                Thread reader = new Thread(() -> {
+                    try {
+                        // İlk mesajdan itibaren numaralar kesintisiz artmalı
+                        int expected = -1;
+                        while (expected != total) {
+                            Frame frame = joiner.readFrame();
+                            if (frame == null || !frame.text().startsWith("n-")) {
+                                ok.set(false);
+                                return;
+                            }
+                            int number = Integer.parseInt(frame.text().substring(2));
+                            if (expected >= 0 && number != expected) {
+                                ok.set(false);
+                                return;
+                            }
+                            expected = number + 1;
+                        }
+                    } catch (IOException e) {
+                        ok.set(false);
+                    } finally {
+                        joiner.disconnect();
+                    }
+                }, "History-Reader-" + j);
+                reader.start();
+                readers.add(reader);
+            }
+            writer.join();
+            for (Thread reader : readers) {
+                reader.join(20_000);
+            }
+            for (int i = 0; i < total; i++) {
+                sender.readFrame();
+            }
+            check("Katılan istemcilerde kayıp veya tekrar yok", ok.get());
+            check("Geçmiş tamponu sınırı aşmadı", server.getHistory().size() == 200
+                    && server.getHistory().getAllocatedBytes() <= 2L * HistoryRing.CHUNK_SIZE);
+            sender.disconnect();
+        } finally {
+            stopServer(server);
+        }
+    }
+
+    private static List<String> drain(HistoryRing ring, int max) {
+        List<String> lines = new ArrayList<>();
+        ring.readRecent(max, buffer -> {
+            String line = decode(buffer);
+            lines.add(line.substring(0, line.length() - 1));
+            buffer.release();
+        });
+        return lines;
+    }
+
+    private static String decode(SharedBuffer buffer) {
+        ByteBuffer view = buffer.view();
+        return StandardCharsets.UTF_8.decode(view).toString();
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package main;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Gelen bayt akışını çerçevelere ayırır.
+ * Metin modunda '\n' ile biten satırları, ikili modda uzunluk önekli çerçeveleri
+ * çözer. Belirlenen el sıkışma satırı görüldüğü anda, aynı tampondaki kalan
+ * baytlar için ikili moda geçer. Hem bloklayıcı hem NIO bağlantılar ve istemci kullanır.
+ * Sunucuda bir FileSpool verilirse eşiği aşan FILE çerçevelerinin yükü belleğe
+ * alınmadan geldiği gibi spool dosyasına yazılır. Eşiği aşan metin "FILE:" satırları
+ * da ikili FILE çerçevesine çevrilerek satır sonu beklenmeden diske aktarılır.
+ */
+public class InboundDecoder {
+
+    /**
+     * Eski istemcilerin bağlantı testi için gönderdiği TCP acil veri baytı.
+     * Art arda gönderimlerde akışa karışabilir; UTF-8'de ve çerçeve tiplerinde
+     * geçersiz olduğundan satır/çerçeve başında görülürse atlanır.
+     */
+    private static final byte URGENT_PROBE = (byte) 0xFF;
+
+    /** Bu boyuttan büyük FILE yükleri ve FILE satırları diske alınır */
+    public static final int SPOOL_THRESHOLD = 64 * 1024;
+
+    public interface FrameHandler {
+        void onFrame(Frame frame) throws IOException;
+
+        /**
+         * Spool kotası dolduğu için okunup atlanan çerçeve
+         */
+        default void onDiscarded(FrameType type, long length) {
+        }
+    }
+
+    private final FrameHandler handler;
+    private final String switchLine;
+    private final FileSpool spool;
+    private WireProtocol protocol = WireProtocol.TEXT;
+    private boolean paused = false;
+
+    // Metin modu: henüz '\n' gelmemiş satır
+    private byte[] lineBuffer = new byte[256];
+    private int lineLength = 0;
+
+    // İkili mod: başlık ve yük
+    private final byte[] header = new byte[FrameCodec.HEADER_LENGTH];
+    private int headerFilled = 0;
+    private FrameType frameType;
+    private byte[] payload;
+    private int payloadFilled = 0;
+    // Diske alınan veya atlanan yük: kalan bayt sayısı ve hedef dosya
+    private SpoolFile spoolTarget;
+    private long spoolRemaining = -1;
+    private long spoolLength;
+    // Metin modu: diske aktarılan FILE satırı; satır sonundaki '\r' bir sonraki bayta kadar bekletilir
+    private boolean spoolingLine = false;
+    private boolean pendingCarriageReturn = false;
+
+    /**
+     * @param switchLine bu satır okununca ikili moda geçilir (null ise hiç geçilmez)
+     */
+    public InboundDecoder(String switchLine, FrameHandler handler) {
+        this(switchLine, handler, null);
+    }
+
+    /**
+     * @param spool büyük FILE yüklerinin yazılacağı dizin (null ise hepsi bellekte tutulur)
+     */
+    public InboundDecoder(String switchLine, FrameHandler handler, FileSpool spool) {
+        this.switchLine = switchLine;
+        this.handler = handler;
+        this.spool = spool;
+    }
+
+    public WireProtocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Çözmeyi mevcut çerçeve bittikten sonra durdurur; feed() kalan baytları
+     * tamponda bırakır (NIO bağlantısı hız sınırı nedeniyle okumayı geciktirirken)
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    /**
+     * Tampondaki tüm baytları tüketir (durdurulmadıkça); tamamlanan her çerçeve için handler çağrılır
+     */
+    public void feed(ByteBuffer in) throws IOException {
+        while (in.hasRemaining() && !paused) {
+            if (atBoundary() && in.get(in.position()) == URGENT_PROBE) {
+                in.get();
+                continue;
+            }
+            if (protocol == WireProtocol.TEXT) {
+                decodeLine(in);
+            } else {
+                decodeFrame(in);
+            }
+        }
+    }
+
+    private boolean atBoundary() {
+        if (protocol == WireProtocol.TEXT)
+            return lineLength == 0 && !spoolingLine;
+        return headerFilled == 0 && payload == null && spoolRemaining < 0;
+    }
+
+    private void decodeLine(ByteBuffer in) throws IOException {
+        if (spoolingLine) {
+            spoolLine(in);
+            return;
+        }
+        int start = in.position();
+        int end = in.limit();
+        int newline = indexOfNewline(in, start, end);
+        if (newline < 0) {
+            int previous = lineLength;
+            appendToLine(in, start, end - start);
+            in.position(end);
+            // Eşik bir kez, aşıldığı anda denenir
+            if (spool != null && previous <= SPOOL_THRESHOLD && lineLength > SPOOL_THRESHOLD) {
+                startLineSpool();
+            }
+            return;
+        }
+        appendToLine(in, start, newline - start);
+        in.position(newline + 1);
+
+        int length = lineLength;
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        String line = new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+        lineLength = 0;
+        if (line.equals(switchLine)) {
+            protocol = WireProtocol.BINARY;
+        }
+        handler.onFrame(Frame.ofLine(line));
+    }
+
+    private static int indexOfNewline(ByteBuffer in, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (in.get(i) == '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Tampondaki "FILE:ad:mime:" başlığını ikili FILE düzenine çevirip spool dosyasına yazar;
+     * verinin gelmiş kısmı ardına eklenir. Başlık eksikse satır bellekte tamamlanır.
+     */
+    private void startLineSpool() throws IOException {
+        byte[] prefix = FrameType.FILE.prefix().getBytes(StandardCharsets.US_ASCII);
+        if (!Arrays.equals(lineBuffer, 0, prefix.length, prefix, 0, prefix.length))
+            return;
+        int nameEnd = indexOfColon(prefix.length);
+        int mimeEnd = (nameEnd < 0) ? -1 : indexOfColon(nameEnd + 1);
+        if (mimeEnd < 0)
+            return;
+        int nameLength = nameEnd - prefix.length;
+        int mimeLength = mimeEnd - nameEnd - 1;
+        if (nameLength > 0xFFFF || mimeLength > 0xFFFF)
+            return;
+
+        // Son uzunluk satır sonunda belli olur: satır sınırı kadar yer ayrılır, fazlası sonra geri verilir
+        spoolTarget = spool.create(FrameCodec.HEADER_LENGTH + (long) FrameCodec.MAX_FRAME_LENGTH);
+        if (spoolTarget != null) {
+            ByteBuffer fields = ByteBuffer.allocate(FrameCodec.HEADER_LENGTH + 4 + nameLength + mimeLength);
+            fields.put(FrameType.FILE.code()).putInt(0);
+            fields.putShort((short) nameLength).put(lineBuffer, prefix.length, nameLength);
+            fields.putShort((short) mimeLength).put(lineBuffer, nameEnd + 1, mimeLength);
+            fields.flip();
+            spoolTarget.write(fields);
+            spoolLineData(ByteBuffer.wrap(lineBuffer, mimeEnd + 1, lineLength - mimeEnd - 1));
+        }
+        spoolingLine = true;
+        spoolLength = lineLength;
+        lineLength = 0;
+    }
+
+    private int indexOfColon(int from) {
+        for (int i = from; i < lineLength; i++) {
+            if (lineBuffer[i] == ':')
+                return i;
+        }
+        return -1;
+    }
+
+    private void spoolLine(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int end = in.limit();
+        int newline = indexOfNewline(in, start, end);
+        int stop = (newline < 0) ? end : newline;
+        spoolLength += stop - start;
+        if (spoolLength > FrameCodec.MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Satır çok uzun");
+        }
+        if (spoolTarget != null) {
+            spoolLineData(in.slice(start, stop - start));
+        }
+        if (newline < 0) {
+            in.position(end);
+            return;
+        }
+        in.position(newline + 1);
+
+        SpoolFile complete = spoolTarget;
+        spoolTarget = null;
+        spoolingLine = false;
+        // Satır sonundaki '\r' veriye dahil değildir
+        pendingCarriageReturn = false;
+        if (complete == null) {
+            handler.onDiscarded(FrameType.FILE, spoolLength);
+            return;
+        }
+        try {
+            int length = (int) (complete.length() - FrameCodec.HEADER_LENGTH);
+            complete.writeAt(1, ByteBuffer.allocate(4).putInt(0, length));
+            complete.trim();
+            handler.onFrame(Frame.ofSpool(FrameType.FILE, complete));
+        } finally {
+            complete.release();
+        }
+    }
+
+    private void spoolLineData(ByteBuffer data) throws IOException {
+        if (pendingCarriageReturn && data.hasRemaining()) {
+            spoolTarget.write(ByteBuffer.wrap(new byte[] { '\r' }));
+            pendingCarriageReturn = false;
+        }
+        if (data.hasRemaining() && data.get(data.limit() - 1) == '\r') {
+            data.limit(data.limit() - 1);
+            pendingCarriageReturn = true;
+        }
+        spoolTarget.write(data);
+    }
+
+    private void appendToLine(ByteBuffer in, int offset, int length) throws ProtocolException {
+        if (length == 0)
+            return;
+        if (lineLength + length > FrameCodec.MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Satır çok uzun");
+        }
+        if (lineLength + length > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + length));
+        }
+        in.get(offset, lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    private void decodeFrame(ByteBuffer in) throws IOException {
+        if (spoolRemaining >= 0) {
+            spoolPayload(in);
+            return;
+        }
+        if (payload == null) {
+            int count = Math.min(in.remaining(), header.length - headerFilled);
+            in.get(header, headerFilled, count);
+            headerFilled += count;
+            if (headerFilled < header.length)
+                return;
+
+            frameType = FrameType.fromCode(header[0]);
+            int length = ((header[1] & 0xFF) << 24) | ((header[2] & 0xFF) << 16)
+                    | ((header[3] & 0xFF) << 8) | (header[4] & 0xFF);
+            if (frameType == null) {
+                throw new ProtocolException("Bilinmeyen çerçeve tipi: " + (header[0] & 0xFF));
+            }
+            if (length < 0 || length > FrameCodec.MAX_FRAME_LENGTH) {
+                throw new ProtocolException("Geçersiz çerçeve uzunluğu: " + length);
+            }
+            if (spool != null && frameType == FrameType.FILE && length > SPOOL_THRESHOLD) {
+                startSpool(length);
+                return;
+            }
+            payload = new byte[length];
+            payloadFilled = 0;
+        }
+
+        int count = Math.min(in.remaining(), payload.length - payloadFilled);
+        in.get(payload, payloadFilled, count);
+        payloadFilled += count;
+        if (payloadFilled < payload.length)
+            return;
+
+        byte[] complete = payload;
+        FrameType type = frameType;
+        payload = null;
+        headerFilled = 0;
+        if (type == FrameType.FILE && !Frame.isValidFilePayload(complete)) {
+            throw new ProtocolException("Geçersiz FILE çerçevesi");
+        }
+        handler.onFrame(Frame.ofPayload(type, complete));
+    }
+
+    private void startSpool(int length) throws IOException {
+        spoolTarget = spool.create(FrameCodec.HEADER_LENGTH + (long) length);
+        if (spoolTarget != null) {
+            // Başlık da yazılır; dosya ikili istemcilere olduğu gibi gönderilir
+            spoolTarget.write(ByteBuffer.wrap(header));
+        }
+        spoolRemaining = length;
+        spoolLength = length;
+        headerFilled = 0;
+    }
+
+    private void spoolPayload(ByteBuffer in) throws IOException {
+        int count = (int) Math.min(in.remaining(), spoolRemaining);
+        if (spoolTarget != null) {
+            ByteBuffer slice = in.slice(in.position(), count);
+            spoolTarget.write(slice);
+        }
+        in.position(in.position() + count);
+        spoolRemaining -= count;
+        if (spoolRemaining > 0)
+            return;
+
+        SpoolFile complete = spoolTarget;
+        FrameType type = frameType;
+        spoolTarget = null;
+        spoolRemaining = -1;
+        if (complete == null) {
+            handler.onDiscarded(type, spoolLength);
+            return;
+        }
+        try {
+            if (!Frame.isValidFileSpool(complete)) {
+                throw new ProtocolException("Geçersiz FILE çerçevesi");
+            }
+            handler.onFrame(Frame.ofSpool(type, complete));
+        } finally {
+            // Alıcı kuyruklarına eklenen tamponlar kendi referanslarını tutar
+            complete.release();
+        }
+    }
+
+    /**
+     * Bağlantı kapanırken yarım kalmış spool dosyasını bırakır
+     */
+    public void close() {
+        if (spoolTarget != null) {
+            spoolTarget.release();
+            spoolTarget = null;
+        }
+        spoolRemaining = -1;
+        spoolingLine = false;
+    }
+}
@@ -0,0 +1,95 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.zip.CRC32;
+
+import main.encryption.EncryptionAlgorithm;
+
+/**
+ * İstemci tarafında alınmakta olan parçalı bir dosya.
+ * Her parça çözülüp doğrudan geçici dosyaya yazılır; bellekte en fazla bir parça tutulur.
+ */
+public class IncomingTransfer {
+
+    private final String transferId;
+    private final String fileName;
+    private final String mimeType;
+    private final long expectedSize;
+    private final EncryptionAlgorithm decryptor;
+    private final Path tempFile;
+    private final OutputStream out;
+    private final CRC32 crc = new CRC32();
+    private long received = 0;
+    private long nextSequence = 0;
+
+    /**
+     * @param decryptor parçaları çözecek algoritma, şifresiz ise null
+     */
+    public IncomingTransfer(String transferId, String fileName, String mimeType, long expectedSize,
+            EncryptionAlgorithm decryptor) throws IOException {
+        this.transferId = transferId;
+        this.fileName = fileName;
+        this.mimeType = mimeType;
+        this.expectedSize = expectedSize;
+        this.decryptor = decryptor;
+        this.tempFile = Files.createTempFile("gelen_", ".part");
+        this.out = new BufferedOutputStream(Files.newOutputStream(tempFile));
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Sıradaki parçayı çözer ve dosyaya ekler. FILE_START'ta bildirilen boyut aşılırsa
+     * hata fırlatır; gönderen diski sınırsız dolduramaz.
+     */
+    public void append(long sequence, String data) throws IOException {
+        if (sequence != nextSequence) {
+            throw new IOException("Parça sırası bozuk: beklenen " + nextSequence + ", gelen " + sequence);
+        }
+        String base64 = (decryptor != null) ? decryptor.decrypt(data) : data;
+        byte[] bytes = Base64.getDecoder().decode(base64);
+        if (received + bytes.length > expectedSize) {
+            throw new IOException("Dosya bildirilen boyutu aşıyor (" + expectedSize + " bayt)");
+        }
+        out.write(bytes);
+        crc.update(bytes);
+        received += bytes.length;
+        nextSequence++;
+    }
+
+    /**
+     * Boyut ve CRC32 doğrulanırsa dosyayı hedefe taşır
+     */
+    public Path complete(long expectedCrc, Path target) throws IOException {
+        out.close();
+        if (received != expectedSize || crc.getValue() != expectedCrc) {
+            Files.deleteIfExists(tempFile);
+            throw new IOException("Dosya doğrulanamadı (boyut " + received + "/" + expectedSize + ")");
+        }
+        return Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public void abort() {
+        try {
+            out.close();
+            Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+        }
+    }
+}
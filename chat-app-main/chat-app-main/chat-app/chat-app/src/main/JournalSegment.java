@@ -0,0 +1,338 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Günlüğün tek bir segment dosyası ve seyrek indeksi.
+ * Segment oluşturulurken tam boyutunda belleğe eşlenir (MappedByteBuffer);
+ * kayıtlar sırayla eklenir ve son kaydın ardına 0 uzunluk (bitiş işareti) yazılır.
+ *
+ * Kayıt: [toplam uzunluk:4][crc32c:4][offset:8][zaman:8][tip:1][yük]
+ * İndeks (.idx): her ~4 KB'ta bir [offset:8][zaman:8][konum:4]
+ *
+ * Yazma yalnızca günlüğün yazıcı thread'inden yapılır; okuyucular yalnızca
+ * commit() ile yayımlanan bölgeyi (end) okur, yazıcıyı hiç beklemez.
+ */
+final class JournalSegment {
+
+    static final int HEADER_LENGTH = 25;
+    private static final int INDEX_ENTRY_LENGTH = 20;
+    private static final int INDEX_INTERVAL = 4096;
+
+    /** Okunan tek bir kayıt */
+    record Entry(long offset, long timestamp, FrameType type, byte[] payload, int next) {
+    }
+
+    final long baseOffset;
+    final Path logPath;
+    final Path indexPath;
+    private final FileChannel channel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer map;
+
+    // Yazıcıya özel durum
+    private int writePosition;
+    private long writeOffset;
+    private int forcedPosition;
+    private int lastIndexedPosition = -INDEX_INTERVAL;
+    private final ByteBuffer pendingIndex = ByteBuffer.allocate(INDEX_ENTRY_LENGTH * 64);
+    private final CRC32C crc = new CRC32C();
+
+    // Okuyuculara yayımlanan durum
+    private volatile int end;
+    private volatile long nextOffset;
+    private volatile long firstTimestamp = Long.MAX_VALUE;
+    private volatile long lastTimestamp = Long.MIN_VALUE;
+
+    // Seyrek indeks (this ile korunur)
+    private long[] indexOffsets = new long[64];
+    private long[] indexTimes = new long[64];
+    private int[] indexPositions = new int[64];
+    private int indexCount = 0;
+
+    private JournalSegment(Path directory, long baseOffset, int size, boolean create) throws IOException {
+        this.baseOffset = baseOffset;
+        this.nextOffset = baseOffset;
+        this.writeOffset = baseOffset;
+        this.logPath = directory.resolve(String.format("%020d.log", baseOffset));
+        this.indexPath = directory.resolve(String.format("%020d.idx", baseOffset));
+        if (create) {
+            channel = FileChannel.open(logPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } else {
+            channel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        long length = create ? size : Math.max(channel.size(), HEADER_LENGTH);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    static JournalSegment create(Path directory, long baseOffset, int size) throws IOException {
+        return new JournalSegment(directory, baseOffset, size, true);
+    }
+
+    /**
+     * Mevcut segmenti açar: indeksi okur, son indeks noktasından itibaren kayıtları
+     * doğrulayarak yarım kalmış son yazmayı bulur ve oradan devam eder
+     */
+    static JournalSegment recover(Path directory, long baseOffset) throws IOException {
+        JournalSegment segment = new JournalSegment(directory, baseOffset, 0, false);
+        segment.recover();
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        long indexSize = indexChannel.size() - indexChannel.size() % INDEX_ENTRY_LENGTH;
+        ByteBuffer entries = ByteBuffer.allocate((int) indexSize);
+        while (entries.hasRemaining() && indexChannel.read(entries, entries.position()) > 0) {
+        }
+        entries.flip();
+        int position = 0;
+        long offset = baseOffset;
+        while (entries.remaining() >= INDEX_ENTRY_LENGTH) {
+            long entryOffset = entries.getLong();
+            long entryTime = entries.getLong();
+            int entryPosition = entries.getInt();
+            Entry entry = read(entryPosition, map.capacity());
+            if (entry == null || entry.offset() != entryOffset)
+                break;
+            addIndex(entryOffset, entryTime, entryPosition);
+            position = entryPosition;
+            offset = entryOffset;
+        }
+        indexChannel.truncate((long) indexCount * INDEX_ENTRY_LENGTH);
+        indexChannel.position(indexChannel.size());
+        lastIndexedPosition = (indexCount > 0) ? indexPositions[indexCount - 1] : -INDEX_INTERVAL;
+
+        Entry entry;
+        while ((entry = read(position, map.capacity())) != null && entry.offset() == offset) {
+            if (position - lastIndexedPosition >= INDEX_INTERVAL) {
+                addIndex(entry.offset(), entry.timestamp(), position);
+                pendingIndex(entry.offset(), entry.timestamp(), position);
+                lastIndexedPosition = position;
+            }
+            if (firstTimestamp == Long.MAX_VALUE) {
+                firstTimestamp = entry.timestamp();
+            }
+            lastTimestamp = entry.timestamp();
+            position = entry.next();
+            offset++;
+        }
+        writePosition = position;
+        forcedPosition = position;
+        writeOffset = offset;
+        commit(false);
+    }
+
+    /**
+     * Kaydı ekler (henüz okuyuculara yayımlamaz)
+     *
+     * @return segmentte yer kalmadıysa false
+     */
+    boolean append(long offset, long timestamp, FrameType type, byte[] payload) {
+        int length = HEADER_LENGTH + payload.length;
+        if ((long) writePosition + length > map.capacity())
+            return false;
+        map.putInt(writePosition + 4, checksum(crc, payload, offset, type));
+        map.putLong(writePosition + 8, offset);
+        map.putLong(writePosition + 16, timestamp);
+        map.put(writePosition + 24, type.code());
+        map.put(writePosition + HEADER_LENGTH, payload);
+        // Uzunluk en son yazılır: yarım kalan kayıt kurtarmada geçersiz görünür
+        map.putInt(writePosition, length);
+        if (writePosition - lastIndexedPosition >= INDEX_INTERVAL) {
+            addIndex(offset, timestamp, writePosition);
+            pendingIndex(offset, timestamp, writePosition);
+            lastIndexedPosition = writePosition;
+        }
+        if (firstTimestamp == Long.MAX_VALUE) {
+            firstTimestamp = timestamp;
+        }
+        lastTimestamp = timestamp;
+        writePosition += length;
+        writeOffset = offset + 1;
+        return true;
+    }
+
+    /** Son kaydın ardına bitiş işareti (yer varsa) */
+    private void terminate() {
+        if (writePosition + 4 <= map.capacity()) {
+            map.putInt(writePosition, 0);
+        }
+    }
+
+    /**
+     * Eklenen kayıtları diske zorlar (isteğe bağlı) ve okuyuculara yayımlar
+     */
+    void commit(boolean force) throws IOException {
+        terminate();
+        if (force && writePosition > forcedPosition) {
+            map.force(forcedPosition, Math.min(writePosition + 4, map.capacity()) - forcedPosition);
+            forcedPosition = writePosition;
+        }
+        if (pendingIndex.position() > 0) {
+            pendingIndex.flip();
+            while (pendingIndex.hasRemaining()) {
+                indexChannel.write(pendingIndex);
+            }
+            pendingIndex.clear();
+        }
+        nextOffset = writeOffset;
+        end = writePosition;
+    }
+
+    private void pendingIndex(long offset, long timestamp, int position) {
+        if (pendingIndex.remaining() < INDEX_ENTRY_LENGTH) {
+            // Çok nadir: bir commit'te 64'ten fazla indeks noktası; fazlası bir sonraki kurtarmada yeniden üretilir
+            return;
+        }
+        pendingIndex.putLong(offset).putLong(timestamp).putInt(position);
+    }
+
+    private synchronized void addIndex(long offset, long timestamp, int position) {
+        if (indexCount == indexOffsets.length) {
+            indexOffsets = Arrays.copyOf(indexOffsets, indexCount * 2);
+            indexTimes = Arrays.copyOf(indexTimes, indexCount * 2);
+            indexPositions = Arrays.copyOf(indexPositions, indexCount * 2);
+        }
+        indexOffsets[indexCount] = offset;
+        indexTimes[indexCount] = timestamp;
+        indexPositions[indexCount] = position;
+        indexCount++;
+    }
+
+    /**
+     * offset'li kayda en yakın (öncesindeki) indeks noktasının konumu
+     */
+    synchronized int positionOf(long offset) {
+        int low = 0;
+        int high = indexCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (indexOffsets[middle] <= offset) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return (found < 0) ? 0 : indexPositions[found];
+    }
+
+    /**
+     * timestamp'ten önceki son indeks noktasının konumu; oradan ileri taranır
+     */
+    synchronized int positionOfTime(long timestamp) {
+        int low = 0;
+        int high = indexCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (indexTimes[middle] < timestamp) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return (found < 0) ? 0 : indexPositions[found];
+    }
+
+    /**
+     * Yayımlanmış bölgedeki kaydı okur
+     *
+     * @return konumda geçerli kayıt yoksa (bölge sonu, bitiş işareti veya bozuk kayıt) null
+     */
+    Entry read(int position) {
+        return read(position, end);
+    }
+
+    private Entry read(int position, int limit) {
+        if (position + HEADER_LENGTH > limit)
+            return null;
+        int total = map.getInt(position);
+        if (total < HEADER_LENGTH || (long) position + total > limit)
+            return null;
+        int length = total - HEADER_LENGTH;
+        long offset = map.getLong(position + 8);
+        long timestamp = map.getLong(position + 16);
+        FrameType type = FrameType.fromCode(map.get(position + 24));
+        if (type == null)
+            return null;
+        byte[] payload = new byte[length];
+        map.get(position + HEADER_LENGTH, payload);
+        if (checksum(new CRC32C(), payload, offset, type) != map.getInt(position + 4))
+            return null;
+        return new Entry(offset, timestamp, type, payload, position + HEADER_LENGTH + length);
+    }
+
+    /**
+     * Yük, offset'in 8 baytı ve tür üzerinden CRC32C: başka offset'e kopyalanan kayıt da geçersiz olur
+     */
+    private static int checksum(CRC32C crc, byte[] payload, long offset, FrameType type) {
+        crc.reset();
+        crc.update(payload);
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, offset));
+        crc.update(type.code());
+        return (int) crc.getValue();
+    }
+
+    /** Commit edilmiş son kayıttan sonraki offset */
+    long getNextOffset() {
+        return nextOffset;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /** Kayıtların kapladığı bayt (dosya boyutu değil) */
+    int getSize() {
+        return end;
+    }
+
+    int getCapacity() {
+        return map.capacity();
+    }
+
+    boolean isEmpty() {
+        return writeOffset == baseOffset;
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            indexChannel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Dosyaları siler; eşlenmiş bellek hâlâ okuyan varsa onlar bitene kadar geçerli kalır
+     */
+    void delete() {
+        close();
+        try {
+            Files.deleteIfExists(logPath);
+            Files.deleteIfExists(indexPath);
+        } catch (IOException ignored) {
+        }
+    }
+}
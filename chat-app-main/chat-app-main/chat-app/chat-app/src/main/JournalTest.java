@@ -0,0 +1,324 @@
+package main;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Mesaj günlüğünü (MessageJournal) test eder
+ * - Offset ve zaman aralığıyla yeniden oynatma
+ * - Segment geçişi, saklama sınırıyla eski segmentlerin silinmesi
+ * - Yeniden açılışta kurtarma ve yarım kalmış son kaydın atılması
+ * - Sunucuya geç bağlanan istemcinin REPLAY ile geçmişi alması
+ */
+public class JournalTest {
+
+    private static final int PORT = 5057;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Mesaj Günlüğü Testi ===\n");
+        Path directory = Files.createTempDirectory("chat-journal-test");
+        try {
+            replayScenario(directory.resolve("replay"));
+            recoveryScenario(directory.resolve("recovery"));
+            retentionScenario(directory.resolve("retention"));
+            serverScenario(directory.resolve("server"));
+        } finally {
+            deleteRecursively(directory);
+        }
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static MessageJournal open(Path directory, long segmentBytes, long retentionBytes) throws IOException {
+        MessageJournal journal = new MessageJournal(directory, segmentBytes, MessageJournal.DEFAULT_SEGMENT_AGE_MILLIS,
+                retentionBytes, MessageJournal.DEFAULT_RETENTION_MILLIS, message -> { });
+        journal.open();
+        return journal;
+    }
+
+    private static void replayScenario(Path directory) throws Exception {
+        System.out.println("--- Yeniden oynatma ---");
+        MessageJournal journal = open(directory, 16 * 1024, Long.MAX_VALUE);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                journal.append(Frame.ofText(FrameType.TEXT, "mesaj-" + i));
+            }
+            check("Tüm mesajlar commit edildi", awaitOffset(journal, 1000));
+            long middle = System.currentTimeMillis();
+            Thread.sleep(20);
+            for (int i = 1000; i < 1100; i++) {
+                journal.append(Frame.ofText(FrameType.ROOM_MSG, "oda:mesaj-" + i));
+            }
+            awaitOffset(journal, 1100);
+            check("Segment geçişi yapıldı", journal.getSegmentCount() > 1);
+
+            List<String> all = new ArrayList<>();
+            boolean[] ordered = { true };
+            long next = journal.replay(0, Long.MAX_VALUE, (offset, timestamp, frame) -> {
+                if (offset != all.size()) {
+                    ordered[0] = false;
+                }
+                all.add(frame.text());
+                return true;
+            });
+            check("Tüm kayıtlar segmentler boyunca sırayla okundu", all.size() == 1100 && ordered[0]);
+            check("Yük ve tür korundu", "mesaj-999".equals(all.get(999)) && "oda:mesaj-1050".equals(all.get(1050)));
+            check("Sonraki offset döndü", next == 1100);
+
+            List<String> range = new ArrayList<>();
+            next = journal.replay(500, 510, (offset, timestamp, frame) -> range.add(frame.text()));
+            check("Offset aralığı [500, 510)", range.size() == 10 && "mesaj-500".equals(range.get(0)) && next == 510);
+
+            List<Frame> recent = new ArrayList<>();
+            journal.replayTime(middle, Long.MAX_VALUE, (offset, timestamp, frame) -> recent.add(frame));
+            check("Zaman aralığı yalnızca sonraki mesajları verdi",
+                    recent.size() == 100 && recent.get(0).type() == FrameType.ROOM_MSG);
+
+            int[] visited = { 0 };
+            next = journal.replay(0, Long.MAX_VALUE, (offset, timestamp, frame) -> ++visited[0] < 5);
+            check("İşleyici false dönünce oynatma durdu", visited[0] == 5 && next == 5);
+
+            boolean locked = false;
+            try {
+                open(directory, 16 * 1024, Long.MAX_VALUE);
+            } catch (IOException e) {
+                locked = true;
+            }
+            check("Aynı dizin ikinci kez açılamadı", locked);
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static void recoveryScenario(Path directory) throws Exception {
+        System.out.println("--- Kurtarma ---");
+        MessageJournal journal = open(directory, 1024 * 1024, Long.MAX_VALUE);
+        for (int i = 0; i < 300; i++) {
+            journal.append(Frame.ofText(FrameType.TEXT, "kayıt-" + i));
+        }
+        awaitOffset(journal, 300);
+        journal.close();
+
+        journal = open(directory, 1024 * 1024, Long.MAX_VALUE);
+        try {
+            check("Yeniden açılışta offset korundu", journal.getNextOffset() == 300);
+            journal.append(Frame.ofText(FrameType.TEXT, "kayıt-300"));
+            awaitOffset(journal, 301);
+            List<String> all = new ArrayList<>();
+            journal.replay(0, Long.MAX_VALUE, (offset, timestamp, frame) -> all.add(frame.text()));
+            check("Eski ve yeni kayıtlar okundu", all.size() == 301 && "kayıt-300".equals(all.get(300)));
+        } finally {
+            journal.close();
+        }
+
+        // Son kaydın yükünü boz: kurtarma CRC'den yarım yazmayı tanıyıp atmalı
+        corruptLastRecord(directory.resolve(String.format("%020d.log", 0)));
+        journal = open(directory, 1024 * 1024, Long.MAX_VALUE);
+        try {
+            check("Bozuk son kayıt atıldı", journal.getNextOffset() == 300);
+            journal.append(Frame.ofText(FrameType.TEXT, "yeni-300"));
+            awaitOffset(journal, 301);
+            String[] last = new String[1];
+            journal.replay(300, 301, (offset, timestamp, frame) -> {
+                last[0] = frame.text();
+                return true;
+            });
+            check("Bozuk kaydın yerine yeni kayıt yazıldı", "yeni-300".equals(last[0]));
+        } finally {
+            journal.close();
+        }
+
+        // Offset'in yalnızca üst baytları değişti: CRC tüm 8 baytı kapsamalı
+        shiftLastOffset(directory.resolve(String.format("%020d.log", 0)), 256);
+        journal = open(directory, 1024 * 1024, Long.MAX_VALUE);
+        try {
+            check("Başka offset'e taşınan kayıt atıldı", journal.getNextOffset() == 300);
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static void retentionScenario(Path directory) throws Exception {
+        System.out.println("--- Saklama sınırı ---");
+        MessageJournal journal = open(directory, 16 * 1024, 64 * 1024);
+        try {
+            String payload = "x".repeat(500);
+            for (int i = 0; i < 1000; i++) {
+                journal.append(Frame.ofText(FrameType.TEXT, payload));
+            }
+            awaitOffset(journal, 1000);
+            // Bakım saniyede bir çalışır
+            long deadline = System.currentTimeMillis() + 5000;
+            while (journal.getSegmentCount() > 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            check("Eski segmentler silindi", journal.getSegmentCount() <= 4 && journal.getRetired() > 0);
+            long first = journal.getFirstOffset();
+            long[] start = { -1 };
+            journal.replay(0, Long.MAX_VALUE, (offset, timestamp, frame) -> {
+                if (start[0] < 0) {
+                    start[0] = offset;
+                }
+                return true;
+            });
+            check("Oynatma saklanan ilk offset'ten başladı", first > 0 && start[0] == first);
+            journal.append(Frame.ofText(FrameType.TEXT, "x".repeat(20 * 1024)));
+            long skipDeadline = System.currentTimeMillis() + 2000;
+            while (journal.getSkipped() == 0 && System.currentTimeMillis() < skipDeadline) {
+                Thread.sleep(10);
+            }
+            check("Segmentten büyük mesaj atlandı", journal.getSkipped() == 1 && journal.getNextOffset() == 1000);
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static void serverScenario(Path directory) throws Exception {
+        System.out.println("--- Sunucu REPLAY ---");
+        ChatServer server = new ChatServer(PORT, message -> { }, ServerMode.NIO, 1);
+        server.configureJournal(directory, 1024 * 1024, MessageJournal.DEFAULT_SEGMENT_AGE_MILLIS,
+                MessageJournal.DEFAULT_RETENTION_BYTES, MessageJournal.DEFAULT_RETENTION_MILLIS);
+        new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread").start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+        try {
+            ChatClient early = new ChatClient();
+            early.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            for (int i = 0; i < 20; i++) {
+                early.sendMessage("şifreli-" + i);
+            }
+            for (int i = 0; i < 20; i++) {
+                early.readFrame();
+            }
+            awaitOffset(server.getJournal(), 20);
+
+            ChatClient late = new ChatClient();
+            late.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            late.requestReplay(5);
+            boolean ordered = true;
+            for (int i = 5; i < 20; i++) {
+                Frame frame = late.readFrame();
+                if (frame == null || frame.type() != FrameType.TEXT || !("şifreli-" + i).equals(frame.text())) {
+                    ordered = false;
+                }
+            }
+            check("Geç katılan istemci geçmişi sırayla aldı", ordered);
+            Frame end = late.readFrame();
+            check("Geçmiş sonu bildirildi", end != null && end.type() == FrameType.REPLAY
+                    && "END 20 15".equals(end.text()));
+
+            ChatClient text = new ChatClient();
+            text.connect("127.0.0.1", PORT);
+            text.send(Frame.ofText(FrameType.REPLAY, "time=0-" + Long.MAX_VALUE));
+            int count = 0;
+            Frame frame;
+            while ((frame = text.readFrame()) != null && frame.type() == FrameType.TEXT) {
+                count++;
+            }
+            check("Metin istemcisi zamana göre geçmişi aldı", count == 20 && frame != null
+                    && "END 20 20".equals(frame.text()));
+
+            late.send(Frame.ofText(FrameType.REPLAY, "offset=abc"));
+            Frame error = late.readFrame();
+            check("Geçersiz istek hata döndü", error != null && error.type() == FrameType.SERVER_ERROR);
+
+            early.disconnect();
+            late.disconnect();
+            text.disconnect();
+        } finally {
+            server.stopServer();
+        }
+    }
+
+    private static boolean awaitOffset(MessageJournal journal, long offset) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journal.getNextOffset() < offset) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /**
+     * Son kaydın yükünün son baytını değiştirir
+     */
+    private static void corruptLastRecord(Path log) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            long last = lastRecord(file);
+            file.seek(last);
+            long end = last + file.readInt();
+            file.seek(end - 1);
+            int value = file.read();
+            file.seek(end - 1);
+            file.write(value ^ 0xFF);
+        }
+    }
+
+    /**
+     * Son kaydın offset alanına delta ekler; yük ve CRC olduğu gibi kalır
+     */
+    private static void shiftLastOffset(Path log, long delta) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            long last = lastRecord(file);
+            file.seek(last + 8);
+            long offset = file.readLong();
+            file.seek(last + 8);
+            file.writeLong(offset + delta);
+        }
+    }
+
+    /**
+     * Kayıt uzunluklarını izleyerek son kaydın başlangıcını bulur
+     */
+    private static long lastRecord(RandomAccessFile file) throws IOException {
+        long position = 0;
+        long last = -1;
+        while (position + 4 <= file.length()) {
+            file.seek(position);
+            int length = file.readInt();
+            if (length < JournalSegment.HEADER_LENGTH)
+                break;
+            last = position;
+            position += length;
+        }
+        if (last < 0)
+            throw new IOException("Kayıt bulunamadı");
+        return last;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
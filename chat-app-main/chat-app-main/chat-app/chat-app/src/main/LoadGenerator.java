@@ -0,0 +1,869 @@
+package main;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Loopback üzerindeki bir sunucuya istemci protokolüyle yük bindiren araç.
+ * N istemci ya sanal thread'lerde ChatClient ile (mode=VIRTUAL) ya da tek bir
+ * Selector üzerinde FrameCodec/InboundDecoder ile (mode=SELECTOR) bağlanır.
+ *
+ * Yük açık döngüdür: m. mesajın gönderilmesi gereken an baştan m / rate saniye
+ * sonrasıdır ve mesaj m % N numaralı istemciden gider. Her mesaj gönderenini,
+ * sıra numarasını, planlanan ve gerçek gönderim anını taşır; gönderen kendi
+ * yankısını aldığında gecikme planlanan andan ölçülür (coordinated omission
+ * düzeltmesi). Gerçek gönderim anından ölçülen ham gecikme de ayrıca raporlanır.
+ *
+ * churn verilirse saniyede o kadar rastgele bağlantı kapatılıp yeni bir el sıkışmayla
+ * yeniden açılır; odalı yükte yeni bağlantı başka bir odaya girer. Kapanan bağlantıda
+ * yankısı beklenen mesajlar "yankısı gelmeyen" olarak sayılır.
+ *
+ * Örnek:
+ * <pre>
+ * java main.LoadGenerator server=NIO clients=200 rate=2000 duration=30 size=64-1024 files=0.01 rooms=10 churn=20
+ * </pre>
+ *
+ * Ayarlar (anahtar=değer):
+ * host, port, mode (VIRTUAL|SELECTOR), clients, rate (toplam mesaj/sn),
+ * duration, warmup, drain (sn), size (256 | 64-1024 | exp:256), files (FILE oranı, 0-1),
+ * file.size (bayt), rooms (0 = broadcast), churn (saniyede yenilenen bağlantı),
+ * server (aynı JVM'de başlatılacak sunucunun modu), server.&lt;ayar&gt; (ServerConfig ayarı).
+ */
+public class LoadGenerator {
+
+    private static final String MARKER = "LG ";
+    private static final String FILE_MIME = "application/octet-stream";
+
+    // Ayarlar
+    private String host = "127.0.0.1";
+    private int port = ServerConfig.DEFAULT_PORT;
+    private Mode mode = Mode.VIRTUAL;
+    private int clients = 50;
+    private double rate = 1000;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private int drainSeconds = 2;
+    private SizeDistribution sizes = SizeDistribution.parse("256");
+    private double fileRatio = 0;
+    private int fileSize = 32 * 1024;
+    private int rooms = 0;
+    private double churnPerSecond = 0;
+    private ServerConfig embedded;
+
+    // Çalışma zamanı
+    private long startNanos;
+    private long measureFromNanos;
+    private long endNanos;
+    private double intervalNanos;
+    private String fileData;
+    private volatile boolean stopping = false;
+    // İstemcinin şu anki bağlantısının açıldığı an; öncesinde gönderilenlerin yankısı sayılmaz
+    private AtomicLongArray connectedSince;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder sentFiles = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder measuredSent = new LongAdder();
+    private final LongAdder measuredReceived = new LongAdder();
+    private final LongAdder echoes = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder churnOperations = new LongAdder();
+    private final LongAdder churnFailures = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private final Histogram correctedLatency = new Histogram();
+    private final Histogram rawLatency = new Histogram();
+    private final Histogram fileLatency = new Histogram();
+
+    enum Mode {
+        VIRTUAL, SELECTOR;
+
+        static Mode parse(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Geçersiz argüman (anahtar=değer bekleniyor): " + arg);
+            }
+            generator.set(option.substring(0, separator).trim(), option.substring(separator + 1).trim());
+        }
+        generator.run();
+    }
+
+    void set(String key, String value) {
+        if (key.startsWith("server.")) {
+            embeddedConfig().set(key.substring("server.".length()), value);
+            return;
+        }
+        switch (key) {
+            case "host":
+                host = value;
+                break;
+            case "port":
+                port = Integer.parseInt(value);
+                break;
+            case "mode":
+                mode = Mode.parse(value);
+                break;
+            case "clients":
+                clients = Integer.parseInt(value);
+                break;
+            case "rate":
+                rate = Double.parseDouble(value);
+                break;
+            case "duration":
+                durationSeconds = Integer.parseInt(value);
+                break;
+            case "warmup":
+                warmupSeconds = Integer.parseInt(value);
+                break;
+            case "drain":
+                drainSeconds = Integer.parseInt(value);
+                break;
+            case "size":
+                sizes = SizeDistribution.parse(value);
+                break;
+            case "files":
+                fileRatio = Double.parseDouble(value);
+                break;
+            case "file.size":
+                fileSize = Integer.parseInt(value);
+                break;
+            case "rooms":
+                rooms = Integer.parseInt(value);
+                break;
+            case "churn":
+                churnPerSecond = Double.parseDouble(value);
+                break;
+            case "server":
+                embeddedConfig().set("mode", value);
+                break;
+            default:
+                throw new IllegalArgumentException("Bilinmeyen ayar: " + key);
+        }
+    }
+
+    private ServerConfig embeddedConfig() {
+        if (embedded == null) {
+            embedded = new ServerConfig();
+        }
+        return embedded;
+    }
+
+    void run() throws Exception {
+        if (!InetAddress.getByName(host).isLoopbackAddress()) {
+            throw new IllegalArgumentException("Yük testi yalnızca loopback adresine yapılabilir: " + host);
+        }
+        if (clients <= 0 || rate <= 0 || durationSeconds <= warmupSeconds) {
+            throw new IllegalArgumentException("clients ve rate pozitif, duration warmup'tan büyük olmalı");
+        }
+        ChatServer server = null;
+        if (embedded != null) {
+            embedded.set("port", String.valueOf(port));
+            server = startEmbedded(embedded);
+        }
+        fileData = "A".repeat(fileSize);
+        intervalNanos = 1e9 / rate;
+        connectedSince = new AtomicLongArray(clients);
+        System.out.println("Yük testi: " + clients + " istemci, " + mode + ", " + rate + " msg/sn, "
+                + durationSeconds + " sn (ısınma " + warmupSeconds + " sn), boyut " + sizes
+                + (fileRatio > 0 ? ", FILE oranı " + fileRatio : "")
+                + (rooms > 0 ? ", " + rooms + " oda" : ", broadcast")
+                + (churnPerSecond > 0 ? ", " + churnPerSecond + " bağlantı yenileme/sn" : ""));
+        try {
+            if (mode == Mode.VIRTUAL) {
+                new VirtualDriver().run();
+            } else {
+                new SelectorDriver().run();
+            }
+            printSummary();
+        } finally {
+            if (server != null) {
+                server.stopServer();
+            }
+        }
+    }
+
+    private static ChatServer startEmbedded(ServerConfig config) throws InterruptedException {
+        ChatServer server = config.createServer(message -> { });
+        Thread thread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        thread.setDaemon(true);
+        thread.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!server.isRunning()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Gömülü sunucu başlatılamadı");
+            }
+            Thread.sleep(10);
+        }
+        return server;
+    }
+
+    private void startClock() {
+        startNanos = System.nanoTime() + 100_000_000L;
+        measureFromNanos = startNanos + warmupSeconds * 1_000_000_000L;
+        endNanos = startNanos + durationSeconds * 1_000_000_000L;
+        Thread reporter = new Thread(this::reportProgress, "LoadGen-Report");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    private long intendedTime(long message) {
+        return startNanos + (long) (message * intervalNanos);
+    }
+
+    private long churnTime(long operation) {
+        return startNanos + (long) (operation * 1e9 / churnPerSecond);
+    }
+
+    private static String roomName(int room) {
+        return "lg-" + room;
+    }
+
+    /**
+     * Planlanan mesajı oluşturur: "LG gönderen sıra planlanan gerçek " ve dolgu
+     */
+    private Frame newMessage(int client, long sequence, long intended, int room) {
+        long now = System.nanoTime();
+        String header = MARKER + client + " " + sequence + " " + intended + " " + now + " ";
+        if (fileRatio > 0 && ThreadLocalRandom.current().nextDouble() < fileRatio) {
+            sentFiles.increment();
+            return Frame.ofFile(header + "yuk.bin", FILE_MIME, fileData);
+        }
+        int size = sizes.next();
+        String text = size > header.length() ? header + "x".repeat(size - header.length()) : header;
+        if (room >= 0) {
+            return Frame.ofText(FrameType.ROOM_MSG, roomName(room) + ":" + text);
+        }
+        return Frame.ofText(FrameType.TEXT, text);
+    }
+
+    private void recordSent(long intended, boolean success) {
+        if (!success) {
+            sendFailures.increment();
+            return;
+        }
+        sent.increment();
+        if (intended >= measureFromNanos) {
+            measuredSent.increment();
+        }
+    }
+
+    /**
+     * Gelen çerçeveyi sayar; istemcinin kendi mesajının yankısıysa gecikmeyi kaydeder
+     */
+    private void onReceived(int client, Frame frame, long[] fields) {
+        long now = System.nanoTime();
+        int offset;
+        switch (frame.type()) {
+            case TEXT:
+                offset = 0;
+                break;
+            case ROOM_MSG:
+                offset = -1;
+                break;
+            case FILE:
+                offset = 2;
+                break;
+            case SERVER_ERROR:
+                serverErrors.increment();
+                if (serverErrors.sum() <= 5) {
+                    System.out.println("Sunucu hatası [" + client + "]: " + frame.text());
+                }
+                return;
+            default:
+                return;
+        }
+        received.increment();
+        if (now >= measureFromNanos && now < endNanos) {
+            measuredReceived.increment();
+        }
+        byte[] payload = frame.payload();
+        if (offset < 0) {
+            offset = indexOf(payload, (byte) ':') + 1;
+        }
+        if (!parseHeader(payload, offset, fields) || fields[0] != client
+                || fields[3] < connectedSince.get(client))
+            return;
+        echoes.increment();
+        long intended = fields[2];
+        if (intended < measureFromNanos)
+            return;
+        if (frame.type() == FrameType.FILE) {
+            fileLatency.record(now - intended);
+        } else {
+            correctedLatency.record(now - intended);
+            rawLatency.record(now - fields[3]);
+        }
+    }
+
+    private static int indexOf(byte[] data, byte value) {
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * "LG a b c d " başlığındaki dört sayıyı String oluşturmadan okur
+     */
+    static boolean parseHeader(byte[] data, int offset, long[] fields) {
+        if (offset < 0 || offset + MARKER.length() > data.length
+                || data[offset] != 'L' || data[offset + 1] != 'G' || data[offset + 2] != ' ')
+            return false;
+        int position = offset + MARKER.length();
+        for (int field = 0; field < fields.length; field++) {
+            long value = 0;
+            int digits = 0;
+            while (position < data.length && data[position] >= '0' && data[position] <= '9') {
+                value = value * 10 + (data[position++] - '0');
+                digits++;
+            }
+            if (digits == 0 || position >= data.length || data[position] != ' ')
+                return false;
+            fields[field] = value;
+            position++;
+        }
+        return true;
+    }
+
+    private void reportProgress() {
+        long lastSent = 0;
+        long lastReceived = 0;
+        long nextReport = startNanos + 1_000_000_000L;
+        while (!stopping) {
+            long wait = nextReport - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            long second = (nextReport - startNanos) / 1_000_000_000L;
+            long currentSent = sent.sum();
+            long currentReceived = received.sum();
+            System.out.printf("[%3d sn] gönderilen=%d/sn alınan=%d/sn yankı p99=%.0f µs%s%n",
+                    second, currentSent - lastSent, currentReceived - lastReceived,
+                    correctedLatency.snapshot(1000.0).getP99(),
+                    second <= warmupSeconds ? " (ısınma)" : "");
+            lastSent = currentSent;
+            lastReceived = currentReceived;
+            nextReport += 1_000_000_000L;
+        }
+    }
+
+    private void printSummary() {
+        double seconds = durationSeconds - warmupSeconds;
+        long expectedEchoes = sent.sum();
+        System.out.println("\n=== Sonuç (" + mode + ", " + clients + " istemci, ölçüm " + (int) seconds + " sn) ===");
+        System.out.printf("Gönderilen: %d (%.0f msg/sn), dosya: %d, gönderilemeyen: %d%n",
+                sent.sum(), measuredSent.sum() / seconds, sentFiles.sum(), sendFailures.sum());
+        System.out.printf("Alınan (fan-out dahil): %d (%.0f msg/sn)%n",
+                received.sum(), measuredReceived.sum() / seconds);
+        System.out.println("Yankısı gelmeyen: " + Math.max(0, expectedEchoes - echoes.sum())
+                + ", sunucu hatası: " + serverErrors.sum() + ", kopan bağlantı: " + disconnects.sum()
+                + ", yenilenen bağlantı: " + churnOperations.sum()
+                + (churnFailures.sum() > 0 ? " (yenilenemeyen: " + churnFailures.sum() + ")" : ""));
+        System.out.println("Uçtan uca gecikme µs (planlanan andan): " + correctedLatency.snapshot(1000.0));
+        System.out.println("Uçtan uca gecikme µs (gönderim anından): " + rawLatency.snapshot(1000.0));
+        if (fileLatency.getCount() > 0) {
+            System.out.println("FILE gecikmesi µs (planlanan andan): " + fileLatency.snapshot(1000.0));
+        }
+    }
+
+    /**
+     * Her istemci için bir gönderen ve bir okuyan sanal thread; gönderim ChatClient üzerinden
+     */
+    private final class VirtualDriver {
+
+        // Okuyan thread kilitsiz okur; yenilenen bağlantı yerine konunca görmesi gerekir
+        private final AtomicReferenceArray<ChatClient> connections = new AtomicReferenceArray<>(clients);
+        private final ReentrantLock[] locks = new ReentrantLock[clients];
+        private final AtomicIntegerArray currentRoom = new AtomicIntegerArray(clients);
+
+        void run() throws Exception {
+            for (int i = 0; i < clients; i++) {
+                int room = rooms > 0 ? i % rooms : -1;
+                connections.set(i, open(i, room));
+                locks[i] = new ReentrantLock();
+                currentRoom.set(i, room);
+            }
+            startClock();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int index = i;
+                threads.add(Thread.ofVirtual().name("LoadGen-Reader-" + i).start(() -> read(index)));
+                threads.add(Thread.ofVirtual().name("LoadGen-Sender-" + i).start(() -> send(index)));
+            }
+            Thread churn = null;
+            if (churnPerSecond > 0) {
+                churn = Thread.ofVirtual().name("LoadGen-Churn").start(this::churn);
+            }
+            LockSupport.parkNanos(endNanos - System.nanoTime() + drainSeconds * 1_000_000_000L);
+            stopping = true;
+            if (churn != null) {
+                churn.join();
+            }
+            for (int i = 0; i < clients; i++) {
+                connections.get(i).disconnect();
+            }
+            for (Thread thread : threads) {
+                thread.join(5000);
+            }
+        }
+
+        /**
+         * Yeni bağlantı açar, el sıkışır ve varsa odaya girer
+         */
+        private ChatClient open(int index, int room) throws IOException {
+            connectedSince.set(index, System.nanoTime());
+            ChatClient client = new ChatClient();
+            client.connect(host, port, WireProtocol.BINARY);
+            if (room >= 0) {
+                client.send(Frame.ofText(FrameType.ROOM_JOIN, roomName(room)));
+            }
+            return client;
+        }
+
+        private void send(int index) {
+            for (long message = index, sequence = 0; !stopping; message += clients, sequence++) {
+                long intended = intendedTime(message);
+                if (intended >= endNanos)
+                    return;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                locks[index].lock();
+                try {
+                    Frame frame = newMessage(index, sequence, intended, currentRoom.get(index));
+                    recordSent(intended, connections.get(index).send(frame));
+                } finally {
+                    locks[index].unlock();
+                }
+            }
+        }
+
+        /**
+         * Bağlantı kapanınca yerine yenisi konduysa onu okumaya devam eder
+         */
+        private void read(int index) {
+            long[] fields = new long[4];
+            ChatClient client = connections.get(index);
+            while (true) {
+                try {
+                    while (true) {
+                        Frame frame = client.readFrame();
+                        if (frame == null)
+                            break;
+                        onReceived(index, frame, fields);
+                    }
+                } catch (IOException e) {
+                    // Bağlantı kapandı
+                }
+                ChatClient current = connections.get(index);
+                if (current == client || stopping)
+                    break;
+                client = current;
+            }
+            if (!stopping) {
+                disconnects.increment();
+            }
+        }
+
+        /**
+         * Rastgele bir istemcinin bağlantısını yeni bir el sıkışmayla yeniden açar.
+         * Yeni bağlantı (odalı yükte başka bir odaya girerek) kilit dışında kurulur;
+         * kilit altında yerine konup eskisi kapatılır, böylece gönderen beklemez ve
+         * arada gönderilen mesajlar "odada değilsiniz" hatası almaz.
+         */
+        private void churn() {
+            for (long operation = 0; !stopping; operation++) {
+                long due = churnTime(operation);
+                if (due >= endNanos)
+                    return;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                int index = ThreadLocalRandom.current().nextInt(clients);
+                int from = currentRoom.get(index);
+                int to = nextRoom(from);
+                int room = to < 0 ? from : to;
+                ChatClient fresh;
+                try {
+                    fresh = open(index, room);
+                } catch (IOException e) {
+                    churnFailures.increment();
+                    continue;
+                }
+                ChatClient old;
+                locks[index].lock();
+                try {
+                    old = connections.getAndSet(index, fresh);
+                    currentRoom.set(index, room);
+                } finally {
+                    locks[index].unlock();
+                }
+                old.disconnect();
+                churnOperations.increment();
+            }
+        }
+    }
+
+    /**
+     * Oda değişiminde hedef oda; değiştirilecek oda yoksa (broadcast veya tek oda) -1
+     */
+    private int nextRoom(int from) {
+        if (rooms < 2 || from < 0)
+            return -1;
+        return (from + 1 + ThreadLocalRandom.current().nextInt(rooms - 1)) % rooms;
+    }
+
+    /**
+     * Tüm bağlantılar tek thread ve tek Selector üzerinde; gönderim FrameCodec ile kodlanıp
+     * bağlantı başına bekleyen tampon kuyruğundan non-blocking yazılır
+     */
+    private final class SelectorDriver {
+
+        private final class Connection implements InboundDecoder.FrameHandler {
+            final int index;
+            final SocketChannel channel;
+            final InboundDecoder decoder = new InboundDecoder(FrameCodec.HELLO_ACK, this);
+            final ArrayDeque<SharedBuffer> pending = new ArrayDeque<>();
+            ByteBuffer writing;
+            SelectionKey key;
+            int room = -1;
+            long sequence = 0;
+            boolean closed = false;
+
+            Connection(int index, SocketChannel channel) {
+                this.index = index;
+                this.channel = channel;
+            }
+
+            @Override
+            public void onFrame(Frame frame) {
+                onReceived(index, frame, fields);
+            }
+
+            void send(Frame frame) throws IOException {
+                pending.add(FrameCodec.encode(frame, WireProtocol.BINARY));
+                flush();
+            }
+
+            /**
+             * Bağlantı kurulunca bekleyen el sıkışma ve çerçeveleri yazmaya başlar
+             */
+            void finishConnect() throws IOException {
+                if (channel.finishConnect()) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    flush();
+                }
+            }
+
+            void flush() throws IOException {
+                if (channel.isConnectionPending())
+                    return;
+                while (!pending.isEmpty()) {
+                    if (writing == null) {
+                        writing = pending.peek().view();
+                    }
+                    channel.write(writing);
+                    if (writing.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    pending.poll().release();
+                    writing = null;
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            }
+
+            void close() {
+                closed = true;
+                key.cancel();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                while (!pending.isEmpty()) {
+                    pending.poll().release();
+                }
+            }
+        }
+
+        private final long[] fields = new long[4];
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        private final Connection[] connections = new Connection[clients];
+        private Selector selector;
+
+        void run() throws IOException {
+            selector = Selector.open();
+            try {
+                connect();
+                startClock();
+                loop();
+            } finally {
+                stopping = true;
+                for (Connection connection : connections) {
+                    if (connection != null && !connection.closed) {
+                        connection.close();
+                    }
+                }
+                selector.close();
+            }
+        }
+
+        private void connect() throws IOException {
+            for (int i = 0; i < clients; i++) {
+                connections[i] = open(i);
+            }
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            int ready = 0;
+            while (ready < clients) {
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("El sıkışma tamamlanamadı (" + ready + "/" + clients + ")");
+                }
+                selector.select(100);
+                processKeys();
+                ready = 0;
+                for (Connection connection : connections) {
+                    if (connection.decoder.getProtocol() == WireProtocol.BINARY) {
+                        ready++;
+                    }
+                }
+            }
+            if (rooms > 0) {
+                for (Connection connection : connections) {
+                    connection.room = connection.index % rooms;
+                    connection.send(Frame.ofText(FrameType.ROOM_JOIN, roomName(connection.room)));
+                }
+            }
+        }
+
+        /**
+         * Non-blocking bağlantı açar; el sıkışma satırı bağlantı kurulunca yazılır.
+         * Sunucu HELLO satırını okuyunca ikili moda geçtiğinden ardından gelen
+         * çerçeveler yanıtı beklemeden kuyruğa eklenebilir.
+         */
+        private Connection open(int index) throws IOException {
+            connectedSince.set(index, System.nanoTime());
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.configureBlocking(false);
+                boolean connected = channel.connect(new InetSocketAddress(host, port));
+                Connection connection = new Connection(index, channel);
+                connection.pending.add(SharedBuffer.encodeLine(FrameCodec.HELLO_REQUEST));
+                connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                if (connected) {
+                    connection.finishConnect();
+                }
+                return connection;
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void loop() throws IOException {
+            long message = 0;
+            long operation = 0;
+            long stopAt = endNanos + drainSeconds * 1_000_000_000L;
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= stopAt)
+                    return;
+                long nextDue = stopAt;
+                if (intendedTime(message) < endNanos) {
+                    nextDue = Math.min(nextDue, intendedTime(message));
+                }
+                if (churnPerSecond > 0 && churnTime(operation) < endNanos) {
+                    nextDue = Math.min(nextDue, churnTime(operation));
+                }
+                long waitMillis = (nextDue - now) / 1_000_000L;
+                if (waitMillis > 0) {
+                    selector.select(waitMillis);
+                } else {
+                    selector.selectNow();
+                }
+                processKeys();
+
+                now = System.nanoTime();
+                for (long intended = intendedTime(message); intended <= now && intended < endNanos;
+                        intended = intendedTime(++message)) {
+                    Connection connection = connections[(int) (message % clients)];
+                    if (connection.closed) {
+                        recordSent(intended, false);
+                        continue;
+                    }
+                    Frame frame = newMessage(connection.index, connection.sequence++, intended, connection.room);
+                    recordSent(intended, send(connection, frame));
+                }
+                if (churnPerSecond > 0) {
+                    for (long due = churnTime(operation); due <= now && due < endNanos; due = churnTime(++operation)) {
+                        churn(connections[ThreadLocalRandom.current().nextInt(clients)]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Bağlantıyı kapatıp yerine yeni bir el sıkışmayla açılan bağlantıyı koyar;
+         * odalı yükte yeni bağlantı başka bir odaya girer. Kopmuş bağlantılar yenilenmez.
+         */
+        private void churn(Connection connection) {
+            if (connection.closed)
+                return;
+            Connection fresh;
+            try {
+                fresh = open(connection.index);
+            } catch (IOException e) {
+                churnFailures.increment();
+                return;
+            }
+            connection.close();
+            connections[fresh.index] = fresh;
+            fresh.sequence = connection.sequence;
+            int to = nextRoom(connection.room);
+            fresh.room = to < 0 ? connection.room : to;
+            if (fresh.room < 0 || send(fresh, Frame.ofText(FrameType.ROOM_JOIN, roomName(fresh.room)))) {
+                churnOperations.increment();
+            }
+        }
+
+        private boolean send(Connection connection, Frame frame) {
+            try {
+                connection.send(frame);
+                return true;
+            } catch (IOException e) {
+                lost(connection);
+                return false;
+            }
+        }
+
+        private void processKeys() {
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isValid() && key.isConnectable()) {
+                        connection.finishConnect();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(connection);
+                    }
+                } catch (IOException e) {
+                    lost(connection);
+                }
+            }
+        }
+
+        private void read(Connection connection) throws IOException {
+            while (true) {
+                readBuffer.clear();
+                int count = connection.channel.read(readBuffer);
+                if (count < 0) {
+                    lost(connection);
+                    return;
+                }
+                if (count == 0)
+                    return;
+                readBuffer.flip();
+                connection.decoder.feed(readBuffer);
+            }
+        }
+
+        private void lost(Connection connection) {
+            if (connection.closed)
+                return;
+            connection.close();
+            if (!stopping) {
+                disconnects.increment();
+            }
+        }
+    }
+
+    /**
+     * Mesaj boyutu dağılımı: sabit ("256"), düzgün ("64-1024") veya üstel ("exp:256", ortalama)
+     */
+    static final class SizeDistribution {
+
+        private final int min;
+        private final int max;
+        private final double mean;
+        private final String text;
+
+        private SizeDistribution(int min, int max, double mean, String text) {
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.text = text;
+        }
+
+        static SizeDistribution parse(String value) {
+            if (value.startsWith("exp:")) {
+                return new SizeDistribution(1, FrameCodec.MAX_FRAME_LENGTH / 2,
+                        Double.parseDouble(value.substring(4)), value);
+            }
+            int dash = value.indexOf('-');
+            if (dash > 0) {
+                int low = Integer.parseInt(value.substring(0, dash));
+                int high = Integer.parseInt(value.substring(dash + 1));
+                if (low <= 0 || high < low) {
+                    throw new IllegalArgumentException("Geçersiz boyut aralığı: " + value);
+                }
+                return new SizeDistribution(low, high, 0, value);
+            }
+            int fixed = Integer.parseInt(value);
+            return new SizeDistribution(fixed, fixed, 0, value);
+        }
+
+        int next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (mean > 0) {
+                double sample = -mean * Math.log(1 - random.nextDouble());
+                return (int) Math.max(min, Math.min(max, Math.round(sample)));
+            }
+            return min == max ? min : random.nextInt(min, max + 1);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
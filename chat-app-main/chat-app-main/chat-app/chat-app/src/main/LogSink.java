@@ -0,0 +1,20 @@
+package main;
+
+/**
+ * AsyncLogger'ın biçimlendirilmiş satırları gönderdiği hedef (ekran, dosya...).
+ * Tüm metotlar yalnızca logger'ın tüketici thread'inden çağrılır.
+ */
+public interface LogSink {
+
+    /**
+     * lines dizisinin ilk count elemanı yazılır; dizi çağrıdan sonra tekrar kullanılır
+     */
+    void write(String[] lines, int count);
+
+    /** Tampon boşaldığında çağrılır */
+    default void flush() {
+    }
+
+    default void close() {
+    }
+}
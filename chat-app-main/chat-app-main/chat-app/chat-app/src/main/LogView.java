@@ -0,0 +1,131 @@
+package main;
+
+import javax.swing.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Sunucu loglarının ekrandaki görünümü.
+ * Yalnızca son N satırı tutan halka tampon üzerinde bir JList'tir; JList yalnızca
+ * görünen satırları çizer ve sabit satır yüksekliği sayesinde satırları ölçmez.
+ * Logger'dan gelen satırlar önce bekleme listesine alınır ve sabit bir kare hızında
+ * (Swing Timer) tek seferde listeye aktarılır, yani her log satırı için EDT'ye iş gönderilmez.
+ */
+public class LogView extends JList<String> implements LogSink {
+
+    public static final int DEFAULT_MAX_LINES = 5000;
+    private static final int REFRESH_MILLIS = 100;
+
+    private final RingModel model;
+    // Logger thread'i ekler, EDT alır; ekrana sığmayacak kadar birikirse eskiler atılır
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+
+    public LogView(int maxLines) {
+        this.model = new RingModel(maxLines);
+        setModel(model);
+        setFixedCellHeight(18);
+        setFixedCellWidth(100);
+        new Timer(REFRESH_MILLIS, e -> refresh()).start();
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public void write(String[] lines, int count) {
+        synchronized (pending) {
+            for (int i = 0; i < count; i++) {
+                if (pending.size() == model.capacity()) {
+                    pending.pollFirst();
+                }
+                pending.addLast(lines[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (pending) {
+            pending.clear();
+        }
+        model.clear();
+    }
+
+    private void refresh() {
+        String[] lines;
+        synchronized (pending) {
+            if (pending.isEmpty())
+                return;
+            lines = pending.toArray(new String[0]);
+            pending.clear();
+        }
+        JScrollBar bar = getParent() instanceof JViewport && getParent().getParent() instanceof JScrollPane
+                ? ((JScrollPane) getParent().getParent()).getVerticalScrollBar()
+                : null;
+        // Kullanıcı yukarı kaydırmadıysa son satır görünür kalır
+        boolean atBottom = bar == null
+                || bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - getFixedCellHeight();
+        model.addAll(lines);
+        if (atBottom) {
+            ensureIndexIsVisible(model.getSize() - 1);
+        }
+    }
+
+    /**
+     * En fazla capacity satırı tutan halka tampon; yalnızca EDT'den değiştirilir
+     */
+    private static final class RingModel extends AbstractListModel<String> {
+        private final String[] lines;
+        private int start = 0;
+        private int size = 0;
+
+        RingModel(int capacity) {
+            this.lines = new String[Math.max(1, capacity)];
+        }
+
+        int capacity() {
+            return lines.length;
+        }
+
+        void addAll(String[] added) {
+            int oldSize = size;
+            for (String line : added) {
+                if (size < lines.length) {
+                    lines[(start + size) % lines.length] = line;
+                    size++;
+                } else {
+                    lines[start] = line;
+                    start = (start + 1) % lines.length;
+                }
+            }
+            if (size > oldSize) {
+                fireIntervalAdded(this, oldSize, size - 1);
+            }
+            if (oldSize + added.length > size) {
+                // Eski satırlar kaydı; görünen hücreler yeniden çizilir
+                fireContentsChanged(this, 0, size - 1);
+            }
+        }
+
+        void clear() {
+            int oldSize = size;
+            Arrays.fill(lines, null);
+            start = 0;
+            size = 0;
+            if (oldSize > 0) {
+                fireIntervalRemoved(this, 0, oldSize - 1);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return lines[(start + index) % lines.length];
+        }
+    }
+}
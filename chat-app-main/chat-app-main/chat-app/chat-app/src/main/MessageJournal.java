@@ -0,0 +1,388 @@
+package main;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Broadcast edilen mesajların yalnızca eklenen (append-only) günlüğü.
+ * Her mesaj, istemcinin gönderdiği şifreli haliyle (sunucu çözmez) sıradaki
+ * offset ve alındığı zamanla birlikte saklanır; geç katılan veya bağlantısı
+ * kopan istemciye offset ya da zaman aralığıyla yeniden gönderilebilir.
+ *
+ * - Yazma broadcast() yolunda yapılmaz: append() mesajı sınırlı bir kuyruğa
+ *   koyar, "Journal-Writer" thread'i belleğe eşlenmiş segment dosyasına yazar.
+ *   Kuyruk doluysa mesaj günlüğe alınmaz ve atılan olarak sayılır.
+ * - Grup commit: en fazla 5 ms'de bir, o ana kadar biriken mesajlar birlikte
+ *   yazılır ve yalnızca yazılan bölge tek bir force() ile diske zorlanır
+ * - Segmentler boyut veya yaş sınırında yenisine geçer; toplam boyut veya
+ *   yaş sınırını aşan en eski segmentler silinir
+ * - Okuyucular yalnızca commit edilmiş kayıtları görür ve yazıcıyı beklemez
+ */
+public class MessageJournal {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_SEGMENT_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_RETENTION_BYTES = 1024L * 1024 * 1024;
+    public static final long DEFAULT_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final int QUEUE_CAPACITY = 16 * 1024;
+    private static final int MAX_BATCH = 1024;
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 1000;
+    // İki commit arasındaki en kısa süre: yoğunlukta mesajlar bu pencerede birikir ve tek force() ile yazılır
+    private static final long COMMIT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * Yeniden oynatılan her kayıt için çağrılır
+     */
+    public interface RecordHandler {
+        /**
+         * @return false dönerse oynatma durur
+         */
+        boolean onRecord(long offset, long timestamp, Frame frame);
+    }
+
+    private record Pending(Frame frame, long timestamp) {
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long segmentAgeMillis;
+    private final long retentionBytes;
+    private final long retentionMillis;
+    private final ServerListener listener;
+    private final ArrayBlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder retired = new LongAdder();
+
+    // Okuyucular anlık görüntüyü kullanır; yalnızca yazıcı değiştirir
+    private volatile List<JournalSegment> segments = List.of();
+    private volatile boolean running = false;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private Thread writer;
+    // Yalnızca Journal-Writer thread'i kullanır
+    private JournalSegment active;
+    private long nextOffset;
+    private long lastTimestamp;
+    private long lastMaintenance;
+    private long lastCommitNanos;
+
+    /**
+     * @param directory        segment dosyalarının dizini (yoksa oluşturulur)
+     * @param segmentBytes     bir segmentin en büyük boyutu
+     * @param segmentAgeMillis ilk kaydından bu kadar sonra segment yenisine geçer
+     * @param retentionBytes   tüm segmentlerin toplam boyut sınırı
+     * @param retentionMillis  son kaydı bundan eski segmentler silinir
+     */
+    public MessageJournal(Path directory, long segmentBytes, long segmentAgeMillis, long retentionBytes,
+            long retentionMillis, ServerListener listener) {
+        if (segmentBytes <= JournalSegment.HEADER_LENGTH || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Geçersiz segment boyutu: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = (int) segmentBytes;
+        this.segmentAgeMillis = segmentAgeMillis;
+        this.retentionBytes = retentionBytes;
+        this.retentionMillis = retentionMillis;
+        this.listener = listener;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Dizini kilitler, mevcut segmentleri kurtarır ve yazıcı thread'ini başlatır
+     */
+    public synchronized void open() throws IOException {
+        if (running)
+            return;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Günlük dizini başka bir süreç tarafından kullanılıyor: " + directory);
+        }
+
+        List<JournalSegment> recovered = new ArrayList<>();
+        try {
+            List<Long> bases = new ArrayList<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.matches("\\d{20}\\.log"))
+                        .forEach(name -> bases.add(Long.parseLong(name.substring(0, 20))));
+            }
+            bases.sort(null);
+            for (long base : bases) {
+                recovered.add(JournalSegment.recover(directory, base));
+            }
+            if (recovered.isEmpty()) {
+                recovered.add(JournalSegment.create(directory, 0, segmentBytes));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (JournalSegment segment : recovered) {
+                segment.close();
+            }
+            lockChannel.close();
+            throw e;
+        }
+        active = recovered.get(recovered.size() - 1);
+        nextOffset = active.getNextOffset();
+        lastTimestamp = Math.max(active.getLastTimestamp(), 0);
+        segments = List.copyOf(recovered);
+
+        running = true;
+        writer = Thread.ofPlatform().name("Journal-Writer").daemon(true).start(this::writeLoop);
+        listener.onLog("Mesaj günlüğü açıldı: " + directory + ", " + recovered.size() + " segment, offset "
+                + getFirstOffset() + "-" + nextOffset);
+    }
+
+    /**
+     * Kuyruktaki mesajları yazıp günlüğü kapatır
+     */
+    public synchronized void close() {
+        if (!running)
+            return;
+        running = false;
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Yazıcı durduktan sonra kuyruğa girenler
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            releaseSpool(pending.frame());
+        }
+        for (JournalSegment segment : segments) {
+            segment.close();
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException ignored) {
+        }
+        listener.onLog(String.format("Günlük istatistiği: %d mesaj yazıldı (%d commit), %d atıldı, %d çok büyük; "
+                + "%d segment silindi", appended.sum(), commits.sum(), dropped.sum(), skipped.sum(), retired.sum()));
+    }
+
+    /**
+     * Mesajı günlüğe yazılmak üzere kuyruğa koyar; bloklamaz
+     */
+    public void append(Frame frame) {
+        if (!running)
+            return;
+        SpoolFile spool = frame.spool();
+        if (spool != null) {
+            // Çerçeve yazıcı thread'inde okunana kadar spool dosyası silinmesin
+            spool.retain();
+        }
+        if (!queue.offer(new Pending(frame, System.currentTimeMillis()))) {
+            dropped.increment();
+            releaseSpool(frame);
+        }
+    }
+
+    private static void releaseSpool(Frame frame) {
+        if (frame.spool() != null) {
+            frame.spool().release();
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    // Yazıcı uyanıp her mesaj için ayrı force() yapmasın; bekleme broadcast'i geciktirmez
+                    long wait = lastCommitNanos + COMMIT_INTERVAL_NANOS - System.nanoTime();
+                    if (wait > 0 && running) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    write(batch);
+                }
+                maintain();
+            } catch (InterruptedException e) {
+                // close() kuyruk boşalana kadar bekler; kesme yalnızca beklemeyi bitirir
+            } catch (IOException | RuntimeException e) {
+                listener.onLog("Günlük yazma hatası: " + e.getMessage());
+            } finally {
+                for (Pending pending : batch) {
+                    releaseSpool(pending.frame());
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Toplu yazma ve tek commit (grup commit)
+     */
+    private void write(List<Pending> batch) throws IOException {
+        for (Pending pending : batch) {
+            Frame frame = pending.frame();
+            byte[] payload = frame.payload();
+            if ((long) JournalSegment.HEADER_LENGTH + payload.length > segmentBytes) {
+                skipped.increment();
+                continue;
+            }
+            // Zaman damgaları offset sırasıyla artar; zamana göre arama buna dayanır
+            long timestamp = Math.max(pending.timestamp(), lastTimestamp);
+            if (!active.append(nextOffset, timestamp, frame.type(), payload)) {
+                roll();
+                active.append(nextOffset, timestamp, frame.type(), payload);
+            }
+            lastTimestamp = timestamp;
+            nextOffset++;
+            appended.increment();
+        }
+        active.commit(true);
+        commits.increment();
+        lastCommitNanos = System.nanoTime();
+    }
+
+    private void roll() throws IOException {
+        active.commit(true);
+        JournalSegment next = JournalSegment.create(directory, nextOffset, segmentBytes);
+        List<JournalSegment> updated = new ArrayList<>(segments);
+        updated.add(next);
+        segments = List.copyOf(updated);
+        active = next;
+    }
+
+    /**
+     * Yaşı dolan segmenti kapatır, saklama sınırını aşan eski segmentleri siler
+     */
+    private void maintain() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastMaintenance < MAINTENANCE_INTERVAL_MILLIS)
+            return;
+        lastMaintenance = now;
+        if (!active.isEmpty() && now - active.getFirstTimestamp() >= segmentAgeMillis) {
+            roll();
+        }
+        List<JournalSegment> current = segments;
+        long total = 0;
+        for (JournalSegment segment : current) {
+            total += segment.getCapacity();
+        }
+        int remove = 0;
+        while (remove < current.size() - 1) {
+            JournalSegment oldest = current.get(remove);
+            if (total <= retentionBytes && now - oldest.getLastTimestamp() <= retentionMillis)
+                break;
+            total -= oldest.getCapacity();
+            remove++;
+        }
+        if (remove == 0)
+            return;
+        segments = List.copyOf(current.subList(remove, current.size()));
+        for (JournalSegment segment : current.subList(0, remove)) {
+            // Bu sırada okuyan varsa eşlenmiş bellek okuma bitene kadar geçerli kalır
+            segment.delete();
+            retired.increment();
+        }
+    }
+
+    /**
+     * [fromOffset, toOffset) aralığındaki kayıtları sırayla verir
+     *
+     * @return bir sonraki istekte kullanılacak offset
+     */
+    public long replay(long fromOffset, long toOffset, RecordHandler handler) {
+        return scan(fromOffset, toOffset, Long.MIN_VALUE, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * [fromMillis, toMillis) aralığında alınmış kayıtları sırayla verir
+     *
+     * @return bir sonraki istekte kullanılacak offset
+     */
+    public long replayTime(long fromMillis, long toMillis, RecordHandler handler) {
+        return scan(0, Long.MAX_VALUE, fromMillis, toMillis, handler);
+    }
+
+    private long scan(long fromOffset, long toOffset, long fromMillis, long toMillis, RecordHandler handler) {
+        long next = fromOffset;
+        for (JournalSegment segment : segments) {
+            if (segment.getNextOffset() <= next || segment.getLastTimestamp() < fromMillis)
+                continue;
+            if (segment.baseOffset >= toOffset || segment.getFirstTimestamp() >= toMillis)
+                break;
+            int position = Math.max(segment.positionOf(next), segment.positionOfTime(fromMillis));
+            JournalSegment.Entry entry;
+            while ((entry = segment.read(position)) != null) {
+                position = entry.next();
+                if (entry.offset() < next || entry.timestamp() < fromMillis)
+                    continue;
+                if (entry.offset() >= toOffset || entry.timestamp() >= toMillis)
+                    return next;
+                next = entry.offset() + 1;
+                if (!handler.onRecord(entry.offset(), entry.timestamp(), Frame.ofPayload(entry.type(),
+                        entry.payload())))
+                    return next;
+            }
+        }
+        return next;
+    }
+
+    /** Saklanan en eski kaydın offset'i */
+    public long getFirstOffset() {
+        List<JournalSegment> current = segments;
+        return current.isEmpty() ? 0 : current.get(0).baseOffset;
+    }
+
+    /** Bir sonraki yazılacak kaydın offset'i (commit edilmiş) */
+    public long getNextOffset() {
+        List<JournalSegment> current = segments;
+        return current.isEmpty() ? 0 : current.get(current.size() - 1).getNextOffset();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    public long getRetired() {
+        return retired.sum();
+    }
+}
@@ -0,0 +1,265 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NIO modunda tek bir istemci bağlantısı.
+ * ClientHandler ile aynı protokolleri konuşur (eski satır protokolü veya el sıkışma
+ * sonrası ikili çerçeveler), fakat okuma ve yazma işlemleri kendi reactor
+ * thread'inde non-blocking yapılır.
+ */
+public class NioConnection implements ClientConnection {
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final SocketChannel channel;
+    private final NioReactor reactor;
+    private final ChatServer server;
+    private final String clientId;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final OutboundQueue outbound;
+    private final InboundDecoder decoder;
+    private final RateLimiter limiter;
+    private final String remoteAddress;
+    // Hız sınırı nedeniyle okuma durdurulduysa yeniden açılacağı an; yalnızca reactor thread'i erişir
+    private boolean readPaused = false;
+    private long resumeReadAt;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private SelectionKey key;
+    // Yazılmakta olan mesaj grubu; yalnızca reactor thread'i erişir
+    private final WriteBatch batch;
+
+    public NioConnection(SocketChannel channel, NioReactor reactor, ChatServer server) throws IOException {
+        this.channel = channel;
+        this.reactor = reactor;
+        this.server = server;
+        this.outbound = server.newOutboundQueue();
+        this.batch = new WriteBatch(server);
+        this.limiter = server.newRateLimiter(this);
+        this.decoder = server.newInboundDecoder(this, limiter);
+        java.net.InetSocketAddress remote = (java.net.InetSocketAddress) channel.getRemoteAddress();
+        this.remoteAddress = remote.getAddress().getHostAddress();
+        this.clientId = remoteAddress + ":" + remote.getPort();
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+        if (closed.get()) {
+            key.cancel();
+            return;
+        }
+        // Kayıttan önce kuyruğa giren mesajlar (geçmiş veya o arada gelen broadcast)
+        if (!outbound.isEmpty() && writeScheduled.compareAndSet(false, true)) {
+            flush();
+        }
+    }
+
+    /**
+     * Reactor thread'inde çağrılır: okunabilen tüm veriyi alır ve tamamlanan çerçeveleri işler
+     */
+    void onReadable() {
+        try {
+            int read = 0;
+            while (!readPaused && (read = channel.read(readBuffer)) > 0) {
+                server.recordRead(read);
+                limiter.admitBytes(read);
+                decodeReadBuffer();
+                if (closed.get())
+                    return;
+            }
+            if (read < 0) {
+                close();
+            }
+        } catch (IOException e) {
+            server.getListener().onLog("İstemci bağlantısı kesildi veya hata oluştu: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Okuma tamponundaki çerçeveleri çözer; okuma durdurulduysa çözülmeyen baytlar tamponda kalır
+     */
+    private void decodeReadBuffer() throws IOException {
+        readBuffer.flip();
+        decoder.feed(readBuffer);
+        readBuffer.compact();
+    }
+
+    /**
+     * Reactor thread'inde çağrılır: kuyruktaki veriyi soket kabul ettiği kadar yazar.
+     * Yazma istekleri reactor döngüsünün sonunda işlendiği için aynı turda kuyruğa
+     * giren mesajlar tek bir gathering write ile gider; soket doluysa OP_WRITE beklenir.
+     */
+    void flush() {
+        if (closed.get())
+            return;
+        if (key == null) {
+            // Henüz reactor'a kaydedilmedi; attach() kuyruktakileri yazar
+            writeScheduled.set(false);
+            return;
+        }
+        try {
+            while (true) {
+                if (batch.isEmpty()) {
+                    batch.fill(outbound);
+                }
+                while (!batch.isEmpty()) {
+                    if (!batch.writeTo(channel)) {
+                        // Soket tamponu dolu, yazılabilir olunca devam edilecek
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    batch.fill(outbound);
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                writeScheduled.set(false);
+                // Bayrak kapatılırken eklenen mesajı kaçırmamak için tekrar kontrol et
+                if (outbound.isEmpty() || !writeScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (IOException | CancelledKeyException e) {
+            // Bağlantı başka bir thread'den (ör. geçmiş aktarımı sırasında) kapatılmış olabilir
+            close();
+        }
+    }
+
+    @Override
+    public WireProtocol getProtocol() {
+        return outbound.protocol();
+    }
+
+    @Override
+    public void switchToBinary() {
+        SharedBuffer ack = SharedBuffer.encodeSwitchLine(FrameCodec.HELLO_ACK, WireProtocol.BINARY);
+        outbound.switchProtocol(ack);
+        ack.release();
+        requestWrite();
+    }
+
+    @Override
+    public boolean send(SharedBuffer frame, long historySequence) {
+        if (closed.get())
+            return true;
+        switch (outbound.offer(frame, historySequence)) {
+            case OVERFLOW:
+                server.disconnectSlowConsumer(this);
+                return true;
+            case WRONG_PROTOCOL:
+                return false;
+            default:
+                requestWrite();
+                return true;
+        }
+    }
+
+    private void requestWrite() {
+        if (writeScheduled.compareAndSet(false, true)) {
+            reactor.requestWrite(this);
+        }
+    }
+
+    /**
+     * Reactor'a kaydedilmeden önce çağrılır; kuyruğa alınan geçmiş attach() sırasında yazılır
+     */
+    @Override
+    public int preloadHistory(Runnable register, HistoryRing history, int maxMessages) {
+        return outbound.preload(register, history, maxMessages);
+    }
+
+    private void releaseBuffers() {
+        decoder.close();
+        batch.release();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return outbound.depth();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return outbound.droppedCount();
+    }
+
+    @Override
+    public String getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Reactor thread'i bekletilemez: decoder bir sonraki çerçevede durdurulur, OP_READ
+     * kapatılır ve süre dolunca zamanlayıcı reactor'a okumayı yeniden açtırır. Bu sırada soket okunmadığı için TCP istemciyi yavaşlatır.
+     */
+    @Override
+    public void throttle(long nanos) {
+        long until = System.nanoTime() + nanos;
+        if (readPaused) {
+            resumeReadAt = Math.max(resumeReadAt, until);
+            return;
+        }
+        if (closed.get() || key == null || !key.isValid())
+            return;
+        readPaused = true;
+        resumeReadAt = until;
+        decoder.pause();
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        server.schedule(() -> reactor.execute(this, this::resumeReading), nanos);
+    }
+
+    private void resumeReading() {
+        long remaining = resumeReadAt - System.nanoTime();
+        if (remaining > 0) {
+            // Durdurulmuşken okunmuş çerçeveler süreyi uzatmış olabilir
+            server.schedule(() -> reactor.execute(this, this::resumeReading), remaining);
+            return;
+        }
+        readPaused = false;
+        decoder.resume();
+        if (closed.get() || !key.isValid())
+            return;
+        try {
+            // Durdurulmadan önce okunmuş ama çözülmemiş çerçeveler
+            decodeReadBuffer();
+        } catch (IOException e) {
+            server.getListener().onLog("İstemci bağlantısı kesildi veya hata oluştu: " + e.getMessage());
+            close();
+            return;
+        }
+        if (!readPaused && !closed.get()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        outbound.close();
+        reactor.execute(this, this::releaseBuffers);
+        reactor.connectionClosed();
+        server.removeClient(this);
+    }
+}
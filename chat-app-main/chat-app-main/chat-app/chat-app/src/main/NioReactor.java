@@ -0,0 +1,201 @@
+package main;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tek bir Selector'ı ve ona bağlı bağlantıları yöneten event loop.
+ * Selector yalnızca kendi thread'i tarafından değiştirilir; diğer thread'ler
+ * kayıt ve yazma isteklerini kuyruklara bırakıp selector'ı uyandırır.
+ *
+ * Bir bağlantının işlenmesi sırasında oluşan beklenmeyen hata (RuntimeException)
+ * yalnızca o bağlantıyı kapatır; reactor diğer bağlantılara hizmet etmeye devam eder.
+ */
+public class NioReactor implements Runnable {
+
+    private final Selector selector;
+    private final ChatServer server;
+    private final Thread thread;
+    private final Queue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final Queue<Task> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /** Bir bağlantı adına reactor thread'inde çalıştırılacak görev */
+    private record Task(NioConnection connection, Runnable action) {
+    }
+
+    public NioReactor(int index, ChatServer server) throws IOException {
+        this.selector = Selector.open();
+        this.server = server;
+        this.thread = new Thread(this, "Nio-Reactor-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Event loop sonlandıysa (kapatıldı veya selector hatası) yeni bağlantı verilmemeli
+     */
+    public boolean isAlive() {
+        return running && thread.isAlive();
+    }
+
+    /**
+     * Yeni bağlantıyı bu reactor'a devreder, asıl kayıt reactor thread'inde yapılır
+     */
+    public void register(NioConnection connection) {
+        connectionCount.incrementAndGet();
+        pendingRegistrations.add(connection);
+        selector.wakeup();
+        if (!running) {
+            // Event loop bu arada durduysa kayıt hiç işlenmez
+            while ((connection = pendingRegistrations.poll()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Bağlantının giden kuyruğunda veri olduğunu bildirir
+     */
+    public void requestWrite(NioConnection connection) {
+        pendingWrites.add(connection);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Bağlantıya ait görevi reactor thread'inde çalıştırır (zaten oradaysak hemen).
+     * Görev hata fırlatırsa bağlantı kapatılır.
+     */
+    public void execute(NioConnection connection, Runnable task) {
+        if (Thread.currentThread() == thread) {
+            task.run();
+        } else {
+            pendingTasks.add(new Task(connection, task));
+            selector.wakeup();
+        }
+    }
+
+    void connectionClosed() {
+        connectionCount.decrementAndGet();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                processRegistrations();
+                processSelectedKeys();
+                processWrites();
+                processTasks();
+            }
+        } catch (IOException | RuntimeException e) {
+            server.getListener().onLog("Reactor hatası (" + thread.getName() + "): " + e);
+        } finally {
+            running = false;
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection) {
+                    ((NioConnection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void processRegistrations() {
+        NioConnection connection;
+        while ((connection = pendingRegistrations.poll()) != null) {
+            try {
+                SelectionKey key = connection.getChannel().register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(key);
+            } catch (ClosedChannelException e) {
+                connection.close();
+            } catch (RuntimeException e) {
+                fail(connection, e);
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            NioConnection connection = (NioConnection) key.attachment();
+            if (!key.isValid()) {
+                connection.close();
+                continue;
+            }
+            try {
+                if (key.isReadable()) {
+                    connection.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (RuntimeException e) {
+                fail(connection, e);
+            }
+        }
+    }
+
+    private void processTasks() {
+        Task task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.action().run();
+            } catch (RuntimeException e) {
+                fail(task.connection(), e);
+            }
+        }
+    }
+
+    private void processWrites() {
+        NioConnection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            try {
+                connection.flush();
+            } catch (RuntimeException e) {
+                fail(connection, e);
+            }
+        }
+    }
+
+    /**
+     * Beklenmeyen hatada yalnızca ilgili bağlantıyı kapatır
+     */
+    private void fail(NioConnection connection, RuntimeException e) {
+        server.getListener().onLog("Bağlantı işlenirken hata (" + thread.getName() + ", "
+                + connection.getClientId() + "): " + e);
+        try {
+            connection.close();
+        } catch (RuntimeException closeError) {
+            server.getListener().onLog("Bağlantı kapatılamadı: " + closeError);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tek bir istemciye gidecek mesajların sınırlı kuyruğu.
+ * Üreticiler (broadcast yapan thread'ler) yalnızca kuyruğa ekler; kuyruğu
+ * istemcinin kendi yazıcısı boşaltır. Böylece yavaş bir istemci diğerlerini bekletmez.
+ * Kuyruk eklenen tamponun bir referansını tutar; atılan veya kapatılırken kalan
+ * tamponları release() eder.
+ *
+ * Mesaj sayısının yanında bellekte bekleyen bayt miktarı da sınırlıdır; büyük
+ * mesajlar sayı sınırına gelmeden belleği tüketemez. Dosya tabanlı tamponlar
+ * spool kotasıyla sınırlı olduğundan bayt sınırına sayılmaz. Boş kuyruğa tek
+ * mesaj her zaman eklenebilir, yani sınırdan büyük mesaj da iletilir.
+ *
+ * Kayıplı politikalar (DROP_NEWEST, DROP_OLDEST) parçalı dosya aktarımı çerçevelerini
+ * atmaz, çünkü tek bir parça eksikse alıcı dosyayı birleştiremez: yer açmak için
+ * yalnızca sohbet mesajları atılır. Kuyruk aktarım çerçeveleriyle dolmuşsa alıcı
+ * yetişemiyordur; bağlantı DISCONNECT'teki gibi kesilir.
+ *
+ * Bağlantının protokolü de kuyrukta tutulur: el sıkışma yanıtının eklenmesi ve
+ * protokolün değişmesi aynı kilit altında olur. Eski protokolde kodlanmış bir mesaj
+ * yanıttan sonra eklenmek istenirse reddedilir; gönderen yeni protokolde kodlayıp
+ * tekrar dener. Böylece el sıkışma sırasında gelen broadcast'ler kaybolmaz.
+ */
+public class OutboundQueue {
+
+    /** offer() sonucu */
+    public enum Offer {
+        /** Kuyruğa alındı (veya politika gereği sessizce atıldı, ya da geçmişle zaten gönderildi) */
+        ACCEPTED,
+        /** Kuyruk dolu ve politika DISCONNECT ya da aktarım çerçevesine yer açılamadı: bağlantı kesilmeli */
+        OVERFLOW,
+        /** Mesaj bağlantının artık konuşmadığı protokolde kodlanmış; yeniden kodlanmalı */
+        WRONG_PROTOCOL
+    }
+
+    private final ArrayDeque<SharedBuffer> items = new ArrayDeque<>();
+    private final int capacity;
+    private final long maxBytes;
+    private final OverflowPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile int depth = 0;
+    // Kuyruktaki bellek tabanlı tamponların toplam boyutu
+    private long queuedBytes = 0;
+    private boolean closed = false;
+    // Yalnızca kilit altında değişir; okuma kilitsiz yapılabilir
+    private volatile WireProtocol protocol = WireProtocol.TEXT;
+    // Geçmiş yüklendiyse, geçmişe dahil olan son sıra numarasından sonraki numara
+    private long historyEnd = Long.MIN_VALUE;
+
+    public OutboundQueue(int capacity, OverflowPolicy policy) {
+        this(capacity, Long.MAX_VALUE, policy);
+    }
+
+    /**
+     * @param maxBytes bellekte bekleyebilecek en fazla bayt
+     */
+    public OutboundQueue(int capacity, long maxBytes, OverflowPolicy policy) {
+        this.capacity = Math.max(1, capacity);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.policy = policy;
+    }
+
+    private static long memoryBytes(SharedBuffer item) {
+        return item.isFileBacked() ? 0 : item.size();
+    }
+
+    private boolean isFull(long incomingBytes) {
+        return !items.isEmpty() && (items.size() >= capacity || queuedBytes + incomingBytes > maxBytes);
+    }
+
+    /**
+     * Kuyruktaki en eski, aktarıma ait olmayan mesajı atar
+     *
+     * @return atılabilecek mesaj yoksa false
+     */
+    private boolean dropOldestMessage() {
+        Iterator<SharedBuffer> it = items.iterator();
+        while (it.hasNext()) {
+            SharedBuffer item = it.next();
+            if (!item.isTransfer()) {
+                it.remove();
+                queuedBytes -= memoryBytes(item);
+                item.release();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SharedBuffer removeFirst() {
+        SharedBuffer item = items.pollFirst();
+        if (item != null) {
+            queuedBytes -= memoryBytes(item);
+        }
+        return item;
+    }
+
+    /**
+     * Mesajı kuyruğa ekler, dolu ise politikayı uygular
+     */
+    public Offer offer(SharedBuffer item) {
+        return offer(item, HistoryRing.NONE);
+    }
+
+    /**
+     * @param historySequence mesajın geçmiş halkasındaki sıra numarası; bağlantıya
+     *                        geçmişle birlikte zaten gönderildiyse mesaj atlanır
+     */
+    public Offer offer(SharedBuffer item, long historySequence) {
+        lock.lock();
+        try {
+            if (closed || historySequence < historyEnd)
+                return Offer.ACCEPTED;
+            if (item.protocol() != protocol)
+                return Offer.WRONG_PROTOCOL;
+            long bytes = memoryBytes(item);
+            if (isFull(bytes)) {
+                if (policy == OverflowPolicy.DISCONNECT)
+                    return Offer.OVERFLOW;
+                if (policy == OverflowPolicy.DROP_NEWEST && !item.isTransfer()) {
+                    dropped.incrementAndGet();
+                    return Offer.ACCEPTED;
+                }
+                // DROP_OLDEST veya atılamayan aktarım çerçevesi: eski sohbet mesajları atılır,
+                // büyük mesaj için birden çok mesaj atılabilir
+                while (isFull(bytes) && dropOldestMessage()) {
+                    dropped.incrementAndGet();
+                }
+                if (isFull(bytes)) {
+                    if (item.isTransfer())
+                        return Offer.OVERFLOW;
+                    dropped.incrementAndGet();
+                    return Offer.ACCEPTED;
+                }
+            }
+            items.addLast(item.retain());
+            queuedBytes += bytes;
+            depth = items.size();
+            notEmpty.signal();
+            return Offer.ACCEPTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Protokol değiştiren tamponu (el sıkışma yanıtı) kapasiteye bakmadan kuyruğa ekler
+     * ve kuyruğun protokolünü aynı anda değiştirir; sonraki mesajlar yeni protokolde kabul edilir
+     */
+    public void switchProtocol(SharedBuffer item) {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            items.addLast(item.retain());
+            queuedBytes += memoryBytes(item);
+            depth = items.size();
+            protocol = item.switchesTo();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Yeni mesajların kodlanması gereken protokol
+     */
+    public WireProtocol protocol() {
+        return protocol;
+    }
+
+    /**
+     * Kuyruk kilidi tutulurken önce register'ı çalıştırır (bağlantı broadcast'lere
+     * görünür olur), ardından halkadaki son mesajları kuyruğa alır. Bu sırada bağlantıya
+     * gelen canlı mesajlar kilidi bekler ve geçmişe zaten dahil olanlar atlanır; böylece
+     * geçmiş ile canlı mesajlar arasında kayıp veya tekrar olmaz. Halkanın yazıcısı beklemez.
+     *
+     * @return kuyruğa alınan geçmiş mesaj sayısı
+     */
+    public int preload(Runnable register, HistoryRing history, int maxMessages) {
+        lock.lock();
+        try {
+            register.run();
+            int before = items.size();
+            historyEnd = history.readRecent(maxMessages, item -> {
+                items.addLast(item);
+                queuedBytes += memoryBytes(item);
+            });
+            depth = items.size();
+            if (depth > 0) {
+                notEmpty.signal();
+            }
+            return items.size() - before;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bloklamadan sıradaki mesajı alır (NIO reactor için).
+     * Dönen tamponun referansı çağırana geçer, yazıldıktan sonra release() edilmelidir.
+     */
+    public SharedBuffer poll() {
+        lock.lock();
+        try {
+            SharedBuffer item = removeFirst();
+            depth = items.size();
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * poll() ile alınıp henüz yazılmayan tamponu kuyruğun başına geri koyar
+     */
+    public void pushBack(SharedBuffer item) {
+        lock.lock();
+        try {
+            if (closed) {
+                item.release();
+                return;
+            }
+            items.addFirst(item);
+            queuedBytes += memoryBytes(item);
+            depth = items.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * En az bir mesaj gelene kadar bekler, ardından birleştirilerek yazılabilsin diye
+     * en fazla lingerNanos daha (veya batchSize mesaj birikene kadar) bekler.
+     * Bekleme süresi ilk mesajın gelişinden itibaren sayılır, yani gecikme bu süreyle sınırlıdır.
+     *
+     * @return kuyruk kapatıldıysa false
+     */
+    public boolean awaitBatch(long lingerNanos, int batchSize) throws InterruptedException {
+        lock.lock();
+        try {
+            while (items.isEmpty() && !closed) {
+                notEmpty.await();
+            }
+            long remaining = lingerNanos;
+            while (!closed && items.size() < batchSize && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Kuyruğu kapatır, bekleyen yazıcıyı uyandırır ve kalan mesajları atar
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            SharedBuffer item;
+            while ((item = items.pollFirst()) != null) {
+                item.release();
+            }
+            queuedBytes = 0;
+            depth = 0;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return depth == 0;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Kuyrukta bellekte bekleyen bayt miktarı
+     */
+    public long queuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package main;
+
+/**
+ * İstemcinin giden kuyruğu dolduğunda ne yapılacağı.
+ * Kayıplı politikalar parçalı dosya aktarımı çerçevelerini atmaz (bkz. OutboundQueue).
+ */
+public enum OverflowPolicy {
+    /** Kuyruktaki en eski mesajı at, yenisini ekle */
+    DROP_OLDEST,
+    /** Yeni mesajı at, kuyruğa dokunma */
+    DROP_NEWEST,
+    /** Yavaş istemcinin bağlantısını kes */
+    DISCONNECT;
+
+    public static OverflowPolicy parse(String value) {
+        if (value == null || value.isBlank())
+            return DISCONNECT;
+        try {
+            return OverflowPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return DISCONNECT;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bir küme eşine giden tek yönlü bağlantı.
+ * Kodlanmış toplu çerçeveler sınırlı bir kuyrukta bekler; yazıcı thread
+ * birikenleri tek flush ile gönderir. Kuyruktaki ve teslimi kesinleşmemiş
+ * çerçeveler spool dosyalarını tutar; atıldıklarında bırakılır. Bağlantı koparsa artan aralıklarla
+ * yeniden bağlanılır; bu sırada kuyruk dolarsa yeni çerçeveler atılır ve
+ * karşı taraf atlanan sıra numaralarından kaybı görür.
+ */
+final class PeerLink {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final long MIN_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 5000;
+    private static final int MAX_IN_FLIGHT = 64;
+
+    private final ClusterRelay relay;
+    private final InetSocketAddress address;
+    private final ArrayBlockingQueue<RelayBatch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Yalnızca yazıcı thread kullanır
+    private final List<RelayBatch> inFlight = new ArrayList<>();
+    private volatile Socket socket;
+    private volatile boolean connected = false;
+    private Thread writer;
+
+    PeerLink(ClusterRelay relay, InetSocketAddress address) {
+        this.relay = relay;
+        this.address = address;
+    }
+
+    void start() {
+        writer = Thread.ofPlatform().name("Cluster-Out-" + address.getPort()).daemon(true).start(this::run);
+    }
+
+    boolean offer(RelayBatch batch) {
+        batch.retain();
+        if (!queue.offer(batch)) {
+            batch.release();
+            return false;
+        }
+        if (!relay.isRunning()) {
+            // Yazıcı durmuş olabilir; kuyrukta kalan spool dosyaları silinebilsin
+            discardQueued();
+        }
+        return true;
+    }
+
+    private void discardQueued() {
+        RelayBatch batch;
+        while ((batch = queue.poll()) != null) {
+            batch.release();
+        }
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    void close() {
+        Socket current = socket;
+        if (current != null) {
+            ClusterRelay.closeQuietly(current);
+        }
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            connectLoop();
+        } finally {
+            for (RelayBatch batch : inFlight) {
+                batch.release();
+            }
+            inFlight.clear();
+            discardQueued();
+        }
+    }
+
+    private void connectLoop() {
+        long backoff = MIN_BACKOFF_MS;
+        boolean reported = false;
+        while (relay.isRunning()) {
+            Socket current = new Socket();
+            socket = current;
+            try {
+                current.setTcpNoDelay(true);
+                current.connect(address, CONNECT_TIMEOUT_MS);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(current.getOutputStream(), 64 * 1024));
+                out.writeInt(ClusterRelay.MAGIC);
+                out.writeUTF(relay.getNodeId());
+                out.writeLong(relay.getEpoch());
+                out.flush();
+                connected = true;
+                reported = false;
+                // Eş bu bağlantıya hiç yazmaz; okuma sonlanırsa eş kapanmıştır.
+                // Soket hemen kapatılır ki sonraki mesajlar ölü bağlantıya yazılmasın.
+                Thread.ofVirtual().name("Cluster-Watch-" + address.getPort()).start(() -> watch(current));
+                backoff = MIN_BACKOFF_MS;
+                relay.log("Küme eşine bağlanıldı: " + address);
+                send(current, out);
+            } catch (IOException e) {
+                if (connected) {
+                    relay.log("Küme eşi bağlantısı koptu: " + address + " (" + e.getMessage() + ")");
+                } else if (!reported && relay.isRunning()) {
+                    relay.log("Küme eşine bağlanılamadı: " + address + ", yeniden denenecek");
+                    reported = true;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                connected = false;
+                ClusterRelay.closeQuietly(current);
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private static void watch(Socket socket) {
+        try {
+            while (socket.getInputStream().read() >= 0) {
+                // Eş veri göndermez; gelen bayt olursa yok sayılır
+            }
+        } catch (IOException ignored) {
+        } finally {
+            ClusterRelay.closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Kuyruğu boşaltır. Yazılan ama teslimi kesinleşmeyen son grup inFlight'ta
+     * tutulur ve yeniden bağlanınca önce o gönderilir; alıcı tekrarları sıra
+     * numarasından tanıyıp atar.
+     */
+    private void send(Socket current, DataOutputStream out) throws IOException, InterruptedException {
+        for (RelayBatch batch : inFlight) {
+            batch.writeTo(out);
+        }
+        out.flush();
+        while (relay.isRunning()) {
+            if (current.isClosed())
+                throw new IOException("eş bağlantıyı kapattı");
+            RelayBatch batch = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (batch == null)
+                continue;
+            for (RelayBatch delivered : inFlight) {
+                delivered.release();
+            }
+            inFlight.clear();
+            do {
+                inFlight.add(batch);
+                batch.writeTo(out);
+            } while (inFlight.size() < MAX_IN_FLIGHT && (batch = queue.poll()) != null);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Eski satır protokolü ile ikili çerçeve protokolünün aynı sunucuda birlikte
+ * çalıştığını test eder
+ * - Ham soketle konuşan eski istemci (el sıkışma yok)
+ * - İkili protokole geçen ChatClient
+ * - Metin protokolünde kalan ChatClient
+ * Her sunucu modunda TEXT, RSA_PUBKEY ve FILE mesajları iki yönde de denenir;
+ * ardından oda mesajlarının yalnızca üyelere, özel mesajların yalnızca hedefe
+ * gittiği kontrol edilir.
+ */
+public class ProtocolCompatibilityTest {
+
+    private static final int PORT = 5056;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Karışık Protokol Testi ===\n");
+
+        for (ServerMode mode : ServerMode.values()) {
+            // Testte log gösterilmez; sunucu ekran olmadan çalışır
+            ChatServer server = new ChatServer(PORT, message -> { }, mode, 2);
+            try {
+                runScenario(server);
+            } finally {
+                server.stopServer();
+            }
+        }
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    static void runScenario(ChatServer server) throws Exception {
+        System.out.println("--- " + server.getMode() + " ---");
+        new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread").start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+
+        try (Socket legacy = new Socket("127.0.0.1", PORT)) {
+            BufferedReader legacyIn = new BufferedReader(
+                    new InputStreamReader(legacy.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream legacyOut = legacy.getOutputStream();
+
+            ChatClient binary = new ChatClient();
+            binary.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            ChatClient text = new ChatClient();
+            text.connect("127.0.0.1", PORT);
+            while (server.getClientCount() < 3) {
+                Thread.sleep(10);
+            }
+            check("İkili el sıkışma yapıldı", binary.getProtocol() == WireProtocol.BINARY);
+            check("Metin istemcisi metinde kaldı", text.getProtocol() == WireProtocol.TEXT);
+
+            // İkili istemciden mesaj
+            binary.sendMessage("merhaba ğüş");
+            check("Eski istemci ikili mesajı satır olarak aldı", "merhaba ğüş".equals(legacyIn.readLine()));
+            check("Metin istemcisi mesajı aldı", expect(text, FrameType.TEXT).text().equals("merhaba ğüş"));
+            check("Gönderen kendi mesajını aldı", expect(binary, FrameType.TEXT).text().equals("merhaba ğüş"));
+
+            // Eski istemciden anahtar duyurusu
+            legacyOut.write("RSA_PUBKEY:QUJD\n".getBytes(StandardCharsets.UTF_8));
+            legacyOut.flush();
+            check("Eski istemci kendi satırını aldı", "RSA_PUBKEY:QUJD".equals(legacyIn.readLine()));
+            check("İkili istemci RSA_PUBKEY çerçevesi aldı", expect(binary, FrameType.RSA_PUBKEY).text().equals("QUJD"));
+            check("Metin istemcisi RSA_PUBKEY aldı", expect(text, FrameType.RSA_PUBKEY).text().equals("QUJD"));
+
+            // İkili istemciden dosya
+            binary.sendFile("a.png", "image/png", "AAAA");
+            check("Eski istemci dosyayı FILE satırı olarak aldı", "FILE:a.png:image/png:AAAA".equals(legacyIn.readLine()));
+            Frame file = expect(text, FrameType.FILE);
+            check("Metin istemcisi dosyayı aldı", file.fileName().equals("a.png") && file.fileData().equals("AAAA"));
+            expect(binary, FrameType.FILE);
+
+            // Eski istemciden dosya
+            legacyOut.write("FILE:b.txt:text/plain:WFla\n".getBytes(StandardCharsets.UTF_8));
+            legacyOut.flush();
+            legacyIn.readLine();
+            file = expect(binary, FrameType.FILE);
+            check("İkili istemci eski dosya satırını çerçeve olarak aldı", file.fileName().equals("b.txt")
+                    && file.mimeType().equals("text/plain") && file.fileData().equals("WFla"));
+            expect(text, FrameType.FILE);
+
+            // Oda: yalnızca üyeler alır, üye olmayan gönderen hata alır
+            binary.joinRoom("proje");
+            legacyOut.write("ROOM_JOIN:proje\n".getBytes(StandardCharsets.UTF_8));
+            legacyOut.flush();
+            while (server.getRooms().members("proje").length < 2) {
+                Thread.sleep(10);
+            }
+            binary.sendToRoom("proje", "toplantı:14");
+            check("Eski istemci oda mesajını satır olarak aldı", "ROOM_MSG:proje:toplantı:14".equals(legacyIn.readLine()));
+            check("Gönderen oda mesajını aldı", expect(binary, FrameType.ROOM_MSG).text().equals("proje:toplantı:14"));
+            text.sendToRoom("proje", "izinsiz");
+            check("Üye olmayan hata aldı", expect(text, FrameType.SERVER_ERROR) != null);
+            text.sendMessage("herkese");
+            check("Odaya üye olmayan oda mesajını almadı", expect(text, FrameType.TEXT).text().equals("herkese"));
+            legacyIn.readLine();
+            expect(binary, FrameType.TEXT);
+
+            // Özel mesaj: yalnızca hedef alır, gönderenin kimliğiyle
+            check("İkili istemci kimliğini öğrendi", binary.getClientId() != null);
+            text.sendDirect(binary.getClientId(), "RSA_PUBKEY:QUJD");
+            Frame direct = expect(binary, FrameType.DIRECT);
+            check("Hedef özel anahtarı aldı", direct.directInner().type() == FrameType.RSA_PUBKEY
+                    && direct.directInner().text().equals("QUJD"));
+            binary.sendDirect(direct.directPeer(), "cevap");
+            check("Yanıt gönderene döndü", expect(text, FrameType.DIRECT).directInner().text().equals("cevap"));
+            text.sendDirect("1.2.3.4:5", "kayıp");
+            check("Bilinmeyen alıcı hatası yalnızca gönderene gitti", expect(text, FrameType.SERVER_ERROR) != null);
+            binary.sendMessage("son");
+            check("Eski istemci özel mesajları almadı", "son".equals(legacyIn.readLine()));
+
+            binary.disconnect();
+            text.disconnect();
+        }
+    }
+
+    private static Frame expect(ChatClient client, FrameType type) throws IOException {
+        Frame frame = client.readFrame();
+        if (frame == null || frame.type() != type) {
+            throw new IOException("Beklenen " + type + ", gelen " + (frame == null ? "bağlantı sonu" : frame.type()));
+        }
+        return frame;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
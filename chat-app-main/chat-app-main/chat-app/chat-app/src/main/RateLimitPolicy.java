@@ -0,0 +1,21 @@
+package main;
+
+/**
+ * İstemci mesaj hız sınırını aştığında ne yapılacağı
+ */
+public enum RateLimitPolicy {
+    /** Bağlantıdan okumayı sınır tekrar izin verene kadar geciktir (TCP geri basıncı) */
+    DELAY,
+    /** Fazla mesajı at ve gönderene hata bildir */
+    REJECT;
+
+    public static RateLimitPolicy parse(String value) {
+        if (value == null || value.isBlank())
+            return DELAY;
+        try {
+            return RateLimitPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return DELAY;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package main;
+
+/**
+ * Tek bir bağlantının okuma yolundaki hız sınırları: saniyedeki mesaj ve bayt.
+ * Bayt sınırı her zaman okumayı geciktirerek uygulanır; mesaj sınırı politikaya
+ * göre ya geciktirir ya da fazla mesajı atar. Gecikmeyi bağlantının kendisi uygular
+ * (bloklayıcı okuyucu bekler, NIO bağlantısı okumayı bir süre durdurur).
+ * Yalnızca bağlantının okuyucusu (okuyucu thread veya reactor) çağırır.
+ */
+public final class RateLimiter {
+
+    private static final long ERROR_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final ChatServer server;
+    private final ClientConnection connection;
+    private final TokenBucket messages;
+    private final TokenBucket bytes;
+    private final RateLimitPolicy policy;
+    // Reddedilen mesajlar için gönderene en fazla saniyede bir hata gider
+    private long lastErrorAt = System.nanoTime() - ERROR_INTERVAL_NANOS;
+
+    /**
+     * @param messages null ise mesaj sınırı yok
+     * @param bytes    null ise bayt sınırı yok
+     */
+    public RateLimiter(ChatServer server, ClientConnection connection, TokenBucket messages, TokenBucket bytes,
+            RateLimitPolicy policy) {
+        this.server = server;
+        this.connection = connection;
+        this.messages = messages;
+        this.bytes = bytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Gelen bir mesajı sınıra göre kabul eder (gerekirse geciktirerek)
+     *
+     * @return mesaj işlenecekse true, reddedildiyse false
+     */
+    public boolean admitMessage() {
+        if (messages == null)
+            return true;
+        if (policy == RateLimitPolicy.REJECT) {
+            if (messages.tryAcquire(1))
+                return true;
+            server.recordRejectedMessage();
+            long now = System.nanoTime();
+            if (now - lastErrorAt >= ERROR_INTERVAL_NANOS) {
+                lastErrorAt = now;
+                server.sendError(connection, "Mesaj hız sınırı aşıldı, fazla mesajlar atılıyor");
+            }
+            return false;
+        }
+        delay(messages.reserve(1));
+        return true;
+    }
+
+    /**
+     * Soketten okunan baytları bayt sınırına işler
+     */
+    public void admitBytes(int count) {
+        if (bytes != null && count > 0) {
+            delay(bytes.reserve(count));
+        }
+    }
+
+    private void delay(long nanos) {
+        if (nanos > 0) {
+            server.recordDelayedRead();
+            connection.throttle(nanos);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package main;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * İstemcinin otomatik yeniden bağlanmasını ve oturum sürdürmeyi test eder
+ * - Sunucu yeniden başlayınca bağlantının kendiliğinden kurulması
+ * - Kopuklukta gönderilenlerin kuyrukta bekleyip bağlanınca yazılması
+ * - Kaçırılan mesajların günlükten, onaylananların tekrar edilmeden gönderilmesi
+ * - Denemelerin rastgele beklemelerle zamana yayılması ve disconnect()'in denemeleri durdurması
+ * - Eski bağlantının okuyucusunun yeni bağlantıyı kapatmaması, her bağlantıda tek okuyucu kalması
+ */
+public class ReconnectTest {
+
+    private static final int PORT = 5065;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Yeniden Bağlanma Testi ===\n");
+        Path directory = Files.createTempDirectory("chat-reconnect-test");
+        try {
+            restartScenario(directory);
+        } finally {
+            deleteRecursively(directory);
+        }
+        backoffScenario();
+        herdScenario();
+        staleReaderScenario();
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    // Senaryolar aynı portu kullanır; önceki sunucunun accept thread'i bitmeden port bırakılmaz
+    private static Thread serverThread;
+
+    private static ChatServer startServer(Path journal) throws InterruptedException {
+        ChatServer server = new ChatServer(PORT, message -> { }, ServerMode.NIO, 1);
+        server.configureOutboundQueue(8192, OverflowPolicy.DISCONNECT);
+        if (journal != null) {
+            server.configureJournal(journal, 1024 * 1024, MessageJournal.DEFAULT_SEGMENT_AGE_MILLIS,
+                    MessageJournal.DEFAULT_RETENTION_BYTES, MessageJournal.DEFAULT_RETENTION_MILLIS);
+        }
+        serverThread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        serverThread.start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+        return server;
+    }
+
+    private static void stopServer(ChatServer server) throws InterruptedException {
+        server.stopServer();
+        serverThread.join(5000);
+    }
+
+    private static void restartScenario(Path journal) throws Exception {
+        System.out.println("--- Sunucu yeniden başlatma ---");
+        ChatServer server = startServer(journal);
+        ChatClient client = new ChatClient();
+        client.setHeartbeat(50, 2000, TimeUnit.MILLISECONDS);
+        client.setAutoReconnect(50, 400, TimeUnit.MILLISECONDS);
+        List<Frame> received = collect(client);
+        client.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient other = new ChatClient();
+        other.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        for (int i = 0; i < 10; i++) {
+            other.sendMessage("önce-" + i);
+        }
+        check("Oturum işareti alındı ve onaylandı", waitFor(() -> client.getSessionOffset() == 10, 3000)
+                && client.getSessionToken() != null);
+        String token = client.getSessionToken();
+        other.disconnect();
+        stopServer(server);
+
+        check("Kopukluk fark edildi, yeniden bağlanılıyor", waitFor(client::isReconnecting, 3000));
+        List<CompletableFuture<Boolean>> offline = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            offline.add(client.sendMessageAsync("çevrimdışı-" + i));
+        }
+        Thread.sleep(300);
+        check("Çevrimdışı mesajlar kuyrukta bekledi", offline.stream().noneMatch(CompletableFuture::isDone)
+                && client.getReconnectAttempts() > 0);
+
+        // Sunucu kapalıyken gelen mesajlar: yeni sunucu aynı günlükle açılır
+        MessageJournal direct = new MessageJournal(journal, 1024 * 1024, MessageJournal.DEFAULT_SEGMENT_AGE_MILLIS,
+                MessageJournal.DEFAULT_RETENTION_BYTES, MessageJournal.DEFAULT_RETENTION_MILLIS, message -> { });
+        direct.open();
+        for (int i = 0; i < 5; i++) {
+            direct.append(Frame.ofLine("arada-" + i));
+        }
+        direct.close();
+        server = startServer(journal);
+        try {
+            check("Sunucu açılınca yeniden bağlanıldı", waitFor(client::isConnected, 5000));
+            CompletableFuture.allOf(offline.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            check("Çevrimdışı mesajlar bağlanınca gönderildi", offline.stream().allMatch(CompletableFuture::join));
+            check("Kaçırılan ve çevrimdışı mesajlar ulaştı",
+                    waitFor(() -> texts(received, "çevrimdışı-").size() == 5
+                            && texts(received, "arada-").size() == 5, 3000)
+                            && texts(received, "çevrimdışı-").size() == 5
+                            && texts(received, "arada-").equals(List.of("arada-0", "arada-1", "arada-2", "arada-3",
+                                    "arada-4")));
+            check("Alınmış mesajlar tekrar gönderilmedi", texts(received, "önce-").size() == 10);
+            check("Oturum aynı belirteçle sürdü", waitFor(() -> client.getSessionOffset() == 20, 3000)
+                    && token.equals(client.getSessionToken()));
+
+            // Aynı sunucuya yeniden bağlanma: onaylanan offset sunucuda biliniyor
+            int before = received.size();
+            client.getSocket().close();
+            check("Kopan bağlantı yeniden kuruldu", waitFor(() -> client.isConnected()
+                    && client.getReconnectAttempts() == 0, 5000));
+            Thread.sleep(300);
+            check("Onaylanan mesajlar tekrar gönderilmedi", received.size() == before);
+        } finally {
+            client.disconnect();
+            stopServer(server);
+        }
+    }
+
+    private static void backoffScenario() throws Exception {
+        System.out.println("--- Bekleme ve disconnect ---");
+        ChatClient client = new ChatClient();
+        client.setAutoReconnect(20, 200, TimeUnit.MILLISECONDS);
+        List<Long> attempts = new CopyOnWriteArrayList<>();
+        client.addConnectionListener((previous, current) -> {
+            if (current == ConnectionState.CONNECTING) {
+                attempts.add(System.nanoTime());
+            }
+        });
+        int port;
+        try (ServerSocket fake = new ServerSocket(0)) {
+            port = fake.getLocalPort();
+            client.connect("127.0.0.1", port);
+            fake.accept().close();
+            Thread reader = new Thread(() -> {
+                try {
+                    client.readFrame();
+                } catch (IOException ignored) {
+                }
+            }, "Backoff-Reader");
+            reader.start();
+            reader.join(2000);
+        }
+        // Port kapalı: her deneme başarısız olur
+        Thread.sleep(1500);
+        long maxGapMillis = 0;
+        for (int i = 2; i < attempts.size(); i++) {
+            maxGapMillis = Math.max(maxGapMillis, TimeUnit.NANOSECONDS.toMillis(attempts.get(i) - attempts.get(i - 1)));
+        }
+        check("Başarısız denemeler sürdü (" + (attempts.size() - 1) + " deneme)", attempts.size() >= 5
+                && client.isReconnecting());
+        check("Bekleme üst sınırı aşılmadı (" + maxGapMillis + " ms)", maxGapMillis < 500);
+
+        CompletableFuture<Boolean> pending = client.sendMessageAsync("gönderilemeyecek");
+        client.disconnect();
+        int count = attempts.size();
+        Thread.sleep(500);
+        check("disconnect() denemeleri durdurdu, bekleyen gönderim false", attempts.size() == count
+                && !pending.get(1, TimeUnit.SECONDS) && !client.isReconnecting());
+    }
+
+    private static void herdScenario() throws Exception {
+        System.out.println("--- Toplu yeniden bağlanma ---");
+        int count = 30;
+        ChatServer server = startServer(null);
+        List<ChatClient> clients = new ArrayList<>();
+        List<Long> reconnected = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ChatClient client = new ChatClient();
+            client.setAutoReconnect(200, 2000, TimeUnit.MILLISECONDS);
+            collect(client);
+            client.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            client.addConnectionListener((previous, current) -> {
+                if (current == ConnectionState.CONNECTED) {
+                    reconnected.add(System.nanoTime());
+                }
+            });
+            clients.add(client);
+        }
+        stopServer(server);
+        server = startServer(null);
+        try {
+            check("Tüm istemciler yeniden bağlandı",
+                    waitFor(() -> clients.stream().allMatch(ChatClient::isConnected), 10_000));
+            long spreadMillis = TimeUnit.NANOSECONDS.toMillis(
+                    reconnected.stream().mapToLong(Long::longValue).max().orElse(0)
+                            - reconnected.stream().mapToLong(Long::longValue).min().orElse(0));
+            check("Yeniden bağlanmalar zamana yayıldı (" + spreadMillis + " ms)", spreadMillis >= 50);
+        } finally {
+            for (ChatClient client : clients) {
+                client.disconnect();
+            }
+            stopServer(server);
+        }
+    }
+
+    private static void staleReaderScenario() throws Exception {
+        System.out.println("--- Eski okuyucu ---");
+        ChatServer server = startServer(null);
+        ChatClient client = new ChatClient();
+        check("Bağlanmadan okuma null döndü", client.readFrame() == null);
+        client.setAutoReconnect(10, 50, TimeUnit.MILLISECONDS);
+        List<Frame> received = collect(client);
+        client.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient sender = new ChatClient();
+        sender.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        try {
+            // Okuyucu kopukluğu fark etmeden yeni bağlantı kurulabilir; eski okuyucu onu kapatmamalı
+            boolean reconnected = true;
+            for (int i = 0; i < 20 && reconnected; i++) {
+                client.getSocket().close();
+                Thread.sleep(5);
+                reconnected = waitFor(client::isConnected, 5000);
+            }
+            check("Art arda kopmalardan sonra bağlı kaldı", reconnected);
+            Thread.sleep(200);
+            for (int i = 0; i < 50; i++) {
+                sender.sendMessage("son-" + i);
+            }
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                expected.add("son-" + i);
+            }
+            check("Mesajlar tek okuyucuyla sırayla ve bir kez alındı",
+                    waitFor(() -> texts(received, "son-").size() >= 50, 3000)
+                            && texts(received, "son-").equals(expected) && client.isConnected());
+        } finally {
+            sender.disconnect();
+            client.disconnect();
+            stopServer(server);
+        }
+    }
+
+    /**
+     * Her bağlantıda bir okuyucu başlatır ve gelen çerçeveleri biriktirir
+     */
+    private static List<Frame> collect(ChatClient client) {
+        List<Frame> received = new CopyOnWriteArrayList<>();
+        client.addConnectionListener((previous, current) -> {
+            if (current == ConnectionState.CONNECTED) {
+                Thread.ofVirtual().name("Reconnect-Reader").start(() -> {
+                    try {
+                        Frame frame;
+                        while ((frame = client.readFrame()) != null) {
+                            received.add(frame);
+                        }
+                    } catch (IOException ignored) {
+                        // Bağlantı koptu; yeni bağlantıda yeni okuyucu başlar
+                    }
+                });
+            }
+        });
+        return received;
+    }
+
+    private static List<String> texts(List<Frame> frames, String prefix) {
+        List<String> texts = new ArrayList<>();
+        for (Frame frame : frames) {
+            if (frame.type() == FrameType.TEXT && frame.text().startsWith(prefix)) {
+                texts.add(frame.text());
+            }
+        }
+        return texts;
+    }
+
+    private static boolean waitFor(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bir kez kodlanıp her eşe gönderilen toplu eş çerçevesi.
+ * Bellekteki mesajlar bayt dizisi olarak kodlanır; diske alınmış mesajlar
+ * heap'e okunmaz, gönderim sırasında doğrudan spool dosyasından yazılır
+ * (spool dosyası zaten [tip:1][uzunluk:4][yük] biçimindedir).
+ *
+ * Her eş bağlantısı kuyruğa eklerken retain(), çerçeveyle işi bitince
+ * release() çağırır; spool dosyaları son eş bırakana kadar silinmez.
+ */
+final class RelayBatch {
+
+    // Sırayla yazılacak parçalar: byte[] veya SpoolFile
+    private final List<Object> parts = new ArrayList<>();
+
+    private RelayBatch() {
+    }
+
+    /**
+     * [ilkSıra:8][adet:4] ve her mesaj için [tip:1][uzunluk:4][yük]
+     */
+    static RelayBatch encode(long firstSequence, List<Frame> frames) throws IOException {
+        RelayBatch batch = new RelayBatch();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(firstSequence);
+        out.writeInt(frames.size());
+        for (Frame frame : frames) {
+            SpoolFile spool = frame.spool();
+            if (spool != null) {
+                if (bytes.size() > 0) {
+                    batch.parts.add(bytes.toByteArray());
+                    bytes.reset();
+                }
+                batch.parts.add(spool);
+                continue;
+            }
+            byte[] payload = frame.payload();
+            out.writeByte(frame.type().code());
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+        if (bytes.size() > 0) {
+            batch.parts.add(bytes.toByteArray());
+        }
+        return batch;
+    }
+
+    /**
+     * Spool dosyalarını bu çerçeveyi gönderecek bir eş için tutar
+     */
+    void retain() {
+        for (Object part : parts) {
+            if (part instanceof SpoolFile spool) {
+                spool.retain();
+            }
+        }
+    }
+
+    void release() {
+        for (Object part : parts) {
+            if (part instanceof SpoolFile spool) {
+                spool.release();
+            }
+        }
+    }
+
+    /**
+     * Çerçeveyi yazar; spool bölümleri heap'e alınmadan küçük parçalar halinde aktarılır
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        WritableByteChannel channel = null;
+        for (Object part : parts) {
+            if (part instanceof SpoolFile spool) {
+                if (channel == null) {
+                    channel = Channels.newChannel(out);
+                }
+                long position = 0;
+                while (position < spool.length()) {
+                    position += spool.transferTo(position, channel);
+                }
+            } else {
+                out.write((byte[]) part);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Logları dosyaya yazan sink. Dosya belirlenen boyutu aşınca döndürülür:
+ * server.log → server.log.1 → ... → server.log.N, en eskisi silinir.
+ */
+public class RollingFileLogSink implements LogSink {
+
+    public static final long DEFAULT_MAX_BYTES = 10L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private BufferedWriter writer;
+    private long written;
+
+    public RollingFileLogSink(Path file) throws IOException {
+        this(file, DEFAULT_MAX_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * @param maxBytes bir dosyanın döndürülmeden önceki en büyük boyutu
+     * @param maxFiles saklanacak eski dosya sayısı
+     */
+    public RollingFileLogSink(Path file, long maxBytes, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        written = Files.size(file);
+    }
+
+    @Override
+    public void write(String[] lines, int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                if (written >= maxBytes) {
+                    rotate();
+                }
+                writer.write(lines[i]);
+                writer.newLine();
+                // Yaklaşık boyut yeterli; kesin bayt sayımı için kodlamaya gerek yok
+                written += lines[i].length() + 1;
+            }
+        } catch (IOException e) {
+            System.err.println("Log dosyasına yazılamadı: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Döndürme başarısız olsa da dosya yeniden açılır ve yazmaya devam edilir;
+     * yeniden açma da başarısızsa sonraki yazımda tekrar denenir
+     */
+    private void rotate() throws IOException {
+        boolean rotated = false;
+        try {
+            writer.close();
+            Files.deleteIfExists(rotated(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path source = rotated(i);
+                if (Files.exists(source)) {
+                    Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+            rotated = true;
+        } catch (IOException e) {
+            System.err.println("Log dosyası döndürülemedi: " + e.getMessage());
+        } finally {
+            open();
+        }
+        if (!rotated) {
+            // Aynı dosyaya eklenir; her satırda yeniden denememek için bir dosya boyu beklenir
+            written = 0;
+        }
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Log dosyasına yazılamadı: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package main;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Oda → üye indeksi.
+ * Her oda kendi ClientRegistry'sini tutar; odaya gönderim yalnızca o odanın
+ * kilitsiz anlık görüntüsü üzerinde gezer, yani maliyet O(üye sayısı)'dır.
+ * Katılma/ayrılma yalnızca ilgili odanın anahtarında atomik compute ile yapılır;
+ * farklı odalardaki değişiklikler birbirini beklemez. Boşalan oda silinir.
+ * Bağlantı koptuğunda üyeliklerini hızlıca temizlemek için ters indeks de tutulur.
+ */
+public class RoomRegistry {
+
+    private static final ClientConnection[] EMPTY = new ClientConnection[0];
+
+    private final ConcurrentHashMap<String, ClientRegistry> rooms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ClientConnection, Set<String>> memberships = new ConcurrentHashMap<>();
+
+    /**
+     * @return istemci zaten odadaysa false
+     */
+    public boolean join(String room, ClientConnection client) {
+        boolean[] added = new boolean[1];
+        rooms.compute(room, (name, members) -> {
+            if (members == null) {
+                members = new ClientRegistry();
+            }
+            added[0] = members.add(client);
+            return members;
+        });
+        if (added[0]) {
+            memberships.computeIfAbsent(client, c -> ConcurrentHashMap.newKeySet()).add(room);
+        }
+        return added[0];
+    }
+
+    /**
+     * @return istemci odada değilse false
+     */
+    public boolean leave(String room, ClientConnection client) {
+        boolean[] removed = new boolean[1];
+        rooms.computeIfPresent(room, (name, members) -> {
+            removed[0] = members.remove(client);
+            return members.size() == 0 ? null : members;
+        });
+        if (removed[0]) {
+            Set<String> joined = memberships.get(client);
+            if (joined != null) {
+                joined.remove(room);
+            }
+        }
+        return removed[0];
+    }
+
+    /**
+     * İstemciyi bulunduğu tüm odalardan çıkarır (bağlantı koptuğunda)
+     */
+    public void leaveAll(ClientConnection client) {
+        Set<String> joined = memberships.remove(client);
+        if (joined == null)
+            return;
+        for (String room : joined) {
+            rooms.computeIfPresent(room, (name, members) -> {
+                members.remove(client);
+                return members.size() == 0 ? null : members;
+            });
+        }
+    }
+
+    /**
+     * Odanın üyelerinin anlık görüntüsü; oda yoksa boş dizi. Dönen dizi değiştirilmemelidir.
+     */
+    public ClientConnection[] members(String room) {
+        ClientRegistry members = rooms.get(room);
+        return (members != null) ? members.snapshot() : EMPTY;
+    }
+
+    public boolean isMember(String room, ClientConnection client) {
+        ClientRegistry members = rooms.get(room);
+        return members != null && members.get(client.getClientId()) == client;
+    }
+
+    public Set<String> roomsOf(ClientConnection client) {
+        Set<String> joined = memberships.get(client);
+        return (joined != null) ? Collections.unmodifiableSet(joined) : Collections.emptySet();
+    }
+
+    public int roomCount() {
+        return rooms.size();
+    }
+
+    public void clear() {
+        rooms.clear();
+        memberships.clear();
+    }
+}
@@ -0,0 +1,292 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Numaralı mesajları, onayları ve tekrar ayıklamayı test eder
+ * - Kayan pencerenin tekrarları ve eskileri reddetmesi, birikimli numara
+ * - Gönderene yük yerine ACK, diğer alıcılara iç mesaj; metin protokolüne düz satır
+ * - Alıcı onaylarının gönderene iletilmesi, aynı numaranın ikinci kez teslim edilmemesi
+ * - Numaralı parçalı dosya aktarımı
+ * - Başka gönderenin kimliğini yazan istemcinin onayları alamaması, mesajları engelleyememesi
+ * - Hız sınırıyla reddedilen numaralı mesajın sonraki ACK ile onaylanmış sayılmaması
+ */
+public class SequenceTest {
+
+    private static final int PORT = 5066;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Sıralı Teslim Testi ===\n");
+        windowScenario();
+
+        ChatServer server = new ChatServer(PORT, message -> { }, ServerMode.NIO, 1);
+        server.configureOutboundQueue(8192, OverflowPolicy.DISCONNECT);
+        Thread serverThread = start(server);
+        try {
+            deliveryScenario();
+            fileScenario();
+            spoofScenario();
+        } finally {
+            server.stopServer();
+            serverThread.join(5000);
+        }
+
+        ChatServer limited = new ChatServer(PORT, message -> { }, ServerMode.NIO, 1);
+        limited.configureRateLimits(5, 0, RateLimitPolicy.REJECT);
+        serverThread = start(limited);
+        try {
+            rejectScenario();
+        } finally {
+            limited.stopServer();
+            serverThread.join(5000);
+        }
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static Thread start(ChatServer server) throws InterruptedException {
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        serverThread.start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+        return serverThread;
+    }
+
+    private static void windowScenario() {
+        System.out.println("--- Kayan pencere ---");
+        SequenceWindow window = new SequenceWindow();
+        check("İlk numara ve sonrakiler kabul edildi", window.accept(10) && window.accept(11) && window.accept(13));
+        check("Tekrar reddedildi", !window.accept(11) && !window.accept(13));
+        check("Birikimli numara boşlukta durdu", window.cumulative() == 11);
+        check("Geç gelen eksik kabul edildi, birikimli ilerledi", window.accept(12) && window.cumulative() == 13);
+        check("Onay yalnızca ilerleyince verildi", window.takeAcknowledgement() == 13
+                && window.takeAcknowledgement() == -1);
+        window.accept(13 + SequenceWindow.SIZE + 5);
+        check("Pencerenin gerisindeki numara reddedildi", !window.accept(14));
+    }
+
+    private static void deliveryScenario() throws Exception {
+        System.out.println("--- Teslim ve onay ---");
+        ChatClient sender = new ChatClient();
+        sender.setSequencedDelivery(true);
+        List<Frame> echoed = collect(sender);
+        sender.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient receiver = new ChatClient();
+        receiver.setHeartbeat(50, 2000, TimeUnit.MILLISECONDS);
+        List<Frame> received = collect(receiver);
+        receiver.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient legacy = new ChatClient();
+        List<Frame> legacyReceived = collect(legacy);
+        legacy.connect("127.0.0.1", PORT);
+        try {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(sender.sendMessageAsync("mesaj-" + i));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            check("Gönderimler sunucu onayıyla tamamlandı", results.stream().allMatch(CompletableFuture::join)
+                    && sender.getAcknowledgedSequence() == 5 && sender.getUnacknowledgedCount() == 0);
+            check("Alıcıya iç mesaj sırayla ulaştı", waitFor(() -> texts(received).size() == 5, 3000)
+                    && texts(received).equals(List.of("mesaj-0", "mesaj-1", "mesaj-2", "mesaj-3", "mesaj-4")));
+            check("Metin protokolüne düz satır gitti", waitFor(() -> texts(legacyReceived).size() == 5, 3000)
+                    && legacyReceived.stream().noneMatch(frame -> frame.line().startsWith(FrameType.SEQ.prefix())));
+            check("Gönderene mesaj geri yansıtılmadı", texts(echoed).isEmpty());
+            check("Alıcının onayı gönderene iletildi", waitFor(() -> Long.valueOf(5).equals(
+                    sender.getDeliveryAcknowledgements().get(receiver.getClientId())), 3000));
+
+            check("Gönderen kimliği sunucudan öğrenildi", sender.getSenderId() != null
+                    && !sender.getSenderId().equals(receiver.getSenderId()));
+
+            // Yeniden gönderilen numara: aynı bağlantı, aynı numara
+            String peer = sender.getSenderId();
+            sender.send(Frame.ofSequenced(peer, 6, Frame.ofLine("tekrar-6")));
+            sender.send(Frame.ofSequenced(peer, 6, Frame.ofLine("tekrar-6")));
+            sender.send(Frame.ofSequenced(peer, 8, Frame.ofLine("tekrar-8")));
+            sender.send(Frame.ofSequenced(peer, 7, Frame.ofLine("tekrar-7")));
+            check("Tekrar eden numara bir kez teslim edildi", waitFor(() -> texts(received).size() == 8, 3000)
+                    && waitFor(() -> receiver.getDuplicatesDropped() == 1, 1000)
+                    && texts(received).subList(5, 8).equals(List.of("tekrar-6", "tekrar-8", "tekrar-7")));
+        } finally {
+            sender.disconnect();
+            receiver.disconnect();
+            legacy.disconnect();
+        }
+    }
+
+    private static void fileScenario() throws Exception {
+        System.out.println("--- Numaralı dosya ---");
+        ChatClient sender = new ChatClient();
+        sender.setSequencedDelivery(true);
+        List<Frame> echoed = collect(sender);
+        sender.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient receiver = new ChatClient();
+        List<Frame> received = collect(receiver);
+        receiver.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        Path file = Files.createTempFile("sequence-test", ".bin");
+        try {
+            byte[] data = new byte[FileTransfer.CHUNK_SIZE * 6 + 17];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (i * 7);
+            }
+            Files.write(file, data);
+            check("Dosya gönderildi ve onaylandı", sender.sendFileStreamAsync(file, "application/octet-stream", null)
+                    .get(10, TimeUnit.SECONDS) && sender.getUnacknowledgedCount() == 0);
+            check("Tüm parçalar alıcıya ulaştı", waitFor(() -> count(received, FrameType.FILE_CHUNK) == 7
+                    && count(received, FrameType.FILE_END) == 1, 3000));
+            check("Parçalar gönderene yansıtılmadı", count(echoed, FrameType.FILE_CHUNK) == 0);
+        } finally {
+            Files.deleteIfExists(file);
+            sender.disconnect();
+            receiver.disconnect();
+        }
+    }
+
+    private static void spoofScenario() throws Exception {
+        System.out.println("--- Sahte gönderen kimliği ---");
+        ChatClient victim = new ChatClient();
+        victim.setSequencedDelivery(true);
+        collect(victim);
+        victim.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient attacker = new ChatClient();
+        collect(attacker);
+        attacker.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient receiver = new ChatClient();
+        receiver.setHeartbeat(50, 2000, TimeUnit.MILLISECONDS);
+        List<Frame> received = collect(receiver);
+        receiver.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        try {
+            check("Kurbanın ilk mesajı onaylandı", victim.sendMessageAsync("mesaj-0").get(5, TimeUnit.SECONDS)
+                    && waitFor(() -> texts(received).size() == 1, 3000));
+            String victimId = victim.getSenderId();
+
+            // Kurbanın kimliği ve çok ileri bir numara: alıcının penceresi kaydırılmaya çalışılır
+            attacker.send(Frame.ofSequenced(victimId, 1_000_000, Frame.ofLine("mesaj-sahte")));
+            check("Sahte mesaj saldırganın kendi kimliğiyle dağıtıldı",
+                    waitFor(() -> attacker.getSenderId() != null && texts(received).size() == 2, 3000)
+                    && !victimId.equals(attacker.getSenderId()));
+
+            check("Kurbanın sonraki mesajı engellenmedi", victim.sendMessageAsync("mesaj-1").get(5, TimeUnit.SECONDS)
+                    && waitFor(() -> texts(received).size() == 3, 3000)
+                    && texts(received).equals(List.of("mesaj-0", "mesaj-sahte", "mesaj-1"))
+                    && receiver.getDuplicatesDropped() == 0);
+            check("Alıcı onayları kurbana gitti", waitFor(() -> Long.valueOf(2).equals(
+                    victim.getDeliveryAcknowledgements().get(receiver.getClientId())), 3000));
+            check("Saldırgan yalnızca kendi mesajının onayını aldı", waitFor(() -> Long.valueOf(1_000_000).equals(
+                    attacker.getDeliveryAcknowledgements().get(receiver.getClientId())), 3000)
+                    && attacker.getDeliveryAcknowledgements().size() == 1);
+        } finally {
+            victim.disconnect();
+            attacker.disconnect();
+            receiver.disconnect();
+        }
+    }
+
+    private static void rejectScenario() throws Exception {
+        System.out.println("--- Hız sınırı (REJECT) ---");
+        ChatClient sender = new ChatClient();
+        sender.setSequencedDelivery(true);
+        collect(sender);
+        sender.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        ChatClient receiver = new ChatClient();
+        List<Frame> received = collect(receiver);
+        receiver.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+        try {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(sender.sendMessageAsync("mesaj-" + i));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            List<String> acknowledged = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).join()) {
+                    acknowledged.add("mesaj-" + i);
+                }
+            }
+            check("Fazla mesajlar false ile tamamlandı", acknowledged.size() < results.size()
+                    && sender.getUnacknowledgedCount() == 0);
+            Thread.sleep(300);
+            check("Yalnızca onaylanan mesajlar alıcıya ulaştı", !acknowledged.isEmpty()
+                    && texts(received).equals(acknowledged));
+        } finally {
+            sender.disconnect();
+            receiver.disconnect();
+        }
+    }
+
+    /**
+     * Bağlantı kurulunca bir okuyucu başlatır ve gelen çerçeveleri biriktirir;
+     * ACK'ler de readFrame() içinde işlendiği için gönderenin de okuması gerekir
+     */
+    private static List<Frame> collect(ChatClient client) {
+        List<Frame> received = new CopyOnWriteArrayList<>();
+        client.addConnectionListener((previous, current) -> {
+            if (current == ConnectionState.CONNECTED) {
+                Thread.ofVirtual().name("Sequence-Reader").start(() -> {
+                    try {
+                        Frame frame;
+                        while ((frame = client.readFrame()) != null) {
+                            received.add(frame);
+                        }
+                    } catch (IOException ignored) {
+                        // Bağlantı kapandı
+                    }
+                });
+            }
+        });
+        return received;
+    }
+
+    private static List<String> texts(List<Frame> frames) {
+        List<String> texts = new ArrayList<>();
+        for (Frame frame : frames) {
+            if (frame.type() == FrameType.TEXT && (frame.text().startsWith("mesaj-")
+                    || frame.text().startsWith("tekrar-"))) {
+                texts.add(frame.text());
+            }
+        }
+        return texts;
+    }
+
+    private static long count(List<Frame> frames, FrameType type) {
+        return frames.stream().filter(frame -> frame.type() == type).count();
+    }
+
+    private static boolean waitFor(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package main;
+
+/**
+ * Tek bir göndericinin sıra numaraları için kayan pencere.
+ * Görülen en büyük numara ve ondan geriye 64 numaralık bir bit maskesi tutulur
+ * (bit i: en büyük - i görüldü); tekrar eden veya pencerenin gerisinde kalan
+ * numaralar reddedilir. Nesne oluşturmaz ve göndericiden bağımsız olarak sabit
+ * bellek kullanır. İlk görülen numaradan öncekiler beklenmez: birikimli onay
+ * onlar yüzünden takılmaz, pencere içindeyseler yine bir kez kabul edilir.
+ *
+ * Thread-safe değildir; çağıran senkronize etmelidir.
+ */
+public final class SequenceWindow {
+
+    public static final int SIZE = Long.SIZE;
+
+    private long highest = -1;
+    private long bitmap;
+    private long first = -1;
+    private long acknowledged = -1;
+
+    /**
+     * @return numara ilk kez görüldüyse true; tekrar veya pencereden eskiyse false
+     */
+    public boolean accept(long sequence) {
+        if (sequence < 0)
+            return false;
+        if (highest < 0) {
+            highest = sequence;
+            first = sequence;
+            bitmap = 1;
+            return true;
+        }
+        if (sequence > highest) {
+            long shift = sequence - highest;
+            bitmap = (shift >= SIZE) ? 1 : (bitmap << shift) | 1;
+            highest = sequence;
+            return true;
+        }
+        long offset = highest - sequence;
+        if (offset >= SIZE)
+            return false;
+        long bit = 1L << offset;
+        if ((bitmap & bit) != 0)
+            return false;
+        bitmap |= bit;
+        return true;
+    }
+
+    /**
+     * Kendisi ve öncesinin tamamı alınmış en büyük numara; hiç numara görülmediyse -1.
+     * Pencerenin gerisine düşen eksikler kayıp sayılır.
+     */
+    public long cumulative() {
+        if (highest < 0)
+            return -1;
+        long seen = bitmap;
+        long span = highest - first;
+        if (span < SIZE - 1) {
+            // İlk numaradan öncekiler beklenmiyor
+            seen |= -1L << (span + 1);
+        }
+        long missing = ~seen;
+        if (missing == 0)
+            return highest;
+        // Penceredeki en eski eksik numaradan bir önceki
+        int oldestGap = SIZE - 1 - Long.numberOfLeadingZeros(missing);
+        return highest - oldestGap - 1;
+    }
+
+    /**
+     * Son onaydan beri ilerlediyse yeni birikimli numarayı onaylanmış sayar ve döner
+     *
+     * @return gönderilecek onay, yoksa -1
+     */
+    public long takeAcknowledgement() {
+        long current = cumulative();
+        if (current <= acknowledged)
+            return -1;
+        acknowledged = current;
+        return current;
+    }
+}
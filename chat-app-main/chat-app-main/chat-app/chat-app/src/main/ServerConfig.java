@@ -0,0 +1,251 @@
+package main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sunucu ayarları: port, bağlantı modeli, tampon ve sınır ayarları.
+ * Bir properties dosyasından ve/veya "anahtar=değer" argümanlarından okunur;
+ * argümanlar dosyadaki değerleri ezer. Örnek dosya:
+ *
+ * <pre>
+ * port=5000
+ * mode=NIO
+ * reactors=4
+ * queue.capacity=1024
+ * queue.mb=8
+ * queue.overflow=DROP_OLDEST
+ * log.file=logs/server.log
+ * cluster.port=6000
+ * cluster.peers=127.0.0.1:6001,127.0.0.1:6002
+ * journal.dir=journal
+ * journal.retention.hours=24
+ * history.messages=200
+ * history.mb=4
+ * </pre>
+ *
+ * Swing'e bağlı değildir; hem ServerGUI hem HeadlessServerApp kullanır.
+ */
+public class ServerConfig {
+
+    public static final int DEFAULT_PORT = 5000;
+
+    private int port = DEFAULT_PORT;
+    private ServerMode mode = ServerMode.THREAD;
+    private int reactors = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = ChatServer.DEFAULT_QUEUE_CAPACITY;
+    private long queueBytes = ChatServer.DEFAULT_QUEUE_BYTES;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DISCONNECT;
+    private long spoolQuota = FileSpool.DEFAULT_QUOTA;
+    private long flushLingerMicros = ChatServer.DEFAULT_FLUSH_LINGER_MICROS;
+    private int maxConnections = 0;
+    private int maxConnectionsPerIp = 0;
+    private long messagesPerSecond = 0;
+    private long bytesPerSecond = 0;
+    private RateLimitPolicy rateLimitPolicy = RateLimitPolicy.DELAY;
+    private int payloadLogChars = ChatServer.DEFAULT_PAYLOAD_LOG_CHARS;
+    private int payloadLogSampling = 1;
+    private Path logFile;
+    private boolean metricsEnabled = true;
+    private String clusterNodeId;
+    private int clusterPort = 0;
+    private List<InetSocketAddress> clusterPeers = new ArrayList<>();
+    private Path journalDirectory;
+    private long journalSegmentBytes = MessageJournal.DEFAULT_SEGMENT_BYTES;
+    private long journalSegmentAgeMillis = MessageJournal.DEFAULT_SEGMENT_AGE_MILLIS;
+    private long journalRetentionBytes = MessageJournal.DEFAULT_RETENTION_BYTES;
+    private long journalRetentionMillis = MessageJournal.DEFAULT_RETENTION_MILLIS;
+    // 0 ise yeni bağlananlara geçmiş gönderilmez
+    private int historyMessages = 0;
+    private long historyBytes = 4L * 1024 * 1024;
+
+    /**
+     * "--config dosya" ile verilen dosyayı, ardından "anahtar=değer" argümanlarını okur
+     * (başındaki "--" isteğe bağlıdır)
+     */
+    public static ServerConfig fromArgs(String[] args) throws IOException {
+        ServerConfig config = new ServerConfig();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--config") && i + 1 < args.length) {
+                config.load(Path.of(args[++i]));
+            }
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--config")) {
+                i++;
+                continue;
+            }
+            String arg = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Geçersiz argüman (anahtar=değer bekleniyor): " + args[i]);
+            }
+            config.set(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        return config;
+    }
+
+    public void load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            set(key, properties.getProperty(key).trim());
+        }
+    }
+
+    /**
+     * Tek bir ayarı değiştirir; bilinmeyen anahtar veya geçersiz sayı IllegalArgumentException fırlatır
+     */
+    public void set(String key, String value) {
+        switch (key) {
+            case "port":
+                port = Integer.parseInt(value);
+                break;
+            case "mode":
+                mode = ServerMode.parse(value);
+                break;
+            case "reactors":
+                reactors = Integer.parseInt(value);
+                break;
+            case "queue.capacity":
+                queueCapacity = Integer.parseInt(value);
+                break;
+            case "queue.mb":
+                queueBytes = Long.parseLong(value) * 1024 * 1024;
+                break;
+            case "queue.overflow":
+                overflowPolicy = OverflowPolicy.parse(value);
+                break;
+            case "spool.quota.mb":
+                spoolQuota = Long.parseLong(value) * 1024 * 1024;
+                break;
+            case "flush.linger.micros":
+                flushLingerMicros = Long.parseLong(value);
+                break;
+            case "max.connections":
+                maxConnections = Integer.parseInt(value);
+                break;
+            case "max.connections.per.ip":
+                maxConnectionsPerIp = Integer.parseInt(value);
+                break;
+            case "rate.messages":
+                messagesPerSecond = Long.parseLong(value);
+                break;
+            case "rate.bytes":
+                bytesPerSecond = Long.parseLong(value);
+                break;
+            case "rate.policy":
+                rateLimitPolicy = RateLimitPolicy.parse(value);
+                break;
+            case "log.payload.chars":
+                payloadLogChars = Integer.parseInt(value);
+                break;
+            case "log.payload.sampling":
+                payloadLogSampling = Integer.parseInt(value);
+                break;
+            case "metrics.enabled":
+                metricsEnabled = Boolean.parseBoolean(value);
+                break;
+            case "log.file":
+                logFile = value.isEmpty() ? null : Path.of(value);
+                break;
+            case "cluster.node":
+                clusterNodeId = value.isEmpty() ? null : value;
+                break;
+            case "cluster.port":
+                clusterPort = Integer.parseInt(value);
+                break;
+            case "cluster.peers":
+                clusterPeers = parsePeers(value);
+                break;
+            case "journal.dir":
+                journalDirectory = value.isEmpty() ? null : Path.of(value);
+                break;
+            case "journal.segment.mb":
+                journalSegmentBytes = Long.parseLong(value) * 1024 * 1024;
+                break;
+            case "journal.segment.minutes":
+                journalSegmentAgeMillis = TimeUnit.MINUTES.toMillis(Long.parseLong(value));
+                break;
+            case "journal.retention.mb":
+                journalRetentionBytes = Long.parseLong(value) * 1024 * 1024;
+                break;
+            case "journal.retention.hours":
+                journalRetentionMillis = TimeUnit.HOURS.toMillis(Long.parseLong(value));
+                break;
+            case "history.messages":
+                historyMessages = Integer.parseInt(value);
+                break;
+            case "history.mb":
+                historyBytes = Long.parseLong(value) * 1024 * 1024;
+                break;
+            default:
+                throw new IllegalArgumentException("Bilinmeyen ayar: " + key);
+        }
+    }
+
+    /**
+     * "host:port,host:port" biçimindeki eş listesi
+     */
+    private static List<InetSocketAddress> parsePeers(String value) {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : value.split(",")) {
+            peer = peer.trim();
+            if (peer.isEmpty())
+                continue;
+            int separator = peer.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Geçersiz küme eşi (host:port bekleniyor): " + peer);
+            }
+            peers.add(new InetSocketAddress(peer.substring(0, separator),
+                    Integer.parseInt(peer.substring(separator + 1))));
+        }
+        return peers;
+    }
+
+    /**
+     * Bu ayarlarla (henüz başlatılmamış) bir sunucu oluşturur
+     */
+    public ChatServer createServer(ServerListener listener) {
+        ChatServer server = new ChatServer(port, listener, mode, reactors);
+        server.configureOutboundQueue(queueCapacity, queueBytes, overflowPolicy);
+        server.configureSpool(spoolQuota);
+        server.configureWriteCoalescing(flushLingerMicros);
+        server.configureAdmission(maxConnections, maxConnectionsPerIp);
+        server.configureRateLimits(messagesPerSecond, bytesPerSecond, rateLimitPolicy);
+        server.configurePayloadLogging(payloadLogChars, payloadLogSampling);
+        server.configureMetrics(metricsEnabled);
+        if (clusterPort > 0) {
+            server.configureCluster(clusterNodeId != null ? clusterNodeId : "node-" + port, clusterPort, clusterPeers);
+        }
+        if (journalDirectory != null) {
+            server.configureJournal(journalDirectory, journalSegmentBytes, journalSegmentAgeMillis,
+                    journalRetentionBytes, journalRetentionMillis);
+        }
+        server.configureHistory(historyMessages, historyBytes);
+        return server;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ServerMode getMode() {
+        return mode;
+    }
+
+    /** Log dosyası; ayarlanmadıysa null */
+    public Path getLogFile() {
+        return logFile;
+    }
+}
@@ -4,8 +4,10 @@ import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
 import java.awt.geom.RoundRectangle2D;
+import java.io.IOException;
+import java.nio.file.Path;
 
-public class ServerGUI extends JFrame {
+public class ServerGUI extends JFrame implements ServerListener {
 
     // Modern Koyu Tema Renkleri
     private static final Color BG_DARK = new Color(26, 26, 46);
@@ -21,14 +23,38 @@ public class ServerGUI extends JFrame {
     private final ChatServer server;
     private final int port;
 
-    private final JTextArea logArea = new JTextArea();
+    // Loglar kilitsiz tampondan gruplar halinde ekrana (ve istenirse dosyaya) yazılır
+    private final AsyncLogger logger = new AsyncLogger(AsyncLogger.DEFAULT_CAPACITY);
+    private final LogView logView = new LogView(LogView.DEFAULT_MAX_LINES);
     private JButton startStopButton;
     private JLabel statusIndicator;
 
     public ServerGUI(int portNumber) {
+        this(portNumber, ServerMode.THREAD, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ServerGUI(int portNumber, ServerMode mode, int reactorThreads) {
 
         this.port = portNumber;
-        this.server = new ChatServer(this.port, this);
+        this.server = new ChatServer(this.port, this, mode, reactorThreads);
+        initialize();
+    }
+
+    /**
+     * Sunucuyu dosya/argüman ayarlarıyla oluşturur; log dosyası ayarlandıysa açılır
+     */
+    public ServerGUI(ServerConfig config) throws IOException {
+        this.port = config.getPort();
+        this.server = config.createServer(this);
+        if (config.getLogFile() != null) {
+            enableFileLog(config.getLogFile());
+        }
+        initialize();
+    }
+
+    private void initialize() {
+        logger.addSink(logView);
+        Runtime.getRuntime().addShutdownHook(new Thread(logger::close, "Log-Shutdown"));
 
         initializeGUI();
 
@@ -37,6 +63,17 @@ public class ServerGUI extends JFrame {
         logMessage("🔧 Sunucu hazır. Başlatmak için butona tıklayın.");
     }
 
+    public ChatServer getServer() {
+        return server;
+    }
+
+    /**
+     * Logları ekrana ek olarak döndürülen bir dosyaya da yazar
+     */
+    public void enableFileLog(Path file) throws IOException {
+        logger.addSink(new RollingFileLogSink(file));
+    }
+
     private JButton createStyledButton(String text, Color bgColor) {
         JButton button = new JButton(text) {
             private Color currentBg = bgColor;
@@ -145,21 +182,19 @@ public class ServerGUI extends JFrame {
         clearBtn.setBorder(BorderFactory.createEmptyBorder(5, 15, 5, 15));
         clearBtn.setFocusPainted(false);
         clearBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        clearBtn.addActionListener(e -> logArea.setText(""));
+        clearBtn.addActionListener(e -> logView.clear());
         logHeader.add(clearBtn, BorderLayout.EAST);
 
         centerPanel.add(logHeader, BorderLayout.NORTH);
 
-        logArea.setEditable(false);
-        logArea.setBackground(new Color(15, 15, 25));
-        logArea.setForeground(new Color(0, 255, 136)); // Terminal yeşili
-        logArea.setFont(new Font("Consolas", Font.PLAIN, 13));
-        logArea.setCaretColor(SUCCESS);
-        logArea.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
-        logArea.setLineWrap(true);
-        logArea.setWrapStyleWord(true);
+        logView.setBackground(new Color(15, 15, 25));
+        logView.setForeground(new Color(0, 255, 136)); // Terminal yeşili
+        logView.setSelectionBackground(BG_INPUT);
+        logView.setSelectionForeground(TEXT_PRIMARY);
+        logView.setFont(new Font("Consolas", Font.PLAIN, 13));
+        logView.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
 
-        JScrollPane scrollPane = new JScrollPane(logArea);
+        JScrollPane scrollPane = new JScrollPane(logView);
         scrollPane.setBorder(new LineBorder(BORDER_COLOR, 2, true));
         scrollPane.getViewport().setBackground(new Color(15, 15, 25));
 
@@ -171,11 +206,23 @@ public class ServerGUI extends JFrame {
         footerPanel.setBackground(BG_PANEL);
         footerPanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
 
-        JLabel footerLabel = new JLabel("🔐 Secure Chat Server v1.0 | Port: " + this.port);
+        JLabel footerLabel = new JLabel("🔐 Secure Chat Server v1.0 | Port: " + this.port
+                + " | Mod: " + server.getMode());
         footerLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         footerLabel.setForeground(TEXT_SECONDARY);
         footerPanel.add(footerLabel);
 
+        // Yazma birleştirme ve sınır istatistikleri saniyede bir güncellenir
+        JLabel statsLabel = new JLabel();
+        statsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        statsLabel.setForeground(TEXT_SECONDARY);
+        footerPanel.add(statsLabel);
+        new Timer(1000, e -> statsLabel.setText(String.format(
+                "| İstemci: %d | Mesaj/write: %.2f | Reddedilen bağlantı: %d | Atılan mesaj: %d | Geciktirme: %d"
+                        + " | Atılan log: %d",
+                server.getClientCount(), server.getAverageMessagesPerWrite(), server.getRejectedConnections(),
+                server.getRejectedMessages(), server.getDelayedReads(), logger.getDroppedCount()))).start();
+
         add(footerPanel, BorderLayout.SOUTH);
 
         // Center window
@@ -194,9 +241,7 @@ public class ServerGUI extends JFrame {
                 try {
                     server.startServer();
                 } catch (Exception e) {
-                    SwingUtilities.invokeLater(() -> {
-                        logMessage("❌ Sunucu başlatılırken hata: " + e.getMessage());
-                    });
+                    logMessage("❌ Sunucu başlatılırken hata: " + e.getMessage());
                 }
                 // Sunucu durduğunda buraya gelir
                 SwingUtilities.invokeLater(() -> {
@@ -211,12 +256,15 @@ public class ServerGUI extends JFrame {
         }
     }
 
+    /**
+     * Herhangi bir thread'den çağrılabilir; beklemez, tampon doluysa satır atılır
+     */
     public void logMessage(String message) {
-        SwingUtilities.invokeLater(() -> {
-            String timestamp = java.time.LocalTime.now().format(
-                    java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss"));
-            logArea.append("[" + timestamp + "] " + message + "\n");
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+        logger.log(message);
+    }
+
+    @Override
+    public void onLog(String message) {
+        logMessage(message);
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package main;
+
+/**
+ * ChatServer'ın dış dünyaya bildirdiği olaylar.
+ * Sunucu yalnızca bu arayüze bağlıdır; Swing arayüzü (ServerGUI) de başsız
+ * çalışma (HeadlessServerApp) da bunu uygular. Metotlar sunucunun kendi
+ * thread'lerinden (accept, bağlantı, reactor) çağrılır ve beklememelidir.
+ */
+public interface ServerListener {
+
+    void onLog(String message);
+
+    default void onServerStarted(int port, ServerMode mode) {
+    }
+
+    default void onServerStopped() {
+    }
+
+    default void onClientConnected(String clientId, int clientCount) {
+    }
+
+    default void onClientDisconnected(String clientId, int clientCount) {
+    }
+}
@@ -0,0 +1,210 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Sunucu ölçümleri ve JMX kaydı.
+ * Sıcak yoldaki kayıtlar yalnızca LongAdder artırımı veya histogram sayacı
+ * artırımıdır; kilit alınmaz, nesne oluşturulmaz. Saniye başına oranlar ayrı
+ * bir örnekleyici thread tarafından saniyede bir hesaplanır.
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+
+    private final ChatServer server;
+    private final LongAdder accepts = new LongAdder();
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final Histogram fanoutLatency = new Histogram();
+    private final Histogram messageSize = new Histogram();
+
+    private ScheduledExecutorService sampler;
+    private ObjectName name;
+    // Son örnek: toplamlar ve hesaplanan oranlar
+    private final long[] lastTotals = new long[5];
+    private long lastSampleNanos;
+    private volatile double[] rates = new double[5];
+
+    public ServerMetrics(ChatServer server) {
+        this.server = server;
+    }
+
+    void recordAccept() {
+        accepts.increment();
+    }
+
+    void recordMessageIn(long size) {
+        messagesIn.increment();
+        messageSize.record(size);
+    }
+
+    void recordBytesIn(long count) {
+        bytesIn.add(count);
+    }
+
+    void recordBytesOut(long count) {
+        bytesOut.add(count);
+    }
+
+    void recordFanout(long nanos) {
+        fanoutLatency.record(nanos);
+    }
+
+    /**
+     * MBean'i platform MBeanServer'a kaydeder ve örneklemeyi başlatır
+     */
+    synchronized void register() {
+        if (name != null)
+            return;
+        try {
+            ObjectName objectName = new ObjectName("main:type=ChatServer,port=" + server.getPort());
+            MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+            if (mbeans.isRegistered(objectName)) {
+                mbeans.unregisterMBean(objectName);
+            }
+            mbeans.registerMBean(this, objectName);
+            name = objectName;
+        } catch (JMException e) {
+            server.getListener().onLog("JMX kaydı yapılamadı: " + e.getMessage());
+            return;
+        }
+        lastSampleNanos = System.nanoTime();
+        totals(lastTotals);
+        sampler = Executors.newSingleThreadScheduledExecutor(
+                task -> Thread.ofPlatform().name("Metrics-Sampler").daemon(true).unstarted(task));
+        sampler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+    }
+
+    synchronized void unregister() {
+        if (name == null)
+            return;
+        sampler.shutdownNow();
+        sampler = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+        }
+        name = null;
+        rates = new double[5];
+    }
+
+    private void totals(long[] target) {
+        target[0] = accepts.sum();
+        target[1] = messagesIn.sum();
+        target[2] = server.getMessagesWritten();
+        target[3] = bytesIn.sum();
+        target[4] = bytesOut.sum();
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        long[] current = new long[5];
+        totals(current);
+        double seconds = (now - lastSampleNanos) / 1e9;
+        double[] computed = new double[5];
+        for (int i = 0; i < computed.length; i++) {
+            computed[i] = (current[i] - lastTotals[i]) / seconds;
+        }
+        System.arraycopy(current, 0, lastTotals, 0, current.length);
+        lastSampleNanos = now;
+        rates = computed;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return server.getClientCount();
+    }
+
+    @Override
+    public double getAcceptsPerSecond() {
+        return rates[0];
+    }
+
+    @Override
+    public double getMessagesInPerSecond() {
+        return rates[1];
+    }
+
+    @Override
+    public double getMessagesOutPerSecond() {
+        return rates[2];
+    }
+
+    @Override
+    public double getBytesInPerSecond() {
+        return rates[3];
+    }
+
+    @Override
+    public double getBytesOutPerSecond() {
+        return rates[4];
+    }
+
+    @Override
+    public long getTotalAccepts() {
+        return accepts.sum();
+    }
+
+    @Override
+    public long getTotalMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    @Override
+    public long getTotalMessagesOut() {
+        return server.getMessagesWritten();
+    }
+
+    @Override
+    public long getTotalBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getTotalBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public Map<String, Integer> getClientQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (ClientConnection client : server.clientSnapshot()) {
+            depths.put(client.getClientId(), client.getQueueDepth());
+        }
+        return depths;
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (ClientConnection client : server.clientSnapshot()) {
+            max = Math.max(max, client.getQueueDepth());
+        }
+        return max;
+    }
+
+    @Override
+    public HistogramSnapshot getFanoutLatencyMicros() {
+        return fanoutLatency.snapshot(1000.0);
+    }
+
+    @Override
+    public HistogramSnapshot getMessageSizeBytes() {
+        return messageSize.snapshot(1.0);
+    }
+
+    @Override
+    public void resetHistograms() {
+        fanoutLatency.reset();
+        messageSize.reset();
+    }
+}
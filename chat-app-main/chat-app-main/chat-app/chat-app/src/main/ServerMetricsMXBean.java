@@ -0,0 +1,46 @@
+package main;
+
+import java.util.Map;
+
+/**
+ * ChatServer'ın JMX'te (jconsole, VisualVM...) görünen ölçümleri.
+ * Nesne adı: main:type=ChatServer,port=&lt;port&gt;
+ * Saniye başına değerler her saniye örneklenir; toplamlar sunucu açıldığından beri sayılır.
+ */
+public interface ServerMetricsMXBean {
+
+    int getActiveConnections();
+
+    double getAcceptsPerSecond();
+
+    double getMessagesInPerSecond();
+
+    double getMessagesOutPerSecond();
+
+    double getBytesInPerSecond();
+
+    double getBytesOutPerSecond();
+
+    long getTotalAccepts();
+
+    long getTotalMessagesIn();
+
+    long getTotalMessagesOut();
+
+    long getTotalBytesIn();
+
+    long getTotalBytesOut();
+
+    /** İstemci kimliği → giden kuyruktaki mesaj sayısı */
+    Map<String, Integer> getClientQueueDepths();
+
+    int getMaxQueueDepth();
+
+    /** Bir mesajın tüm alıcıların kuyruğuna konması için geçen süre (mikrosaniye) */
+    HistogramSnapshot getFanoutLatencyMicros();
+
+    /** Gelen mesajların boyutu (bayt) */
+    HistogramSnapshot getMessageSizeBytes();
+
+    void resetHistograms();
+}
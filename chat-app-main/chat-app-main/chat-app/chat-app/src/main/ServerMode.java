@@ -0,0 +1,26 @@
+package main;
+
+/**
+ * Sunucunun bağlantıları nasıl işleyeceği
+ */
+public enum ServerMode {
+    /** Her istemci için bir platform thread (ClientHandler) */
+    THREAD,
+    /** Her istemci için bir sanal thread (ClientHandler), çok sayıda bağlantı için */
+    VIRTUAL,
+    /** Sabit sayıda reactor thread üzerinde Selector tabanlı non-blocking I/O */
+    NIO;
+
+    /**
+     * Büyük/küçük harf duyarsız çözümleme, bilinmeyen değer için THREAD döner
+     */
+    public static ServerMode parse(String value) {
+        if (value == null || value.isBlank())
+            return THREAD;
+        try {
+            return ServerMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return THREAD;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package main;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Oturum belirteci → istemcinin onayladığı son günlük offset'i.
+ * Bağlantı kopunca kayıt silinmez: aynı belirteçle yeniden bağlanan istemciye
+ * onayladığı offset'ten sonraki mesajlar günlükten yeniden gönderilir. Sunucu
+ * yeniden başladıysa belirteç bilinmez ve istemcinin bildirdiği offset kullanılır.
+ * Kayıt sayısı sınırlıdır; en uzun süredir kullanılmayan oturum unutulur.
+ */
+public class SessionRegistry {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * Bir bağlantının oturumu
+     */
+    public static final class Session {
+        private final String token;
+        // Bu bağlantıya en son bildirilen offset; PING ve geçmiş thread'i birlikte kullanır
+        private final AtomicLong announced = new AtomicLong(-1);
+
+        Session(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * @return offset önceki bildirimden büyükse true (işaret gönderilmeli)
+         */
+        boolean announce(long offset) {
+            long previous;
+            do {
+                previous = announced.get();
+                if (offset <= previous)
+                    return false;
+            } while (!announced.compareAndSet(previous, offset));
+            return true;
+        }
+    }
+
+    private final int capacity;
+    // Erişim sırasına göre; yalnızca kendi kilidiyle kullanılır
+    private final LinkedHashMap<String, Long> acknowledged;
+    private final ConcurrentHashMap<ClientConnection, Session> active = new ConcurrentHashMap<>();
+
+    public SessionRegistry(int capacity) {
+        this.capacity = capacity;
+        this.acknowledged = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > SessionRegistry.this.capacity;
+            }
+        };
+    }
+
+    public static String newToken() {
+        byte[] bytes = new byte[12];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Oturumun numaralı mesajlarda görünen gönderen kimliği. Belirteçten tek yönlü
+     * türetilir: herkese gösterilebilir, belirteci açığa çıkarmaz ve sunucu yeniden
+     * başlasa da aynı kalır (alıcılar tekrar gönderilenleri yine ayıklar).
+     */
+    public static String senderIdFor(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 desteklenmiyor", e);
+        }
+    }
+
+    /**
+     * Belirteç boşluk ve ':' içeremez; aksi halde yeni oturum açılır
+     */
+    public static boolean isValidToken(String token) {
+        return token != null && !token.isEmpty() && token.length() <= MAX_TOKEN_LENGTH
+                && token.indexOf(' ') < 0 && token.indexOf(':') < 0;
+    }
+
+    /**
+     * Bağlantıyı oturuma bağlar. İstemcinin bildirdiği offset bilinenden ilerideyse o
+     * kullanılır: son onayı bağlantı koparken yolda kalmış olabilir.
+     *
+     * @param clientOffset istemcinin bildirdiği son offset, bilinmiyorsa -1
+     * @return yeniden gönderime başlanacak offset; yeni oturumsa -1
+     */
+    public long attach(ClientConnection client, String token, long clientOffset) {
+        long from;
+        synchronized (acknowledged) {
+            Long known = acknowledged.get(token);
+            from = (known != null) ? Math.max(known, clientOffset) : clientOffset;
+            if (from >= 0) {
+                acknowledged.put(token, from);
+            }
+        }
+        active.put(client, new Session(token));
+        return from;
+    }
+
+    public Session get(ClientConnection client) {
+        return active.get(client);
+    }
+
+    /**
+     * İstemcinin aldığını onayladığı offset (birikimli)
+     */
+    public void acknowledge(String token, long offset) {
+        synchronized (acknowledged) {
+            acknowledged.merge(token, offset, Math::max);
+        }
+    }
+
+    /**
+     * Bağlantı kapandı; onaylanan offset sonraki bağlantı için saklanır
+     */
+    public void detach(ClientConnection client) {
+        active.remove(client);
+    }
+
+    public int size() {
+        synchronized (acknowledged) {
+            return acknowledged.size();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bir kez kodlanıp birden çok bağlantıya gönderilen, referans sayımlı tampon.
+ * Broadcast mesajı tek bir direct ByteBuffer'a UTF-8 olarak kodlanır; her bağlantı
+ * kendi salt-okunur görünümü (view) üzerinden yazar. Son release() çağrısında
+ * küçük tamponlar tekrar kullanılmak üzere havuza döner.
+ * Her tampon hangi protokolde kodlandığını bilir; yazıcılar bağlantının o anki
+ * protokolüne uymayan tamponları (el sıkışma sırasındaki yarış) atlar.
+ * Büyük dosyalar bellekte değil bir SpoolFile'da durur; bu durumda yazıcılar
+ * view() yerine transferTo() ile doğrudan dosyadan sokete gönderir.
+ * Başka bir yapının belleğinin dilimi de (ör. geçmiş halkası) kopyalanmadan
+ * sarılabilir; son release() o belleğin sahibine bildirilir.
+ */
+public final class SharedBuffer {
+
+    // Havuzlanan boyut sınıfları: 256 B ... 64 KB (ikinin kuvvetleri)
+    private static final int MIN_POOLED_SHIFT = 8;
+    private static final int MAX_POOLED_SHIFT = 16;
+    private static final int MAX_POOLED_PER_CLASS = 256;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Queue<ByteBuffer>[] POOL = new Queue[MAX_POOLED_SHIFT - MIN_POOLED_SHIFT + 1];
+    private static final AtomicInteger[] POOL_SIZES = new AtomicInteger[POOL.length];
+
+    static {
+        for (int i = 0; i < POOL.length; i++) {
+            POOL[i] = new ConcurrentLinkedQueue<>();
+            POOL_SIZES[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Dilimi sarılan belleğin sahibi; son release()'te çağrılır
+     */
+    interface Owner {
+        void release();
+    }
+
+    private final ByteBuffer storage;
+    private final ByteBuffer data;
+    private final SpoolFile spool;
+    private final Owner owner;
+    private final WireProtocol protocol;
+    private final WireProtocol switchesTo;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    // Parçalı dosya aktarımının çerçevesi mi; kuyruğa verilmeden önce işaretlenir
+    private boolean transfer;
+
+    private SharedBuffer(ByteBuffer storage, WireProtocol protocol, WireProtocol switchesTo) {
+        this.storage = storage;
+        this.data = storage.asReadOnlyBuffer();
+        this.spool = null;
+        this.owner = null;
+        this.protocol = protocol;
+        this.switchesTo = switchesTo;
+    }
+
+    private SharedBuffer(Owner owner, ByteBuffer slice, WireProtocol protocol) {
+        this.storage = null;
+        this.data = slice.asReadOnlyBuffer();
+        this.spool = null;
+        this.owner = owner;
+        this.protocol = protocol;
+        this.switchesTo = null;
+    }
+
+    private SharedBuffer(SpoolFile spool, WireProtocol protocol) {
+        this.storage = null;
+        this.data = null;
+        this.spool = spool;
+        this.owner = null;
+        this.protocol = protocol;
+        this.switchesTo = null;
+    }
+
+    /**
+     * Protokolde kodlanmış haliyle diske yazılmış dosyayı sarar.
+     * Spool dosyasının referansını devralır; son release() onu da bırakır.
+     */
+    public static SharedBuffer ofSpool(SpoolFile spool, WireProtocol protocol) {
+        return new SharedBuffer(spool, protocol);
+    }
+
+    /**
+     * Sahibinin belleğindeki, protokolde kodlanmış bir dilimi kopyalamadan sarar.
+     * Sahibin bir referansını devralır; son release() owner.release() çağırır.
+     */
+    static SharedBuffer ofSlice(ByteBuffer slice, WireProtocol protocol, Owner owner) {
+        return new SharedBuffer(owner, slice, protocol);
+    }
+
+    /**
+     * Metni sonuna '\n' ekleyerek tek seferde UTF-8 olarak kodlar.
+     * Dönen tamponun referans sayısı 1'dir; çağıran işi bitince release() etmelidir.
+     */
+    public static SharedBuffer encodeLine(String line) {
+        return new SharedBuffer(encodeUtf8Line(line), WireProtocol.TEXT, null);
+    }
+
+    /**
+     * Yazıldıktan sonra bağlantının protokolünü değiştiren kontrol satırı (el sıkışma yanıtı)
+     */
+    public static SharedBuffer encodeSwitchLine(String line, WireProtocol next) {
+        return new SharedBuffer(encodeUtf8Line(line), WireProtocol.TEXT, next);
+    }
+
+    /**
+     * [tip:1][uzunluk:4][yük] biçiminde ikili çerçeve
+     */
+    public static SharedBuffer encodeFrame(byte type, byte[] payload) {
+        ByteBuffer buffer = allocate(FrameCodec.HEADER_LENGTH + payload.length);
+        buffer.put(type).putInt(payload.length).put(payload);
+        buffer.flip();
+        return new SharedBuffer(buffer, WireProtocol.BINARY, null);
+    }
+
+    private static ByteBuffer encodeUtf8Line(String line) {
+        ByteBuffer buffer = allocate(utf8Length(line) + 1);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encoder.encode(CharBuffer.wrap(line), buffer, true);
+        encoder.flush(buffer);
+        buffer.put((byte) '\n');
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Bu bağlantıya özel, bağımsız konumlu salt-okunur görünüm
+     */
+    public ByteBuffer view() {
+        if (data == null)
+            throw new IllegalStateException("Dosya tabanlı tampon transferTo ile yazılmalı");
+        return data.duplicate();
+    }
+
+    public boolean isFileBacked() {
+        return spool != null;
+    }
+
+    /**
+     * Parçalı dosya aktarımına (FILE_START/CHUNK/END) ait mi; biri atılırsa alıcı dosyayı birleştiremez
+     */
+    public boolean isTransfer() {
+        return transfer;
+    }
+
+    SharedBuffer markTransfer() {
+        transfer = true;
+        return this;
+    }
+
+    /**
+     * Dosya tabanlı tamponu position'dan itibaren kanala gönderir (sendfile).
+     * Non-blocking kanalda kısmi yazabilir; gönderilen bayt sayısını döner.
+     */
+    public long transferTo(long position, WritableByteChannel target) throws IOException {
+        return spool.transferTo(position, target);
+    }
+
+    public WireProtocol protocol() {
+        return protocol;
+    }
+
+    /**
+     * Bu tampon yazıldıktan sonra geçilecek protokol, yoksa null
+     */
+    public WireProtocol switchesTo() {
+        return switchesTo;
+    }
+
+    public long size() {
+        return (spool != null) ? spool.length() : data.remaining();
+    }
+
+    public SharedBuffer retain() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0)
+                throw new IllegalStateException("Serbest bırakılmış tampon tekrar kullanılamaz");
+        } while (!refCount.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    public void release() {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            if (spool != null) {
+                spool.release();
+            } else if (owner != null) {
+                owner.release();
+            } else {
+                recycle(storage);
+            }
+        } else if (count < 0) {
+            throw new IllegalStateException("SharedBuffer fazla release edildi");
+        }
+    }
+
+    private static ByteBuffer allocate(int size) {
+        int sizeClass = sizeClass(size);
+        if (sizeClass >= 0) {
+            ByteBuffer pooled = POOL[sizeClass].poll();
+            if (pooled != null) {
+                POOL_SIZES[sizeClass].decrementAndGet();
+                pooled.clear();
+                pooled.limit(size);
+                return pooled;
+            }
+            ByteBuffer fresh = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_POOLED_SHIFT));
+            fresh.limit(size);
+            return fresh;
+        }
+        // Büyük tamponlar havuzlanmaz, GC tarafından serbest bırakılır
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    private static void recycle(ByteBuffer buffer) {
+        int sizeClass = sizeClass(buffer.capacity());
+        if (sizeClass < 0 || buffer.capacity() != 1 << (sizeClass + MIN_POOLED_SHIFT))
+            return;
+        if (POOL_SIZES[sizeClass].incrementAndGet() > MAX_POOLED_PER_CLASS) {
+            POOL_SIZES[sizeClass].decrementAndGet();
+            return;
+        }
+        POOL[sizeClass].offer(buffer);
+    }
+
+    private static int sizeClass(int size) {
+        if (size > 1 << MAX_POOLED_SHIFT)
+            return -1;
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+        return Math.max(shift, MIN_POOLED_SHIFT) - MIN_POOLED_SHIFT;
+    }
+
+    /**
+     * UTF-8 kodlandığında kaç bayt tutacağını hesaplar (tamponu tam boyutta ayırmak için).
+     * Eşsiz vekiller, REPLACE kodlayıcısının yazdığı gibi '?' (1 bayt) sayılır.
+     */
+    static int utf8Length(CharSequence text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    // Eşsiz vekil: REPLACE kodlayıcısı tek bayt '?' yazar
+                    continue;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,131 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FileSpool içindeki tek bir geçici dosya.
+ * Önce tek bir thread tarafından sırayla yazılır, ardından birden çok yazıcı
+ * thread aynı kanaldan konum belirterek (positional) okur. Referans sayımlıdır;
+ * son release() kanalı kapatır, dosya DELETE_ON_CLOSE ile silinir ve kota geri verilir.
+ */
+public final class SpoolFile {
+
+    private final FileSpool owner;
+    private final FileChannel channel;
+    private long reserved;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private long length = 0;
+
+    SpoolFile(FileSpool owner, Path path, long reserved) throws IOException {
+        this.owner = owner;
+        this.reserved = reserved;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    public FileSpool owner() {
+        return owner;
+    }
+
+    /**
+     * Tampondaki tüm baytları dosyanın sonuna ekler
+     */
+    public void write(ByteBuffer source) throws IOException {
+        if (length + source.remaining() > reserved) {
+            throw new IOException("Spool dosyası ayrılan boyutu aşıyor");
+        }
+        while (source.hasRemaining()) {
+            length += channel.write(source, length);
+        }
+    }
+
+    /**
+     * Daha önce yazılmış bir bölümün üzerine yazar (ör. sonradan öğrenilen uzunluk alanı)
+     */
+    public void writeAt(long position, ByteBuffer source) throws IOException {
+        if (position + source.remaining() > length) {
+            throw new IOException("Spool dosyasında yazılmamış bölgeye yazılamaz");
+        }
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    /**
+     * Boyutu önceden bilinmeyen dosya tamamlanınca kullanılmayan ayrılmış alanı kotaya geri verir
+     */
+    public void trim() {
+        long unused = reserved - length;
+        if (unused > 0) {
+            reserved = length;
+            owner.released(unused);
+        }
+    }
+
+    /**
+     * Başka bir spool dosyasının bir bölümünü kopyalamadan (kernel içinde) sona ekler
+     */
+    public void append(SpoolFile source, long position, long count) throws IOException {
+        if (length + count > reserved) {
+            throw new IOException("Spool dosyası ayrılan boyutu aşıyor");
+        }
+        long end = position + count;
+        while (position < end) {
+            long copied = source.channel.transferTo(position, end - position, channel.position(length));
+            position += copied;
+            length += copied;
+        }
+    }
+
+    /**
+     * Küçük bir bölümü okur (ör. dosya adı ve MIME tipi alanları)
+     */
+    public byte[] read(long position, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Spool dosyası beklenenden kısa");
+        }
+        return buffer.array();
+    }
+
+    /**
+     * position'dan itibaren hedefe gönderilebildiği kadarını gönderir; gönderilen bayt sayısını döner
+     */
+    public long transferTo(long position, WritableByteChannel target) throws IOException {
+        return channel.transferTo(position, length - position, target);
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public SpoolFile retain() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0)
+                throw new IllegalStateException("Silinmiş spool dosyası tekrar kullanılamaz");
+        } while (!refCount.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    public void release() {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            owner.released(reserved);
+        } else if (count < 0) {
+            throw new IllegalStateException("SpoolFile fazla release edildi");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Büyük dosyaların diske alınmasını (FileSpool) test eder
+ * - Eşiği aşan eski metin "FILE:" satırının heap'te biriktirilmeden spool dosyasına yazılması
+ * - Satır sonu '\r\n' olsa da verinin bozulmaması, fazla ayrılan kotanın geri verilmesi
+ * - Kota doluyken satırın okunup atlanması, bağlantının devam etmesi
+ * - Her sunucu modunda eski istemcinin gönderdiği büyük dosyanın ikili ve metin istemcilerine ulaşması
+ */
+public class SpoolTest {
+
+    private static final int PORT = 5067;
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Spool Testi ===\n");
+        textLineScenario();
+        quotaScenario();
+        for (ServerMode mode : ServerMode.values()) {
+            relayScenario(mode);
+        }
+
+        System.out.println("\nBaşarılı: " + passed + ", Başarısız: " + failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static String fileData(int length) {
+        StringBuilder data = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            data.append((char) ('A' + i % 26));
+        }
+        return data.toString();
+    }
+
+    private static void textLineScenario() throws IOException {
+        System.out.println("--- Eski FILE satırı ---");
+        FileSpool spool = new FileSpool("chat-spool-test", FileSpool.DEFAULT_QUOTA);
+        List<Frame> frames = new ArrayList<>();
+        InboundDecoder decoder = new InboundDecoder(null, frame -> {
+            if (frame.spool() != null) {
+                frame.spool().retain();
+            }
+            frames.add(frame);
+        }, spool);
+
+        String data = fileData(8 * 1024 * 1024);
+        byte[] line = ("FILE:büyük.bin:application/octet-stream:" + data + "\r\nsonraki\n")
+                .getBytes(StandardCharsets.UTF_8);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int offset = 0; offset < line.length; offset += 16 * 1024) {
+            decoder.feed(ByteBuffer.wrap(line, offset, Math.min(16 * 1024, line.length - offset)));
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        check("Satır çözüldü, ardından gelen satır da", frames.size() == 2
+                && "sonraki".equals(frames.get(1).line()));
+        Frame file = frames.get(0);
+        check("Dosya diske alındı", file.type() == FrameType.FILE && file.spool() != null);
+        check("Çözerken heap kullanımı sınırlı kaldı (" + allocated / 1024 + " KB)", allocated < 1024 * 1024);
+        check("Ad ve MIME ikili düzende", "büyük.bin".equals(file.fileName())
+                && "application/octet-stream".equals(file.mimeType()));
+        check("Kullanılmayan kota geri verildi", spool.getUsedBytes() == file.spool().length());
+        check("Veri '\\r' olmadan aynen yazıldı", data.equals(file.fileData()));
+        file.spool().release();
+        check("Bırakınca kota sıfırlandı", spool.getUsedBytes() == 0);
+        decoder.close();
+    }
+
+    private static void quotaScenario() throws IOException {
+        System.out.println("--- Kota dolu ---");
+        FileSpool spool = new FileSpool("chat-spool-test", 1024 * 1024);
+        List<Frame> frames = new ArrayList<>();
+        long[] discarded = { -1 };
+        InboundDecoder decoder = new InboundDecoder(null, new InboundDecoder.FrameHandler() {
+            @Override
+            public void onFrame(Frame frame) {
+                frames.add(frame);
+            }
+
+            @Override
+            public void onDiscarded(FrameType type, long length) {
+                discarded[0] = length;
+            }
+        }, spool);
+
+        String content = "FILE:a.bin:application/octet-stream:" + fileData(200 * 1024);
+        byte[] line = (content + "\nmerhaba\n").getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < line.length; offset += 8 * 1024) {
+            decoder.feed(ByteBuffer.wrap(line, offset, Math.min(8 * 1024, line.length - offset)));
+        }
+        check("Satır atlandı ve bildirildi", discarded[0] == content.length());
+        check("Bağlantı sonraki satırla devam etti", frames.size() == 1 && "merhaba".equals(frames.get(0).line()));
+        check("Kotadan yer ayrılmadı", spool.getUsedBytes() == 0);
+    }
+
+    private static void relayScenario(ServerMode mode) throws Exception {
+        System.out.println("--- Büyük eski dosya aktarımı (" + mode + ") ---");
+        ChatServer server = new ChatServer(PORT, message -> { }, mode, 1);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.startServer();
+            } catch (IOException e) {
+                System.out.println("Sunucu hatası: " + e.getMessage());
+            }
+        }, "Server-Thread");
+        serverThread.start();
+        while (!server.isRunning()) {
+            Thread.sleep(10);
+        }
+
+        ChatClient binary = new ChatClient();
+        ChatClient text = new ChatClient();
+        try (Socket legacy = new Socket("127.0.0.1", PORT)) {
+            binary.connect("127.0.0.1", PORT, WireProtocol.BINARY);
+            text.connect("127.0.0.1", PORT, WireProtocol.TEXT);
+            String data = fileData(2 * 1024 * 1024);
+            OutputStream out = legacy.getOutputStream();
+            out.write(("FILE:rapor.pdf:application/pdf:" + data + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            Frame received = binary.readFrame();
+            check("İkili istemci dosyayı aldı", received != null && received.type() == FrameType.FILE
+                    && "rapor.pdf".equals(received.fileName()) && data.equals(received.fileData()));
+            received = text.readFrame();
+            check("Metin istemcisi dosyayı aldı", received != null && received.type() == FrameType.FILE
+                    && "application/pdf".equals(received.mimeType()) && data.equals(received.fileData()));
+        } finally {
+            binary.disconnect();
+            text.disconnect();
+            server.stopServer();
+            serverThread.join(5000);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  ✓ " + name);
+        } else {
+            failed++;
+            System.out.println("  ✗ " + name);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kilitsiz ve bellek ayırmayan token bucket (GCRA biçiminde).
+ * Kova dolu sayısı yerine "teorik varış zamanı" tek bir AtomicLong'da tutulur:
+ * her istek bu zamanı token başına düşen süre kadar ileri iter; zaman şimdiyi
+ * burst süresinden fazla geçerse istek sınırı aşmış demektir. Güncelleme tek bir
+ * CAS ile yapılır, böylece her mesajın önünde kilit veya nesne oluşturulmaz.
+ */
+public final class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param tokensPerSecond saniyede yenilenen token sayısı
+     * @param burst           boş kovada art arda harcanabilecek en fazla token
+     */
+    public TokenBucket(long tokensPerSecond, long burst) {
+        this.nanosPerToken = Math.max(1, 1_000_000_000L / Math.max(1, tokensPerSecond));
+        this.burstNanos = nanosPerToken * Math.max(1, burst);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Token'ları her durumda ayırır ve bunların kullanılabilmesi için beklenmesi gereken süreyi döner
+     *
+     * @return nanosaniye cinsinden bekleme, sınır aşılmadıysa 0
+     */
+    public long reserve(long tokens) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long now = System.nanoTime();
+            long next = Math.max(current, now - burstNanos) + tokens * nanosPerToken;
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return Math.max(0, next - now);
+            }
+        }
+    }
+
+    /**
+     * Token'lar hemen kullanılabiliyorsa ayırır
+     *
+     * @return sınır aşıldıysa false (hiçbir şey ayrılmaz)
+     */
+    public boolean tryAcquire(long tokens) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long now = System.nanoTime();
+            long next = Math.max(current, now - burstNanos) + tokens * nanosPerToken;
+            if (next - now > 0)
+                return false;
+            if (theoreticalArrival.compareAndSet(current, next))
+                return true;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package main;
+
+/**
+ * Bir bağlantının konuştuğu çerçeveleme biçimi
+ */
+public enum WireProtocol {
+    /** Eski satır protokolü: her mesaj '\n' ile biten bir UTF-8 satırı */
+    TEXT,
+    /** [tip:1][uzunluk:4][yük] biçiminde uzunluk önekli ikili çerçeveler */
+    BINARY
+}
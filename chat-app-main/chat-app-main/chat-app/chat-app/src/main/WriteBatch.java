@@ -0,0 +1,124 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Bir bağlantının kuyruğundan birlikte yazılacak mesaj grubu.
+ * Kuyrukta biriken tamponlar tek bir gathering write (writev) çağrısıyla
+ * gönderilir; böylece yoğun anlarda her mesaj ayrı bir syscall olmaz.
+ * Dosya tabanlı tamponlar tek başına bir grup oluşturur ve transferTo ile yazılır.
+ * Protokol değiştiren tampon (el sıkışma yanıtı) grubun son elemanıdır. Kuyruk,
+ * yanıttan sonra eski protokolde kodlanmış mesaj kabul etmez (bkz. OutboundQueue);
+ * yine de yazıcının protokolüne uymayan tampon bağlantıya yazılmaz. Thread güvenli değildir: her bağlantının
+ * yazıcısına (yazıcı thread veya reactor) aittir.
+ */
+public class WriteBatch {
+
+    /** Tek bir write çağrısında gönderilecek en fazla mesaj (IOV_MAX'ın altında) */
+    public static final int MAX_MESSAGES = 64;
+
+    private final SharedBuffer[] items = new SharedBuffer[MAX_MESSAGES];
+    private final ByteBuffer[] views = new ByteBuffer[MAX_MESSAGES];
+    private final ChatServer server;
+    private int first = 0;
+    private int count = 0;
+    private long filePosition = 0;
+    private WireProtocol writeProtocol = WireProtocol.TEXT;
+
+    public WriteBatch(ChatServer server) {
+        this.server = server;
+    }
+
+    public boolean isEmpty() {
+        return first == count;
+    }
+
+    /**
+     * Boş gruba kuyruktan bloklamadan mesaj alır
+     *
+     * @return alınan mesaj sayısı
+     */
+    public int fill(OutboundQueue queue) {
+        first = 0;
+        count = 0;
+        filePosition = 0;
+        SharedBuffer item;
+        while (count < MAX_MESSAGES && (item = queue.poll()) != null) {
+            if (item.protocol() != writeProtocol) {
+                item.release();
+                continue;
+            }
+            if (item.isFileBacked() && count > 0) {
+                // Dosya bir sonraki grupta tek başına yazılır
+                queue.pushBack(item);
+                break;
+            }
+            items[count] = item;
+            views[count] = item.isFileBacked() ? null : item.view();
+            count++;
+            if (item.isFileBacked() || item.switchesTo() != null)
+                break;
+        }
+        return count;
+    }
+
+    /**
+     * Tek bir write (veya transferTo) çağrısı yapar; tamamen yazılan mesajları bırakır
+     *
+     * @return grup tamamen yazıldıysa true, soket tamponu dolduysa false
+     */
+    public boolean writeTo(GatheringByteChannel channel) throws IOException {
+        if (isEmpty())
+            return true;
+        if (items[first].isFileBacked()) {
+            long written = items[first].transferTo(filePosition, channel);
+            filePosition += written;
+            boolean finished = filePosition >= items[first].size();
+            server.recordWrite(finished ? 1 : 0, written);
+            if (!finished)
+                return false;
+            complete(1);
+            return true;
+        }
+
+        long written = channel.write(views, first, count - first);
+        int done = 0;
+        while (first + done < count && !views[first + done].hasRemaining()) {
+            done++;
+        }
+        server.recordWrite(done, written);
+        complete(done);
+        return isEmpty();
+    }
+
+    private void complete(int done) {
+        for (int i = first; i < first + done; i++) {
+            if (items[i].switchesTo() != null) {
+                writeProtocol = items[i].switchesTo();
+            }
+            items[i].release();
+            items[i] = null;
+            views[i] = null;
+        }
+        first += done;
+        if (isEmpty()) {
+            first = 0;
+            count = 0;
+        }
+    }
+
+    /**
+     * Yazılmamış mesajları bırakır (bağlantı kapanırken)
+     */
+    public void release() {
+        for (int i = first; i < count; i++) {
+            items[i].release();
+            items[i] = null;
+            views[i] = null;
+        }
+        first = 0;
+        count = 0;
+    }
+}